@@ -0,0 +1,47 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Runs the benchmarks and writes the results as JSON, so that they can be compared between releases (e.g. using the
+ * JMH visualizers). Usage, after <code>mvn package</code>:
+ * </p>
+ *
+ * <pre>
+ * java -jar palladian-benchmarks/target/benchmarks.jar [JMH options] [benchmark regex]
+ * </pre>
+ *
+ * <p>
+ * All JMH command line options are supported (see <code>-h</code>); unless specified otherwise with <code>-rf</code>
+ * and <code>-rff</code>, the results are written to <code>palladian-benchmarks-[version].json</code> in the working
+ * directory.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // no instances.
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (!commandLineOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLineOptions.getResult().hasValue()) {
+            String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+            builder.result("palladian-benchmarks-" + (version != null ? version : "dev") + ".json");
+        }
+        Options options = builder.parent(commandLineOptions).build();
+        new Runner(options).run();
+    }
+
+}
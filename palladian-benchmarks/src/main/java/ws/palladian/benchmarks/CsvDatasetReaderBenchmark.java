@@ -0,0 +1,51 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ws.palladian.classification.utils.CsvDatasetReader;
+import ws.palladian.classification.utils.CsvDatasetReaderConfig;
+import ws.palladian.core.Instance;
+import ws.palladian.helper.io.CloseableIterator;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a CSV file with 10,000 rows and 20 numeric and nominal features with the {@link CsvDatasetReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvDatasetReaderBenchmark {
+
+    private File csvFile;
+
+    private CsvDatasetReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        csvFile = File.createTempFile("benchmark", ".csv");
+        FileHelper.writeToFile(csvFile.getPath(), new SyntheticData(1).csv(10000, 20));
+        reader = CsvDatasetReaderConfig.filePath(csvFile).create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileHelper.delete(csvFile.getPath());
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        try (CloseableIterator<Instance> iterator = reader.iterator()) {
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+            }
+        }
+    }
+
+}
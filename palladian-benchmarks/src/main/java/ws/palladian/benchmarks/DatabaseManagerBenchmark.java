@@ -0,0 +1,87 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ws.palladian.helper.io.FileHelper;
+import ws.palladian.persistence.DatabaseManager;
+import ws.palladian.persistence.DatabaseManagerFactory;
+import ws.palladian.persistence.StreamingBatchDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch insertion of 10,000 rows into embedded H2 and SQLite databases; a batch size of one corresponds to inserting
+ * row by row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseManagerBenchmark {
+
+    private static final String INSERT = "INSERT INTO benchmark (name, number, score) VALUES (?, ?, ?)";
+
+    @Param({"h2", "sqlite"})
+    public String database;
+
+    @Param({"1", "1000"})
+    public int batchSize;
+
+    private File databaseFile;
+
+    private DatabaseManager databaseManager;
+
+    private List<List<?>> rows;
+
+    @Setup
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("benchmark", ".db");
+        if (database.equals("h2")) {
+            databaseManager = DatabaseManagerFactory.create(DatabaseManager.class, "jdbc:h2:" + databaseFile.getPath(), "sa", "");
+            databaseManager.runUpdate("CREATE TABLE benchmark (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(255), number INTEGER, score REAL, PRIMARY KEY (id))");
+        } else {
+            databaseManager = DatabaseManagerFactory.create(DatabaseManager.class, "jdbc:sqlite:" + databaseFile.getPath(), "sa", "");
+            databaseManager.runUpdate("CREATE TABLE benchmark (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, number INTEGER, score REAL)");
+        }
+        databaseManager.setBatchSize(batchSize);
+        SyntheticData data = new SyntheticData(1);
+        rows = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            rows.add(Arrays.asList(data.text(3), i, i / 10.));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteRows() {
+        databaseManager.runUpdate("DELETE FROM benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileHelper.delete(databaseFile.getPath());
+        FileHelper.delete(databaseFile.getPath() + ".mv.db");
+    }
+
+    @Benchmark
+    public int insertWithIds() {
+        return databaseManager.runBatchInsert(INSERT, provider());
+    }
+
+    @Benchmark
+    public int insertNoIds() {
+        return databaseManager.runBatchInsertNoIds(INSERT, provider());
+    }
+
+    private StreamingBatchDataProvider provider() {
+        Iterator<List<?>> iterator = rows.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+
+}
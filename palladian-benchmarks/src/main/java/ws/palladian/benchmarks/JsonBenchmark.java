@@ -0,0 +1,73 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ws.palladian.persistence.json.JsonException;
+import ws.palladian.persistence.json.JsonObject;
+import ws.palladian.persistence.json.JsonStreamExtractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, querying and serializing a {@link JsonObject}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    /** The number of entries in the JSON document's array; 1,000 entries are about 200 KB. */
+    @Param({"10", "1000"})
+    public int numEntries;
+
+    private String json;
+
+    private JsonObject jsonObject;
+
+    private final JsonStreamExtractor extractor = new JsonStreamExtractor("entries[5]/location/lat");
+
+    @Setup
+    public void setUp() throws JsonException {
+        json = new SyntheticData(1).json(numEntries);
+        jsonObject = new JsonObject(json);
+    }
+
+    @Benchmark
+    public JsonObject parse() throws JsonException {
+        return new JsonObject(json);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return jsonObject.toString();
+    }
+
+    @Benchmark
+    public String query() {
+        return jsonObject.tryQueryString("entries[5]/location/lat");
+    }
+
+    @Benchmark
+    public String queryJsonPath() {
+        return jsonObject.tryQueryJsonPathString("$.entries[5:6].location.lat");
+    }
+
+    /** Parse and query, without building the tree. */
+    @Benchmark
+    public Map<String, Object> streamExtract() throws JsonException {
+        return extractor.extract(json);
+    }
+
+    @Benchmark
+    public int serializeToStream() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        jsonObject.write(outputStream, 0);
+        return outputStream.size();
+    }
+
+}
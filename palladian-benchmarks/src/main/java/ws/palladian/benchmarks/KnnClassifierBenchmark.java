@@ -0,0 +1,66 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ws.palladian.classification.numeric.KnnClassifier;
+import ws.palladian.classification.numeric.KnnLearner;
+import ws.palladian.classification.numeric.KnnModel;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.DefaultDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification with the numeric {@link KnnClassifier} on numeric instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KnnClassifierBenchmark {
+
+    /** The number of training instances in the model. */
+    @Param({"1000", "100000"})
+    public int numTrainingInstances;
+
+    /** The number of numeric features. */
+    @Param({"3", "10"})
+    public int numFeatures;
+
+    private KnnClassifier classifier;
+
+    private KnnModel model;
+
+    private List<FeatureVector> testVectors;
+
+    private int testIndex;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(1);
+        classifier = new KnnClassifier(5);
+        model = new KnnLearner().train(new DefaultDataset(data.numericInstances(numTrainingInstances, numFeatures, 5)));
+        testVectors = new ArrayList<>();
+        for (Instance instance : data.numericInstances(1000, numFeatures, 5)) {
+            testVectors.add(instance.getVector());
+        }
+    }
+
+    @Benchmark
+    public CategoryEntries classify() {
+        return classifier.classify(testVectors.get(testIndex++ % testVectors.size()), model);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void classifyBatch(Blackhole blackhole) {
+        blackhole.consume(classifier.classify(testVectors, model));
+    }
+
+}
@@ -0,0 +1,119 @@
+package ws.palladian.benchmarks;
+
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.*;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationSource;
+import ws.palladian.extraction.location.persistence.lucene.LuceneLocationSource;
+import ws.palladian.extraction.location.persistence.lucene.LuceneLocationStore;
+import ws.palladian.extraction.location.persistence.snapshot.SnapshotLocationSource;
+import ws.palladian.extraction.location.persistence.snapshot.SnapshotLocationStore;
+import ws.palladian.helper.NoProgress;
+import ws.palladian.helper.collection.MultiMap;
+import ws.palladian.helper.constants.Language;
+import ws.palladian.helper.geo.GeoCoordinate;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in a {@link LuceneLocationSource} (with and without cache) and a {@link SnapshotLocationSource}, which are
+ * built from 100,000 synthetic locations in a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationSourceBenchmark {
+
+    private static final int NUM_LOCATIONS = 100000;
+
+    private static final Set<Language> LANGUAGES = EnumSet.of(Language.ENGLISH, Language.GERMAN);
+
+    @Param({"lucene", "lucene-cached", "snapshot"})
+    public String source;
+
+    private File indexDirectory;
+
+    private File snapshotFile;
+
+    private LuceneLocationSource luceneSource;
+
+    private LocationSource locationSource;
+
+    private List<String> names;
+
+    private List<Integer> ids;
+
+    private List<GeoCoordinate> coordinates;
+
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticData data = new SyntheticData(1);
+        indexDirectory = new File(FileHelper.getTempDir(), "locationBenchmark-" + UUID.randomUUID());
+        LuceneLocationStore store = new LuceneLocationStore(indexDirectory);
+        store.startImport();
+        for (Location location : data.locations(NUM_LOCATIONS)) {
+            store.save(location);
+        }
+        store.finishImport(NoProgress.INSTANCE);
+        luceneSource = new LuceneLocationSource(FSDirectory.open(indexDirectory.toPath()), source.equals("lucene-cached"));
+        locationSource = luceneSource;
+        if (source.equals("snapshot")) {
+            snapshotFile = new File(FileHelper.getTempDir(), "locationBenchmark-" + UUID.randomUUID() + ".snapshot");
+            SnapshotLocationStore.write(luceneSource, snapshotFile);
+            locationSource = new SnapshotLocationSource(snapshotFile);
+        }
+        Random random = new Random(1);
+        names = new ArrayList<>();
+        ids = new ArrayList<>();
+        coordinates = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add(data.locationName());
+            ids.add(1 + random.nextInt(NUM_LOCATIONS));
+            coordinates.add(GeoCoordinate.from(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        luceneSource.close();
+        FileHelper.delete(indexDirectory.getPath(), true);
+        if (snapshotFile != null) {
+            FileHelper.delete(snapshotFile.getPath());
+        }
+    }
+
+    private int nextIndex() {
+        return index++ % names.size();
+    }
+
+    @Benchmark
+    public Collection<Location> getLocationsByName() {
+        return locationSource.getLocations(names.get(nextIndex()), LANGUAGES);
+    }
+
+    @Benchmark
+    public MultiMap<String, Location> getLocationsByNames() {
+        int start = nextIndex() / 10 * 10;
+        return locationSource.getLocations(names.subList(start, start + 10), LANGUAGES);
+    }
+
+    @Benchmark
+    public Location getLocationById() {
+        return locationSource.getLocation(ids.get(nextIndex()));
+    }
+
+    @Benchmark
+    public List<Location> getLocationsByCoordinate() {
+        return locationSource.getLocations(coordinates.get(nextIndex()), 100);
+    }
+
+}
@@ -0,0 +1,57 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ws.palladian.retrieval.search.intents.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing queries with a {@link SearchIntentParser} with MATCH, PHRASE_MATCH and CONTAINS triggers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIntentParserBenchmark {
+
+    private static final QueryMatchType[] MATCH_TYPES = {QueryMatchType.MATCH, QueryMatchType.PHRASE_MATCH, QueryMatchType.CONTAINS};
+
+    @Param({"1000", "50000"})
+    public int numIntents;
+
+    private SearchIntentParser parser;
+
+    private List<String> queries;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(1);
+        List<SearchIntent> intents = new ArrayList<>();
+        for (int i = 0; i < numIntents; i++) {
+            SearchIntent intent = new SearchIntent();
+            String text = i % 2 == 0 ? data.word() : data.word() + " " + data.word();
+            intent.addIntentTrigger(new SearchIntentTrigger(MATCH_TYPES[i % MATCH_TYPES.length], text));
+            SearchIntentAction<SearchIntentFilter> action = new SearchIntentAction<>();
+            action.setType(SearchIntentActionType.DEFINITION);
+            intent.setIntentAction(action);
+            intents.add(intent);
+        }
+        parser = new SearchIntentParser(intents);
+        queries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            queries.add(data.text(4));
+        }
+    }
+
+    @Benchmark
+    public List<ActivatedSearchIntentAction> parse() {
+        return parser.parse(queries.get(index++ % queries.size()));
+    }
+
+}
@@ -0,0 +1,64 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ws.palladian.helper.geo.IdCoordinate;
+import ws.palladian.helper.geo.Spatial2dIdMap;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Box and radius queries in a {@link Spatial2dIdMap} with 500,000 random points, which are denser in a band of
+ * latitudes (as populated places are).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Spatial2dIdMapBenchmark {
+
+    private static final int NUM_POINTS = 500000;
+
+    private Spatial2dIdMap map;
+
+    private double[][] queries;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        map = new Spatial2dIdMap();
+        for (int i = 0; i < NUM_POINTS; i++) {
+            double lat = i % 2 == 0 ? 35 + random.nextDouble() * 25 : random.nextDouble() * 180 - 90;
+            map.put(lat, random.nextDouble() * 360 - 180, i);
+        }
+        map.sort();
+        queries = new double[1000][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[]{35 + random.nextDouble() * 25, random.nextDouble() * 360 - 180};
+        }
+    }
+
+    private double[] nextQuery() {
+        return queries[index++ % queries.length];
+    }
+
+    /** A box of about 100 by 100 km. */
+    @Benchmark
+    public Set<IdCoordinate> findInBox() {
+        double[] query = nextQuery();
+        return map.findInBox(query[0] - 0.45, query[1] - 0.6, query[0] + 0.45, query[1] + 0.6);
+    }
+
+    @Benchmark
+    public List<IdCoordinate> closestTo() {
+        double[] query = nextQuery();
+        return map.closestTo(query[0], query[1], 50000);
+    }
+
+}
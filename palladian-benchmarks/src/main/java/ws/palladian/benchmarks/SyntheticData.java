@@ -0,0 +1,210 @@
+package ws.palladian.benchmarks;
+
+import ws.palladian.core.Instance;
+import ws.palladian.core.InstanceBuilder;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationBuilder;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.helper.constants.Language;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator for synthetic, reproducible benchmark data; all data is created from a fixed seed, so that no external
+ * resources are necessary and results are comparable between runs. Words are drawn from a Zipf-like distribution over a
+ * generated vocabulary, so that term frequencies resemble natural language text.
+ */
+public final class SyntheticData {
+
+    private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+
+    private static final int VOCABULARY_SIZE = 20000;
+
+    private final Random random;
+
+    private final String[] vocabulary;
+
+    /** Cumulative probabilities of the vocabulary. */
+    private final double[] cumulative;
+
+    public SyntheticData(long seed) {
+        random = new Random(seed);
+        vocabulary = new String[VOCABULARY_SIZE];
+        cumulative = new double[VOCABULARY_SIZE];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = createWord();
+            sum += 1. / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    private String createWord() {
+        int length = 2 + (int) Math.abs(random.nextGaussian() * 4);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            // skew towards frequent letters
+            int index = (int) (Math.abs(random.nextGaussian()) * 6) % LETTERS.length();
+            word.append(LETTERS.charAt(index));
+        }
+        return word.toString();
+    }
+
+    /** @return A word, drawn from the Zipf-like distribution. */
+    public String word() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return vocabulary[index >= 0 ? index : Math.min(-index - 1, VOCABULARY_SIZE - 1)];
+    }
+
+    /**
+     * @param numWords The number of words.
+     * @return A text with the given number of words, with sentence punctuation.
+     */
+    public String text(int numWords) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < numWords; i++) {
+            String word = word();
+            boolean sentenceStart = i == 0 || text.charAt(text.length() - 2) == '.';
+            text.append(sentenceStart ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            text.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Create text documents for the given number of categories; each category has its own set of preferred words, so
+     * that the documents can be separated by a classifier.
+     *
+     * @param numDocuments  The number of documents.
+     * @param numCategories The number of categories.
+     * @param numWords      The number of words per document.
+     * @return The documents.
+     */
+    public List<Instance> textDocuments(int numDocuments, int numCategories, int numWords) {
+        List<Instance> documents = new ArrayList<>();
+        for (int i = 0; i < numDocuments; i++) {
+            int category = i % numCategories;
+            StringBuilder text = new StringBuilder(text(numWords));
+            for (int j = 0; j < numWords / 5; j++) {
+                text.append(' ').append(vocabulary[100 + category * 50 + random.nextInt(50)]);
+            }
+            documents.add(new InstanceBuilder().setText(text.toString()).create("category" + category));
+        }
+        return documents;
+    }
+
+    /**
+     * Create instances with numeric features, which are normally distributed around a different mean per category.
+     *
+     * @param numInstances  The number of instances.
+     * @param numFeatures   The number of numeric features.
+     * @param numCategories The number of categories.
+     * @return The instances.
+     */
+    public List<Instance> numericInstances(int numInstances, int numFeatures, int numCategories) {
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < numInstances; i++) {
+            int category = i % numCategories;
+            InstanceBuilder builder = new InstanceBuilder();
+            for (int f = 0; f < numFeatures; f++) {
+                builder.set("f" + f, category + random.nextGaussian());
+            }
+            instances.add(builder.create("category" + category));
+        }
+        return instances;
+    }
+
+    /**
+     * Create a JSON document with nested objects, arrays, strings and numbers.
+     *
+     * @param numEntries The number of entries in the top level array.
+     * @return The JSON string.
+     */
+    public String json(int numEntries) {
+        StringBuilder json = new StringBuilder("{\"name\":\"").append(word()).append("\",\"entries\":[");
+        for (int i = 0; i < numEntries; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i);
+            json.append(",\"title\":\"").append(text(5)).append('"');
+            json.append(",\"score\":").append(random.nextDouble());
+            json.append(",\"active\":").append(random.nextBoolean());
+            json.append(",\"tags\":[\"").append(word()).append("\",\"").append(word()).append("\"]");
+            json.append(",\"location\":{\"lat\":").append(random.nextDouble() * 180 - 90);
+            json.append(",\"lng\":").append(random.nextDouble() * 360 - 180).append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Create a CSV dataset with a header, numeric and nominal features, and the category in the last column.
+     *
+     * @param numRows     The number of rows.
+     * @param numFeatures The number of features.
+     * @return The CSV content.
+     */
+    public String csv(int numRows, int numFeatures) {
+        StringBuilder csv = new StringBuilder();
+        for (int f = 0; f < numFeatures; f++) {
+            csv.append('f').append(f).append(';');
+        }
+        csv.append("class\n");
+        for (int row = 0; row < numRows; row++) {
+            for (int f = 0; f < numFeatures; f++) {
+                if (f % 4 == 3) {
+                    csv.append(word());
+                } else {
+                    csv.append(random.nextGaussian());
+                }
+                csv.append(';');
+            }
+            csv.append("category").append(row % 5).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Create locations with a hierarchy, coordinates, populations and alternative names. Names are drawn from the
+     * vocabulary, so that frequent names are ambiguous, like in real gazetteers.
+     *
+     * @param numLocations The number of locations.
+     * @return The locations.
+     */
+    public List<Location> locations(int numLocations) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < numLocations; i++) {
+            LocationBuilder builder = new LocationBuilder();
+            builder.setId(i + 1);
+            builder.setPrimaryName(locationName());
+            builder.setType(i < 10 ? LocationType.COUNTRY : i < 100 ? LocationType.UNIT : i < 1000 ? LocationType.CITY : LocationType.POI);
+            builder.setCoordinate(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            builder.setPopulation((long) (Math.abs(random.nextGaussian()) * 100000));
+            if (i > 0) {
+                builder.setAncestorIds(1 + random.nextInt(Math.min(i, 100)));
+            }
+            if (random.nextInt(4) == 0) {
+                builder.addAlternativeName(locationName(), Language.GERMAN);
+            }
+            locations.add(builder.create());
+        }
+        return locations;
+    }
+
+    /** @return A location name consisting of one or two capitalized words. */
+    public String locationName() {
+        String name = capitalize(word());
+        return random.nextInt(3) == 0 ? name + " " + capitalize(word()) : name;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+}
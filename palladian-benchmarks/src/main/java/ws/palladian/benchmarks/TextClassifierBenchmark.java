@@ -0,0 +1,80 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ws.palladian.classification.text.DictionaryModel;
+import ws.palladian.classification.text.FeatureSetting;
+import ws.palladian.classification.text.FeatureSettingBuilder;
+import ws.palladian.classification.text.PalladianTextClassifier;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.DefaultDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Training and classification with the {@link PalladianTextClassifier} for different {@link FeatureSetting}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextClassifierBenchmark {
+
+    @Param({"words-1-1", "words-1-2", "chars-3-5", "chars-1-7"})
+    public String featureSetting;
+
+    private PalladianTextClassifier classifier;
+
+    private DefaultDataset trainingSet;
+
+    private DictionaryModel model;
+
+    private List<FeatureVector> testVectors;
+
+    private int testIndex;
+
+    @Setup
+    public void setUp() {
+        classifier = new PalladianTextClassifier(parseFeatureSetting(featureSetting));
+        SyntheticData data = new SyntheticData(1);
+        trainingSet = new DefaultDataset(data.textDocuments(2000, 5, 100));
+        model = classifier.train(trainingSet);
+        testVectors = new ArrayList<>();
+        for (Instance instance : data.textDocuments(1000, 5, 100)) {
+            testVectors.add(instance.getVector());
+        }
+    }
+
+    static FeatureSetting parseFeatureSetting(String featureSetting) {
+        String[] parts = featureSetting.split("-");
+        int min = Integer.parseInt(parts[1]);
+        int max = Integer.parseInt(parts[2]);
+        FeatureSettingBuilder builder = parts[0].equals("chars") ? FeatureSettingBuilder.chars(min, max) : FeatureSettingBuilder.words(min, max);
+        return builder.create();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DictionaryModel train() {
+        return classifier.train(trainingSet);
+    }
+
+    @Benchmark
+    public CategoryEntries classify() {
+        FeatureVector vector = testVectors.get(testIndex++ % testVectors.size());
+        return classifier.classify(vector, model);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void classifyBatch(Blackhole blackhole) {
+        blackhole.consume(classifier.classify(testVectors, model));
+    }
+
+}
@@ -0,0 +1,59 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ws.palladian.core.Token;
+import ws.palladian.extraction.token.CharacterNGramTokenizer;
+import ws.palladian.extraction.token.Tokenizer;
+import ws.palladian.extraction.token.WordTokenizer;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenization of a text with 1,000 words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private String text;
+
+    private WordTokenizer wordTokenizer;
+
+    private CharacterNGramTokenizer charNGramTokenizer;
+
+    @Setup
+    public void setUp() {
+        text = new SyntheticData(1).text(1000);
+        wordTokenizer = new WordTokenizer();
+        charNGramTokenizer = new CharacterNGramTokenizer(3, 5);
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return Tokenizer.tokenize(text);
+    }
+
+    @Benchmark
+    public void wordTokenizer(Blackhole blackhole) {
+        consume(wordTokenizer.iterateTokens(text), blackhole);
+    }
+
+    @Benchmark
+    public void charNGramTokenizer(Blackhole blackhole) {
+        consume(charNGramTokenizer.iterateTokens(text), blackhole);
+    }
+
+    private static void consume(Iterator<Token> tokens, Blackhole blackhole) {
+        while (tokens.hasNext()) {
+            blackhole.consume(tokens.next());
+        }
+    }
+
+}
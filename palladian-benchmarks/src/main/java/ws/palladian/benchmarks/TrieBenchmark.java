@@ -0,0 +1,83 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ws.palladian.classification.text.DictionaryModel;
+import ws.palladian.classification.text.FeatureSettingBuilder;
+import ws.palladian.classification.text.PalladianTextClassifier;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.dataset.DefaultDataset;
+import ws.palladian.helper.collection.CompactTrie;
+import ws.palladian.helper.collection.Trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of n-grams in a {@link Trie}, a {@link CompactTrie}, and in the DictionaryTrieModel of a trained text
+ * classifier; half of the looked up keys exist in the dictionary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark {
+
+    private Trie<Integer> trie;
+
+    private CompactTrie<Integer> compactTrie;
+
+    private DictionaryModel dictionaryModel;
+
+    private List<String> keys;
+
+    private int keyIndex;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(1);
+        String text = data.text(50000);
+        trie = new Trie<>();
+        CompactTrie.Builder<Integer> builder = new CompactTrie.Builder<>();
+        List<String> existingKeys = new ArrayList<>();
+        for (int i = 0; i + 5 <= text.length(); i++) {
+            String nGram = text.substring(i, i + 3 + i % 3);
+            trie.put(nGram, i);
+            builder.put(nGram, i);
+            existingKeys.add(nGram);
+        }
+        compactTrie = builder.create();
+        dictionaryModel = new PalladianTextClassifier(FeatureSettingBuilder.chars(3, 5).create()).train(new DefaultDataset(data.textDocuments(1000, 5, 100)));
+        Random random = new Random(1);
+        keys = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            keys.add(existingKeys.get(random.nextInt(existingKeys.size())));
+            keys.add(data.word() + data.word());
+        }
+        Collections.shuffle(keys, random);
+    }
+
+    private String nextKey() {
+        return keys.get(keyIndex++ % keys.size());
+    }
+
+    @Benchmark
+    public Integer trieGet() {
+        return trie.get(nextKey());
+    }
+
+    @Benchmark
+    public Integer compactTrieGet() {
+        return compactTrie.get(nextKey());
+    }
+
+    @Benchmark
+    public CategoryEntries dictionaryModelGet() {
+        return dictionaryModel.getCategoryEntries(nextKey());
+    }
+
+}
@@ -0,0 +1,83 @@
+package ws.palladian.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import ws.palladian.helper.html.XPathHelper;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XPath based extraction from an XHTML document with 200 entries, evaluated by one and by 32 concurrent threads. Each
+ * thread has its own expression cache in {@link XPathHelper}, so the threads do not contend for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XPathHelperBenchmark {
+
+    private static final List<String> XPATHS = List.of( //
+            "//div[@class='entry']/h2", //
+            "//div[@class='entry']//a/@href", //
+            "//ul[@id='nav']/li", //
+            "//div[@class='entry'][last()]/p", //
+            "//span[contains(@class, 'date')]");
+
+    /** Separate DOM per thread, as the JAXP DOM is not safe for concurrent reads. */
+    @State(Scope.Thread)
+    public static class ThreadDocument {
+
+        Document document;
+
+        @Setup
+        public void setUp(XPathHelperBenchmark benchmark) throws Exception {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(benchmark.xhtml)));
+        }
+    }
+
+    private String xhtml;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(1);
+        StringBuilder builder = new StringBuilder();
+        builder.append("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>Benchmark</title></head><body>");
+        builder.append("<ul id=\"nav\"><li>one</li><li>two</li><li>three</li></ul>");
+        for (int i = 0; i < 200; i++) {
+            builder.append("<div class=\"entry\"><h2>").append(data.text(5)).append("</h2>");
+            builder.append("<span class=\"meta date\">2024-01-").append(i % 28 + 1).append("</span>");
+            builder.append("<p>").append(data.text(40)).append(" <a href=\"/entry/").append(i).append("\">more</a></p>");
+            builder.append("</div>");
+        }
+        builder.append("</body></html>");
+        xhtml = builder.toString();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void extractSingleThread(ThreadDocument document, Blackhole blackhole) {
+        extract(document.document, blackhole);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void extract32Threads(ThreadDocument document, Blackhole blackhole) {
+        extract(document.document, blackhole);
+    }
+
+    private static void extract(Document document, Blackhole blackhole) {
+        for (String xPath : XPATHS) {
+            blackhole.consume(XPathHelper.getXhtmlNodes(document, xPath));
+        }
+    }
+
+}
@@ -0,0 +1,551 @@
+package ws.palladian.helper.collection;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.apache.commons.lang3.Validate;
+import ws.palladian.helper.functional.Factories;
+import ws.palladian.helper.functional.Factory;
+
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * A compact, read-only trie, which is created using a {@link Builder}. In contrast to the {@link Trie}, which uses one
+ * object per character, all nodes are stored in primitive arrays. Chains of nodes which have no value and only one child
+ * are merged into one node (path compression, i.e. this is a radix tree), and the children of each node are stored
+ * contiguously and sorted by their first character, so that they can be found using a binary search. Like the
+ * {@link Trie}, this implementation does <i>not</i> allow <code>null</code> or empty keys. Iteration happens in
+ * lexicographical order of the keys.
+ * <p>
+ * For walking through the trie character by character (e.g. when matching windows of a text), positions in the trie
+ * are represented as primitive <code>long</code> states, so that no objects need to be created; see {@link #ROOT},
+ * {@link #step(long, char)}, and {@link #getValue(long)}.
+ *
+ * @param <V> Type of the values.
+ */
+public final class CompactTrie<V> implements Iterable<Map.Entry<String, V>>, Serializable {
+
+    /**
+     * <p>
+     * Builder for a {@link CompactTrie}. The builder is a mutable, array-based trie itself, which offers the
+     * functionality of the {@link Trie}: values can be put and updated, entries can be removed through the iterator,
+     * and {@link #clean()} removes nodes which no longer lead to any values.
+     * </p>
+     *
+     * @param <V> Type of the values.
+     */
+    public static final class Builder<V> implements Factory<CompactTrie<V>>, Iterable<Map.Entry<String, V>> {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        /** The character of each node; the root has no character. */
+        private char[] labels;
+
+        /** The first child of each node; the children of a node are linked in order of their characters. */
+        private int[] firstChild;
+
+        /** The next sibling of each node. */
+        private int[] nextSibling;
+
+        /** The value of each node, or <code>null</code>. */
+        private Object[] values;
+
+        /** The number of nodes, including the root. */
+        private int numNodes;
+
+        /** The number of values. */
+        private int size;
+
+        public Builder() {
+            labels = new char[INITIAL_CAPACITY];
+            firstChild = new int[INITIAL_CAPACITY];
+            nextSibling = new int[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+            newNode(EMPTY_CHARACTER);
+        }
+
+        private int newNode(char label) {
+            if (numNodes == labels.length) {
+                int capacity = labels.length + (labels.length >> 1);
+                labels = Arrays.copyOf(labels, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            int node = numNodes++;
+            labels[node] = label;
+            firstChild[node] = NO_NODE;
+            nextSibling[node] = NO_NODE;
+            values[node] = null;
+            return node;
+        }
+
+        /**
+         * Walk to the node for the given key; nodes are created in the order of their characters, so that no sorting
+         * is necessary later.
+         *
+         * @return The index of the node, or {@link #NO_NODE} in case it does not exist and <code>create</code> was
+         * <code>false</code>.
+         */
+        private int getNode(CharSequence key, boolean create) {
+            int node = ROOT_NODE;
+            for (int i = 0; i < key.length(); i++) {
+                char character = key.charAt(i);
+                int previous = NO_NODE;
+                int child = firstChild[node];
+                while (child != NO_NODE && labels[child] < character) {
+                    previous = child;
+                    child = nextSibling[child];
+                }
+                if (child == NO_NODE || labels[child] != character) {
+                    if (!create) {
+                        return NO_NODE;
+                    }
+                    int newNode = newNode(character);
+                    nextSibling[newNode] = child;
+                    if (previous == NO_NODE) {
+                        firstChild[node] = newNode;
+                    } else {
+                        nextSibling[previous] = newNode;
+                    }
+                    child = newNode;
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V setValue(int node, V value) {
+            V oldValue = (V) values[node];
+            values[node] = value;
+            if (oldValue == null && value != null) {
+                size++;
+            } else if (oldValue != null && value == null) {
+                size--;
+            }
+            return oldValue;
+        }
+
+        public V put(String key, V value) {
+            Validate.notEmpty(key, "key must not be empty");
+            return setValue(getNode(key, true), value);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(String key) {
+            Validate.notEmpty(key, "key must not be empty");
+            int node = getNode(key, false);
+            return node != NO_NODE ? (V) values[node] : null;
+        }
+
+        public V getOrPut(String key, V value) {
+            Validate.notEmpty(key, "key must not be empty");
+            return getOrPut(key, Factories.constant(value));
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getOrPut(String key, Factory<V> valueFactory) {
+            Validate.notEmpty(key, "key must not be empty");
+            Validate.notNull(valueFactory, "valueFactory must not be null");
+            int node = getNode(key, true);
+            if (values[node] == null) {
+                setValue(node, valueFactory.create());
+            }
+            return (V) values[node];
+        }
+
+        /**
+         * Determine the nodes which lead to at least one value. Children are always created after their parents, so
+         * that iterating backwards guarantees that all children have been visited before their parent.
+         */
+        private boolean[] getUsedNodes() {
+            boolean[] used = new boolean[numNodes];
+            for (int node = numNodes - 1; node >= 0; node--) {
+                boolean nodeUsed = values[node] != null;
+                for (int child = firstChild[node]; child != NO_NODE && !nodeUsed; child = nextSibling[child]) {
+                    nodeUsed = used[child];
+                }
+                used[node] = nodeUsed;
+            }
+            return used;
+        }
+
+        /**
+         * Remove all nodes which do not lead to any value (saves memory, in case entries have been removed from the
+         * trie) and compact the internal arrays.
+         *
+         * @return <code>true</code> in case the trie is empty.
+         */
+        public boolean clean() {
+            boolean[] used = getUsedNodes();
+            used[ROOT_NODE] = true;
+            int[] newIndices = new int[numNodes];
+            int numUsed = 0;
+            for (int node = 0; node < numNodes; node++) {
+                newIndices[node] = used[node] ? numUsed++ : NO_NODE;
+            }
+            char[] newLabels = new char[numUsed];
+            int[] newFirstChild = new int[numUsed];
+            int[] newNextSibling = new int[numUsed];
+            Object[] newValues = new Object[numUsed];
+            for (int node = 0; node < numNodes; node++) {
+                if (!used[node]) {
+                    continue;
+                }
+                int newNode = newIndices[node];
+                newLabels[newNode] = labels[node];
+                newValues[newNode] = values[node];
+                int child = firstChild[node];
+                while (child != NO_NODE && !used[child]) {
+                    child = nextSibling[child];
+                }
+                newFirstChild[newNode] = child != NO_NODE ? newIndices[child] : NO_NODE;
+                int sibling = nextSibling[node];
+                while (sibling != NO_NODE && !used[sibling]) {
+                    sibling = nextSibling[sibling];
+                }
+                newNextSibling[newNode] = sibling != NO_NODE ? newIndices[sibling] : NO_NODE;
+            }
+            labels = newLabels;
+            firstChild = newFirstChild;
+            nextSibling = newNextSibling;
+            values = newValues;
+            numNodes = numUsed;
+            return size == 0;
+        }
+
+        /** @return The number of values in this trie. */
+        public int size() {
+            return size;
+        }
+
+        /** @return The number of nodes in this trie, including the root. */
+        public int getNumNodes() {
+            return numNodes;
+        }
+
+        /**
+         * Iterate over all entries in lexicographical order. The iterator supports removal; the entries allow to
+         * change the values.
+         */
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator() {
+            return new Iterator<Map.Entry<String, V>>() {
+                final IntArrayList nodeStack = new IntArrayList();
+                final IntArrayList lengthStack = new IntArrayList();
+                final StringBuilder key = new StringBuilder();
+                int next = NO_NODE;
+                int current = NO_NODE;
+
+                {
+                    pushChildren(ROOT_NODE, 0);
+                }
+
+                void pushChildren(int node, int keyLength) {
+                    // push in reverse order, so that the smallest character is on top
+                    int start = nodeStack.size();
+                    for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                        nodeStack.add(child);
+                        lengthStack.add(keyLength);
+                    }
+                    for (int i = start, j = nodeStack.size() - 1; i < j; i++, j--) {
+                        nodeStack.set(i, nodeStack.set(j, nodeStack.getInt(i)));
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    while (next == NO_NODE && !nodeStack.isEmpty()) {
+                        int node = nodeStack.popInt();
+                        int keyLength = lengthStack.popInt();
+                        key.setLength(keyLength);
+                        key.append(labels[node]);
+                        pushChildren(node, key.length());
+                        if (values[node] != null) {
+                            next = node;
+                        }
+                    }
+                    return next != NO_NODE;
+                }
+
+                @Override
+                public Map.Entry<String, V> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    current = next;
+                    next = NO_NODE;
+                    return new BuilderEntry(key.toString(), current);
+                }
+
+                @Override
+                public void remove() {
+                    if (current == NO_NODE) {
+                        throw new IllegalStateException();
+                    }
+                    setValue(current, null);
+                    current = NO_NODE;
+                }
+            };
+        }
+
+        /**
+         * Create a compact, read-only trie from the current state of this builder. Nodes which do not lead to any value
+         * are skipped. The builder can be used further, the values are shared with the created trie though.
+         *
+         * @return The compact trie.
+         */
+        @Override
+        public CompactTrie<V> create() {
+            boolean[] used = getUsedNodes();
+            // upper bound for the number of nodes is the number of used builder nodes
+            int maxNodes = 1;
+            for (int node = 1; node < numNodes; node++) {
+                maxNodes += used[node] ? 1 : 0;
+            }
+            // the nodes are numbered in breadth first order, so that the children of each node are contiguous;
+            // builderNodes holds the builder node at the end of the (compressed) edge of each compact node
+            int[] builderNodes = new int[maxNodes];
+            int[] offsets = new int[2 * (maxNodes + 1)];
+            char[] firstChars = new char[maxNodes];
+            Object[] compactValues = new Object[maxNodes];
+            StringBuilder edgeChars = new StringBuilder();
+            builderNodes[0] = ROOT_NODE;
+            int numCompactNodes = 1;
+            for (int compactNode = 0; compactNode < numCompactNodes; compactNode++) {
+                offsets[2 * compactNode] = numCompactNodes;
+                for (int child = firstChild[builderNodes[compactNode]]; child != NO_NODE; child = nextSibling[child]) {
+                    if (!used[child]) {
+                        continue;
+                    }
+                    int newNode = numCompactNodes++;
+                    firstChars[newNode] = labels[child];
+                    offsets[2 * newNode + 1] = edgeChars.length();
+                    edgeChars.append(labels[child]);
+                    int end = child;
+                    // merge chains of nodes without value and exactly one used child
+                    for (int onlyChild; values[end] == null && (onlyChild = getOnlyUsedChild(end, used)) != NO_NODE; ) {
+                        end = onlyChild;
+                        edgeChars.append(labels[end]);
+                    }
+                    builderNodes[newNode] = end;
+                    compactValues[newNode] = values[end];
+                }
+            }
+            offsets[2 * numCompactNodes] = numCompactNodes;
+            offsets[2 * numCompactNodes + 1] = edgeChars.length();
+            char[] edgeCharArray = new char[edgeChars.length()];
+            edgeChars.getChars(0, edgeChars.length(), edgeCharArray, 0);
+            return new CompactTrie<>( //
+                    Arrays.copyOf(offsets, 2 * (numCompactNodes + 1)), //
+                    Arrays.copyOf(firstChars, numCompactNodes), //
+                    edgeCharArray, //
+                    Arrays.copyOf(compactValues, numCompactNodes), //
+                    size);
+        }
+
+        private int getOnlyUsedChild(int node, boolean[] used) {
+            int onlyChild = NO_NODE;
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                if (used[child]) {
+                    if (onlyChild != NO_NODE) {
+                        return NO_NODE;
+                    }
+                    onlyChild = child;
+                }
+            }
+            return onlyChild;
+        }
+
+        @Override
+        public String toString() {
+            return "CompactTrie.Builder [size=" + size + ", numNodes=" + numNodes + "]";
+        }
+
+        private final class BuilderEntry implements Map.Entry<String, V> {
+            private final String key;
+            private final int node;
+
+            BuilderEntry(String key, int node) {
+                this.key = key;
+                this.node = node;
+            }
+
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public V getValue() {
+                return (V) values[node];
+            }
+
+            @Override
+            public V setValue(V value) {
+                return Builder.this.setValue(node, value);
+            }
+
+            @Override
+            public String toString() {
+                return key + '=' + getValue();
+            }
+        }
+
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /** The state which represents the root of the trie, i.e. the start for {@link #step(long, char)}. */
+    public static final long ROOT = 0;
+
+    /** The state which is returned from {@link #step(long, char)}, in case there is no matching path. */
+    public static final long NO_MATCH = -1;
+
+    private static final char EMPTY_CHARACTER = '\u0000';
+
+    private static final int ROOT_NODE = 0;
+
+    private static final int NO_NODE = -1;
+
+    /**
+     * Two entries per node, so that they share the same cache line: the children of node <code>n</code> are the nodes
+     * from <code>offsets[2n]</code> (inclusive) to <code>offsets[2n + 2]</code> (exclusive), the characters of its edge
+     * are at the positions from <code>offsets[2n + 1]</code> (inclusive) to <code>offsets[2n + 3]</code> (exclusive) in
+     * {@link #edgeChars}.
+     */
+    private final int[] offsets;
+
+    /** The first character of each node's edge, for the binary search over the children. */
+    private final char[] firstChars;
+
+    /** The characters of all edges. */
+    private final char[] edgeChars;
+
+    /** The value of each node, or <code>null</code>. */
+    private final Object[] values;
+
+    /** The number of values. */
+    private final int size;
+
+    private CompactTrie(int[] offsets, char[] firstChars, char[] edgeChars, Object[] values, int size) {
+        this.offsets = offsets;
+        this.firstChars = firstChars;
+        this.edgeChars = edgeChars;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Advance the given state by one character. A state encodes a node in its upper and the position within the node's
+     * edge in its lower 32 bits.
+     *
+     * @param state     The current state, {@link #ROOT} to start from the root.
+     * @param character The next character.
+     * @return The new state, or {@link #NO_MATCH} in case no key continues with the given character. In case the
+     * given state is {@link #NO_MATCH}, {@link #NO_MATCH} is returned.
+     */
+    public long step(long state, char character) {
+        if (state == NO_MATCH) {
+            return NO_MATCH;
+        }
+        int node = (int) (state >>> 32);
+        int edgePosition = offsets[2 * node + 1] + (int) state;
+        if (edgePosition < offsets[2 * node + 3]) {
+            return edgeChars[edgePosition] == character ? state + 1 : NO_MATCH;
+        }
+        int child = getChild(node, character);
+        return child != NO_NODE ? (long) child << 32 | 1 : NO_MATCH;
+    }
+
+    /**
+     * Get the value for the key, which was walked to the given state.
+     *
+     * @param state The state.
+     * @return The value, or <code>null</code> in case there is no value for the state.
+     */
+    @SuppressWarnings("unchecked")
+    public V getValue(long state) {
+        if (state == NO_MATCH) {
+            return null;
+        }
+        int node = (int) (state >>> 32);
+        return offsets[2 * node + 1] + (int) state == offsets[2 * node + 3] ? (V) values[node] : null;
+    }
+
+    public V get(CharSequence key) {
+        Validate.notEmpty(key, "key must not be empty");
+        long state = ROOT;
+        for (int i = 0; i < key.length() && state != NO_MATCH; i++) {
+            state = step(state, key.charAt(i));
+        }
+        return getValue(state);
+    }
+
+    private int getChild(int node, char character) {
+        int low = offsets[2 * node];
+        int high = offsets[2 * node + 2] - 1;
+        while (low <= high) {
+            int mid = low + high >>> 1;
+            char midCharacter = firstChars[mid];
+            if (midCharacter < character) {
+                low = mid + 1;
+            } else if (midCharacter > character) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NO_NODE;
+    }
+
+    /** @return The number of values in this trie. */
+    public int size() {
+        return size;
+    }
+
+    /** @return The number of nodes in this trie, including the root. */
+    public int getNumNodes() {
+        return values.length;
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, V>> iterator() {
+        return new AbstractIterator2<Map.Entry<String, V>>() {
+            final IntArrayList nodeStack = new IntArrayList(new int[]{ROOT_NODE});
+            final IntArrayList lengthStack = new IntArrayList(new int[]{0});
+            final StringBuilder key = new StringBuilder();
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected Map.Entry<String, V> getNext() {
+                while (!nodeStack.isEmpty()) {
+                    int node = nodeStack.popInt();
+                    key.setLength(lengthStack.popInt());
+                    key.append(edgeChars, offsets[2 * node + 1], offsets[2 * node + 3] - offsets[2 * node + 1]);
+                    // push in reverse order, so that the smallest character is on top
+                    for (int child = offsets[2 * node + 2] - 1; child >= offsets[2 * node]; child--) {
+                        nodeStack.add(child);
+                        lengthStack.add(key.length());
+                    }
+                    if (values[node] != null) {
+                        return new SimpleImmutableEntry<>(key.toString(), (V) values[node]);
+                    }
+                }
+                return finished();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "CompactTrie [size=" + size + ", numNodes=" + getNumNodes() + "]";
+    }
+
+}
@@ -0,0 +1,398 @@
+package ws.palladian.helper.geo;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A static R-tree for points, which is bulk loaded with the Sort-Tile-Recursive (STR) algorithm: the points are sorted
+ * into vertical slices by longitude, each slice is sorted by latitude and cut into leaves of {@link #getNodeSize()}
+ * points, the leaves are grouped to parent nodes in the same way up to the root. The tree is completely packed, so that
+ * child nodes can be computed from the index of their parent; all data (the points and the node bounding boxes) is
+ * stored in primitive arrays.
+ * </p>
+ *
+ * <p>
+ * Queries return the indices of the points within the tree, which can be resolved using {@link #getId(int)},
+ * {@link #getLatitude(int)} and {@link #getLongitude(int)}. Besides bounding box queries, the tree supports nearest
+ * neighbor queries with a best-first traversal, which gives the points ordered by distance and only visits nodes which
+ * are closer than the current candidate; distances are great-circle distances, which work across the antimeridian and
+ * around the poles. The tree is immutable and can be shared between threads.
+ * </p>
+ *
+ * @see <a href="https://ia600502.us.archive.org/4/items/nasa_techdoc_19970016975/19970016975.pdf">STR: A Simple and
+ * Efficient Algorithm for R-Tree Packing</a>
+ * @see <a href="https://github.com/mourner/geokdbush">geokdbush</a> for the great-circle distance to a bounding box
+ */
+public final class PackedRTree {
+
+    /** The default maximum number of children per node. */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    private final int nodeSize;
+
+    /** The points, in tree order. */
+    private final double[] lats;
+    private final double[] lngs;
+    private final int[] ids;
+
+    /** The bounding boxes of all nodes, starting with the leaves; the last node is the root. */
+    private final double[] minLats;
+    private final double[] minLngs;
+    private final double[] maxLats;
+    private final double[] maxLngs;
+
+    /** The index of the first node for each level, the leaves are on level zero; one additional entry for the end. */
+    private final int[] levelStarts;
+
+    /**
+     * Create a new tree with the {@link #DEFAULT_NODE_SIZE}.
+     *
+     * @param lats The latitudes of the points.
+     * @param lngs The longitudes of the points, same length as the latitudes.
+     * @param ids  The IDs of the points, same length as the latitudes.
+     */
+    public PackedRTree(double[] lats, double[] lngs, int[] ids) {
+        this(lats, lngs, ids, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Create a new tree.
+     *
+     * @param lats     The latitudes of the points.
+     * @param lngs     The longitudes of the points, same length as the latitudes.
+     * @param ids      The IDs of the points, same length as the latitudes.
+     * @param nodeSize The maximum number of children per node, greater/equal two.
+     */
+    public PackedRTree(double[] lats, double[] lngs, int[] ids, int nodeSize) {
+        Validate.notNull(lats, "lats must not be null");
+        Validate.notNull(lngs, "lngs must not be null");
+        Validate.notNull(ids, "ids must not be null");
+        Validate.isTrue(lats.length == lngs.length && lats.length == ids.length, "lats, lngs and ids must have the same length");
+        Validate.isTrue(nodeSize >= 2, "nodeSize must be greater/equal two");
+        this.nodeSize = nodeSize;
+        int size = lats.length;
+
+        // sort into slices by longitude, and each slice by latitude
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, (a, b) -> Double.compare(lngs[a], lngs[b]));
+        int numLeaves = ceilDiv(size, nodeSize);
+        int sliceSize = (int) Math.ceil(Math.sqrt(numLeaves)) * nodeSize;
+        for (int start = 0; start < size; start += sliceSize) {
+            IntArrays.quickSort(order, start, Math.min(start + sliceSize, size), (a, b) -> Double.compare(lats[a], lats[b]));
+        }
+        this.lats = new double[size];
+        this.lngs = new double[size];
+        this.ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.lats[i] = lats[order[i]];
+            this.lngs[i] = lngs[order[i]];
+            this.ids[i] = ids[order[i]];
+        }
+
+        // determine the number of nodes per level
+        IntArrayList starts = new IntArrayList();
+        int numNodes = 0;
+        for (int levelSize = numLeaves; levelSize > 0; levelSize = ceilDiv(levelSize, nodeSize)) {
+            starts.add(numNodes);
+            numNodes += levelSize;
+            if (levelSize == 1) {
+                break;
+            }
+        }
+        starts.add(numNodes);
+        levelStarts = starts.toIntArray();
+        minLats = new double[numNodes];
+        minLngs = new double[numNodes];
+        maxLats = new double[numNodes];
+        maxLngs = new double[numNodes];
+
+        // compute the bounding boxes bottom up
+        for (int level = 0; level < levelStarts.length - 1; level++) {
+            for (int node = levelStarts[level]; node < levelStarts[level + 1]; node++) {
+                double minLat = Double.POSITIVE_INFINITY;
+                double minLng = Double.POSITIVE_INFINITY;
+                double maxLat = Double.NEGATIVE_INFINITY;
+                double maxLng = Double.NEGATIVE_INFINITY;
+                int childEnd = childEnd(node, level);
+                for (int child = childStart(node, level); child < childEnd; child++) {
+                    if (level == 0) {
+                        minLat = Math.min(minLat, this.lats[child]);
+                        minLng = Math.min(minLng, this.lngs[child]);
+                        maxLat = Math.max(maxLat, this.lats[child]);
+                        maxLng = Math.max(maxLng, this.lngs[child]);
+                    } else {
+                        minLat = Math.min(minLat, minLats[child]);
+                        minLng = Math.min(minLng, minLngs[child]);
+                        maxLat = Math.max(maxLat, maxLats[child]);
+                        maxLng = Math.max(maxLng, maxLngs[child]);
+                    }
+                }
+                minLats[node] = minLat;
+                minLngs[node] = minLng;
+                maxLats[node] = maxLat;
+                maxLngs[node] = maxLng;
+            }
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    /** @return The first child of the node; points for leaves, nodes otherwise. */
+    private int childStart(int node, int level) {
+        int start = (node - levelStarts[level]) * nodeSize;
+        return level == 0 ? start : levelStarts[level - 1] + start;
+    }
+
+    private int childEnd(int node, int level) {
+        int end = (node - levelStarts[level] + 1) * nodeSize;
+        return level == 0 ? Math.min(end, ids.length) : Math.min(levelStarts[level - 1] + end, levelStarts[level]);
+    }
+
+    private int levelOf(int node) {
+        int level = 0;
+        while (node >= levelStarts[level + 1]) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Find all points within a bounding box. In case the first longitude is greater than the second one, the box
+     * crosses the antimeridian; longitudes beyond &plusmn;180 are wrapped.
+     *
+     * @param lat1 The southern latitude.
+     * @param lng1 The western longitude.
+     * @param lat2 The northern latitude.
+     * @param lng2 The eastern longitude.
+     * @return The indices of the points within the box, in no particular order.
+     */
+    public IntArrayList findInBox(double lat1, double lng1, double lat2, double lng2) {
+        IntArrayList result = new IntArrayList();
+        if (ids.length == 0) {
+            return result;
+        }
+        if (lng2 - lng1 >= 360) {
+            search(lat1, -180, lat2, 180, result);
+            return result;
+        }
+        double west = GeoUtils.normalizeLongitude(lng1);
+        double east = GeoUtils.normalizeLongitude(lng2);
+        if (west <= east) {
+            search(lat1, west, lat2, east, result);
+        } else {
+            search(lat1, west, lat2, 180, result);
+            search(lat1, -180, lat2, east, result);
+        }
+        return result;
+    }
+
+    private void search(double minLat, double minLng, double maxLat, double maxLng, IntArrayList result) {
+        IntArrayList stack = new IntArrayList();
+        stack.add(minLats.length - 1);
+        while (!stack.isEmpty()) {
+            int node = stack.popInt();
+            if (maxLats[node] < minLat || minLats[node] > maxLat || maxLngs[node] < minLng || minLngs[node] > maxLng) {
+                continue;
+            }
+            int level = levelOf(node);
+            int childEnd = childEnd(node, level);
+            for (int child = childStart(node, level); child < childEnd; child++) {
+                if (level > 0) {
+                    stack.add(child);
+                } else if (lats[child] >= minLat && lats[child] <= maxLat && lngs[child] >= minLng && lngs[child] <= maxLng) {
+                    result.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the points which are closest to the given coordinate.
+     *
+     * @param lat         The latitude.
+     * @param lng         The longitude.
+     * @param k           The maximum number of points to return.
+     * @param maxDistance The maximum distance in kilometers, {@link Double#POSITIVE_INFINITY} for no limit.
+     * @return The indices of the points, ordered by distance (closest first).
+     */
+    public IntArrayList findNearest(double lat, double lng, int k, double maxDistance) {
+        Validate.isTrue(k >= 0, "k must be greater/equal zero");
+        Validate.isTrue(maxDistance >= 0, "maxDistance must be greater/equal zero");
+        IntArrayList result = new IntArrayList();
+        if (ids.length == 0 || k == 0) {
+            return result;
+        }
+        double maxHav = maxDistance >= Math.PI * GeoUtils.EARTH_RADIUS_KM ? 1 : hav(maxDistance / GeoUtils.EARTH_RADIUS_KM);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        // nodes and points ordered by their (minimum) distance; points are encoded as negative values
+        Heap heap = new Heap();
+        heap.push(0, minLats.length - 1);
+        while (heap.size > 0 && heap.minKey() <= maxHav) {
+            int item = heap.pop();
+            if (item < 0) {
+                result.add(-item - 1);
+                if (result.size() == k) {
+                    break;
+                }
+                continue;
+            }
+            int level = levelOf(item);
+            int childEnd = childEnd(item, level);
+            for (int child = childStart(item, level); child < childEnd; child++) {
+                if (level == 0) {
+                    double dist = havDistance(lat, lng, cosLat, lats[child], lngs[child]);
+                    if (dist <= maxHav) {
+                        heap.push(dist, -child - 1);
+                    }
+                } else {
+                    double dist = boxDistance(lat, lng, cosLat, child);
+                    if (dist <= maxHav) {
+                        heap.push(dist, child);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find all points within a radius around the given coordinate.
+     *
+     * @param lat      The latitude.
+     * @param lng      The longitude.
+     * @param distance The radius in kilometers.
+     * @return The indices of the points, ordered by distance (closest first).
+     */
+    public IntArrayList findWithin(double lat, double lng, double distance) {
+        return findNearest(lat, lng, Integer.MAX_VALUE, distance);
+    }
+
+    /** @return The number of points in the tree. */
+    public int size() {
+        return ids.length;
+    }
+
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public double getLatitude(int index) {
+        return lats[index];
+    }
+
+    public double getLongitude(int index) {
+        return lngs[index];
+    }
+
+    // distance computation; all distances are haversines of the central angle, which are monotonic to the distance
+
+    private static double hav(double theta) {
+        double sin = Math.sin(theta / 2);
+        return sin * sin;
+    }
+
+    private static double havDistance(double lat1, double lng1, double cosLat1, double lat2, double lng2) {
+        return havDistancePartial(hav(Math.toRadians(lng1 - lng2)), cosLat1, lat1, lat2);
+    }
+
+    private static double havDistancePartial(double havDLng, double cosLat1, double lat1, double lat2) {
+        return cosLat1 * Math.cos(Math.toRadians(lat2)) * havDLng + hav(Math.toRadians(lat1 - lat2));
+    }
+
+    /** @return The minimum distance from the coordinate to any point within the node's bounding box. */
+    private double boxDistance(double lat, double lng, double cosLat, int node) {
+        if (lng >= minLngs[node] && lng <= maxLngs[node]) {
+            if (lat < minLats[node]) {
+                return hav(Math.toRadians(lat - minLats[node]));
+            }
+            if (lat > maxLats[node]) {
+                return hav(Math.toRadians(lat - maxLats[node]));
+            }
+            return 0;
+        }
+        // west or east of the box; the closest point is on the closer meridian, either at the latitude where the great
+        // circle reaches its extremum, or at one of the corners
+        double havDLng = Math.min(hav(Math.toRadians(lng - minLngs[node])), hav(Math.toRadians(lng - maxLngs[node])));
+        double extremumLat = vertexLatitude(lat, havDLng);
+        if (extremumLat > minLats[node] && extremumLat < maxLats[node]) {
+            return havDistancePartial(havDLng, cosLat, lat, extremumLat);
+        }
+        return Math.min(havDistancePartial(havDLng, cosLat, lat, minLats[node]), havDistancePartial(havDLng, cosLat, lat, maxLats[node]));
+    }
+
+    private static double vertexLatitude(double lat, double havDLng) {
+        double cosDLng = 1 - 2 * havDLng;
+        if (cosDLng <= 0) {
+            return lat > 0 ? 90 : -90;
+        }
+        return Math.toDegrees(Math.atan(Math.tan(Math.toRadians(lat)) / cosDLng));
+    }
+
+    /** A binary min heap of int values by double keys. */
+    private static final class Heap {
+        double[] keys = new double[64];
+        int[] values = new int[64];
+        int size;
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[pos] = keys[parent];
+                values[pos] = values[parent];
+                pos = parent;
+            }
+            keys[pos] = key;
+            values[pos] = value;
+        }
+
+        double minKey() {
+            return keys[0];
+        }
+
+        int pop() {
+            int top = values[0];
+            size--;
+            double key = keys[size];
+            int value = values[size];
+            int pos = 0;
+            int half = size >> 1;
+            while (pos < half) {
+                int child = 2 * pos + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[pos] = keys[child];
+                values[pos] = values[child];
+                pos = child;
+            }
+            keys[pos] = key;
+            values[pos] = value;
+            return top;
+        }
+    }
+
+}
@@ -1,94 +1,97 @@
 package ws.palladian.helper.geo;
 
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSets;
 import ws.palladian.helper.ProcessHelper;
 import ws.palladian.helper.StopWatch;
-import ws.palladian.helper.collection.CollectionHelper;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * <p>
- * Find spatially indexed values within bounding boxes. This is an alternative to R-Trees.
+ * Find spatially indexed values within bounding boxes or around a coordinate. The values are put into the map first,
+ * {@link #sort()} then builds a {@link PackedRTree} over them; queries only see the values which were put before the
+ * last call to {@link #sort()}.
  * </p>
  *
  * @author David Urbansky
  */
 public class Spatial2dIdMap {
-    private DoubleArrayList latValues = new DoubleArrayList();
-    private List<IdCoordinate> latIds = new ObjectArrayList<>();
-    private DoubleArrayList lngValues = new DoubleArrayList();
-    private List<IdCoordinate> lngIds = new ObjectArrayList<>();
+    private final DoubleArrayList latValues = new DoubleArrayList();
+    private final DoubleArrayList lngValues = new DoubleArrayList();
+    private final IntArrayList ids = new IntArrayList();
+    private PackedRTree tree;
 
     public Set<IdCoordinate> findInBox(double lat1, double lng1, double lat2, double lng2) {
-        if (latValues.isEmpty() || lngValues.isEmpty()) {
+        if (tree == null) {
             return ObjectSets.emptySet();
         }
-        //        StopWatch stopWatch = new StopWatch();
-        Set<IdCoordinate> latitudeMatches;
-        int i1 = CollectionHelper.findIndexBefore(lat1, latValues);
-        int i2 = CollectionHelper.findIndexBefore(lat2, latValues);
-
-        //        System.out.println("latitude matches in " + stopWatch.getElapsedTimeStringAndIncrement());
-        List<IdCoordinate> subList = latIds.subList(i1, i2);
-        //        System.out.println("sublist in " + stopWatch.getElapsedTimeStringAndIncrement());
-        latitudeMatches = new HashSet<>(subList);
-        //        System.out.println("to set in " + stopWatch.getElapsedTimeStringAndIncrement());
-
-        Set<IdCoordinate> longitudeMatches;
-        i1 = CollectionHelper.findIndexBefore(lng1, lngValues);
-        i2 = CollectionHelper.findIndexBefore(lng2, lngValues);
-        //        System.out.println("longitude matches in " + stopWatch.getElapsedTimeStringAndIncrement());
-
-        subList = lngIds.subList(i1, i2);
-        longitudeMatches = subList.stream().filter(latitudeMatches::contains).collect(Collectors.toSet());
-        //        System.out.println("longitude matches stream in " + stopWatch.getElapsedTimeStringAndIncrement());
-
-        //        Set<IdCoordinate> latAndLongMatches = new HashSet<>();
-        //        for (IdCoordinate longitudeMatch : subList) {
-        //            if (latitudeMatches.contains(longitudeMatch)) {
-        //                latAndLongMatches.add(longitudeMatch);
-        //            }
-        //        }
-        //        return latAndLongMatches;
-
-        return longitudeMatches;
+        IntArrayList indices = tree.findInBox(lat1, lng1, lat2, lng2);
+        Set<IdCoordinate> matches = new ObjectOpenHashSet<>(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            matches.add(toIdCoordinate(indices.getInt(i)));
+        }
+        return matches;
     }
 
     public void put(double lat, double lng, int id) {
-        IdCoordinate idCoordinate = new IdCoordinate();
-        idCoordinate.setId(id);
-        idCoordinate.setCoordinate(GeoCoordinate.from(GeoUtils.normalizeLatitude(lat), GeoUtils.normalizeLongitude(lng)));
-        // idCoordinate.setCoordinate(GeoCoordinate.from(lat,lng));
-
-        latIds.add(idCoordinate);
-        lngIds.add(idCoordinate);
+        latValues.add(GeoUtils.normalizeLatitude(lat));
+        lngValues.add(GeoUtils.normalizeLongitude(lng));
+        ids.add(id);
     }
 
+    /**
+     * Build the index over all values which were put so far.
+     */
     public void sort() {
-        latIds = latIds.parallelStream().sorted(Comparator.comparingDouble(o -> o.getCoordinate().getLatitude())).collect(Collectors.toList());
-        lngIds = lngIds.parallelStream().sorted(Comparator.comparingDouble(o -> o.getCoordinate().getLongitude())).collect(Collectors.toList());
-        latValues = new DoubleArrayList(latIds.stream().map(c -> c.getCoordinate().getLatitude()).collect(Collectors.toList()));
-        lngValues = new DoubleArrayList(lngIds.stream().map(c -> c.getCoordinate().getLongitude()).collect(Collectors.toList()));
+        tree = new PackedRTree(latValues.toDoubleArray(), lngValues.toDoubleArray(), ids.toIntArray());
     }
 
     /**
-     * see http://gis.stackexchange.com/questions/2951/algorithm-for-offsetting-a-latitude-longitude-by-some-amount-of-
-     * meters
+     * Get all values within the given distance.
+     *
+     * @param lat            The latitude.
+     * @param lng            The longitude.
+     * @param distanceMeters The distance in meters.
+     * @return The values, ordered by distance (closest first).
      */
     public List<IdCoordinate> closestTo(double lat, double lng, int distanceMeters) {
-        GeoCoordinate sourceCoordinate = GeoCoordinate.from(lat, lng);
+        if (tree == null) {
+            return new ArrayList<>();
+        }
+        return toIdCoordinates(tree.findWithin(lat, lng, distanceMeters / 1000.));
+    }
 
-        double[] boundingBox = sourceCoordinate.getBoundingBox(distanceMeters / 1000.);
-        List<IdCoordinate> inBox = new ArrayList<>(findInBox(boundingBox[0], boundingBox[1], boundingBox[2], boundingBox[3]));
+    /**
+     * Get the k closest values.
+     *
+     * @param lat The latitude.
+     * @param lng The longitude.
+     * @param k   The maximum number of values.
+     * @return The values, ordered by distance (closest first).
+     */
+    public List<IdCoordinate> kClosestTo(double lat, double lng, int k) {
+        if (tree == null) {
+            return new ArrayList<>();
+        }
+        return toIdCoordinates(tree.findNearest(lat, lng, k, Double.POSITIVE_INFINITY));
+    }
 
-        // now sort them by distance to given coordinate
-        inBox.sort(Comparator.comparingDouble(o -> GeoUtils.approximateDistance(o.getCoordinate(), sourceCoordinate)));
+    private List<IdCoordinate> toIdCoordinates(IntArrayList indices) {
+        List<IdCoordinate> result = new ArrayList<>(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            result.add(toIdCoordinate(indices.getInt(i)));
+        }
+        return result;
+    }
 
-        return inBox;
+    private IdCoordinate toIdCoordinate(int index) {
+        IdCoordinate idCoordinate = new IdCoordinate();
+        idCoordinate.setId(tree.getId(index));
+        idCoordinate.setCoordinate(GeoCoordinate.from(tree.getLatitude(index), tree.getLongitude(index)));
+        return idCoordinate;
     }
 
     public static void main(String[] args) {
@@ -14,6 +14,7 @@ import javax.xml.namespace.NamespaceContext;
 import javax.xml.xpath.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 /**
@@ -55,7 +56,52 @@ public final class XPathHelper {
     private static final Pattern XHTML_TAGGABLE = Pattern.compile("[a-zA-Z][\\w-]*|\\*");
     private static final Pattern XHTML_TAG_MASK = Pattern.compile("(preceding-sibling|following-sibling|ancestor-or-self|descendant-or-self)");
     private static final Pattern XHTML_NS = Pattern.compile("(\"[^\"]+\")|('[^']+')");
-    private static final Map<String, XPathExpression> XPATH_CACHE = Collections.synchronizedMap(LruMap.accessOrder(10000));
+
+    /** The maximum number of compiled expressions which are cached per thread. */
+    private static final int MAX_CACHED_EXPRESSIONS = 10000;
+
+    /**
+     * Compiled expressions and the factory per thread; neither {@link XPathFactory} nor {@link XPathExpression} are
+     * thread-safe, and like this the cache needs no locking.
+     */
+    private static final ThreadLocal<ExpressionCache> EXPRESSION_CACHE = ThreadLocal.withInitial(ExpressionCache::new);
+
+    private static final LongAdder CACHE_HITS = new LongAdder();
+
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    private static final class ExpressionCache {
+        final XPathFactory factory = XPathFactory.newInstance();
+        final Map<CacheKey, XPathExpression> expressions = LruMap.accessOrder(MAX_CACHED_EXPRESSIONS);
+        final Map<String, String> xhtmlXPaths = LruMap.accessOrder(MAX_CACHED_EXPRESSIONS);
+    }
+
+    private static final class CacheKey {
+        final String xPath;
+        final Map<String, String> namespaces;
+
+        CacheKey(String xPath, Map<String, String> namespaces) {
+            this.xPath = xPath;
+            this.namespaces = namespaces;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return xPath.equals(other.xPath) && namespaces.equals(other.namespaces);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * xPath.hashCode() + namespaces.hashCode();
+        }
+    }
 
     private static class MyNamespaceContext implements NamespaceContext {
         private final Map<String, String> namespaces = new HashMap<>();
@@ -120,34 +166,44 @@ public final class XPathHelper {
     }
 
     private static XPathExpression compileOrGet(String xPath, Map<String, String> namespaces) throws XPathExpressionException {
-        if (namespaces != null && !namespaces.isEmpty()) {
-            return compile(xPath, namespaces);
-        }
-        if (XPATH_CACHE.containsKey(xPath)) {
-            return XPATH_CACHE.get(xPath);
+        ExpressionCache cache = EXPRESSION_CACHE.get();
+        Map<String, String> namespacesOrEmpty = namespaces != null ? namespaces : Collections.emptyMap();
+        XPathExpression xPathExpression = cache.expressions.get(new CacheKey(xPath, namespacesOrEmpty));
+        if (xPathExpression != null) {
+            CACHE_HITS.increment();
+            return xPathExpression;
         }
-        XPathExpression xPathExpression = compile(xPath, namespaces);
-        XPATH_CACHE.put(xPath, xPathExpression);
+        CACHE_MISSES.increment();
+        xPathExpression = compile(cache.factory, xPath, namespacesOrEmpty);
+        // copy the namespaces, as the given map might be modified later
+        cache.expressions.put(new CacheKey(xPath, new HashMap<>(namespacesOrEmpty)), xPathExpression);
         return xPathExpression;
     }
 
-    private static XPathExpression compile(String xPath, Map<String, String> namespaces) throws XPathExpressionException {
-        XPathFactory factory = XPathFactory.newInstance();
+    private static XPathExpression compile(XPathFactory factory, String xPath, Map<String, String> namespaces) throws XPathExpressionException {
         XPath xPathObject = factory.newXPath();
 
         MyNamespaceContext namespaceContext = new MyNamespaceContext();
         namespaceContext.addNamespace("xhtml", XHTML_NAMESPACE);
-        if (namespaces != null) {
-            for (Entry<String, String> entry : namespaces.entrySet()) {
-                String prefix = entry.getKey();
-                String uri = entry.getValue();
-                namespaceContext.addNamespace(prefix, uri);
-            }
+        for (Entry<String, String> entry : namespaces.entrySet()) {
+            String prefix = entry.getKey();
+            String uri = entry.getValue();
+            namespaceContext.addNamespace(prefix, uri);
         }
         xPathObject.setNamespaceContext(namespaceContext);
         return xPathObject.compile(xPath);
     }
 
+    /** @return The number of XPath lookups which were served from the cache of compiled expressions. */
+    public static long getCacheHits() {
+        return CACHE_HITS.sum();
+    }
+
+    /** @return The number of XPath lookups which needed to compile the expression. */
+    public static long getCacheMisses() {
+        return CACHE_MISSES.sum();
+    }
+
     /**
      * <p>
      * Get a list of {@link Node}s from matching the given XPath expression.
@@ -481,6 +537,16 @@ public final class XPathHelper {
         if (xPath.toLowerCase(Locale.ENGLISH).contains(XHTML_COLON)) {
             return xPath;
         }
+        Map<String, String> xhtmlXPaths = EXPRESSION_CACHE.get().xhtmlXPaths;
+        String xhtmlXPath = xhtmlXPaths.get(xPath);
+        if (xhtmlXPath == null) {
+            xhtmlXPath = insertXhtmlNs(xPath);
+            xhtmlXPaths.put(xPath, xhtmlXPath);
+        }
+        return xhtmlXPath;
+    }
+
+    private static String insertXhtmlNs(String xPath) {
         // return xPath.replaceAll("/(?=\\w)","/xhtml:");
         // this is a fix NOT to touch slashes inside quotes,
         // for example in @type='application/rss+xml'
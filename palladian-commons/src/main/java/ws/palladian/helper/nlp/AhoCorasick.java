@@ -0,0 +1,164 @@
+package ws.palladian.helper.nlp;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An Aho-Corasick automaton, which finds all occurrences of a set of patterns in a text with one pass over the text,
+ * independent of the number of patterns. Matching is case sensitive. The automaton is immutable after construction and
+ * can be used from multiple threads.
+ */
+public final class AhoCorasick {
+
+    /** Callback for matches. */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * Called for each occurrence of a pattern.
+         *
+         * @param patternIndex The index of the pattern, as given to the constructor.
+         * @param start        The start index of the occurrence in the text (inclusive).
+         * @param end          The end index of the occurrence in the text (exclusive).
+         */
+        void match(int patternIndex, int start, int end);
+    }
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final String[] patterns;
+
+    /** The transitions, key is the state shifted left by 16 bits, combined with the character. */
+    private final Long2IntOpenHashMap transitions;
+
+    /** The failure link for each state. */
+    private final int[] failure;
+
+    /** The closest state on the failure chain which has an output, or -1. */
+    private final int[] outputLink;
+
+    /** The indices of the patterns which end in each state. */
+    private final int[][] outputs;
+
+    /**
+     * Create a new automaton for the given patterns. Empty patterns are never reported as match.
+     *
+     * @param patterns The patterns, not <code>null</code>.
+     */
+    public AhoCorasick(List<String> patterns) {
+        Validate.notNull(patterns, "patterns must not be null");
+        this.patterns = patterns.toArray(new String[0]);
+        transitions = new Long2IntOpenHashMap();
+        transitions.defaultReturnValue(-1);
+        List<IntArrayList> stateOutputs = new ArrayList<>();
+        List<IntArrayList> children = new ArrayList<>();
+        stateOutputs.add(null);
+        children.add(new IntArrayList());
+        int numStates = 1;
+        for (int patternIndex = 0; patternIndex < this.patterns.length; patternIndex++) {
+            String pattern = this.patterns[patternIndex];
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = transitions.get(key(state, c));
+                if (next == -1) {
+                    next = numStates++;
+                    transitions.put(key(state, c), next);
+                    children.get(state).add(c);
+                    stateOutputs.add(null);
+                    children.add(new IntArrayList());
+                }
+                state = next;
+            }
+            if (stateOutputs.get(state) == null) {
+                stateOutputs.set(state, new IntArrayList(1));
+            }
+            stateOutputs.get(state).add(patternIndex);
+        }
+        failure = new int[numStates];
+        outputLink = new int[numStates];
+        outputs = new int[numStates][];
+        for (int state = 0; state < numStates; state++) {
+            IntArrayList stateOutput = stateOutputs.get(state);
+            outputs[state] = stateOutput != null ? stateOutput.toIntArray() : NO_OUTPUT;
+        }
+        // breadth first, so that the failure links of shorter prefixes are known
+        outputLink[0] = -1;
+        IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+        queue.enqueue(0);
+        while (!queue.isEmpty()) {
+            int state = queue.dequeueInt();
+            for (int c : children.get(state)) {
+                int child = transitions.get(key(state, (char) c));
+                if (state == 0) {
+                    failure[child] = 0;
+                } else {
+                    failure[child] = step(failure[state], (char) c);
+                }
+                int fail = failure[child];
+                outputLink[child] = outputs[fail].length > 0 ? fail : outputLink[fail];
+                queue.enqueue(child);
+            }
+        }
+    }
+
+    private static long key(int state, char c) {
+        return (long) state << 16 | c;
+    }
+
+    /** Follow the transition for the given character, falling back along the failure links. */
+    private int step(int state, char c) {
+        for (;;) {
+            int next = transitions.get(key(state, c));
+            if (next != -1) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Find all occurrences of the patterns in the given text, including overlapping ones. Occurrences are reported in
+     * the order of their end index.
+     *
+     * @param text    The text to search, not <code>null</code>.
+     * @param handler The handler which receives the matches, not <code>null</code>.
+     */
+    public void match(CharSequence text, MatchHandler handler) {
+        Validate.notNull(text, "text must not be null");
+        Validate.notNull(handler, "handler must not be null");
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int outputState = outputs[state].length > 0 ? state : outputLink[state]; outputState != -1; outputState = outputLink[outputState]) {
+                for (int patternIndex : outputs[outputState]) {
+                    handler.match(patternIndex, i + 1 - patterns[patternIndex].length(), i + 1);
+                }
+            }
+        }
+    }
+
+    /** @return The number of patterns. */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * @param patternIndex The index of the pattern.
+     * @return The pattern.
+     */
+    public String getPattern(int patternIndex) {
+        return patterns[patternIndex];
+    }
+
+}
@@ -460,23 +460,16 @@ public final class StringHelper {
 
     /**
      * <p>
-     * Check whether a string contains a word. The word can be surrounded by whitespaces or punctuation but can not be
-     * within another word.
+     * Check whether the given range of a string is a word according to {@link #containsWordCaseSensitive(String, String)},
+     * i.e. it is not preceded or followed by a letter or digit.
      * </p>
      *
-     * @param word         The word to search for.
-     * @param searchString The string in which we try to find the word.
-     * @return True, if the word is contained, false if not.
+     * @param searchString The string.
+     * @param index        The start index of the range.
+     * @param length       The length of the range.
+     * @return True, if the range is delimited like a word.
      */
-    public static boolean containsWordCaseSensitive(String word, String searchString) {
-        return containsWordCaseSensitiveRecursive(word, searchString, false, -1);
-    }
-
-    public static boolean containsWordCaseSensitiveRecursive(String word, String searchString, boolean contained, int startIndex) {
-        int index = searchString.indexOf(word, startIndex);
-        if (index == -1 || word.isEmpty()) {
-            return contained;
-        }
+    public static boolean isWordAt(String searchString, int index, int length) {
         boolean leftBorder;
         if (index == 0) {
             leftBorder = true;
@@ -493,14 +486,35 @@ public final class StringHelper {
             }
         }
         boolean rightBorder;
-        if (index + word.length() == searchString.length()) {
+        if (index + length == searchString.length()) {
             rightBorder = true;
         } else {
-            char nextChar = searchString.charAt(index + word.length());
+            char nextChar = searchString.charAt(index + length);
             rightBorder = !(Character.isLetter(nextChar) || Character.isDigit(nextChar) || nextChar == '+');
         }
+        return leftBorder && rightBorder;
+    }
+
+    /**
+     * <p>
+     * Check whether a string contains a word. The word can be surrounded by whitespaces or punctuation but can not be
+     * within another word.
+     * </p>
+     *
+     * @param word         The word to search for.
+     * @param searchString The string in which we try to find the word.
+     * @return True, if the word is contained, false if not.
+     */
+    public static boolean containsWordCaseSensitive(String word, String searchString) {
+        return containsWordCaseSensitiveRecursive(word, searchString, false, -1);
+    }
 
-        if (leftBorder && rightBorder) {
+    public static boolean containsWordCaseSensitiveRecursive(String word, String searchString, boolean contained, int startIndex) {
+        int index = searchString.indexOf(word, startIndex);
+        if (index == -1 || word.isEmpty()) {
+            return contained;
+        }
+        if (isWordAt(searchString, index, word.length())) {
             return true;
         }
 
@@ -0,0 +1,124 @@
+package ws.palladian.helper.collection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class CompactTrieTest {
+
+    @Test
+    public void testCompactTrie() {
+        CompactTrie.Builder<Integer> builder = new CompactTrie.Builder<>();
+        builder.put("to", 1);
+        builder.put("tea", 2);
+        builder.put("ted", 3);
+        builder.put("ten", 4);
+        builder.put("teapot", 5);
+        assertEquals(5, builder.size());
+        assertEquals(Integer.valueOf(2), builder.get("tea"));
+        assertNull(builder.get("te"));
+        assertEquals(Integer.valueOf(2), builder.getOrPut("tea", 6));
+        assertEquals(Integer.valueOf(7), builder.getOrPut("inn", 7));
+
+        CompactTrie<Integer> trie = builder.create();
+        assertEquals(6, trie.size());
+        assertEquals(Integer.valueOf(1), trie.get("to"));
+        assertEquals(Integer.valueOf(5), trie.get("teapot"));
+        assertEquals(Integer.valueOf(7), trie.get("inn"));
+        assertNull(trie.get("t"));
+        assertNull(trie.get("teap"));
+        assertNull(trie.get("teapots"));
+        assertNull(trie.get("a"));
+        // root, "inn", "t", "o", "e", "a", "d", "n", "pot"
+        assertEquals(9, trie.getNumNodes());
+
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : trie) {
+            keys.add(entry.getKey());
+        }
+        assertEquals(List.of("inn", "tea", "teapot", "ted", "ten", "to"), keys);
+    }
+
+    @Test
+    public void testStep() {
+        CompactTrie.Builder<Integer> builder = new CompactTrie.Builder<>();
+        builder.put("tea", 1);
+        builder.put("teapot", 2);
+        CompactTrie<Integer> trie = builder.create();
+        long state = CompactTrie.ROOT;
+        state = trie.step(state, 't');
+        state = trie.step(state, 'e');
+        assertNull(trie.getValue(state));
+        state = trie.step(state, 'a');
+        assertEquals(Integer.valueOf(1), trie.getValue(state));
+        state = trie.step(state, 'p');
+        assertNull(trie.getValue(state));
+        state = trie.step(state, 'x');
+        assertEquals(CompactTrie.NO_MATCH, state);
+        assertEquals(CompactTrie.NO_MATCH, trie.step(state, 'o'));
+        assertNull(trie.getValue(state));
+    }
+
+    @Test
+    public void testRemoveAndClean() {
+        CompactTrie.Builder<Integer> builder = new CompactTrie.Builder<>();
+        builder.put("to", 1);
+        builder.put("tea", 2);
+        builder.put("teapot", 3);
+        int numNodes = builder.getNumNodes();
+        Iterator<Map.Entry<String, Integer>> iterator = builder.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey().startsWith("tea")) {
+                iterator.remove();
+            }
+        }
+        assertEquals(1, builder.size());
+        assertFalse(builder.clean());
+        assertTrue(builder.getNumNodes() < numNodes);
+        assertEquals(Integer.valueOf(1), builder.get("to"));
+        assertNull(builder.get("tea"));
+        assertEquals(1, builder.create().size());
+        builder.put("to", null);
+        assertTrue(builder.clean());
+        assertEquals(0, builder.create().size());
+    }
+
+    @Test
+    public void testRandomKeys() {
+        Random random = new Random(1);
+        Map<String, Integer> expected = new TreeMap<>();
+        CompactTrie.Builder<Integer> builder = new CompactTrie.Builder<>();
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder key = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                key.append((char) ('a' + random.nextInt(6)));
+            }
+            expected.put(key.toString(), i);
+            builder.put(key.toString(), i);
+        }
+        CompactTrie<Integer> trie = builder.create();
+        assertEquals(expected.size(), trie.size());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+        Iterator<Map.Entry<String, Integer>> expectedIterator = expected.entrySet().iterator();
+        for (Map.Entry<String, Integer> entry : trie) {
+            assertEquals(expectedIterator.next(), entry);
+        }
+        assertFalse(expectedIterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInsertEmptyKey() {
+        new CompactTrie.Builder<Integer>().put("", 1);
+    }
+
+}
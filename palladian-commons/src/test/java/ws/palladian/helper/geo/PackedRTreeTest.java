@@ -0,0 +1,123 @@
+package ws.palladian.helper.geo;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PackedRTreeTest {
+
+    private static final int NUM_POINTS = 5000;
+
+    private final double[] lats = new double[NUM_POINTS];
+    private final double[] lngs = new double[NUM_POINTS];
+    private final int[] ids = new int[NUM_POINTS];
+    private final PackedRTree tree;
+
+    public PackedRTreeTest() {
+        Random random = new Random(123);
+        for (int i = 0; i < NUM_POINTS; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lngs[i] = random.nextDouble() * 360 - 180;
+            ids[i] = i * 2;
+        }
+        tree = new PackedRTree(lats, lngs, ids);
+    }
+
+    private Set<Integer> ids(IntArrayList indices) {
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < indices.size(); i++) {
+            result.add(tree.getId(indices.getInt(i)));
+        }
+        return result;
+    }
+
+    private Set<Integer> bruteForceBox(double lat1, double lng1, double lat2, double lng2) {
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < NUM_POINTS; i++) {
+            boolean inLng = lng1 <= lng2 ? lngs[i] >= lng1 && lngs[i] <= lng2 : lngs[i] >= lng1 || lngs[i] <= lng2;
+            if (lats[i] >= lat1 && lats[i] <= lat2 && inLng) {
+                result.add(ids[i]);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testFindInBox() {
+        assertEquals(5000, tree.size());
+        assertEquals(bruteForceBox(10, 20, 30, 50), ids(tree.findInBox(10, 20, 30, 50)));
+        assertEquals(bruteForceBox(-90, -180, 90, 180), ids(tree.findInBox(-90, -180, 90, 180)));
+        assertEquals(5000, tree.findInBox(-90, -200, 90, 200).size());
+        // across the antimeridian
+        assertEquals(bruteForceBox(-10, 170, 10, -170), ids(tree.findInBox(-10, 170, 10, -170)));
+        assertEquals(bruteForceBox(-10, 170, 10, -170), ids(tree.findInBox(-10, 170, 10, 190)));
+        assertTrue(tree.findInBox(1, 1, 1, 1).isEmpty());
+    }
+
+    @Test
+    public void testFindNearest() {
+        double[][] queries = {{52.52, 13.41}, {0, 179.9}, {0, -179.9}, {89.9, 0}, {-89, 45}};
+        for (double[] query : queries) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < NUM_POINTS; i++) {
+                expected.add(i);
+            }
+            expected.sort(Comparator.comparingDouble(i -> GeoUtils.computeDistance(query[0], query[1], lats[i], lngs[i])));
+
+            IntArrayList nearest = tree.findNearest(query[0], query[1], 10, Double.POSITIVE_INFINITY);
+            assertEquals(10, nearest.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(ids[expected.get(i)], tree.getId(nearest.getInt(i)));
+            }
+
+            Set<Integer> expectedWithin = new HashSet<>();
+            for (int i = 0; i < NUM_POINTS; i++) {
+                if (GeoUtils.computeDistance(query[0], query[1], lats[i], lngs[i]) <= 500) {
+                    expectedWithin.add(ids[i]);
+                }
+            }
+            IntArrayList within = tree.findWithin(query[0], query[1], 500);
+            assertEquals(expectedWithin, ids(within));
+            // ordered by distance
+            double previous = 0;
+            for (int i = 0; i < within.size(); i++) {
+                int index = within.getInt(i);
+                double distance = GeoUtils.computeDistance(query[0], query[1], tree.getLatitude(index), tree.getLongitude(index));
+                assertTrue(distance >= previous - 1e-9);
+                previous = distance;
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyAndSmall() {
+        PackedRTree empty = new PackedRTree(new double[0], new double[0], new int[0]);
+        assertTrue(empty.findInBox(-90, -180, 90, 180).isEmpty());
+        assertTrue(empty.findNearest(0, 0, 5, 100).isEmpty());
+
+        PackedRTree single = new PackedRTree(new double[]{52.52}, new double[]{13.41}, new int[]{7});
+        assertEquals(7, single.getId(single.findNearest(0, 0, 5, Double.POSITIVE_INFINITY).getInt(0)));
+        assertTrue(single.findWithin(0, 0, 100).isEmpty());
+    }
+
+    @Test
+    public void testSpatial2dIdMap() {
+        Spatial2dIdMap map = new Spatial2dIdMap();
+        map.put(52.52437, 13.41053, 1); // Berlin
+        map.put(52.39886, 13.06566, 2); // Potsdam
+        map.put(48.13743, 11.57549, 3); // Munich
+        assertTrue(map.findInBox(40, 0, 60, 20).isEmpty());
+        map.sort();
+        assertEquals(3, map.findInBox(40, 0, 60, 20).size());
+
+        List<IdCoordinate> closest = map.closestTo(52.5, 13.4, 50000);
+        assertEquals(2, closest.size());
+        assertEquals(1, closest.get(0).getId());
+        assertEquals(2, closest.get(1).getId());
+        assertEquals(3, map.kClosestTo(48, 11, 1).get(0).getId());
+    }
+
+}
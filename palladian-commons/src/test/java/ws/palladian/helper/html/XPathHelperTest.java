@@ -16,6 +16,7 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * <p>
@@ -111,4 +112,17 @@ public class XPathHelperTest {
         List<Node> tocItems2 = XPathHelper.getXhtmlNodes(firstTocNode, "ul/*");
         assertEquals(10, tocItems2.size());
     }
+
+    @Test
+    public void testExpressionCache() throws ParserConfigurationException, SAXException, IOException {
+        Document doc = ParseUtil.parseXhtml(ResourceHelper.getResourceFile("/w3c_xhtml_strict.html"));
+        String xPath = "//div[@class='toc']//a[" + System.nanoTime() + " > 0]";
+        long misses = XPathHelper.getCacheMisses();
+        int count = XPathHelper.getXhtmlNodes(doc, xPath).size();
+        assertTrue(XPathHelper.getCacheMisses() > misses);
+        long hits = XPathHelper.getCacheHits();
+        assertEquals(count, XPathHelper.getXhtmlNodes(doc, xPath).size());
+        assertTrue(XPathHelper.getCacheHits() > hits);
+    }
+
 }
@@ -0,0 +1,64 @@
+package ws.palladian.helper.nlp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AhoCorasickTest {
+
+    private static List<String> matches(AhoCorasick automaton, String text) {
+        List<String> matches = new ArrayList<>();
+        automaton.match(text, (patternIndex, start, end) -> matches.add(automaton.getPattern(patternIndex) + "@" + start + "-" + end));
+        return matches;
+    }
+
+    @Test
+    public void testMatch() {
+        AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers", ""));
+        assertEquals(5, automaton.size());
+        assertEquals(Arrays.asList("she@1-4", "he@2-4", "hers@2-6"), matches(automaton, "ushers"));
+        assertEquals(Arrays.asList("his@0-3", "she@2-5", "he@3-5"), matches(automaton, "hishe"));
+        assertEquals(0, matches(automaton, "HERS").size());
+        assertEquals(0, matches(automaton, "").size());
+    }
+
+    @Test
+    public void testMatchRandom() {
+        // compare with brute force search
+        Random random = new Random(1);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            patterns.add(randomString(random, 1 + random.nextInt(4)));
+        }
+        AhoCorasick automaton = new AhoCorasick(patterns);
+        for (int i = 0; i < 100; i++) {
+            String text = randomString(random, random.nextInt(50));
+            int[] counts = new int[patterns.size()];
+            automaton.match(text, (patternIndex, start, end) -> {
+                assertEquals(patterns.get(patternIndex), text.substring(start, end));
+                counts[patternIndex]++;
+            });
+            for (int p = 0; p < patterns.size(); p++) {
+                int expected = 0;
+                for (int index = text.indexOf(patterns.get(p)); index != -1; index = text.indexOf(patterns.get(p), index + 1)) {
+                    expected++;
+                }
+                assertEquals(expected, counts[p]);
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+
+}
@@ -117,6 +117,24 @@ public final class Binner implements Iterable<Binner.Interval> {
         this.featureName = featureName;
     }
 
+    /**
+     * Create a new {@link Binner} from values which were already collected from the dataset.
+     *
+     * @param featureName The name of the numeric feature.
+     * @param values      The non-null values of the feature.
+     * @param categories  The categories of the instances with the values.
+     * @param size        The number of values in the arrays.
+     */
+    Binner(String featureName, double[] values, String[] categories, int size) {
+        List<ValueCategory> sortedData = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sortedData.add(new ValueCategory(values[i], categories[i]));
+        }
+        Collections.sort(sortedData);
+        this.boundaries = findBoundaries(sortedData, featureName);
+        this.featureName = featureName;
+    }
+
     /**
      * Find all the boundary points within the provided dataset.
      *
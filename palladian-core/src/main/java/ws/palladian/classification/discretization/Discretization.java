@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.classification.discretization.Binner.Interval;
 import ws.palladian.core.FeatureVector;
+import ws.palladian.core.Instance;
 import ws.palladian.core.InstanceBuilder;
 import ws.palladian.core.dataset.AbstractDatasetFeatureVectorTransformer;
 import ws.palladian.core.dataset.Dataset;
@@ -17,15 +18,17 @@ import ws.palladian.helper.NoProgress;
 import ws.palladian.helper.ProgressReporter;
 import ws.palladian.helper.collection.Vector.VectorEntry;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.IntStream;
 
 public final class Discretization extends AbstractDatasetFeatureVectorTransformer {
 
     /** The logger for this class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(Discretization.class);
 
+    /** The maximum number of values which are collected in one pass over the dataset. */
+    private static final long MAX_BUFFERED_VALUES = 1 << 24;
+
     private final Map<String, Binner> binners = new HashMap<>();
 
     public Discretization(Dataset dataset) {
@@ -35,16 +38,55 @@ public final class Discretization extends AbstractDatasetFeatureVectorTransforme
     public Discretization(Dataset dataset, ProgressReporter progress) {
         Validate.notNull(dataset, "dataset must not be null");
         Validate.notNull(progress, "progress must not be null");
-        Set<String> numericFeatureNames = dataset.getFeatureInformation().getFeatureNamesOfType(NumericValue.class);
+        List<String> numericFeatureNames = new ArrayList<>(dataset.getFeatureInformation().getFeatureNamesOfType(NumericValue.class));
         progress.startTask("Discretizing", numericFeatureNames.size());
-        for (String featureName : numericFeatureNames) {
-            LOGGER.debug("Discretizing {}", featureName);
-            binners.put(featureName, new Binner(dataset, featureName));
-            progress.increment();
+        // collect the values of as many features in one pass as fit into the buffer (one, in case the size is unknown)
+        long numInstances = dataset.size();
+        int featuresPerPass = numInstances > 0 ? (int) Math.max(1, Math.min(numericFeatureNames.size(), MAX_BUFFERED_VALUES / numInstances)) : 1;
+        for (int start = 0; start < numericFeatureNames.size(); start += featuresPerPass) {
+            List<String> featureNames = numericFeatureNames.subList(start, Math.min(start + featuresPerPass, numericFeatureNames.size()));
+            LOGGER.debug("Discretizing {}", featureNames);
+            Binner[] passBinners = createBinners(dataset, featureNames);
+            for (int i = 0; i < featureNames.size(); i++) {
+                binners.put(featureNames.get(i), passBinners[i]);
+            }
+            progress.increment(featureNames.size());
         }
         progress.finishTask();
     }
 
+    /**
+     * Collect the values of the given features in one pass over the dataset, and create the binners in parallel.
+     */
+    private static Binner[] createBinners(Dataset dataset, List<String> featureNames) {
+        int numFeatures = featureNames.size();
+        double[][] values = new double[numFeatures][16];
+        String[][] categories = new String[numFeatures][16];
+        int[] sizes = new int[numFeatures];
+        for (Instance instance : dataset) {
+            FeatureVector vector = instance.getVector();
+            for (int i = 0; i < numFeatures; i++) {
+                Value value = vector.get(featureNames.get(i));
+                if (!value.isNull()) {
+                    if (sizes[i] == values[i].length) {
+                        values[i] = Arrays.copyOf(values[i], sizes[i] * 2);
+                        categories[i] = Arrays.copyOf(categories[i], sizes[i] * 2);
+                    }
+                    values[i][sizes[i]] = ((NumericValue) value).getDouble();
+                    categories[i][sizes[i]] = instance.getCategory();
+                    sizes[i]++;
+                }
+            }
+        }
+        Binner[] binners = new Binner[numFeatures];
+        IntStream.range(0, numFeatures).parallel().forEach(i -> {
+            binners[i] = new Binner(featureNames.get(i), values[i], categories[i], sizes[i]);
+            values[i] = null;
+            categories[i] = null;
+        });
+        return binners;
+    }
+
     @Override
     public FeatureVector apply(FeatureVector featureVector) {
         Validate.notNull(featureVector, "featureVector must not be null");
@@ -1,6 +1,8 @@
 package ws.palladian.classification.evaluation;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.util.FastMath;
+import ws.palladian.classification.utils.ClassificationUtils;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.core.Classifier;
 import ws.palladian.core.Instance;
@@ -19,8 +21,9 @@ public class LogLossEvaluator extends AbstractClassificationEvaluator<Double> {
         int n = 0;
         double sum = 0;
 
-        for (Instance instance : data) {
-            CategoryEntries result = classifier.classify(instance.getVector(), model);
+        for (Pair<Instance, CategoryEntries> classification : ClassificationUtils.classify(classifier, model, data)) {
+            Instance instance = classification.getKey();
+            CategoryEntries result = classification.getValue();
             boolean actual = instance.getCategory().equals(TRUE_CLASS);
             double predicted = result.getProbability(TRUE_CLASS);
             sum += logLoss(actual, predicted);
@@ -1,9 +1,11 @@
 package ws.palladian.classification.evaluation.reliability;
 
+import org.apache.commons.lang3.tuple.Pair;
 import ws.palladian.classification.evaluation.AbstractClassificationEvaluator;
 import ws.palladian.classification.evaluation.Graph;
 import ws.palladian.classification.evaluation.LogLossEvaluator;
 import ws.palladian.classification.evaluation.reliability.ReliabilityDiagramEvaluator.ReliabilityDiagram;
+import ws.palladian.classification.utils.ClassificationUtils;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.core.Classifier;
 import ws.palladian.core.Instance;
@@ -86,8 +88,9 @@ public class ReliabilityDiagramEvaluator extends AbstractClassificationEvaluator
         int n = 0;
         double logLoss = 0;
 
-        for (Instance instance : data) {
-            CategoryEntries result = classifier.classify(instance.getVector(), model);
+        for (Pair<Instance, CategoryEntries> classification : ClassificationUtils.classify(classifier, model, data)) {
+            Instance instance = classification.getKey();
+            CategoryEntries result = classification.getValue();
             double prediction = result.getProbability(trueClass);
             boolean positive = instance.getCategory().equals(trueClass);
             int bin = (int) Math.round(numBins * prediction);
@@ -2,9 +2,11 @@ package ws.palladian.classification.evaluation.roc;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import ws.palladian.classification.evaluation.AbstractClassificationEvaluator;
 import ws.palladian.classification.evaluation.AbstractGraphPainter;
 import ws.palladian.classification.evaluation.Graph;
+import ws.palladian.classification.utils.ClassificationUtils;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.core.Classifier;
 import ws.palladian.core.Instance;
@@ -51,8 +53,9 @@ public class RocCurves implements Iterable<RocCurves.EvaluationPoint>, Graph {
                 throw new IllegalStateException("Model has no category \"" + trueCategory + "\".");
             }
             List<ResultEntry> results = new ArrayList<>();
-            for (Instance instance : data) {
-                CategoryEntries categoryEntries = classifier.classify(instance.getVector(), model);
+            for (Pair<Instance, CategoryEntries> classification : ClassificationUtils.classify(classifier, model, data)) {
+                Instance instance = classification.getKey();
+                CategoryEntries categoryEntries = classification.getValue();
                 boolean correct = instance.getCategory().equals(trueCategory);
                 double confidence = categoryEntries.getProbability(trueCategory);
                 results.add(new ResultEntry(correct, confidence));
@@ -4,21 +4,12 @@ import org.apache.commons.lang3.Validate;
 import org.apache.commons.math3.util.FastMath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ws.palladian.classification.discretization.Discretization;
-import ws.palladian.core.FeatureVector;
-import ws.palladian.core.Instance;
 import ws.palladian.core.dataset.Dataset;
-import ws.palladian.core.value.Value;
 import ws.palladian.helper.NoProgress;
 import ws.palladian.helper.ProgressReporter;
-import ws.palladian.helper.collection.Bag;
-import ws.palladian.helper.collection.CollectionHelper;
-import ws.palladian.helper.collection.CountMatrix;
-import ws.palladian.helper.collection.CountMatrix.IntegerMatrixVector;
-import ws.palladian.helper.collection.Vector.VectorEntry;
 import ws.palladian.helper.math.NumericMatrix;
 
-import java.util.Map.Entry;
+import java.util.List;
 
 /**
  * <p>
@@ -69,49 +60,37 @@ public final class ChiSquaredFeatureRanker extends AbstractFeatureRanker {
 
         progress.startTask("Calculating chi² ranking", -1);
 
-        int N = CollectionHelper.count(dataset.iterator());
-        ProgressReporter cooccurrenceProgress = progress.createSubProgress(0.5);
-        cooccurrenceProgress.startTask("Counting cooccurrences.", N);
-        CountMatrix<String> termCategoryCorrelations = CountMatrix.create();
-        Bag<String> categoryCounts = new Bag<>();
+        FeatureValueCounts counts = FeatureValueCounts.count(dataset, progress);
+        int N = counts.getNumInstances();
+        List<String> categories = counts.getCategories();
 
-        Discretization discretization = new Discretization(dataset, NoProgress.INSTANCE);
-        Dataset discretizedDataset = dataset.transform(discretization);
-
-        for (Instance instance : discretizedDataset) {
-            FeatureVector featureVector = instance.getVector();
-            String category = instance.getCategory();
-            for (VectorEntry<String, Value> feature : featureVector) {
-                String featureValueIdentifier = feature.key() + "###" + feature.value().toString();
-                termCategoryCorrelations.add(category, featureValueIdentifier);
-            }
-            categoryCounts.add(category);
-            cooccurrenceProgress.increment();
-        }
-
-        ProgressReporter chiSquareProgress = progress.createSubProgress(0.5);
-        chiSquareProgress.startTask("Calculating chi² values.", termCategoryCorrelations.rowCount());
         NumericMatrix<String> result = new NumericMatrix<String>();
-        for (IntegerMatrixVector<String> termOccurence : termCategoryCorrelations.rows()) {
-            String featureName = termOccurence.key();
-            IntegerMatrixVector<String> categoryCorrelations = termCategoryCorrelations.getRow(featureName);
-            for (Entry<String, Integer> categoryCountEntry : categoryCounts.unique()) {
-                String categoryName = categoryCountEntry.getKey();
-                Integer categoryCount = categoryCountEntry.getValue();
-                LOGGER.trace("Calculating Chi² for feature {} in class {}.", featureName, categoryName);
-                int N_10 = categoryCorrelations.getSum() - categoryCorrelations.get(categoryName);
-                int N_11 = termOccurence.get(categoryName);
-                int N_01 = categoryCount - N_11;
-                int N_00 = N - (N_10 + N_01 + N_11);
-                LOGGER.trace("Using N_11 {}, N_10 {}, N_01 {}, N_00 {}", N_11, N_10, N_01, N_00);
-                double numerator = (N_11 + N_10 + N_01 + N_00) * FastMath.pow(N_11 * N_00 - N_10 * N_01, 2);
-                int denominator = (N_11 + N_01) * (N_11 + N_10) * (N_10 + N_00) * (N_01 + N_00);
-                double chiSquare = numerator / denominator;
-                LOGGER.trace("Chi² value is {}", chiSquare);
-                result.set(categoryName, featureName, chiSquare);
+        for (String featureName : counts.getFeatureNames()) {
+            FeatureValueCounts.FeatureCounts featureCounts = counts.getFeatureCounts(featureName);
+            List<String> values = featureCounts.getValues();
+            for (int value = 0; value < values.size(); value++) {
+                String featureValueIdentifier = featureName + "###" + values.get(value);
+                int valueCount = 0;
+                for (int category = 0; category < categories.size(); category++) {
+                    valueCount += featureCounts.getCount(value, category);
+                }
+                for (int category = 0; category < categories.size(); category++) {
+                    String categoryName = categories.get(category);
+                    LOGGER.trace("Calculating Chi² for feature {} in class {}.", featureValueIdentifier, categoryName);
+                    double N_11 = featureCounts.getCount(value, category);
+                    double N_10 = valueCount - N_11;
+                    double N_01 = counts.getCategoryCount(category) - N_11;
+                    double N_00 = N - (N_10 + N_01 + N_11);
+                    LOGGER.trace("Using N_11 {}, N_10 {}, N_01 {}, N_00 {}", N_11, N_10, N_01, N_00);
+                    double numerator = (N_11 + N_10 + N_01 + N_00) * FastMath.pow(N_11 * N_00 - N_10 * N_01, 2);
+                    double denominator = (N_11 + N_01) * (N_11 + N_10) * (N_10 + N_00) * (N_01 + N_00);
+                    double chiSquare = numerator / denominator;
+                    LOGGER.trace("Chi² value is {}", chiSquare);
+                    result.set(categoryName, featureValueIdentifier, chiSquare);
+                }
             }
-            chiSquareProgress.increment();
         }
+        progress.finishTask();
         return result;
     }
 
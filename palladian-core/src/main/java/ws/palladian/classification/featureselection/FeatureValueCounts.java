@@ -0,0 +1,247 @@
+package ws.palladian.classification.featureselection;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import ws.palladian.classification.discretization.Discretization;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.Dataset;
+import ws.palladian.core.value.NullValue;
+import ws.palladian.core.value.Value;
+import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.collection.Vector.VectorEntry;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static ws.palladian.helper.math.MathHelper.log2;
+
+/**
+ * <p>
+ * The joint counts of the (discretized) values of all features with the categories, which are collected in one pass
+ * over the dataset. The instances are read in blocks; each block is split into shards, which are discretized and
+ * counted in parallel into separate tables, which are merged in the end.
+ * </p>
+ */
+final class FeatureValueCounts {
+
+    /** The number of instances which are read before they are counted in parallel. */
+    private static final int BLOCK_SIZE = 8192;
+
+    /** The counts of the values of one feature; the values are counted as their string representation. */
+    static final class FeatureCounts {
+
+        private final Object2IntMap<String> valueIndices = new Object2IntOpenHashMap<>();
+
+        private final List<String> values = new ArrayList<>();
+
+        /** For each value, the count for each category index. */
+        private final List<int[]> counts = new ArrayList<>();
+
+        FeatureCounts() {
+            valueIndices.defaultReturnValue(-1);
+        }
+
+        void add(String value, int category, int count) {
+            int index = valueIndices.getInt(value);
+            if (index == -1) {
+                index = values.size();
+                valueIndices.put(value, index);
+                values.add(value);
+                counts.add(new int[category + 1]);
+            }
+            int[] valueCounts = counts.get(index);
+            if (category >= valueCounts.length) {
+                valueCounts = Arrays.copyOf(valueCounts, category + 1);
+                counts.set(index, valueCounts);
+            }
+            valueCounts[category] += count;
+        }
+
+        void addAll(FeatureCounts other) {
+            for (int i = 0; i < other.values.size(); i++) {
+                int[] valueCounts = other.counts.get(i);
+                for (int category = 0; category < valueCounts.length; category++) {
+                    if (valueCounts[category] > 0) {
+                        add(other.values.get(i), category, valueCounts[category]);
+                    }
+                }
+            }
+        }
+
+        /** @return The distinct values. */
+        List<String> getValues() {
+            return Collections.unmodifiableList(values);
+        }
+
+        /** @return The number of co-occurrences of the value with the category. */
+        int getCount(int valueIndex, int category) {
+            int[] valueCounts = counts.get(valueIndex);
+            return category < valueCounts.length ? valueCounts[category] : 0;
+        }
+
+    }
+
+    private final List<String> categories;
+
+    private final int[] categoryCounts;
+
+    private final int numInstances;
+
+    private final Map<String, FeatureCounts> features;
+
+    private FeatureValueCounts(List<String> categories, int[] categoryCounts, int numInstances, Map<String, FeatureCounts> features) {
+        this.categories = categories;
+        this.categoryCounts = categoryCounts;
+        this.numInstances = numInstances;
+        this.features = features;
+    }
+
+    /**
+     * Discretize the numeric features of the dataset, and count the values of all features with the categories.
+     *
+     * @param dataset  The dataset.
+     * @param progress The progress.
+     * @return The counts.
+     */
+    static FeatureValueCounts count(Dataset dataset, ProgressReporter progress) {
+        Discretization discretization = new Discretization(dataset, progress.createSubProgress(0.5));
+
+        ProgressReporter countProgress = progress.createSubProgress(0.5);
+        countProgress.startTask("Counting values", dataset.size());
+        int numShards = ForkJoinPool.getCommonPoolParallelism();
+        List<Map<String, FeatureCounts>> shardCounts = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            shardCounts.add(new HashMap<>());
+        }
+        Object2IntMap<String> categoryIndices = new Object2IntOpenHashMap<>();
+        categoryIndices.defaultReturnValue(-1);
+        List<String> categories = new ArrayList<>();
+        int[] categoryCounts = new int[0];
+        int numInstances = 0;
+
+        FeatureVector[] vectors = new FeatureVector[BLOCK_SIZE];
+        int[] vectorCategories = new int[BLOCK_SIZE];
+        Iterator<Instance> iterator = dataset.iterator();
+        while (iterator.hasNext()) {
+            int blockSize = 0;
+            while (blockSize < BLOCK_SIZE && iterator.hasNext()) {
+                Instance instance = iterator.next();
+                int category = categoryIndices.getInt(instance.getCategory());
+                if (category == -1) {
+                    category = categories.size();
+                    categoryIndices.put(instance.getCategory(), category);
+                    categories.add(instance.getCategory());
+                    categoryCounts = Arrays.copyOf(categoryCounts, category + 1);
+                }
+                categoryCounts[category]++;
+                vectors[blockSize] = instance.getVector();
+                vectorCategories[blockSize] = category;
+                blockSize++;
+            }
+            int currentBlockSize = blockSize;
+            IntStream.range(0, numShards).parallel().forEach(shard -> {
+                Map<String, FeatureCounts> counts = shardCounts.get(shard);
+                for (int i = shard; i < currentBlockSize; i += numShards) {
+                    FeatureVector vector = discretization.apply(vectors[i]);
+                    for (VectorEntry<String, Value> entry : vector) {
+                        counts.computeIfAbsent(entry.key(), k -> new FeatureCounts()).add(entry.value().toString(), vectorCategories[i], 1);
+                    }
+                }
+            });
+            numInstances += blockSize;
+            countProgress.increment(blockSize);
+        }
+        countProgress.finishTask();
+
+        Map<String, FeatureCounts> features = shardCounts.get(0);
+        for (int i = 1; i < numShards; i++) {
+            for (Map.Entry<String, FeatureCounts> entry : shardCounts.get(i).entrySet()) {
+                features.computeIfAbsent(entry.getKey(), k -> new FeatureCounts()).addAll(entry.getValue());
+            }
+        }
+        return new FeatureValueCounts(categories, categoryCounts, numInstances, features);
+    }
+
+    /** @return The number of instances. */
+    int getNumInstances() {
+        return numInstances;
+    }
+
+    /** @return The categories; their positions are the category indices. */
+    List<String> getCategories() {
+        return Collections.unmodifiableList(categories);
+    }
+
+    /** @return The number of instances with the category. */
+    int getCategoryCount(int category) {
+        return categoryCounts[category];
+    }
+
+    /** @return The names of all features which occurred in the instances. */
+    Set<String> getFeatureNames() {
+        return Collections.unmodifiableSet(features.keySet());
+    }
+
+    /** @return The counts of the feature, or <code>null</code> in case it did not occur in any instance. */
+    FeatureCounts getFeatureCounts(String featureName) {
+        return features.get(featureName);
+    }
+
+    /** @return The entropy of the categories, H(C). */
+    double getCategoryEntropy() {
+        double entropy = 0;
+        for (int count : categoryCounts) {
+            entropy -= plogp(count, numInstances);
+        }
+        return entropy;
+    }
+
+    /**
+     * Calculates the conditional entropy of the categories given the values of the feature, H(C|X) = H(C,X) - H(X).
+     * Instances which do not contain the feature are counted as {@link NullValue}.
+     *
+     * @param featureName The name of the feature.
+     * @return The conditional entropy.
+     */
+    double getConditionalEntropy(String featureName) {
+        FeatureCounts featureCounts = features.getOrDefault(featureName, new FeatureCounts());
+        int[] nullCounts = categoryCounts.clone();
+        double jointEntropy = 0;
+        double valueEntropy = 0;
+        int nullIndex = featureCounts.valueIndices.getInt(NullValue.NULL.toString());
+        for (int value = 0; value < featureCounts.values.size(); value++) {
+            int valueCount = 0;
+            for (int category = 0; category < categories.size(); category++) {
+                int count = featureCounts.getCount(value, category);
+                nullCounts[category] -= count;
+                if (value != nullIndex) {
+                    jointEntropy -= plogp(count, numInstances);
+                    valueCount += count;
+                }
+            }
+            if (value != nullIndex) {
+                valueEntropy -= plogp(valueCount, numInstances);
+            }
+        }
+        // explicit null values, and instances without the feature (the remainder of the category counts)
+        int nullCount = 0;
+        for (int category = 0; category < categories.size(); category++) {
+            int count = nullCounts[category] + (nullIndex != -1 ? featureCounts.getCount(nullIndex, category) : 0);
+            jointEntropy -= plogp(count, numInstances);
+            nullCount += count;
+        }
+        valueEntropy -= plogp(nullCount, numInstances);
+        return jointEntropy - valueEntropy;
+    }
+
+    private static double plogp(int count, int total) {
+        if (count == 0) {
+            return 0;
+        }
+        double probability = (double) count / total;
+        return probability * log2(probability);
+    }
+
+}
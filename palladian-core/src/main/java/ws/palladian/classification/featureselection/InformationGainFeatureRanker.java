@@ -3,20 +3,11 @@ package ws.palladian.classification.featureselection;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ws.palladian.classification.discretization.Discretization;
-import ws.palladian.classification.text.CountingCategoryEntriesBuilder;
-import ws.palladian.core.CategoryEntries;
-import ws.palladian.core.CategoryEntriesBuilder;
-import ws.palladian.core.Instance;
 import ws.palladian.core.dataset.Dataset;
-import ws.palladian.core.dataset.statistics.DatasetStatistics;
-import ws.palladian.core.dataset.statistics.NominalValueStatistics;
-import ws.palladian.core.value.Value;
 import ws.palladian.helper.ProgressReporter;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * <p>
@@ -64,68 +55,17 @@ public final class InformationGainFeatureRanker extends AbstractFeatureRanker {
         Map<String, Double> informationGainValues = new HashMap<>();
 
         progress.startTask("Information Gain", -1);
-        LOGGER.debug("Calculating discretization");
-        Discretization discretization = new Discretization(dataset, progress.createSubProgress(0.5));
-        Dataset preparedData = dataset.transform(discretization);
+        LOGGER.debug("Counting values");
+        FeatureValueCounts counts = FeatureValueCounts.count(dataset, progress);
 
-        NominalValueStatistics categoryStatistics = new DatasetStatistics(dataset).getCategoryStatistics();
-        CategoryEntries categoryCounts = new CategoryEntriesBuilder(categoryStatistics.getMap()).create();
-        double entropy = categoryCounts.getEntropy();
-        Set<String> featureNames = dataset.getFeatureInformation().getFeatureNames();
-
-        ProgressReporter informationGainProgress = progress.createSubProgress(0.5);
+        double entropy = counts.getCategoryEntropy();
         LOGGER.debug("Calculating gain");
-        informationGainProgress.startTask("Calculating gain", featureNames.size());
-        for (String featureName : featureNames) {
-            double gain = entropy - conditionalEntropy(featureName, preparedData);
+        for (String featureName : dataset.getFeatureInformation().getFeatureNames()) {
+            double gain = entropy - counts.getConditionalEntropy(featureName);
             informationGainValues.put(featureName, gain);
-            informationGainProgress.increment();
         }
-        informationGainProgress.finishTask();
+        progress.finishTask();
         return new FeatureRanking(informationGainValues);
     }
 
-    /**
-     * Calculates the conditional entropy of the dataset under the consideration that we know how the provided feature
-     * is distributed. This is often called H(X|Y).
-     *
-     * @param featureName The name of the feature.
-     * @return The conditional entropy of the dataset knowing the distribution of Y.
-     */
-    private static double conditionalEntropy(String featureName, Iterable<? extends Instance> dataset) {
-        CategoryEntries jointOccurrences = countJointOccurrences(dataset, featureName);
-        CategoryEntries featureOccurrences = countFeatureOccurrences(dataset, featureName);
-        return jointOccurrences.getEntropy() - featureOccurrences.getEntropy();
-    }
-
-    /**
-     * Counts the joint occurrences of each value of the provided feature with each target class.
-     *
-     * @param featureName The name of the feature.
-     * @return A mapping from a pair of target class and feature value to the counter of their joint occurrences.
-     */
-    private static CategoryEntries countJointOccurrences(Iterable<? extends Instance> dataset, String featureName) {
-        CountingCategoryEntriesBuilder builder = new CountingCategoryEntriesBuilder();
-        for (Instance dataItem : dataset) {
-            Value value = dataItem.getVector().get(featureName);
-            builder.add(dataItem.getCategory() + "###" + value.toString(), 1);
-        }
-        return builder.create();
-    }
-
-    /**
-     * Counts how often the values of the feature with the provided name occurs in the dataset handled by this object.
-     *
-     * @param featureName The name of the feature.
-     * @return A mapping from a {@link String} representation of the value to a counter of how often it occurs.
-     */
-    private static CategoryEntries countFeatureOccurrences(Iterable<? extends Instance> dataset, String featureName) {
-        CountingCategoryEntriesBuilder builder = new CountingCategoryEntriesBuilder();
-        for (Instance dataItem : dataset) {
-            Value value = dataItem.getVector().get(featureName);
-            builder.add(value.toString(), 1);
-        }
-        return builder.create();
-    }
-
 }
@@ -0,0 +1,305 @@
+package ws.palladian.classification.knn;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p>
+ * A k-d tree for k-nearest neighbor queries over training rows with numeric dimensions, which may contain missing
+ * values. The tree itself only stores a permutation of the row indices and the bounding box of each node; the distance
+ * between the query and a row is computed by the {@link RowDistance} given with each query. This allows to use the tree
+ * with different distance functions, as long as the weighted, squared Euclidean distance over the numeric dimensions
+ * (where a missing value contributes a fixed penalty) is a lower bound of the actual distance; additional nominal
+ * dimensions can therefore be handled by the {@link RowDistance}.
+ * </p>
+ *
+ * <p>
+ * For low-dimensional data, queries visit only a small fraction of the rows; with an increasing number of dimensions,
+ * the search degrades towards a linear scan (without giving wrong results).
+ * </p>
+ */
+public final class KdTree {
+
+    /** Access to the training data while building the tree. */
+    public interface Coordinates {
+        /**
+         * @param row       The row index.
+         * @param dimension The dimension.
+         * @return The value, or {@link Double#NaN} in case the value is missing.
+         */
+        double get(int row, int dimension);
+    }
+
+    /** Computes the actual distance between the current query and a row. */
+    public interface RowDistance {
+        double distance(int row);
+    }
+
+    /** The maximum number of rows in a leaf node. */
+    public static final int LEAF_SIZE = 16;
+
+    /**
+     * Factor for the lower bounds, which compensates rounding differences to the actual distances calculated in
+     * single precision.
+     */
+    private static final double BOUND_SLACK = 1 - 1e-6;
+
+    private final int numDimensions;
+
+    /** The row indices, ordered so that each node covers a consecutive range. */
+    private final int[] rows;
+
+    private int[] nodeStart;
+
+    private int[] nodeEnd;
+
+    /** The indices of the child nodes, -1 for leaves. */
+    private int[] leftChild;
+
+    private int[] rightChild;
+
+    /** The bounding boxes, numDimensions values per node; NaN in case all values of the node are missing. */
+    private float[] lower;
+
+    private float[] upper;
+
+    /** Flags whether any value in a node's dimension is missing, numDimensions bits per node. */
+    private final BitSet missing;
+
+    private int numNodes;
+
+    /**
+     * Build a new tree.
+     *
+     * @param numRows       The number of rows.
+     * @param numDimensions The number of numeric dimensions.
+     * @param coordinates   The access to the values, not <code>null</code>.
+     */
+    public KdTree(int numRows, int numDimensions, Coordinates coordinates) {
+        Validate.isTrue(numRows >= 0, "numRows must be zero or greater");
+        Validate.isTrue(numDimensions >= 0, "numDimensions must be zero or greater");
+        Validate.notNull(coordinates, "coordinates must not be null");
+        this.numDimensions = numDimensions;
+        this.rows = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = i;
+        }
+        int capacity = Math.max(1, 2 * numRows / LEAF_SIZE + 1);
+        nodeStart = new int[capacity];
+        nodeEnd = new int[capacity];
+        leftChild = new int[capacity];
+        rightChild = new int[capacity];
+        lower = new float[capacity * numDimensions];
+        upper = new float[capacity * numDimensions];
+        missing = new BitSet();
+        if (numRows > 0) {
+            build(0, numRows, coordinates, new double[numRows]);
+        }
+        trim();
+    }
+
+    private int build(int start, int end, Coordinates coordinates, double[] keys) {
+        int node = numNodes++;
+        ensureCapacity(numNodes);
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+        leftChild[node] = -1;
+        rightChild[node] = -1;
+
+        // determine the bounding box; bounds are rounded outwards, so that they are conservative in single precision
+        int offset = node * numDimensions;
+        int splitDimension = -1;
+        double maxExtent = 0;
+        for (int d = 0; d < numDimensions; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                double value = coordinates.get(rows[i], d);
+                if (Double.isNaN(value)) {
+                    missing.set(offset + d);
+                } else {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            if (min > max) {
+                lower[offset + d] = Float.NaN;
+                upper[offset + d] = Float.NaN;
+                continue;
+            }
+            float lowerBound = (float) min;
+            float upperBound = (float) max;
+            lower[offset + d] = lowerBound > min ? Math.nextDown(lowerBound) : lowerBound;
+            upper[offset + d] = upperBound < max ? Math.nextUp(upperBound) : upperBound;
+            double extent = max - min;
+            if (extent > maxExtent) {
+                maxExtent = extent;
+                splitDimension = d;
+            }
+        }
+
+        // split at the median of the dimension with the largest extent; missing values go to the right
+        if (end - start > LEAF_SIZE && splitDimension != -1) {
+            for (int i = start; i < end; i++) {
+                double value = coordinates.get(rows[i], splitDimension);
+                keys[i] = Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+            }
+            int middle = (start + end) >>> 1;
+            select(keys, start, end - 1, middle);
+            // the arrays might be resized while building the children, so assign afterwards
+            int left = build(start, middle, coordinates, keys);
+            int right = build(middle, end, coordinates, keys);
+            leftChild[node] = left;
+            rightChild[node] = right;
+        }
+        return node;
+    }
+
+    /** Quickselect: rearrange rows and keys between left and right, so that the n-th element is in place. */
+    private void select(double[] keys, int left, int right, int n) {
+        while (left < right) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, i++, j--);
+                }
+            }
+            if (n <= j) {
+                right = j;
+            } else if (n >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void swap(double[] keys, int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > nodeStart.length) {
+            int newCapacity = Math.max(capacity, nodeStart.length * 2);
+            resize(newCapacity);
+        }
+    }
+
+    private void trim() {
+        if (numNodes != nodeStart.length) {
+            resize(numNodes);
+        }
+    }
+
+    private void resize(int capacity) {
+        nodeStart = Arrays.copyOf(nodeStart, capacity);
+        nodeEnd = Arrays.copyOf(nodeEnd, capacity);
+        leftChild = Arrays.copyOf(leftChild, capacity);
+        rightChild = Arrays.copyOf(rightChild, capacity);
+        lower = Arrays.copyOf(lower, capacity * numDimensions);
+        upper = Arrays.copyOf(upper, capacity * numDimensions);
+    }
+
+    /**
+     * Search the nearest rows for a query.
+     *
+     * @param query            The query's numeric values, {@link Double#NaN} for missing values.
+     * @param weights          The weights of the squared differences per dimension.
+     * @param missingPenalties The distance which a missing value in a row contributes per dimension, in case the
+     *                         query's value is given.
+     * @param distance         The actual distance function.
+     * @param heap             The heap which receives the nearest rows.
+     */
+    public void search(double[] query, float[] weights, float[] missingPenalties, RowDistance distance, NeighborHeap heap) {
+        Validate.isTrue(query.length == numDimensions, "query must have length " + numDimensions);
+        Validate.isTrue(weights.length == numDimensions, "weights must have length " + numDimensions);
+        Validate.isTrue(missingPenalties.length == numDimensions, "missingPenalties must have length " + numDimensions);
+        Validate.notNull(distance, "distance must not be null");
+        Validate.notNull(heap, "heap must not be null");
+        if (numNodes > 0) {
+            search(0, lowerBound(0, query, weights, missingPenalties), query, weights, missingPenalties, distance, heap);
+        }
+    }
+
+    private void search(int node, double bound, double[] query, float[] weights, float[] missingPenalties, RowDistance distance, NeighborHeap heap) {
+        // rows with a distance equal to the current maximum can still win by their lower row index
+        if (heap.isFull() && bound > heap.getMaxDistance()) {
+            return;
+        }
+        int left = leftChild[node];
+        if (left == -1) {
+            for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+                heap.add(rows[i], distance.distance(rows[i]));
+            }
+            return;
+        }
+        int right = rightChild[node];
+        double leftBound = lowerBound(left, query, weights, missingPenalties);
+        double rightBound = lowerBound(right, query, weights, missingPenalties);
+        if (leftBound <= rightBound) {
+            search(left, leftBound, query, weights, missingPenalties, distance, heap);
+            search(right, rightBound, query, weights, missingPenalties, distance, heap);
+        } else {
+            search(right, rightBound, query, weights, missingPenalties, distance, heap);
+            search(left, leftBound, query, weights, missingPenalties, distance, heap);
+        }
+    }
+
+    private double lowerBound(int node, double[] query, float[] weights, float[] missingPenalties) {
+        int offset = node * numDimensions;
+        double bound = 0;
+        for (int d = 0; d < numDimensions; d++) {
+            double value = query[d];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            float lowerValue = lower[offset + d];
+            double term;
+            if (Float.isNaN(lowerValue)) {
+                term = missingPenalties[d];
+            } else {
+                float upperValue = upper[offset + d];
+                double gap = value < lowerValue ? lowerValue - value : value > upperValue ? value - upperValue : 0;
+                term = weights[d] * gap * gap;
+                if (missing.get(offset + d)) {
+                    term = Math.min(term, missingPenalties[d]);
+                }
+            }
+            if (term > 0) {
+                bound += term;
+            }
+        }
+        return bound * BOUND_SLACK;
+    }
+
+    /** @return The number of rows in the tree. */
+    public int size() {
+        return rows.length;
+    }
+
+    /** @return The number of nodes in the tree. */
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    @Override
+    public String toString() {
+        return "KdTree [size=" + rows.length + ", numDimensions=" + numDimensions + ", numNodes=" + numNodes + "]";
+    }
+
+}
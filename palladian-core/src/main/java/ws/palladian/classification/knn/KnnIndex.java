@@ -0,0 +1,176 @@
+package ws.palladian.classification.knn;
+
+import it.unimi.dsi.fastutil.objects.Object2FloatMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.value.NominalValue;
+import ws.palladian.core.value.NumericValue;
+import ws.palladian.core.value.Value;
+import ws.palladian.helper.collection.Matrix.MatrixVector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Packed representation of a {@link KnnModel}'s training data for the neighbor search: the numeric values are stored
+ * in a row-major <code>float[]</code> (<code>NaN</code> for missing values), the nominal values as dictionary-encoded
+ * <code>int[]</code>, and a {@link KdTree} over the numeric dimensions allows to find the nearest neighbors without
+ * comparing the query to every training row. Distances are the same as computed by the former linear scan in the
+ * {@link KnnClassifier}.
+ * </p>
+ */
+final class KnnIndex {
+
+    /** Nominal code for values which are not nominal, and therefore never match. */
+    private static final int NO_NOMINAL = -1;
+
+    private final int numRows;
+
+    private final String[] numericFields;
+
+    private final float[] numericWeights;
+
+    private final float[] numericValues;
+
+    private final String[] nominalFields;
+
+    private final float[] nominalWeights;
+
+    private final int[] nominalValues;
+
+    /** The nominal codes per field. */
+    private final Object2IntMap<String>[] nominalCodes;
+
+    private final String[] categories;
+
+    private final KdTree tree;
+
+    KnnIndex(List<MatrixVector<String, Value>> rows, Object2FloatMap<String> numericFieldsAndWeights, Object2FloatMap<String> textualFieldsAndWeights) {
+        numRows = rows.size();
+        numericFields = numericFieldsAndWeights.keySet().toArray(new String[0]);
+        numericWeights = new float[numericFields.length];
+        for (int i = 0; i < numericFields.length; i++) {
+            numericWeights[i] = numericFieldsAndWeights.getFloat(numericFields[i]);
+        }
+        nominalFields = textualFieldsAndWeights.keySet().toArray(new String[0]);
+        nominalWeights = new float[nominalFields.length];
+        nominalCodes = newCodeArray(nominalFields.length);
+        for (int i = 0; i < nominalFields.length; i++) {
+            nominalWeights[i] = textualFieldsAndWeights.getFloat(nominalFields[i]);
+            nominalCodes[i] = new Object2IntOpenHashMap<>();
+            nominalCodes[i].defaultReturnValue(NO_NOMINAL);
+        }
+
+        numericValues = new float[numRows * numericFields.length];
+        nominalValues = new int[numRows * nominalFields.length];
+        categories = new String[numRows];
+        for (int row = 0; row < numRows; row++) {
+            MatrixVector<String, Value> rowVector = rows.get(row);
+            for (int i = 0; i < numericFields.length; i++) {
+                Value value = rowVector.get(numericFields[i]);
+                boolean numeric = value instanceof NumericValue && !value.isNull();
+                numericValues[row * numericFields.length + i] = numeric ? ((NumericValue) value).getFloat() : Float.NaN;
+            }
+            for (int i = 0; i < nominalFields.length; i++) {
+                Value value = rowVector.get(nominalFields[i]);
+                int code = NO_NOMINAL;
+                if (value instanceof NominalValue) {
+                    Object2IntMap<String> codes = nominalCodes[i];
+                    String string = ((NominalValue) value).getString();
+                    code = codes.getInt(string);
+                    if (code == NO_NOMINAL) {
+                        code = codes.size();
+                        codes.put(string, code);
+                    }
+                }
+                nominalValues[row * nominalFields.length + i] = code;
+            }
+            categories[row] = ((NominalValue) rowVector.get("category")).getString();
+        }
+        int numDimensions = numericFields.length;
+        tree = new KdTree(numRows, numDimensions, (row, dimension) -> numericValues[row * numDimensions + dimension]);
+    }
+
+    /** Generic arrays cannot be created directly; the cast is safe, as the array only receives maps from strings. */
+    @SuppressWarnings("unchecked")
+    private static Object2IntMap<String>[] newCodeArray(int length) {
+        return (Object2IntMap<String>[]) new Object2IntMap<?>[length];
+    }
+
+    /**
+     * Find the nearest training rows for the given vector.
+     *
+     * @param inputVector The vector.
+     * @param heap        The heap which receives the nearest rows.
+     */
+    void search(FeatureVector inputVector, NeighborHeap heap) {
+        int numNumeric = numericFields.length;
+        double[] query = new double[numNumeric];
+        // non-null values which are not numeric only add a penalty in case the training value is missing
+        float[] missingPenalties = Arrays.copyOf(numericWeights, numNumeric);
+        float[] queryWeights = Arrays.copyOf(numericWeights, numNumeric);
+        for (int i = 0; i < numNumeric; i++) {
+            Value value = inputVector.get(numericFields[i]);
+            if (value.isNull()) {
+                query[i] = Double.NaN;
+                queryWeights[i] = Float.NaN;
+            } else if (value instanceof NumericValue) {
+                query[i] = ((NumericValue) value).getFloat();
+            } else {
+                query[i] = Double.NaN;
+                queryWeights[i] = 0;
+            }
+        }
+        int numNominal = nominalFields.length;
+        int[] nominalQuery = new int[numNominal];
+        for (int i = 0; i < numNominal; i++) {
+            Value value = inputVector.get(nominalFields[i]);
+            nominalQuery[i] = value instanceof NominalValue ? nominalCodes[i].getInt(((NominalValue) value).getString()) : NO_NOMINAL;
+        }
+        tree.search(query, numericWeights, missingPenalties, row -> distance(row, query, queryWeights, nominalQuery), heap);
+    }
+
+    /**
+     * Compute the distance between a row and the query.
+     *
+     * @param row          The row index.
+     * @param query        The numeric query values.
+     * @param queryWeights Per numeric dimension: the weight in case the query value is numeric, <code>NaN</code> in
+     *                     case it is missing, zero in case it is neither missing nor numeric.
+     * @param nominalQuery The nominal codes of the query.
+     * @return The distance.
+     */
+    private double distance(int row, double[] query, float[] queryWeights, int[] nominalQuery) {
+        double distance = 0;
+        int offset = row * numericFields.length;
+        for (int i = 0; i < numericFields.length; i++) {
+            float trainedValue = numericValues[offset + i];
+            float weight = queryWeights[i];
+            if (Float.isNaN(weight) || Float.isNaN(trainedValue)) {
+                distance += numericWeights[i];
+            } else if (weight != 0) {
+                float diff = (float) query[i] - trainedValue;
+                distance += weight * diff * diff;
+            }
+        }
+        offset = row * nominalFields.length;
+        for (int i = 0; i < nominalFields.length; i++) {
+            int code = nominalQuery[i];
+            if (code == NO_NOMINAL || code != nominalValues[offset + i]) {
+                distance += nominalWeights[i];
+            }
+        }
+        return distance;
+    }
+
+    String getCategory(int row) {
+        return categories[row];
+    }
+
+    int size() {
+        return numRows;
+    }
+
+}
@@ -15,9 +15,7 @@ import ws.palladian.helper.collection.Matrix;
 import ws.palladian.helper.collection.Vector;
 
 import java.io.Serial;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 /**
  * <p>
@@ -52,6 +50,9 @@ public final class KnnModel implements Model {
      */
     private final Normalization normalization;
 
+    /** The packed training data and spatial index for the neighbor search, created on demand. */
+    private transient volatile KnnIndex index;
+
     /**
      * <p>
      * Creates a new unnormalized {@code KnnModel} based on a {@code List} of {@link Instance}s.
@@ -100,6 +101,30 @@ public final class KnnModel implements Model {
         return instanceBuilder.create();
     }
 
+    /**
+     * Get the index for the neighbor search; it is created with the first invocation, so that models which are only
+     * inspected (or were deserialized) do not need the additional memory.
+     *
+     * @return The index.
+     */
+    KnnIndex getIndex() {
+        KnnIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    List<Matrix.MatrixVector<String, Value>> rows = new ArrayList<>();
+                    for (String y : trainingMatrix.getRowKeys()) {
+                        rows.add(trainingMatrix.getRow(y));
+                    }
+                    result = new KnnIndex(rows, numericFieldsAndWeights, textualFieldsAndWeights);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public Set<String> getRowKeys() {
         return trainingMatrix.getRowKeys();
     }
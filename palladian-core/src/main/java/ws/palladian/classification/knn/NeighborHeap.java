@@ -0,0 +1,152 @@
+package ws.palladian.classification.knn;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>
+ * A bounded max-heap which keeps the k nearest neighbors seen so far, using primitive arrays for the row indices and
+ * distances. Neighbors are ordered by distance; of neighbors with equal distance, the one with the lower row index is
+ * considered nearer, so that the result does not depend on the order in which the rows are visited.
+ * </p>
+ *
+ * @see KdTree
+ */
+public final class NeighborHeap {
+
+    private final int k;
+
+    private final int[] rows;
+
+    private final double[] distances;
+
+    private int size;
+
+    /**
+     * @param k The maximum number of neighbors to keep, greater zero.
+     */
+    public NeighborHeap(int k) {
+        Validate.isTrue(k > 0, "k must be greater zero");
+        this.k = k;
+        this.rows = new int[k];
+        this.distances = new double[k];
+    }
+
+    /**
+     * Offer a neighbor to the heap.
+     *
+     * @param row      The row index of the neighbor.
+     * @param distance The distance of the neighbor.
+     * @return <code>true</code> in case the neighbor was added, <code>false</code> in case the heap is full and the
+     * neighbor is farther than all contained ones.
+     */
+    public boolean add(int row, double distance) {
+        if (size < k) {
+            rows[size] = row;
+            distances[size] = distance;
+            siftUp(size++);
+            return true;
+        }
+        if (compare(row, distance, 0) >= 0) {
+            return false;
+        }
+        rows[0] = row;
+        distances[0] = distance;
+        siftDown(0);
+        return true;
+    }
+
+    /** @return <code>true</code> in case the heap contains k neighbors. */
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /** @return The distance of the farthest contained neighbor, or infinity in case the heap is empty. */
+    public double getMaxDistance() {
+        return size > 0 ? distances[0] : Double.POSITIVE_INFINITY;
+    }
+
+    /** @return The number of contained neighbors. */
+    public int size() {
+        return size;
+    }
+
+    /** Remove all neighbors, so that the heap can be reused for another query. */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sort the contained neighbors by ascending distance, so that they can be accessed via {@link #getRow(int)} and
+     * {@link #getDistance(int)}. After sorting, no further neighbors must be added before calling {@link #clear()}.
+     */
+    public void sort() {
+        // heap sort; taking the maximum to the end leaves the elements in ascending order
+        int heapSize = size;
+        while (size > 1) {
+            swap(0, --size);
+            siftDown(0);
+        }
+        size = heapSize;
+    }
+
+    /**
+     * @param index The index, between zero and {@link #size()} (exclusive).
+     * @return The row index of the neighbor.
+     */
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * @param index The index, between zero and {@link #size()} (exclusive).
+     * @return The distance of the neighbor.
+     */
+    public double getDistance(int index) {
+        return distances[index];
+    }
+
+    private int compare(int row, double distance, int index) {
+        int result = Double.compare(distance, distances[index]);
+        return result != 0 ? result : Integer.compare(row, rows[index]);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compare(rows[index], distances[index], parent) <= 0) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        for (; ; ) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && compare(rows[left], distances[left], largest) > 0) {
+                largest = left;
+            }
+            if (right < size && compare(rows[right], distances[right], largest) > 0) {
+                largest = right;
+            }
+            if (largest == index) {
+                break;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+}
@@ -10,6 +10,12 @@ import ws.palladian.core.value.NominalValue;
 import ws.palladian.core.value.NumericValue;
 import ws.palladian.core.value.Value;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * <p>
  * A simple implementation of the Naive Bayes Classifier. This classifier supports nominal and numeric input. The output
@@ -69,20 +75,51 @@ public final class NaiveBayesClassifier implements Classifier<NaiveBayesModel> {
         this.logSpace = logSpace;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public CategoryEntries classify(FeatureVector featureVector, NaiveBayesModel model) {
+        return classify(featureVector, model, getInitialScores(model), model.getLearnedFeatures());
+    }
 
-        CategoryEntriesBuilder categoryEntriesBuilder = new CategoryEntriesBuilder();
+    @Override
+    public List<CategoryEntries> classifyChunk(List<? extends FeatureVector> featureVectors, NaiveBayesModel model) {
+        // priors and learned features are the same for all vectors of the chunk
+        Map<String, Double> initialScores = getInitialScores(model);
+        Set<String> learnedFeatures = model.getLearnedFeatures();
+        List<CategoryEntries> results = new ArrayList<>(featureVectors.size());
+        for (FeatureVector featureVector : featureVectors) {
+            results.add(classify(featureVector, model, initialScores, learnedFeatures));
+        }
+        return results;
+    }
 
+    /** Initially, all category probabilities are set to their priors. */
+    private Map<String, Double> getInitialScores(NaiveBayesModel model) {
+        Map<String, Double> initialScores = new LinkedHashMap<>();
         for (String category : model.getCategories()) {
-
-            // initially set all category probabilities to their priors
             double probability = model.getPrior(category);
             if (logSpace) {
                 probability = FastMath.log(probability);
             }
+            initialScores.put(category, probability);
+        }
+        return initialScores;
+    }
+
+    private CategoryEntries classify(FeatureVector featureVector, NaiveBayesModel model, Map<String, Double> initialScores, Set<String> learnedFeatures) {
+
+        CategoryEntriesBuilder categoryEntriesBuilder = new CategoryEntriesBuilder();
+
+        for (Map.Entry<String, Double> initialScore : initialScores.entrySet()) {
+
+            String category = initialScore.getKey();
+            double probability = initialScore.getValue();
 
-            for (String featureName : model.getLearnedFeatures()) {
+            for (String featureName : learnedFeatures) {
                 Value value = featureVector.get(featureName);
                 if (value instanceof NominalValue) {
                     String nominalValue = ((NominalValue) value).getString();
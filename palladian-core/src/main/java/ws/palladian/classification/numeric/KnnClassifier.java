@@ -1,12 +1,9 @@
 package ws.palladian.classification.numeric;
 
 import org.apache.commons.lang3.Validate;
-import org.apache.commons.lang3.tuple.Pair;
+import ws.palladian.classification.knn.NeighborHeap;
 import ws.palladian.core.*;
 import ws.palladian.helper.collection.CollectionHelper;
-import ws.palladian.helper.collection.CollectionHelper.Order;
-import ws.palladian.helper.collection.EntryValueComparator;
-import ws.palladian.helper.collection.FixedSizePriorityQueue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -23,7 +20,7 @@ import java.util.List;
  */
 public final class KnnClassifier implements Classifier<KnnModel> {
     /** Number of nearest neighbors that are allowed to vote. */
-    private int k;
+    private final int k;
 
     /** Whether to use textual features. */
     private boolean useTextualFeatures;
@@ -59,31 +56,44 @@ public final class KnnClassifier implements Classifier<KnnModel> {
         this(3);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public CategoryEntries classify(FeatureVector featureVector, KnnModel model) {
+        return classify(featureVector, model, k);
+    }
+
+    private CategoryEntries classify(FeatureVector featureVector, KnnModel model, int k) {
         // initialize with all category names and a score of zero
         CategoryEntriesBuilder builder = new CategoryEntriesBuilder().set(model.getCategories(), 0);
 
         double[] numericVector = model.getNormalizedVectorForClassification(featureVector);
         String[] stringVector = model.getStringVectorForClassification(featureVector);
 
-        // find k nearest neighbors, compare instance to every known instance
-        FixedSizePriorityQueue<Pair<String, Double>> neighbors = new FixedSizePriorityQueue<>(k, new EntryValueComparator<>(Order.DESCENDING));
-
-        for (TrainingExample example : model.getTrainingExamples()) {
-            double distance;
-            if (useTextualFeatures) {
-                distance = example.distance(numericVector, stringVector);
-            } else {
-                distance = example.distance(numericVector);
-            }
-            neighbors.add(Pair.of(example.category, distance));
+        // find k nearest neighbors; infinite values are nulls, which are skipped when using textual features and
+        // otherwise lead to an infinite distance
+        double[] query = new double[numericVector.length];
+        float[] weights = new float[numericVector.length];
+        float[] missingPenalties = new float[numericVector.length];
+        for (int idx = 0; idx < numericVector.length; idx++) {
+            query[idx] = Double.isInfinite(numericVector[idx]) ? Double.NaN : numericVector[idx];
+            weights[idx] = 1;
+            missingPenalties[idx] = useTextualFeatures ? 0 : Float.POSITIVE_INFINITY;
         }
+        List<TrainingExample> examples = model.getTrainingExamples();
+        NeighborHeap neighbors = new NeighborHeap(k);
+        model.getTree().search(query, weights, missingPenalties, row -> {
+            TrainingExample example = examples.get(row);
+            return useTextualFeatures ? example.distance(numericVector, stringVector) : example.distance(numericVector);
+        }, neighbors);
+        neighbors.sort();
 
-        for (Pair<String, Double> neighbor : neighbors.asList()) {
-            double distance = neighbor.getValue();
-            double weight = 1.0 / (distance + 0.000000001);
-            String targetClass = neighbor.getKey();
+        for (int i = 0; i < neighbors.size(); i++) {
+            double weight = 1.0 / (neighbors.getDistance(i) + 0.000000001);
+            String targetClass = examples.get(neighbors.getRow(i)).category;
             builder.add(targetClass, weight);
         }
 
@@ -91,14 +101,11 @@ public final class KnnClassifier implements Classifier<KnnModel> {
     }
 
     public List<String> getNeighbors(FeatureVector instance, KnnModel model, int numNeighbors) {
-        int originalK = k;
-        k = numNeighbors;
         List<String> categoryNames = new ArrayList<>();
-        CategoryEntries classify = classify(instance, model);
+        CategoryEntries classify = classify(instance, model, numNeighbors);
         for (Category category : classify) {
             categoryNames.add(category.getName());
         }
-        k = originalK;
         return CollectionHelper.getSublist(categoryNames, 0, numNeighbors);
     }
 
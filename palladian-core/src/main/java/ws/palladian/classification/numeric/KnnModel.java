@@ -1,5 +1,6 @@
 package ws.palladian.classification.numeric;
 
+import ws.palladian.classification.knn.KdTree;
 import ws.palladian.classification.utils.Normalization;
 import ws.palladian.core.FeatureVector;
 import ws.palladian.core.Instance;
@@ -76,6 +77,9 @@ public final class KnnModel implements Model {
      */
     private final Normalization normalization;
 
+    /** The spatial index over the numeric features of the training examples, created on demand. */
+    private transient volatile KdTree tree;
+
     /**
      * <p>
      * Creates a new unnormalized {@code KnnModel} based on a {@code List} of {@link Instance}s.
@@ -150,6 +154,29 @@ public final class KnnModel implements Model {
         return Collections.unmodifiableList(trainingExamples);
     }
 
+    /**
+     * Get the spatial index over the numeric features; infinite values, which represent <code>null</code>s, are treated
+     * as missing. The index is created with the first invocation.
+     *
+     * @return The index.
+     */
+    KdTree getTree() {
+        KdTree result = tree;
+        if (result == null) {
+            synchronized (this) {
+                result = tree;
+                if (result == null) {
+                    result = new KdTree(trainingExamples.size(), labelsNumericFields.size(), (row, dimension) -> {
+                        double value = trainingExamples.get(row).numericFeatures[dimension];
+                        return Double.isInfinite(value) ? Double.NaN : value;
+                    });
+                    tree = result;
+                }
+            }
+        }
+        return result;
+    }
+
     String[] getStringVectorForClassification(FeatureVector vector) {
         Objects.requireNonNull(vector, "vector must not be null");
 
@@ -102,6 +102,11 @@ public final class BayesScorer implements Scorer {
         return laplace || complement;
     }
 
+    @Override
+    public boolean isTermIndependent() {
+        return true;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder().append(getClass().getSimpleName());
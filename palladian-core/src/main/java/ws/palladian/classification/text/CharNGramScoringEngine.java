@@ -0,0 +1,305 @@
+package ws.palladian.classification.text;
+
+import ws.palladian.classification.text.FeatureSetting.TextFeatureType;
+import ws.palladian.classification.text.LinkedCategoryEntries.LinkedCategoryCount;
+import ws.palladian.classification.text.PalladianTextClassifier.Scorer;
+import ws.palladian.core.Category;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.CategoryEntriesBuilder;
+import ws.palladian.helper.collection.CompactTrie;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Specialized scoring for the {@link PalladianTextClassifier} with character n-gram features and a
+ * {@link DictionaryTrieModel}. Instead of extracting the n-grams as strings into a bag and looking up each of them by
+ * name, the n-gram windows of the text are walked directly through the model's trie, the document's n-grams are counted
+ * in a reusable open addressing table which references the text by offset and length, and the scores are accumulated
+ * in per-thread <code>double</code> arrays, indexed by numeric category ids. The results are the same as with the
+ * generic path in {@link PalladianTextClassifier#classify(ws.palladian.core.FeatureVector, DictionaryModel)}.
+ */
+final class CharNGramScoringEngine {
+
+    /** Character used by the {@link ws.palladian.extraction.token.CharacterNGramTokenizer} for padding. */
+    private static final char PADDING_CHARACTER = '#';
+
+    /** Marker for empty slots in the hash table. */
+    private static final int EMPTY_SLOT = -1;
+
+    /** Per-thread scratch memory, which is reused over subsequent classifications. */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final FeatureSetting featureSetting;
+
+    private final Scorer scorer;
+
+    CharNGramScoringEngine(FeatureSetting featureSetting, Scorer scorer) {
+        this.featureSetting = featureSetting;
+        this.scorer = scorer;
+    }
+
+    /**
+     * @param featureSetting The feature setting.
+     * @param model          The model.
+     * @return <code>true</code>, in case this engine can be used for the given setting and model.
+     */
+    static boolean isApplicable(FeatureSetting featureSetting, DictionaryModel model) {
+        return featureSetting.getTextFeatureType() == TextFeatureType.CHAR_NGRAMS && !featureSetting.isUseTokenCombinations() && model instanceof DictionaryTrieModel;
+    }
+
+    CategoryEntries classify(String text, DictionaryTrieModel model) {
+        Scratch scratch = SCRATCH.get();
+        CategoryIndex index = model.getCategoryIndex();
+        CharSequence content = prepareContent(text, scratch);
+        int numUniqueTerms = countTerms(content, model.getEntryTrie(), scratch);
+        scratch.resetCategories(index.size());
+
+        final int numUniqTermsModel = model.getNumUniqTerms();
+        final int numDocs = model.getNumDocuments();
+        final int numTerms = model.getNumTerms();
+        final boolean scoreNonMatches = scorer.scoreNonMatches();
+        final boolean termIndependent = scorer.isTermIndependent();
+        double[] scores = scratch.scores;
+        boolean[] touched = scratch.touched;
+        boolean[] matched = scratch.matched;
+
+        for (int t = 0; t < numUniqueTerms; t++) {
+            LinkedCategoryEntries categoryEntries = scratch.termEntries[t];
+            LinkedCategoryCount category = categoryEntries != null ? categoryEntries.getFirstCategory() : null;
+            if (category == null && !scoreNonMatches) {
+                continue;
+            }
+            int offset = scratch.termOffsets[t];
+            String term = termIndependent ? null : content.subSequence(offset, offset + scratch.termLengths[t]).toString();
+            int docCount = scratch.termCounts[t];
+            int dictCount = categoryEntries != null ? categoryEntries.getTotalCount() : 0;
+            for (; category != null; category = category.getNextCategory()) {
+                String categoryName = category.getCategoryName();
+                int categoryId = index.getId(categoryName);
+                int categorySum = index.termSums[categoryId];
+                scores[categoryId] += scorer.score(term, categoryName, category.getCount(), dictCount, docCount, categorySum, numUniqTermsModel, numDocs, numTerms);
+                touched[categoryId] = true;
+                if (scoreNonMatches) {
+                    matched[categoryId] = true;
+                }
+            }
+            // see PalladianTextClassifier#classify for an explanation
+            if (scoreNonMatches) {
+                for (int categoryId = 0; categoryId < index.size(); categoryId++) {
+                    if (index.termSums[categoryId] > 0 && !matched[categoryId]) {
+                        String categoryName = index.names[categoryId];
+                        int categorySum = index.termSums[categoryId];
+                        scores[categoryId] += scorer.score(term, categoryName, 0, dictCount, docCount, categorySum, numUniqTermsModel, numDocs, numTerms);
+                        touched[categoryId] = true;
+                    }
+                    matched[categoryId] = false;
+                }
+            }
+        }
+
+        double totalScore = 0;
+        for (int categoryId = 0; categoryId < index.size(); categoryId++) {
+            totalScore += scores[categoryId];
+        }
+        boolean anyMatch = totalScore != 0;
+        CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
+        for (int categoryId = 0; categoryId < index.size(); categoryId++) {
+            String categoryName = index.names[categoryId];
+            if (index.documentCategory[categoryId]) {
+                double categoryProbability = index.priors[categoryId];
+                builder.set(categoryName, scorer.scoreCategory(categoryName, scores[categoryId], categoryProbability, anyMatch));
+            } else if (touched[categoryId]) {
+                builder.set(categoryName, scores[categoryId]);
+            }
+        }
+        return builder.create();
+    }
+
+    /** Apply case normalization and padding, as done by the {@link Preprocessor}. */
+    private CharSequence prepareContent(String text, Scratch scratch) {
+        String content = featureSetting.isCaseSensitive() ? text : text.toLowerCase();
+        if (!featureSetting.isCharacterPadding()) {
+            return content;
+        }
+        StringBuilder padded = scratch.padded;
+        padded.setLength(0);
+        for (int i = 0; i < featureSetting.getMaxNGramLength() - 1; i++) {
+            padded.append(PADDING_CHARACTER);
+        }
+        padded.append(content);
+        for (int i = 0; i < featureSetting.getMaxNGramLength() - 1; i++) {
+            padded.append(PADDING_CHARACTER);
+        }
+        return padded;
+    }
+
+    /**
+     * Count the unique n-grams in the content in the same order as the
+     * {@link ws.palladian.extraction.token.CharacterNGramTokenizer} and resolve their dictionary entries; stops as soon
+     * as the maximum number of terms has been reached.
+     *
+     * @return The number of unique terms.
+     */
+    private int countTerms(CharSequence content, CompactTrie<LinkedCategoryEntries> trie, Scratch scratch) {
+        int minLength = featureSetting.getMinNGramLength();
+        int maxLength = featureSetting.getMaxNGramLength();
+        int maxTerms = featureSetting.getMaxTerms();
+        int length = content.length();
+        long numNGrams = 0;
+        for (int n = minLength; n <= maxLength && n <= length; n++) {
+            numNGrams += length - n + 1;
+        }
+        scratch.resetTerms((int) Math.min(numNGrams, maxTerms));
+        int numUniqueTerms = 0;
+        for (int offset = 0; offset + minLength <= length; offset++) {
+            long state = CompactTrie.ROOT;
+            int hash = 0;
+            boolean onlyPadding = true;
+            for (int n = 1; n <= maxLength && offset + n <= length; n++) {
+                char character = content.charAt(offset + n - 1);
+                state = trie.step(state, character);
+                hash = 31 * hash + character;
+                onlyPadding &= character == PADDING_CHARACTER;
+                if (n < minLength || onlyPadding) {
+                    continue;
+                }
+                if (numUniqueTerms >= maxTerms) {
+                    return numUniqueTerms;
+                }
+                int slot = scratch.findSlot(content, offset, n, hash);
+                int termIdx = scratch.table[slot];
+                if (termIdx == EMPTY_SLOT) {
+                    termIdx = numUniqueTerms++;
+                    scratch.table[slot] = termIdx;
+                    scratch.termOffsets[termIdx] = offset;
+                    scratch.termLengths[termIdx] = n;
+                    scratch.termHashes[termIdx] = hash;
+                    scratch.termCounts[termIdx] = 1;
+                    scratch.termEntries[termIdx] = trie.getValue(state);
+                } else {
+                    scratch.termCounts[termIdx]++;
+                }
+            }
+        }
+        return numUniqueTerms;
+    }
+
+    /**
+     * Numeric ids for the categories of a {@link DictionaryModel}, together with the category sums and priors, which
+     * are needed for scoring.
+     */
+    static final class CategoryIndex {
+        private final String[] names;
+        private final Map<String, Integer> ids;
+        private final int[] termSums;
+        private final double[] priors;
+        private final boolean[] documentCategory;
+
+        CategoryIndex(DictionaryModel model) {
+            ids = new HashMap<>();
+            for (Category category : model.getDocumentCounts()) {
+                ids.putIfAbsent(category.getName(), ids.size());
+            }
+            for (Category category : model.getTermCounts()) {
+                ids.putIfAbsent(category.getName(), ids.size());
+            }
+            names = new String[ids.size()];
+            termSums = new int[ids.size()];
+            priors = new double[ids.size()];
+            documentCategory = new boolean[ids.size()];
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                names[entry.getValue()] = entry.getKey();
+            }
+            for (Category category : model.getTermCounts()) {
+                termSums[ids.get(category.getName())] = category.getCount();
+            }
+            for (Category category : model.getDocumentCounts()) {
+                priors[ids.get(category.getName())] = category.getProbability();
+                documentCategory[ids.get(category.getName())] = true;
+            }
+        }
+
+        int getId(String categoryName) {
+            return ids.get(categoryName);
+        }
+
+        int size() {
+            return names.length;
+        }
+    }
+
+    /** Reusable memory for one thread; grows as necessary. */
+    private static final class Scratch {
+        final StringBuilder padded = new StringBuilder();
+        int[] table = new int[0];
+        int[] termOffsets = new int[0];
+        int[] termLengths = new int[0];
+        int[] termHashes = new int[0];
+        int[] termCounts = new int[0];
+        LinkedCategoryEntries[] termEntries = new LinkedCategoryEntries[0];
+        double[] scores = new double[0];
+        boolean[] touched = new boolean[0];
+        boolean[] matched = new boolean[0];
+
+        void resetTerms(int maxUniqueTerms) {
+            if (termOffsets.length < maxUniqueTerms) {
+                termOffsets = new int[maxUniqueTerms];
+                termLengths = new int[maxUniqueTerms];
+                termHashes = new int[maxUniqueTerms];
+                termCounts = new int[maxUniqueTerms];
+                termEntries = new LinkedCategoryEntries[maxUniqueTerms];
+            } else {
+                // do not keep references to model entries
+                Arrays.fill(termEntries, null);
+            }
+            int tableSize = Integer.highestOneBit(Math.max(2 * maxUniqueTerms, 2) - 1) << 1;
+            if (table.length < tableSize) {
+                table = new int[tableSize];
+            }
+            Arrays.fill(table, EMPTY_SLOT);
+        }
+
+        void resetCategories(int numCategories) {
+            if (scores.length < numCategories) {
+                scores = new double[numCategories];
+                touched = new boolean[numCategories];
+                matched = new boolean[numCategories];
+            } else {
+                Arrays.fill(scores, 0);
+                Arrays.fill(touched, false);
+                Arrays.fill(matched, false);
+            }
+        }
+
+        /**
+         * Linear probing for the n-gram at the given window.
+         *
+         * @return The slot, which either contains the n-gram's index, or {@link #EMPTY_SLOT}.
+         */
+        int findSlot(CharSequence content, int offset, int length, int hash) {
+            int mask = table.length - 1;
+            for (int slot = (hash ^ hash >>> 16) & mask; ; slot = slot + 1 & mask) {
+                int termIdx = table[slot];
+                if (termIdx == EMPTY_SLOT) {
+                    return slot;
+                }
+                if (termHashes[termIdx] == hash && termLengths[termIdx] == length && regionMatches(content, termOffsets[termIdx], offset, length)) {
+                    return slot;
+                }
+            }
+        }
+
+        private static boolean regionMatches(CharSequence content, int offset1, int offset2, int length) {
+            for (int i = 0; i < length; i++) {
+                if (content.charAt(offset1 + i) != content.charAt(offset2 + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -57,7 +57,9 @@ public interface DictionaryBuilder extends Factory<DictionaryModel> {
     DictionaryBuilder setPruningStrategy(Predicate<? super CategoryEntries> strategy);
 
     /**
-     * Adds the content of a given {@link DictionaryModel}.
+     * Adds the content of a given {@link DictionaryModel}. The counts of terms which are already present in this
+     * builder are summed up, so that merging dictionaries which were built from disjoint sets of documents gives the
+     * same result as adding all documents to one builder.
      *
      * @param model The dictionary model to add, not <code>null</code>.
      * @return The builder instance.
@@ -1,6 +1,7 @@
 package ws.palladian.classification.text;
 
 import org.apache.commons.lang3.Validate;
+import ws.palladian.core.Category;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.helper.collection.AbstractIterator2;
 
@@ -71,7 +72,20 @@ public class DictionaryMapModel extends AbstractDictionaryModel {
 
         @Override
         public DictionaryBuilder addDictionary(DictionaryModel model) {
-            throw new UnsupportedOperationException();
+            Validate.notNull(model, "model must not be null");
+            for (DictionaryEntry addEntry : model) {
+                LinkedCategoryEntries categoryEntries = dictionary.get(addEntry.getTerm());
+                if (categoryEntries == null) {
+                    categoryEntries = new LinkedCategoryEntries();
+                    dictionary.put(addEntry.getTerm(), categoryEntries);
+                }
+                for (Category addCategory : addEntry.getCategoryEntries()) {
+                    categoryEntries.increment(addCategory.getName(), addCategory.getCount());
+                }
+            }
+            documentCountBuilder.add(model.getDocumentCounts());
+            termCountBuilder.add(model.getTermCounts());
+            return this;
         }
 
     }
@@ -6,7 +6,7 @@ import org.slf4j.LoggerFactory;
 import ws.palladian.core.Category;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.helper.collection.AbstractIterator2;
-import ws.palladian.helper.collection.Trie;
+import ws.palladian.helper.collection.CompactTrie;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -21,11 +21,11 @@ import java.util.function.Predicate;
  * The model implementation for the {@link PalladianTextClassifier}. This class uses a <a
  * href="http://en.wikipedia.org/wiki/Trie">trie</a> for terms and associated probabilities for each term in different
  * categories. The internals of this class are optimized for low memory footprint, which means in particular, that no
- * standard <code>java.util.*</code> classes are used for storage, because they have a high memory overhead. Each trie
- * node links to its parent and to its children, further, it maintains a linked list for category probabilities, in case
- * the term belongs to the dictionary. In comparison to the former, "naive" implementation using nested hash maps, the
- * memory consumption is lowered to approximately 1/3, because the trie allows sharing common prefixes, which typically
- * occur when extracting high amounts of n-grams.
+ * standard <code>java.util.*</code> classes are used for storage, because they have a high memory overhead. The terms
+ * are stored in a {@link CompactTrie}, which keeps its nodes in primitive arrays and merges chains of single nodes;
+ * for each term, it maintains a linked list for category probabilities. In comparison to the former, "naive"
+ * implementation using nested hash maps, the memory consumption is lowered to approximately 1/3, because the trie
+ * allows sharing common prefixes, which typically occur when extracting high amounts of n-grams.
  * <p>
  * The following image gives an overview over the internal structure. The dictionary contains the terms "foo", "tea",
  * "the", and "theme", for each of those terms, LinkedCategories are maintained, which keep the occurrence counts of the
@@ -42,7 +42,7 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
         private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryTrieModel.Builder.class);
 
         /** Trie with term-category combinations with their counts. */
-        private final Trie<LinkedCategoryEntries> entryTrie = new Trie<>();
+        private final CompactTrie.Builder<LinkedCategoryEntries> entryTrie = new CompactTrie.Builder<>();
         /** Counter for categories based on documents. */
         private final CountingCategoryEntriesBuilder documentCountBuilder = new CountingCategoryEntriesBuilder();
         /** Counter for categories based on terms. */
@@ -111,7 +111,6 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
                 LOGGER.info("Removed {} % terms ({}) with {}", format.format(percentageRemoved), numRemoved, pruningStrategy);
                 numTerms -= numRemoved;
             }
-            entryTrie.clean();
             // re-calculate term counts
             termCountBuilder.clear();
             for (Entry<String, LinkedCategoryEntries> entry : entryTrie) {
@@ -133,11 +132,12 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
             for (DictionaryEntry addEntry : model) {
                 String term = addEntry.getTerm();
                 LinkedCategoryEntries entries = entryTrie.getOrPut(term, LinkedCategoryEntries.FACTORY);
+                if (entries.getTotalCount() == 0) { // term was not present before
+                    numTerms++;
+                }
                 for (Category addCategory : addEntry.getCategoryEntries()) {
-                    // TODO really "append" (see JavaDoc), shouldn't this be "add"???
-                    entries.append(addCategory);
+                    entries.increment(addCategory.getName(), addCategory.getCount());
                 }
-                numTerms++;
             }
             documentCountBuilder.add(model.getDocumentCounts());
             termCountBuilder.add(model.getTermCounts());
@@ -153,7 +153,7 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
     private static final long serialVersionUID = 4L;
 
     /** Trie with term-category combinations with their counts. */
-    private transient Trie<LinkedCategoryEntries> entryTrie;
+    private transient CompactTrie<LinkedCategoryEntries> entryTrie;
 
     /** The priors, determined from the documents. */
     private transient CategoryEntries documentCounts;
@@ -170,9 +170,12 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
     /** The optional name of the model. */
     private transient String name;
 
+    /** Numeric category ids for the {@link CharNGramScoringEngine}; created on demand. */
+    private transient volatile CharNGramScoringEngine.CategoryIndex categoryIndex;
+
     /** Constructor invoked from the builder only. */
     private DictionaryTrieModel(Builder builder) {
-        this.entryTrie = builder.entryTrie;
+        this.entryTrie = builder.entryTrie.create();
         this.numTerms = builder.numTerms;
         this.featureSetting = builder.featureSetting;
         this.name = builder.name;
@@ -240,6 +243,20 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
         return termCounts;
     }
 
+    /** @return The trie with the entries, for direct lookups by the {@link CharNGramScoringEngine}. */
+    CompactTrie<LinkedCategoryEntries> getEntryTrie() {
+        return entryTrie;
+    }
+
+    CharNGramScoringEngine.CategoryIndex getCategoryIndex() {
+        CharNGramScoringEngine.CategoryIndex index = categoryIndex;
+        if (index == null) {
+            index = new CharNGramScoringEngine.CategoryIndex(this);
+            categoryIndex = index;
+        }
+        return index;
+    }
+
     // serialization code
 
     // Implementation note: in case you make any incompatible changes to the serialization protocol, provide backwards
@@ -257,7 +274,7 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
             throw new IOException("Unsupported version: " + version);
         }
         Map<Integer, String> categoryIndices = new HashMap<>();
-        entryTrie = new Trie<>();
+        CompactTrie.Builder<LinkedCategoryEntries> entryTrieBuilder = new CompactTrie.Builder<>();
         // header
         int numCategories = in.readInt();
         CountingCategoryEntriesBuilder documentCountBuilder = new CountingCategoryEntriesBuilder();
@@ -273,7 +290,7 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
         CountingCategoryEntriesBuilder termCountBuilder = new CountingCategoryEntriesBuilder();
         for (int i = 0; i < numTerms; i++) {
             String term = (String) in.readObject();
-            LinkedCategoryEntries entries = entryTrie.getOrPut(term, LinkedCategoryEntries.FACTORY);
+            LinkedCategoryEntries entries = entryTrieBuilder.getOrPut(term, LinkedCategoryEntries.FACTORY);
             int numProbabilityEntries = in.readInt();
             for (int j = 0; j < numProbabilityEntries; j++) {
                 int categoryIdx = in.readInt();
@@ -284,6 +301,7 @@ public final class DictionaryTrieModel extends AbstractDictionaryModel {
             }
         }
         termCounts = termCountBuilder.create();
+        entryTrie = entryTrieBuilder.create();
         // feature setting
         featureSetting = (FeatureSetting) in.readObject();
         // name
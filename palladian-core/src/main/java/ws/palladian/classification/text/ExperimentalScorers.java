@@ -108,6 +108,11 @@ public final class ExperimentalScorers {
             return true;
         }
 
+        @Override
+        public boolean isTermIndependent() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return getClass().getSimpleName();
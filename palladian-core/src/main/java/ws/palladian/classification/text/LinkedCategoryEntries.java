@@ -76,7 +76,15 @@ final class LinkedCategoryEntries extends AbstractCategoryEntries {
         append(category.getName(), category.getCount());
     }
 
-    private static final class LinkedCategoryCount {
+    /**
+     * @return The head of the linked list with category counts (allows iterating without creating {@link Category}
+     * instances), or <code>null</code> in case there are no categories.
+     */
+    LinkedCategoryCount getFirstCategory() {
+        return firstCategory;
+    }
+
+    static final class LinkedCategoryCount {
         private final String categoryName;
         private int count;
         private LinkedCategoryCount nextCategory;
@@ -85,5 +93,17 @@ final class LinkedCategoryEntries extends AbstractCategoryEntries {
             this.categoryName = name;
             this.count = count;
         }
+
+        String getCategoryName() {
+            return categoryName;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        LinkedCategoryCount getNextCategory() {
+            return nextCategory;
+        }
     }
 }
@@ -0,0 +1,483 @@
+package ws.palladian.classification.text;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.core.AbstractCategoryEntries;
+import ws.palladian.core.Category;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.ImmutableCategory;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.collection.AbstractIterator2;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * <p>
+ * A read-only {@link DictionaryModel} which is served directly from a memory-mapped file. In contrast to the
+ * {@link DictionaryTrieModel}, which has to be deserialized into the heap term by term, opening this model only maps the
+ * file, which takes milliseconds, and allows several JVMs on the same host to share the pages through the OS' page
+ * cache.
+ * <p>
+ * The file contains the terms as UTF-8 bytes, sorted in unsigned byte order, so that they can be looked up via binary
+ * search. The term-category counts are kept in packed primitive sections, where categories are referenced through small
+ * numeric ids (one, two, or four bytes, depending on the number of categories). The layout is as follows (all numbers
+ * big endian):
+ *
+ * <pre>
+ * magic, version, headerLength
+ * header: categories (name, documentCount, termCount), name, featureSetting, #terms, #entries, idWidth, #termBytes
+ * termOffsets:  int[#terms + 1]   -- start of each term in termBytes
+ * entryOffsets: int[#terms + 1]   -- start of each term's entries in categoryIds/counts
+ * categoryIds:  idWidth * #entries
+ * counts:       int[#entries]
+ * termBytes:    byte[#termBytes]
+ * </pre>
+ * <p>
+ * Create such a file from an existing model using {@link #write(DictionaryModel, File)}, or convert a serialized
+ * {@link DictionaryTrieModel} or {@link DictionaryMapModel} file using {@link #convert(File, File)}; open it using
+ * {@link #open(File)}. When serialized through Java serialization, only the path of the mapped file is written.
+ */
+public final class MappedDictionaryModel extends AbstractDictionaryModel {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedDictionaryModel.class);
+
+    private static final long serialVersionUID = 1L;
+
+    /** Magic number at the beginning of each file ("PDMM"). */
+    private static final int MAGIC = 0x50444D4D;
+
+    /** Version of the file format; if you make incompatible changes, update this constant. */
+    private static final int FILE_VERSION = 1;
+
+    /** The mapped file; this is the only field which is serialized. */
+    private final File file;
+
+    private transient String name;
+
+    private transient FeatureSetting featureSetting;
+
+    /** Category names, indexed by their id. */
+    private transient String[] categoryNames;
+
+    private transient CategoryEntries documentCounts;
+
+    private transient CategoryEntries termCounts;
+
+    private transient int numTerms;
+
+    private transient int numEntries;
+
+    /** Number of bytes per category id. */
+    private transient int idWidth;
+
+    private transient IntBuffer termOffsets;
+
+    private transient IntBuffer entryOffsets;
+
+    private transient ByteBuffer categoryIds;
+
+    private transient IntBuffer counts;
+
+    private transient ByteBuffer termBytes;
+
+    private MappedDictionaryModel(File file) throws IOException {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Open a dictionary file which was created using {@link #write(DictionaryModel, File)}.
+     *
+     * @param file The file, not <code>null</code>.
+     * @return The model which is backed by the given file.
+     * @throws IOException In case the file cannot be read, or is not a valid dictionary file.
+     */
+    public static MappedDictionaryModel open(File file) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        return new MappedDictionaryModel(file);
+    }
+
+    /**
+     * Convert a serialized {@link DictionaryModel} (e.g. a {@link DictionaryTrieModel} or a {@link DictionaryMapModel})
+     * into the mapped format and open it.
+     *
+     * @param serializedModel The serialized model, not <code>null</code>.
+     * @param file            The destination file, not <code>null</code>.
+     * @return The converted model, backed by the destination file.
+     * @throws IOException In case reading or writing fails.
+     */
+    public static MappedDictionaryModel convert(File serializedModel, File file) throws IOException {
+        Validate.notNull(serializedModel, "serializedModel must not be null");
+        DictionaryModel model = FileHelper.deserialize(serializedModel.getPath());
+        write(model, file);
+        return open(file);
+    }
+
+    /**
+     * Write a {@link DictionaryModel} to a file in the mapped format.
+     *
+     * @param model The model to write, not <code>null</code>.
+     * @param file  The destination file, not <code>null</code>.
+     * @throws IOException In case writing fails.
+     */
+    public static void write(DictionaryModel model, File file) throws IOException {
+        Validate.notNull(model, "model must not be null");
+        Validate.notNull(file, "file must not be null");
+        StopWatch stopWatch = new StopWatch();
+
+        // collect the terms in byte order, and all category names
+        List<TermEntries> terms = new ArrayList<>();
+        SortedSet<String> categories = new TreeSet<>(model.getDocumentCounts().getNames());
+        long numEntries = 0;
+        long numTermBytes = 0;
+        for (DictionaryEntry entry : model) {
+            TermEntries termEntries = new TermEntries(entry);
+            terms.add(termEntries);
+            for (Category category : termEntries.categoryEntries) {
+                categories.add(category.getName());
+                numEntries++;
+            }
+            numTermBytes += termEntries.term.length;
+        }
+        Validate.isTrue(numEntries <= Integer.MAX_VALUE / 4, "too many entries: %s", numEntries);
+        Validate.isTrue(numTermBytes <= Integer.MAX_VALUE, "too many term bytes: %s", numTermBytes);
+        terms.sort(null);
+        Map<String, Integer> categoryIndices = new HashMap<>();
+        for (String category : categories) {
+            categoryIndices.put(category, categoryIndices.size());
+        }
+        int idWidth = categories.size() <= 0xFF + 1 ? 1 : categories.size() <= 0xFFFF + 1 ? 2 : 4;
+
+        // header
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(categories.size());
+        for (String category : categories) {
+            header.writeUTF(category);
+            header.writeInt(model.getDocumentCounts().getCount(category));
+            header.writeInt(model.getTermCounts().getCount(category));
+        }
+        header.writeBoolean(model.getName() != null);
+        if (model.getName() != null) {
+            header.writeUTF(model.getName());
+        }
+        byte[] featureSettingBytes = serializeFeatureSetting(model.getFeatureSetting());
+        header.writeInt(featureSettingBytes.length);
+        header.write(featureSettingBytes);
+        header.writeInt(terms.size());
+        header.writeInt((int) numEntries);
+        header.writeInt(idWidth);
+        header.writeInt((int) numTermBytes);
+        header.close();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            // term offsets
+            int termOffset = 0;
+            for (TermEntries term : terms) {
+                out.writeInt(termOffset);
+                termOffset += term.term.length;
+            }
+            out.writeInt(termOffset);
+            // entry offsets
+            int entryOffset = 0;
+            for (TermEntries term : terms) {
+                out.writeInt(entryOffset);
+                entryOffset += term.categoryEntries.size();
+            }
+            out.writeInt(entryOffset);
+            // category ids
+            for (TermEntries term : terms) {
+                for (Category category : term.categoryEntries) {
+                    int categoryId = categoryIndices.get(category.getName());
+                    if (idWidth == 1) {
+                        out.writeByte(categoryId);
+                    } else if (idWidth == 2) {
+                        out.writeShort(categoryId);
+                    } else {
+                        out.writeInt(categoryId);
+                    }
+                }
+            }
+            // counts
+            for (TermEntries term : terms) {
+                for (Category category : term.categoryEntries) {
+                    out.writeInt(category.getCount());
+                }
+            }
+            // term bytes
+            for (TermEntries term : terms) {
+                out.write(term.term);
+            }
+        }
+        LOGGER.info("Wrote {} terms with {} entries to {} in {}", terms.size(), numEntries, file, stopWatch);
+    }
+
+    private static byte[] serializeFeatureSetting(FeatureSetting featureSetting) throws IOException {
+        if (featureSetting == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(featureSetting);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static FeatureSetting deserializeFeatureSetting(byte[] bytes) throws IOException {
+        if (bytes.length == 0) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (FeatureSetting) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Reads the header and maps the sections of the file. */
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer preamble = channel.map(READ_ONLY, 0, 3 * Integer.BYTES);
+            if (preamble.getInt() != MAGIC) {
+                throw new IOException(file + " is no dictionary file");
+            }
+            int version = preamble.getInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Unsupported version: " + version);
+            }
+            int headerLength = preamble.getInt();
+            ByteBuffer headerBuffer = channel.map(READ_ONLY, preamble.capacity(), headerLength);
+            byte[] headerBytes = new byte[headerLength];
+            headerBuffer.get(headerBytes);
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+            int numCategories = header.readInt();
+            categoryNames = new String[numCategories];
+            CountingCategoryEntriesBuilder documentCountBuilder = new CountingCategoryEntriesBuilder();
+            CountingCategoryEntriesBuilder termCountBuilder = new CountingCategoryEntriesBuilder();
+            for (int i = 0; i < numCategories; i++) {
+                categoryNames[i] = header.readUTF();
+                documentCountBuilder.set(categoryNames[i], header.readInt());
+                termCountBuilder.set(categoryNames[i], header.readInt());
+            }
+            documentCounts = documentCountBuilder.create();
+            termCounts = termCountBuilder.create();
+            name = header.readBoolean() ? header.readUTF() : null;
+            byte[] featureSettingBytes = new byte[header.readInt()];
+            header.readFully(featureSettingBytes);
+            featureSetting = deserializeFeatureSetting(featureSettingBytes);
+            numTerms = header.readInt();
+            numEntries = header.readInt();
+            idWidth = header.readInt();
+            int numTermBytes = header.readInt();
+
+            long position = preamble.capacity() + headerLength;
+            termOffsets = channel.map(READ_ONLY, position, (numTerms + 1L) * Integer.BYTES).asIntBuffer();
+            position += (numTerms + 1L) * Integer.BYTES;
+            entryOffsets = channel.map(READ_ONLY, position, (numTerms + 1L) * Integer.BYTES).asIntBuffer();
+            position += (numTerms + 1L) * Integer.BYTES;
+            categoryIds = channel.map(READ_ONLY, position, (long) numEntries * idWidth);
+            position += (long) numEntries * idWidth;
+            counts = channel.map(READ_ONLY, position, (long) numEntries * Integer.BYTES).asIntBuffer();
+            position += (long) numEntries * Integer.BYTES;
+            termBytes = channel.map(READ_ONLY, position, numTermBytes);
+        }
+    }
+
+    /**
+     * Binary search for the given term.
+     *
+     * @param key The UTF-8 bytes of the term.
+     * @return The index of the term, or -1 in case it does not exist.
+     */
+    private int indexOf(byte[] key) {
+        int low = 0;
+        int high = numTerms - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int start = termOffsets.get(mid);
+            int length = termOffsets.get(mid + 1) - start;
+            int cmp = 0;
+            for (int i = 0; i < Math.min(length, key.length) && cmp == 0; i++) {
+                cmp = Integer.compare(termBytes.get(start + i) & 0xFF, key[i] & 0xFF);
+            }
+            if (cmp == 0) {
+                cmp = Integer.compare(length, key.length);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private String getTerm(int index) {
+        int start = termOffsets.get(index);
+        byte[] bytes = new byte[termOffsets.get(index + 1) - start];
+        termBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getCategoryId(int entryIndex) {
+        if (idWidth == 1) {
+            return categoryIds.get(entryIndex) & 0xFF;
+        } else if (idWidth == 2) {
+            return categoryIds.getShort(entryIndex * 2) & 0xFFFF;
+        } else {
+            return categoryIds.getInt(entryIndex * 4);
+        }
+    }
+
+    private CategoryEntries getCategoryEntries(int index) {
+        return new MappedCategoryEntries(entryOffsets.get(index), entryOffsets.get(index + 1));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public FeatureSetting getFeatureSetting() {
+        return featureSetting;
+    }
+
+    @Override
+    public CategoryEntries getCategoryEntries(String term) {
+        Validate.notNull(term, "term must not be null");
+        int index = indexOf(term.getBytes(StandardCharsets.UTF_8));
+        return index != -1 ? getCategoryEntries(index) : CategoryEntries.EMPTY;
+    }
+
+    @Override
+    public int getNumUniqTerms() {
+        return numTerms;
+    }
+
+    @Override
+    public int getNumEntries() {
+        return numEntries;
+    }
+
+    @Override
+    public CategoryEntries getDocumentCounts() {
+        return documentCounts;
+    }
+
+    @Override
+    public CategoryEntries getTermCounts() {
+        return termCounts;
+    }
+
+    /**
+     * @return The file which backs this model.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public Iterator<DictionaryEntry> iterator() {
+        return new AbstractIterator2<DictionaryEntry>() {
+            int index = 0;
+
+            @Override
+            protected DictionaryEntry getNext() {
+                if (index < numTerms) {
+                    int current = index++;
+                    return new ImmutableDictionaryEntry(getTerm(current), getCategoryEntries(current));
+                }
+                return finished();
+            }
+        };
+    }
+
+    // serialization code
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        load();
+    }
+
+    /** The category entries of one term, read from the mapped sections. */
+    private final class MappedCategoryEntries extends AbstractCategoryEntries {
+        private final int from;
+        private final int to;
+        private final int totalCount;
+
+        MappedCategoryEntries(int from, int to) {
+            this.from = from;
+            this.to = to;
+            int totalCount = 0;
+            for (int i = from; i < to; i++) {
+                totalCount += counts.get(i);
+            }
+            this.totalCount = totalCount;
+        }
+
+        @Override
+        public Iterator<Category> iterator() {
+            return new AbstractIterator2<Category>() {
+                int index = from;
+
+                @Override
+                protected Category getNext() {
+                    if (index < to) {
+                        String categoryName = categoryNames[getCategoryId(index)];
+                        int count = counts.get(index++);
+                        return new ImmutableCategory(categoryName, (double) count / totalCount, count);
+                    }
+                    return finished();
+                }
+            };
+        }
+
+        @Override
+        public int getTotalCount() {
+            return totalCount;
+        }
+    }
+
+    /** Term bytes with their entries, sorted in unsigned byte order of the term. */
+    private static final class TermEntries implements Comparable<TermEntries> {
+        final byte[] term;
+        final CategoryEntries categoryEntries;
+
+        TermEntries(DictionaryEntry entry) {
+            this.term = entry.getTerm().getBytes(StandardCharsets.UTF_8);
+            this.categoryEntries = entry.getCategoryEntries();
+        }
+
+        @Override
+        public int compareTo(TermEntries other) {
+            return Arrays.compareUnsigned(term, other.term);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: " + MappedDictionaryModel.class.getSimpleName() + " <serializedModel> <outputFile>");
+            System.exit(1);
+        }
+        MappedDictionaryModel model = convert(new File(args[0]), new File(args[1]));
+        System.out.println(model);
+    }
+
+}
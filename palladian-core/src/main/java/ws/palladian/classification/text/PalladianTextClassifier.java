@@ -6,12 +6,15 @@ import ws.palladian.core.dataset.Dataset;
 import ws.palladian.core.value.TextValue;
 import ws.palladian.helper.ProgressMonitor;
 import ws.palladian.helper.collection.Bag;
+import ws.palladian.helper.io.CloseableIterator;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.io.IOException;
+import java.util.*;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 /**
@@ -83,6 +86,17 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
          * @return <code>true</code> to call the score method for zero termCategoryCounts, <code>false</code> otherwise.
          */
         boolean scoreNonMatches();
+
+        /**
+         * Indicate, whether the scoring is independent of the term string given to
+         * {@link #score(String, String, int, int, int, int, int, int, int)}. In this case, the classifier does not need
+         * to create a string for each of the document's terms and may pass <code>null</code> instead.
+         *
+         * @return <code>true</code> in case the term is not used for scoring, <code>false</code> otherwise.
+         */
+        default boolean isTermIndependent() {
+            return false;
+        }
     }
 
     /**
@@ -117,6 +131,11 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
             return false;
         }
 
+        @Override
+        public boolean isTermIndependent() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return getClass().getSimpleName();
@@ -127,6 +146,13 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
 
     public static final Scorer DEFAULT_SCORER = new DefaultScorer();
 
+    /** Number of documents which a thread takes at once from the dataset when training in parallel. */
+    private static final int TRAINING_BATCH_SIZE = 100;
+
+    /** The scorers from this package which keep no state, and can therefore be used by several threads at once. */
+    private static final Set<Class<?>> STATELESS_SCORERS = Set.of(DefaultScorer.class, BayesScorer.class,
+            ExperimentalScorers.CategoryEqualizationScorer.class, ExperimentalScorers.KLScorer.class);
+
     private final DictionaryBuilder dictionaryBuilder;
 
     private final FeatureSetting featureSetting;
@@ -135,6 +161,8 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
 
     private final Function<String, Iterator<String>> preprocessor;
 
+    private final CharNGramScoringEngine charNGramScoringEngine;
+
     /**
      * <p>
      * Creates a new {@link PalladianTextClassifier} using the given configuration for feature extraction.
@@ -161,6 +189,7 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
         this.featureSetting = featureSetting;
         this.scorer = new DefaultScorer();
         this.preprocessor = new Preprocessor(featureSetting);
+        this.charNGramScoringEngine = new CharNGramScoringEngine(featureSetting, scorer);
     }
 
     /**
@@ -180,6 +209,7 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
         this.featureSetting = featureSetting;
         this.scorer = scorer;
         this.preprocessor = new Preprocessor(featureSetting);
+        this.charNGramScoringEngine = new CharNGramScoringEngine(featureSetting, scorer);
     }
 
     @Override
@@ -188,27 +218,109 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
         long size = dataset.size();
         ProgressMonitor progressMonitor = new ProgressMonitor(size, 0.1, "Training text classifier");
         for (Instance instance : dataset) {
-            String targetClass = instance.getCategory();
-            TextValue textValue = (TextValue) instance.getVector().get(VECTOR_TEXT_IDENTIFIER);
-            String text = textValue.getText();
-
-            Iterator<String> iterator = preprocessor.apply(text);
-            Collection<String> terms = new HashSet<>();
-            while (iterator.hasNext() && terms.size() < featureSetting.getMaxTerms()) {
-                terms.add(iterator.next());
-            }
-            dictionaryBuilder.addDocument(terms, targetClass, instance.getWeight());
+            addInstance(dictionaryBuilder, instance);
             progressMonitor.incrementAndPrintProgress();
         }
         return dictionaryBuilder.create();
     }
 
+    /**
+     * <p>
+     * Train using multiple threads. Each thread takes batches of documents from the dataset, preprocesses them and adds
+     * them to its own partial {@link DictionaryTrieModel}; the partial dictionaries are finally merged into this
+     * classifier's {@link DictionaryBuilder} using {@link DictionaryBuilder#addDictionary(DictionaryModel)}. The
+     * resulting model is identical to the one created by {@link #train(Dataset)}.
+     *
+     * @param dataset    The dataset for training, not <code>null</code>.
+     * @param numThreads The number of threads to use, greater zero.
+     * @return The trained model.
+     */
+    public DictionaryModel train(Dataset dataset, int numThreads) {
+        Validate.notNull(dataset, "dataset must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+        if (numThreads == 1) {
+            return train(dataset);
+        }
+        long size = dataset.size();
+        ProgressMonitor progressMonitor = new ProgressMonitor(size, 0.1, "Training text classifier");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try (CloseableIterator<Instance> iterator = dataset.iterator()) {
+            List<Future<DictionaryModel>> partialModels = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                partialModels.add(executor.submit(() -> {
+                    DictionaryBuilder partialBuilder = new DictionaryTrieModel.Builder();
+                    for (List<Instance> batch; !(batch = nextBatch(iterator)).isEmpty(); ) {
+                        for (Instance instance : batch) {
+                            addInstance(partialBuilder, instance);
+                        }
+                        progressMonitor.incrementByAndPrintProgress(batch.size());
+                    }
+                    return partialBuilder.create();
+                }));
+            }
+            for (Future<DictionaryModel> partialModel : partialModels) {
+                dictionaryBuilder.addDictionary(partialModel.get());
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return dictionaryBuilder.create();
+    }
+
+    /** Take the next batch of instances from the (shared) iterator; empty list, when the iterator is exhausted. */
+    private static List<Instance> nextBatch(Iterator<Instance> iterator) {
+        List<Instance> batch = new ArrayList<>(TRAINING_BATCH_SIZE);
+        synchronized (iterator) {
+            while (iterator.hasNext() && batch.size() < TRAINING_BATCH_SIZE) {
+                batch.add(iterator.next());
+            }
+        }
+        return batch;
+    }
+
+    private void addInstance(DictionaryBuilder builder, Instance instance) {
+        String targetClass = instance.getCategory();
+        TextValue textValue = (TextValue) instance.getVector().get(VECTOR_TEXT_IDENTIFIER);
+        String text = textValue.getText();
+
+        Iterator<String> iterator = preprocessor.apply(text);
+        Collection<String> terms = new HashSet<>();
+        while (iterator.hasNext() && terms.size() < featureSetting.getMaxTerms()) {
+            terms.add(iterator.next());
+        }
+        builder.addDocument(terms, targetClass, instance.getWeight());
+    }
+
+    /**
+     * <p>
+     * The classifier keeps no state during classification; it is thread-safe in case it uses one of the stateless
+     * scorers from this package, as the thread-safety of other {@link Scorer}s is not known.
+     * </p>
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return STATELESS_SCORERS.contains(scorer.getClass());
+    }
+
     @Override
     public CategoryEntries classify(FeatureVector featureVector, DictionaryModel model) {
         Validate.notNull(featureVector, "featureVector must not be null");
         Validate.notNull(model, "model must not be null");
-        CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
         TextValue textValue = (TextValue) featureVector.get(VECTOR_TEXT_IDENTIFIER);
+        if (CharNGramScoringEngine.isApplicable(featureSetting, model)) {
+            return charNGramScoringEngine.classify(textValue.getText(), (DictionaryTrieModel) model);
+        }
+        CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
         Iterator<String> iterator = preprocessor.apply(textValue.getText());
         Bag<String> termCounts = new Bag<>();
         while (iterator.hasNext() && termCounts.uniqueItems().size() < featureSetting.getMaxTerms()) {
@@ -269,6 +381,22 @@ public class PalladianTextClassifier extends AbstractLearner<DictionaryModel> im
         return classify(featureVector, model);
     }
 
+    @Override
+    public List<CategoryEntries> classifyChunk(List<? extends FeatureVector> featureVectors, DictionaryModel model) {
+        if (!CharNGramScoringEngine.isApplicable(featureSetting, model)) {
+            return Classifier.super.classifyChunk(featureVectors, model);
+        }
+        // decide about the scoring path once for the whole chunk; the engine keeps its scratch memory per thread
+        DictionaryTrieModel trieModel = (DictionaryTrieModel) model;
+        List<CategoryEntries> results = new ArrayList<>(featureVectors.size());
+        for (FeatureVector featureVector : featureVectors) {
+            Validate.notNull(featureVector, "featureVector must not be null");
+            TextValue textValue = (TextValue) featureVector.get(VECTOR_TEXT_IDENTIFIER);
+            results.add(charNGramScoringEngine.classify(textValue.getText(), trieModel));
+        }
+        return results;
+    }
+
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + "[scorer=" + scorer + ", featureSetting=" + featureSetting + "]";
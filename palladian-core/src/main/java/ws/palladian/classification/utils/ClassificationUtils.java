@@ -1,16 +1,20 @@
 package ws.palladian.classification.utils;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.core.*;
 import ws.palladian.core.dataset.csv.CsvDatasetWriter;
 import ws.palladian.core.value.NullValue;
 import ws.palladian.core.value.Value;
+import ws.palladian.helper.collection.AbstractIterator2;
 import ws.palladian.helper.collection.Vector.VectorEntry;
 import ws.palladian.helper.io.FileHelper;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -29,6 +33,9 @@ public final class ClassificationUtils {
     /** The default separator which is assumed for separating instance attributes when reading/writing to/from files. */
     public static final String DEFAULT_SEPARATOR = ";";
 
+    /** The number of instances which are classified together by {@link #classify(Classifier, Model, Iterable)}. */
+    public static final int CLASSIFICATION_WINDOW_SIZE = 10000;
+
     private ClassificationUtils() {
         // Should not be instantiated.
     }
@@ -152,4 +159,50 @@ public final class ClassificationUtils {
         return mergedCategoryEntries.create();
     }
 
+    /**
+     * <p>
+     * Classify the given instances using the batch classification of the classifier (see
+     * {@link Classifier#classify(Iterable, Model)}). The instances are read and classified in windows of
+     * {@value #CLASSIFICATION_WINDOW_SIZE}, so that large datasets do not need to fit into memory.
+     * </p>
+     *
+     * @param classifier The classifier, not <code>null</code>.
+     * @param model      The model, not <code>null</code>.
+     * @param instances  The instances to classify, not <code>null</code>.
+     * @return An iterable with pairs of instance and classification result, in the order of the given instances.
+     */
+    public static <M extends Model> Iterable<Pair<Instance, CategoryEntries>> classify(Classifier<M> classifier, M model, Iterable<? extends Instance> instances) {
+        Validate.notNull(classifier, "classifier must not be null");
+        Validate.notNull(model, "model must not be null");
+        Validate.notNull(instances, "instances must not be null");
+        return () -> new AbstractIterator2<Pair<Instance, CategoryEntries>>() {
+            final Iterator<? extends Instance> instanceIterator = instances.iterator();
+            final List<Instance> window = new ArrayList<>();
+            List<CategoryEntries> results = new ArrayList<>();
+            int index;
+
+            @Override
+            protected Pair<Instance, CategoryEntries> getNext() {
+                if (index == window.size()) {
+                    window.clear();
+                    index = 0;
+                    while (instanceIterator.hasNext() && window.size() < CLASSIFICATION_WINDOW_SIZE) {
+                        window.add(instanceIterator.next());
+                    }
+                    if (window.isEmpty()) {
+                        return finished();
+                    }
+                    List<FeatureVector> vectors = new ArrayList<>(window.size());
+                    for (Instance instance : window) {
+                        vectors.add(instance.getVector());
+                    }
+                    results = classifier.classify(vectors, model);
+                }
+                Pair<Instance, CategoryEntries> next = Pair.of(window.get(index), results.get(index));
+                index++;
+                return next;
+            }
+        };
+    }
+
 }
@@ -1,6 +1,7 @@
 package ws.palladian.classification.utils;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import ws.palladian.classification.evaluation.ClassificationEvaluator;
 import ws.palladian.classification.evaluation.ThresholdAnalysisEvaluator;
 import ws.palladian.core.*;
@@ -38,6 +39,16 @@ public final class ClassifierEvaluation {
 
         ConfusionMatrix confusionMatrix = new ConfusionMatrix();
 
+        if (models.length == 1) {
+            // a single model can make use of the classifier's batch classification
+            for (Pair<Instance, CategoryEntries> classification : ClassificationUtils.classify(classifier, models[0], testData)) {
+                String classifiedCategory = classification.getValue().getMostLikelyCategory();
+                String realCategory = classification.getKey().getCategory();
+                confusionMatrix.add(realCategory, classifiedCategory);
+            }
+            return confusionMatrix;
+        }
+
         for (Instance testInstance : testData) {
             CategoryEntries classification = ClassificationUtils.classifyWithMultipleModels(classifier, testInstance.getVector(), models);
             String classifiedCategory = classification.getMostLikelyCategory();
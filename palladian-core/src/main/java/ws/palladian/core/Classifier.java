@@ -1,5 +1,14 @@
 package ws.palladian.core;
 
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 /**
  * <p>
  * A classifier uses a trained model to classify a feature vector into a category.
@@ -11,6 +20,9 @@ package ws.palladian.core;
  */
 public interface Classifier<M extends Model> {
 
+    /** The number of feature vectors which are classified together as one task in a batch classification. */
+    int BATCH_CHUNK_SIZE = 256;
+
     /**
      * <p>
      * Classify an object with the given model.
@@ -22,4 +34,113 @@ public interface Classifier<M extends Model> {
      */
     CategoryEntries classify(FeatureVector featureVector, M model);
 
+    /**
+     * <p>
+     * Indicate whether this classifier can classify from multiple threads simultaneously with the same model. Only
+     * then, a batch classification is run in parallel. The default implementation returns <code>false</code>;
+     * implementations override this after making sure they keep no mutable state during the classification.
+     * </p>
+     *
+     * @return <code>true</code> in case the classifier is thread-safe.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * <p>
+     * Classify a batch of objects with the given model, using the common {@link ForkJoinPool} in case the classifier
+     * is thread-safe.
+     * </p>
+     *
+     * @param featureVectors The feature vectors to classify.
+     * @param model          The model to use for the classification.
+     * @return The classification results, in the same order as the given feature vectors.
+     * @see #classify(Iterable, Model, ExecutorService)
+     */
+    default List<CategoryEntries> classify(Iterable<? extends FeatureVector> featureVectors, M model) {
+        return classify(featureVectors, model, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * <p>
+     * Classify a batch of objects with the given model. The feature vectors are split into chunks of
+     * {@link #BATCH_CHUNK_SIZE}, which are classified using {@link #classifyChunk(List, Model)}; concurrently by the
+     * given executor in case the classifier is {@link #isThreadSafe() thread-safe}, else one after another within the
+     * current thread.
+     * </p>
+     *
+     * @param featureVectors The feature vectors to classify.
+     * @param model          The model to use for the classification.
+     * @param executor       The executor which runs the classification tasks.
+     * @return The classification results, in the same order as the given feature vectors.
+     */
+    default List<CategoryEntries> classify(Iterable<? extends FeatureVector> featureVectors, M model, ExecutorService executor) {
+        Validate.notNull(featureVectors, "featureVectors must not be null");
+        Validate.notNull(model, "model must not be null");
+        Validate.notNull(executor, "executor must not be null");
+        List<List<FeatureVector>> chunks = new ArrayList<>();
+        List<FeatureVector> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        for (FeatureVector featureVector : featureVectors) {
+            chunk.add(featureVector);
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+            }
+        }
+        if (chunk.size() > 0) {
+            chunks.add(chunk);
+        }
+        // no need to hand over a single chunk to the executor
+        if (chunks.size() == 1) {
+            return classifyChunk(chunks.get(0), model);
+        }
+        if (!isThreadSafe()) {
+            List<CategoryEntries> results = new ArrayList<>();
+            for (List<FeatureVector> currentChunk : chunks) {
+                results.addAll(classifyChunk(currentChunk, model));
+            }
+            return results;
+        }
+        List<Future<List<CategoryEntries>>> futures = new ArrayList<>(chunks.size());
+        for (List<FeatureVector> currentChunk : chunks) {
+            futures.add(executor.submit(() -> classifyChunk(currentChunk, model)));
+        }
+        List<CategoryEntries> results = new ArrayList<>();
+        try {
+            for (Future<List<CategoryEntries>> future : futures) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * <p>
+     * Classify one chunk of a batch classification within the current thread. The default implementation simply
+     * invokes {@link #classify(FeatureVector, Model)} for each feature vector; implementations can override this to
+     * resolve model data, which is needed for every classification, only once per chunk.
+     * </p>
+     *
+     * @param featureVectors The feature vectors to classify.
+     * @param model          The model to use for the classification.
+     * @return The classification results, in the same order as the given feature vectors.
+     */
+    default List<CategoryEntries> classifyChunk(List<? extends FeatureVector> featureVectors, M model) {
+        List<CategoryEntries> results = new ArrayList<>(featureVectors.size());
+        for (FeatureVector featureVector : featureVectors) {
+            results.add(classify(featureVector, model));
+        }
+        return results;
+    }
+
 }
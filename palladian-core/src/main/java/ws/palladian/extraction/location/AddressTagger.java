@@ -71,25 +71,7 @@ public final class AddressTagger implements Tagger {
         // step two: look for street numbers before or after
         List<LocationAnnotation> streetNumbers = new ArrayList<>();
         for (Annotation annotation : ret) {
-            String regEx = Pattern.quote(annotation.getValue());
-
-            // try number as suffix
-            Pattern suffixRegEx = Pattern.compile(regEx + "\\s(\\d+)");
-            Matcher matcher = suffixRegEx.matcher(text);
-            while (matcher.find()) {
-                // System.out.println("suffix: " + matcher.group(1));
-                Annotation newAnnotation = new ImmutableAnnotation(matcher.start(1), matcher.group(1), LocationType.STREETNR.toString());
-                streetNumbers.add(new LocationAnnotation(newAnnotation, new ImmutableLocation(0, matcher.group(1), LocationType.STREETNR, null, null)));
-            }
-
-            // try number as prefix
-            Pattern prefixRegEx = Pattern.compile("(\\d+)\\s" + regEx);
-            matcher = prefixRegEx.matcher(text);
-            while (matcher.find()) {
-                // System.out.println("prefix: " + matcher.group(1));
-                Annotation newAnnotation = new ImmutableAnnotation(matcher.start(1), matcher.group(1), LocationType.STREETNR.toString());
-                streetNumbers.add(new LocationAnnotation(newAnnotation, new ImmutableLocation(0, matcher.group(1), LocationType.STREETNR, null, null)));
-            }
+            findStreetNumbers(text, annotation.getValue(), streetNumbers);
         }
 
         // TODO ZIP codes ...
@@ -102,4 +84,67 @@ public final class AddressTagger implements Tagger {
         return ret;
     }
 
+    /**
+     * Find numbers which are separated by one whitespace from occurrences of the street name in the text (i.e.
+     * "street 123" or "123 street"). This is equivalent to matching the patterns <code>street\s(\d+)</code> and
+     * <code>(\d+)\sstreet</code>, but avoids compiling two patterns per street.
+     *
+     * @param text          The text.
+     * @param street        The street name.
+     * @param streetNumbers The list to which the found numbers are added.
+     */
+    private static void findStreetNumbers(String text, String street, List<LocationAnnotation> streetNumbers) {
+        // try number as suffix
+        for (int index = text.indexOf(street); index != -1; ) {
+            int start = index + street.length() + 1;
+            int end = start;
+            if (start - 1 < text.length() && isWhitespace(text.charAt(start - 1))) {
+                while (end < text.length() && isDigit(text.charAt(end))) {
+                    end++;
+                }
+            }
+            if (end > start) {
+                addStreetNumber(text, start, end, streetNumbers);
+                index = text.indexOf(street, end);
+            } else {
+                index = text.indexOf(street, index + 1);
+            }
+        }
+
+        // try number as prefix
+        int previousEnd = 0;
+        for (int index = text.indexOf(street); index != -1; ) {
+            int end = index - 1;
+            int start = end;
+            if (end > previousEnd && isWhitespace(text.charAt(end))) {
+                while (start > previousEnd && isDigit(text.charAt(start - 1))) {
+                    start--;
+                }
+            }
+            if (start < end) {
+                addStreetNumber(text, start, end, streetNumbers);
+                previousEnd = index + street.length();
+                index = text.indexOf(street, previousEnd);
+            } else {
+                index = text.indexOf(street, index + 1);
+            }
+        }
+    }
+
+    private static void addStreetNumber(String text, int start, int end, List<LocationAnnotation> streetNumbers) {
+        String number = text.substring(start, end);
+        Annotation newAnnotation = new ImmutableAnnotation(start, number, LocationType.STREETNR.toString());
+        streetNumbers.add(new LocationAnnotation(newAnnotation, new ImmutableLocation(0, number, LocationType.STREETNR, null, null)));
+    }
+
+    /** Same as <code>\s</code> in a regular expression. */
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == 0x0B || ch == '\f' || ch == '\r';
+    }
+
+    /** Same as <code>\d</code> in a regular expression. */
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
 }
@@ -0,0 +1,268 @@
+package ws.palladian.extraction.location;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.collection.AbstractIterator2;
+import ws.palladian.helper.collection.MultiMap;
+import ws.palladian.helper.constants.Language;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>
+ * Runs the {@link PalladianLocationExtractor} for a stream of texts. The texts are processed in batches, and the
+ * steps are run as a pipeline, so that while one batch is disambiguated, the next batches are tagged and looked up:
+ * </p>
+ *
+ * <ol>
+ * <li>{@link Stage#TAGGING}: candidate, address and coordinate tagging, in parallel for each text;</li>
+ * <li>{@link Stage#LOOKUP}: one lookup in the location source for the candidates of all texts in the batch, one batch
+ * at a time (so the location source does not need to be thread-safe);</li>
+ * <li>{@link Stage#DISAMBIGUATION}: disambiguation, in parallel for each text.</li>
+ * </ol>
+ *
+ * <p>
+ * At most {@link #MAX_BATCHES} batches are in the pipeline at any time, and the results are returned in the order of
+ * the texts. The tagger and the disambiguation of the extractor must be thread-safe. The pipeline must be closed after
+ * use, to stop its threads.
+ * </p>
+ */
+public final class LocationExtractionPipeline implements Closeable {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationExtractionPipeline.class);
+
+    /** The maximum number of batches which are processed at the same time. */
+    public static final int MAX_BATCHES = 3;
+
+    /** The steps of the pipeline. */
+    public enum Stage {
+        TAGGING, LOOKUP, DISAMBIGUATION
+    }
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final PalladianLocationExtractor extractor;
+
+    private final int batchSize;
+
+    private final ExecutorService workers;
+
+    private final ExecutorService lookup;
+
+    private final Map<Stage, LongAdder> documentCounts = new EnumMap<>(Stage.class);
+
+    private final Map<Stage, LongAdder> times = new EnumMap<>(Stage.class);
+
+    /**
+     * Create a new pipeline.
+     *
+     * @param extractor  The extractor, not <code>null</code>.
+     * @param numThreads The number of threads for tagging and disambiguation, greater zero.
+     * @param batchSize  The number of texts per lookup in the location source, greater zero.
+     */
+    public LocationExtractionPipeline(PalladianLocationExtractor extractor, int numThreads, int batchSize) {
+        Validate.notNull(extractor, "extractor must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+        Validate.isTrue(batchSize > 0, "batchSize must be greater zero");
+        this.extractor = extractor;
+        this.batchSize = batchSize;
+        int poolNumber = POOL_NUMBER.incrementAndGet();
+        this.workers = Executors.newFixedThreadPool(numThreads, createThreadFactory("location-extraction-" + poolNumber + "-worker-"));
+        this.lookup = Executors.newSingleThreadExecutor(createThreadFactory("location-extraction-" + poolNumber + "-lookup-"));
+        for (Stage stage : Stage.values()) {
+            documentCounts.put(stage, new LongAdder());
+            times.put(stage, new LongAdder());
+        }
+    }
+
+    private static ThreadFactory createThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Extract the locations from the given texts.
+     *
+     * @param texts The texts, not <code>null</code>.
+     * @return The locations for each text, in the order of the texts.
+     */
+    public Stream<List<LocationAnnotation>> process(Stream<String> texts) {
+        Validate.notNull(texts, "texts must not be null");
+        Iterator<List<LocationAnnotation>> iterator = process(texts.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(texts::close);
+    }
+
+    /**
+     * Extract the locations from the given texts. The texts are read from the iterator by the thread which consumes
+     * the results.
+     *
+     * @param texts The texts, not <code>null</code>.
+     * @return The locations for each text, in the order of the texts.
+     */
+    public Iterator<List<LocationAnnotation>> process(Iterator<String> texts) {
+        Validate.notNull(texts, "texts must not be null");
+        return new AbstractIterator2<List<LocationAnnotation>>() {
+            final Deque<CompletableFuture<List<List<LocationAnnotation>>>> batches = new ArrayDeque<>();
+            Iterator<List<LocationAnnotation>> current = Collections.emptyIterator();
+
+            @Override
+            protected List<LocationAnnotation> getNext() {
+                while (!current.hasNext()) {
+                    while (batches.size() < MAX_BATCHES && texts.hasNext()) {
+                        List<String> batch = new ArrayList<>(batchSize);
+                        while (batch.size() < batchSize && texts.hasNext()) {
+                            batch.add(texts.next());
+                        }
+                        batches.add(submit(batch));
+                    }
+                    if (batches.isEmpty()) {
+                        LOGGER.debug("Finished {}", LocationExtractionPipeline.this);
+                        return finished();
+                    }
+                    current = join(batches.poll()).iterator();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    private CompletableFuture<List<List<LocationAnnotation>>> submit(List<String> texts) {
+        List<CompletableFuture<TaggedText>> tagged = new ArrayList<>();
+        for (String text : texts) {
+            tagged.add(CompletableFuture.supplyAsync(() -> tag(text), workers));
+        }
+        CompletableFuture<MultiMap<String, Location>> lookedUp = CompletableFuture.allOf(tagged.toArray(new CompletableFuture<?>[0])).thenApplyAsync(v -> {
+            List<TaggedText> taggedTexts = new ArrayList<>();
+            for (CompletableFuture<TaggedText> future : tagged) {
+                taggedTexts.add(future.join());
+            }
+            return lookUp(taggedTexts);
+        }, lookup);
+        List<CompletableFuture<List<LocationAnnotation>>> disambiguated = new ArrayList<>();
+        for (CompletableFuture<TaggedText> future : tagged) {
+            disambiguated.add(lookedUp.thenApplyAsync(locations -> disambiguate(future.join(), locations), workers));
+        }
+        return CompletableFuture.allOf(disambiguated.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<List<LocationAnnotation>> result = new ArrayList<>();
+            for (CompletableFuture<List<LocationAnnotation>> future : disambiguated) {
+                result.add(future.join());
+            }
+            return result;
+        });
+    }
+
+    private TaggedText tag(String text) {
+        long start = System.nanoTime();
+        TaggedText result = new TaggedText(text, extractor.getCandidates(text), PalladianLocationExtractor.getAdditionalAnnotations(text));
+        count(Stage.TAGGING, 1, start);
+        return result;
+    }
+
+    private MultiMap<String, Location> lookUp(List<TaggedText> taggedTexts) {
+        long start = System.nanoTime();
+        Set<String> names = new HashSet<>();
+        for (TaggedText taggedText : taggedTexts) {
+            names.addAll(PalladianLocationExtractor.getNames(taggedText.candidates));
+        }
+        MultiMap<String, Location> result = extractor.getLocationSource().getLocations(names, EnumSet.of(Language.ENGLISH));
+        count(Stage.LOOKUP, taggedTexts.size(), start);
+        return result;
+    }
+
+    private List<LocationAnnotation> disambiguate(TaggedText taggedText, MultiMap<String, Location> lookup) {
+        long start = System.nanoTime();
+        MultiMap<ClassifiedAnnotation, Location> locations = PalladianLocationExtractor.assignLocations(lookup, taggedText.candidates);
+        List<LocationAnnotation> result = extractor.disambiguate(taggedText.text, locations, taggedText.additionalAnnotations);
+        count(Stage.DISAMBIGUATION, 1, start);
+        return result;
+    }
+
+    private void count(Stage stage, int numDocuments, long start) {
+        times.get(stage).add(System.nanoTime() - start);
+        documentCounts.get(stage).add(numDocuments);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @param stage The stage.
+     * @return The number of texts which passed the stage.
+     */
+    public long getDocumentCount(Stage stage) {
+        return documentCounts.get(stage).sum();
+    }
+
+    /**
+     * @param stage The stage.
+     * @return The time spent in the stage in nanoseconds, summed over all threads.
+     */
+    public long getTime(Stage stage) {
+        return times.get(stage).sum();
+    }
+
+    /**
+     * @param stage The stage.
+     * @return The number of texts per second and thread in the stage, or zero in case no text passed the stage yet.
+     */
+    public double getThroughput(Stage stage) {
+        long time = getTime(stage);
+        return time == 0 ? 0 : getDocumentCount(stage) / (time / 1e9);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        lookup.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LocationExtractionPipeline [");
+        for (Stage stage : Stage.values()) {
+            if (stage.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append(stage).append("=").append(getDocumentCount(stage)).append(" texts, ");
+            builder.append(String.format(Locale.ROOT, "%.1f", getThroughput(stage))).append(" texts/s");
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /** The result of the tagging stage for one text. */
+    private static final class TaggedText {
+        final String text;
+        final List<ClassifiedAnnotation> candidates;
+        final List<LocationAnnotation> additionalAnnotations;
+
+        TaggedText(String text, List<ClassifiedAnnotation> candidates, List<LocationAnnotation> additionalAnnotations) {
+            this.text = text;
+            this.candidates = candidates;
+            this.additionalAnnotations = additionalAnnotations;
+        }
+    }
+
+}
@@ -5,6 +5,7 @@ import ws.palladian.extraction.entity.Annotations;
 import ws.palladian.extraction.location.disambiguation.HeuristicDisambiguation;
 import ws.palladian.extraction.location.disambiguation.LocationDisambiguation;
 import ws.palladian.extraction.location.persistence.LocationDatabase;
+import ws.palladian.helper.collection.AbstractIterator2;
 import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.collection.DefaultMultiMap;
 import ws.palladian.helper.collection.MultiMap;
@@ -14,6 +15,8 @@ import ws.palladian.helper.io.FileHelper;
 import ws.palladian.persistence.DatabaseManagerFactory;
 
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>
@@ -54,10 +57,55 @@ public class PalladianLocationExtractor extends LocationExtractor {
 
         MultiMap<ClassifiedAnnotation, Location> locations = fetchLocations(locationSource, classifiedEntities);
 
-        Annotations<LocationAnnotation> result = new Annotations<>();
+        return disambiguate(text, locations, getAdditionalAnnotations(text));
+    }
 
-        List<LocationAnnotation> locationEntities = disambiguation.disambiguate(text, locations);
-        result.addAll(locationEntities);
+    /**
+     * Extract the locations from multiple texts, in parallel and in the order of the texts. The steps of the
+     * extraction are run as a pipeline, and the lookups in the location source are batched over multiple texts. The
+     * threads of the pipeline are stopped when the stream has been consumed completely, or when processing fails;
+     * streams which are not consumed completely must be closed (e.g. with try-with-resources).
+     *
+     * @param texts      The texts.
+     * @param numThreads The number of threads for the extraction, greater zero.
+     * @param batchSize  The number of texts per lookup in the location source, greater zero.
+     * @return The locations for each text.
+     * @see LocationExtractionPipeline to access the statistics.
+     */
+    public Stream<List<LocationAnnotation>> getAnnotations(Stream<String> texts, int numThreads, int batchSize) {
+        LocationExtractionPipeline pipeline = new LocationExtractionPipeline(this, numThreads, batchSize);
+        Iterator<List<LocationAnnotation>> results = pipeline.process(texts.iterator());
+        Iterator<List<LocationAnnotation>> closingResults = new AbstractIterator2<List<LocationAnnotation>>() {
+            @Override
+            protected List<LocationAnnotation> getNext() {
+                try {
+                    if (results.hasNext()) {
+                        return results.next();
+                    }
+                } catch (RuntimeException e) {
+                    pipeline.close();
+                    throw e;
+                }
+                pipeline.close();
+                return finished();
+            }
+        };
+        Stream<List<LocationAnnotation>> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(closingResults, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        return stream.onClose(pipeline::close).onClose(texts::close);
+    }
+
+    /** The candidate tagging step. */
+    List<ClassifiedAnnotation> getCandidates(String text) {
+        return tagger.getAnnotations(text);
+    }
+
+    LocationSource getLocationSource() {
+        return locationSource;
+    }
+
+    /** The steps which only depend on the text: streets and explicit coordinates. */
+    static List<LocationAnnotation> getAdditionalAnnotations(String text) {
+        List<LocationAnnotation> result = new ArrayList<>();
 
         // last step, recognize streets. For also extracting ZIP codes, this needs to be better integrated into above's
         // workflow. We should use the CITY annotations, to search for neighboring ZIP codes.
@@ -68,6 +116,17 @@ public class PalladianLocationExtractor extends LocationExtractor {
         List<LocationAnnotation> annotatedCoordinates = coordinateTagger.getAnnotations(text);
         result.addAll(annotatedCoordinates);
 
+        return result;
+    }
+
+    /** The disambiguation step, which combines the results with the given additional annotations. */
+    List<LocationAnnotation> disambiguate(String text, MultiMap<ClassifiedAnnotation, Location> locations, List<LocationAnnotation> additionalAnnotations) {
+        Annotations<LocationAnnotation> result = new Annotations<>();
+
+        List<LocationAnnotation> locationEntities = disambiguation.disambiguate(text, locations);
+        result.addAll(locationEntities);
+        result.addAll(additionalAnnotations);
+
         result.sort();
         result.removeNested();
 
@@ -75,12 +134,22 @@ public class PalladianLocationExtractor extends LocationExtractor {
     }
 
     public static MultiMap<ClassifiedAnnotation, Location> fetchLocations(LocationSource source, List<ClassifiedAnnotation> annotations) {
+        MultiMap<String, Location> lookup = source.getLocations(getNames(annotations), EnumSet.of(Language.ENGLISH));
+        return assignLocations(lookup, annotations);
+    }
+
+    /** @return The normalized names of the given annotations for the lookup in the location source. */
+    static Set<String> getNames(List<ClassifiedAnnotation> annotations) {
         Set<String> valuesToRetrieve = new HashSet<>();
         for (ClassifiedAnnotation annotation : annotations) {
             String entityValue = LocationExtractorUtils.normalizeName(annotation.getValue()).toLowerCase();
             valuesToRetrieve.add(entityValue);
         }
-        MultiMap<String, Location> lookup = source.getLocations(valuesToRetrieve, EnumSet.of(Language.ENGLISH));
+        return valuesToRetrieve;
+    }
+
+    /** @return The locations for each annotation from the result of a lookup with {@link #getNames(List)}. */
+    static MultiMap<ClassifiedAnnotation, Location> assignLocations(MultiMap<String, Location> lookup, List<ClassifiedAnnotation> annotations) {
         MultiMap<ClassifiedAnnotation, Location> result = DefaultMultiMap.createWithSet();
         for (ClassifiedAnnotation annotation : annotations) {
             String entityValue = LocationExtractorUtils.normalizeName(annotation.getValue()).toLowerCase();
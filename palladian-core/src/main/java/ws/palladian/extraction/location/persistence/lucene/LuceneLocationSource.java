@@ -1,5 +1,8 @@
 package ws.palladian.extraction.location.persistence.lucene;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.apache.commons.lang3.Validate;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenFilter;
@@ -10,6 +13,7 @@ import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LatLonDocValuesField;
 import org.apache.lucene.document.LatLonPoint;
 import org.apache.lucene.index.*;
@@ -17,6 +21,7 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.extraction.location.Location;
@@ -33,11 +38,16 @@ import ws.palladian.helper.geo.GeoCoordinate;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * A location source backed by a Lucene index.
+ * <p>
+ * Indices created by the current {@link LuceneLocationStore} keep id, type, coordinates, population and ancestor ids
+ * in doc values, so that only the names need to be read from the stored fields. Indices created by older versions,
+ * which kept all values in stored fields, can still be read. Optionally, all locations can be loaded into an
+ * immutable id-to-location cache when opening the source, see {@link #LuceneLocationSource(Directory, boolean)}.
  *
  * @author Philipp Katz
  */
@@ -60,13 +70,13 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
     /** The logger for this class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(LuceneLocationSource.class);
 
-    /** Identifier for the field containing the location id. */
+    /** Identifier for the field containing the location id (IntPoint and NumericDocValues, StringField in old indices). */
     static final String FIELD_ID = "id";
 
-    /** Identifier for the field containing the location type. */
+    /** Identifier for the field containing the location type (SortedDocValues). */
     static final String FIELD_TYPE = "type";
 
-    /** Identifier for the field containing the location name. */
+    /** Identifier for the field containing the location name (the only stored field). */
     static final String FIELD_NAME = "name";
 
     /** LatLonPoint field (for queries, doesn't store the actual value). */
@@ -75,16 +85,16 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
     /** LatLonDocValuesField for sorting results by distance. */
     static final String FIELD_LAT_LNG_SORT = "latLngSort";
 
-    /** Identifier for the field which stores the latitude. */
+    /** Identifier for the field which stores the latitude (DoubleDocValues). */
     static final String FIELD_LAT = "lat";
 
-    /** Identifier for the field which stores the longitude. */
+    /** Identifier for the field which stores the longitude (DoubleDocValues). */
     static final String FIELD_LNG = "lng";
 
-    /** Identifier for the field containing the population. */
+    /** Identifier for the field containing the population (NumericDocValues). */
     static final String FIELD_POPULATION = "population";
 
-    /** Identifier for the field with the ancestor ids. */
+    /** Identifier for the field with the ancestor ids (BinaryDocValues, see {@link #encodeAncestorIds(List)}). */
     static final String FIELD_ANCESTOR_IDS = "ancestorIds";
 
     /** Alternative names with language determiner are separated with this marker (e.g. "Berlin^de"). */
@@ -102,6 +112,12 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
     /** IndexSearcher is Thread-safe. */
     private final IndexSearcher searcher;
 
+    /** <code>true</code> in case the index keeps all values except the names in doc values. */
+    private final boolean docValues;
+
+    /** Immutable cache with all locations by their id, or <code>null</code> in case caching is disabled. */
+    private final Int2ObjectMap<Location> cache;
+
     static final Analyzer ANALYZER = new LowerCaseKeywordAnalyzer();
 
     /**
@@ -112,45 +128,91 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
      * @throws IllegalStateException In case setting up the Lucene readers fails.
      */
     public LuceneLocationSource(Directory directory) {
+        this(directory, false);
+    }
+
+    /**
+     * <p>
+     * Create a new Lucene location source, where data is provided from the given {@link Directory}.
+     *
+     * @param directory The Lucene directory with the location data, not <code>null</code>.
+     * @param cache     <code>true</code> to load all locations into memory when opening; lookups by id are then
+     *                  answered without accessing the index, and for name and coordinate queries only the matching
+     *                  ids need to be read. This requires memory proportional to the size of the index.
+     * @throws IllegalStateException In case setting up the Lucene readers fails.
+     */
+    public LuceneLocationSource(Directory directory, boolean cache) {
         Validate.notNull(directory, "directory must not be null");
         this.directory = directory;
         try {
             reader = DirectoryReader.open(directory);
             searcher = new IndexSearcher(reader);
+            FieldInfo idField = FieldInfos.getMergedFieldInfos(reader).fieldInfo(FIELD_ID);
+            docValues = idField != null && idField.getDocValuesType() == DocValuesType.NUMERIC;
+            this.cache = cache ? warmCache() : null;
         } catch (IOException e) {
             throw new IllegalStateException("IOException when opening DirectoryReader or IndexSearcher", e);
         }
     }
 
+    /**
+     * Load all locations from the index into an immutable map.
+     *
+     * @return The map with all locations by their id.
+     */
+    private Int2ObjectMap<Location> warmCache() {
+        StopWatch stopWatch = new StopWatch();
+        Int2ObjectMap<Location> locations = new Int2ObjectOpenHashMap<>(reader.numDocs());
+        getLocations().forEachRemaining(location -> locations.put(location.getId(), location));
+        LOGGER.debug("Loaded {} locations into cache in {}", locations.size(), stopWatch);
+        return Int2ObjectMaps.unmodifiable(locations);
+    }
+
     @Override
     public Collection<Location> getLocations(String locationName, Set<Language> languages) {
         BooleanQuery query = createQuery(locationName, languages, null, 0);
-        return queryLocations(query, searcher, reader);
+        return queryLocations(query);
     }
 
     @Override
     public Iterator<Location> getLocations() {
+        if (cache != null) {
+            return cache.values().iterator();
+        }
         return new AbstractIterator2<Location>() {
-            final int maxDoc = reader.maxDoc();
-            final Bits liveDocs = MultiBits.getLiveDocs(reader);
+            final Iterator<LeafReaderContext> leaves = reader.leaves().iterator();
+            LeafReaderContext leaf;
+            LeafLocationReader leafReader;
+            Bits liveDocs;
             int currentDoc = -1;
 
             @Override
             protected Location getNext() {
-                while (currentDoc < maxDoc - 1) {
-                    currentDoc++;
-                    if (liveDocs != null && liveDocs.get(currentDoc)) {
-                        // document was deleted from index
-                        continue;
-                    }
-                    try {
-                        Document document = reader.document(currentDoc);
-                        return parseLocation(document);
-                    } catch (IOException e) {
-                        throw new IllegalStateException("Could not retrieve document with ID " + currentDoc, e);
+                try {
+                    for (;;) {
+                        if (leaf == null || currentDoc >= leaf.reader().maxDoc() - 1) {
+                            if (!leaves.hasNext()) {
+                                return finished();
+                            }
+                            leaf = leaves.next();
+                            leafReader = docValues ? new LeafLocationReader(leaf.reader()) : null;
+                            liveDocs = leaf.reader().getLiveDocs();
+                            currentDoc = -1;
+                            continue;
+                        }
+                        currentDoc++;
+                        if (liveDocs != null && !liveDocs.get(currentDoc)) {
+                            // document was deleted from index
+                            continue;
+                        }
+                        if (leafReader != null) {
+                            return leafReader.readLocation(currentDoc);
+                        }
+                        return parseLocation(leaf.reader().document(currentDoc));
                     }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not retrieve document with ID " + currentDoc, e);
                 }
-                return finished();
             }
         };
     }
@@ -177,20 +239,13 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
     /**
      * Use the given query to find locations in the index.
      *
-     * @param query    The query.
-     * @param searcher The Lucene searcher.
-     * @param reader   The Lucene reader.
+     * @param query The query.
      * @return A {@link Collection} with matching {@link Location}s, or an empty Collection, never <code>null</code>.
      */
-    private static List<Location> queryLocations(Query query, IndexSearcher searcher, IndexReader reader) {
+    private List<Location> queryLocations(Query query) {
         StopWatch stopWatch = new StopWatch();
         try {
-            SimpleCollector collector = new SimpleCollector();
-            searcher.search(query, collector);
-            List<Location> locations = new ArrayList<>();
-            for (int docId : collector.docs) {
-                locations.add(parseLocation(searcher.doc(docId)));
-            }
+            List<Location> locations = Arrays.asList(loadLocations(search(query)));
             LOGGER.trace("query {} took {}", query, stopWatch);
             return locations;
         } catch (IOException e) {
@@ -199,25 +254,202 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
     }
 
     /**
-     * Parse the Lucene {@link Document} and create a {@link Location} from the document's fields.
+     * Search the index.
+     *
+     * @param query The query.
+     * @return The ids of the matching documents in ascending order.
+     * @throws IOException In case searching fails.
+     */
+    private int[] search(Query query) throws IOException {
+        SimpleCollector collector = new SimpleCollector();
+        searcher.search(query, collector);
+        return collector.docs.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Load the locations for the given document ids. With an index that contains doc values, the documents are read
+     * leaf by leaf in ascending order, as required by the doc values iterators.
+     *
+     * @param docs The document ids in any order.
+     * @return The locations, in the order of the given document ids.
+     * @throws IOException In case reading from the index fails.
+     */
+    private Location[] loadLocations(int[] docs) throws IOException {
+        Location[] locations = new Location[docs.length];
+        if (!docValues) {
+            for (int i = 0; i < docs.length; i++) {
+                locations[i] = parseLocation(searcher.doc(docs[i]));
+            }
+            return locations;
+        }
+        // sort by document id, but remember the original position
+        long[] sortedDocs = new long[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            sortedDocs[i] = (long) docs[i] << 32 | i;
+        }
+        Arrays.sort(sortedDocs);
+        List<LeafReaderContext> leaves = reader.leaves();
+        LeafReaderContext leaf = null;
+        LeafLocationReader leafReader = null;
+        for (long sortedDoc : sortedDocs) {
+            int doc = (int) (sortedDoc >>> 32);
+            if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+                leafReader = new LeafLocationReader(leaf.reader());
+            }
+            Location location;
+            if (cache != null) {
+                location = cache.get(leafReader.readId(doc - leaf.docBase));
+            } else {
+                location = leafReader.readLocation(doc - leaf.docBase);
+            }
+            locations[(int) sortedDoc] = location;
+        }
+        return locations;
+    }
+
+    /**
+     * Reads locations from a leaf of an index with doc values. The doc values iterators only move forward, so an
+     * instance must be used for ascending document ids only.
+     */
+    private static final class LeafLocationReader {
+        final LeafReader reader;
+        final NumericDocValues ids;
+        final SortedDocValues types;
+        final LocationType[] typeOrds;
+        final NumericDocValues lats;
+        final NumericDocValues lngs;
+        final NumericDocValues populations;
+        final BinaryDocValues ancestorIds;
+
+        LeafLocationReader(LeafReader reader) throws IOException {
+            this.reader = reader;
+            ids = DocValues.getNumeric(reader, FIELD_ID);
+            types = DocValues.getSorted(reader, FIELD_TYPE);
+            typeOrds = new LocationType[types.getValueCount()];
+            lats = DocValues.getNumeric(reader, FIELD_LAT);
+            lngs = DocValues.getNumeric(reader, FIELD_LNG);
+            populations = DocValues.getNumeric(reader, FIELD_POPULATION);
+            ancestorIds = DocValues.getBinary(reader, FIELD_ANCESTOR_IDS);
+        }
+
+        int readId(int doc) throws IOException {
+            if (!ids.advanceExact(doc)) {
+                throw new IllegalStateException("No ID for document " + doc);
+            }
+            return (int) ids.longValue();
+        }
+
+        Location readLocation(int doc) throws IOException {
+            LocationBuilder builder = new LocationBuilder();
+            builder.setId(readId(doc));
+            if (types.advanceExact(doc)) {
+                int ord = types.ordValue();
+                if (typeOrds[ord] == null) {
+                    typeOrds[ord] = LocationType.map(types.lookupOrd(ord).utf8ToString());
+                }
+                builder.setType(typeOrds[ord]);
+            } else {
+                builder.setType(LocationType.UNDETERMINED);
+            }
+            if (lats.advanceExact(doc) && lngs.advanceExact(doc)) {
+                double lat = Double.longBitsToDouble(lats.longValue());
+                double lng = Double.longBitsToDouble(lngs.longValue());
+                builder.setCoordinate(lat, lng);
+            }
+            if (populations.advanceExact(doc)) {
+                builder.setPopulation(populations.longValue());
+            }
+            if (ancestorIds.advanceExact(doc)) {
+                builder.setAncestorIds(decodeAncestorIds(ancestorIds.binaryValue()));
+            }
+            reader.document(doc, new StoredFieldVisitor() {
+                @Override
+                public Status needsField(FieldInfo fieldInfo) {
+                    return FIELD_NAME.equals(fieldInfo.name) ? Status.YES : Status.NO;
+                }
+
+                @Override
+                public void stringField(FieldInfo fieldInfo, byte[] value) {
+                    addName(builder, new String(value, StandardCharsets.UTF_8));
+                }
+            });
+            return builder.create();
+        }
+    }
+
+    /**
+     * Encode the ancestor ids for the {@link #FIELD_ANCESTOR_IDS} doc values as variable-length ints.
+     *
+     * @param ancestorIds The ancestor ids.
+     * @return The encoded ids.
+     */
+    static BytesRef encodeAncestorIds(List<Integer> ancestorIds) {
+        byte[] bytes = new byte[ancestorIds.size() * 5];
+        int length = 0;
+        for (int ancestorId : ancestorIds) {
+            while ((ancestorId & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((ancestorId & 0x7F) | 0x80);
+                ancestorId >>>= 7;
+            }
+            bytes[length++] = (byte) ancestorId;
+        }
+        return new BytesRef(bytes, 0, length);
+    }
+
+    /**
+     * Decode the ancestor ids encoded by {@link #encodeAncestorIds(List)}.
+     *
+     * @param bytes The encoded ids.
+     * @return The ancestor ids.
+     */
+    static List<Integer> decodeAncestorIds(BytesRef bytes) {
+        List<Integer> ancestorIds = new ArrayList<>();
+        int position = bytes.offset;
+        int end = bytes.offset + bytes.length;
+        while (position < end) {
+            int ancestorId = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes.bytes[position++];
+                ancestorId |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            ancestorIds.add(ancestorId);
+        }
+        return ancestorIds;
+    }
+
+    /**
+     * Add a stored name to the builder; alternative names are stored like "New York^", or "New York^en".
+     *
+     * @param builder The builder.
+     * @param value   The stored name.
+     */
+    private static void addName(LocationBuilder builder, String value) {
+        int separatorIndex = value.indexOf(NAME_LANGUAGE_SEPARATOR);
+        if (separatorIndex == -1) {
+            builder.setPrimaryName(value);
+        } else {
+            String name = value.substring(0, separatorIndex);
+            int languageIndex = separatorIndex + NAME_LANGUAGE_SEPARATOR.length();
+            Language language = languageIndex < value.length() ? Language.getByIso6391(value.substring(languageIndex)) : null;
+            builder.addAlternativeName(name, language);
+        }
+    }
+
+    /**
+     * Parse the Lucene {@link Document} of an index without doc values and create a {@link Location} from the
+     * document's stored fields.
      *
      * @param document The Lucene document to convert.
      * @return The location instance with data from the document.
      */
     private static Location parseLocation(Document document) {
         LocationBuilder builder = new LocationBuilder();
-        IndexableField[] nameFields = document.getFields(FIELD_NAME);
-        for (IndexableField nameField : nameFields) {
-            String value = nameField.stringValue();
-            if (!value.contains(NAME_LANGUAGE_SEPARATOR)) {
-                builder.setPrimaryName(value);
-            } else {
-                // we have alternative names (either like "New York#", or "New York#en")
-                String[] split = value.split(Pattern.quote(NAME_LANGUAGE_SEPARATOR));
-                String name = split[0];
-                Language language = split.length == 2 ? Language.getByIso6391(split[1]) : null;
-                builder.addAlternativeName(name, language);
-            }
+        for (IndexableField nameField : document.getFields(FIELD_NAME)) {
+            addName(builder, nameField.stringValue());
         }
         builder.setId(Integer.parseInt(document.get(FIELD_ID)));
         builder.setType(LocationType.map(document.get(FIELD_TYPE)));
@@ -241,8 +473,16 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
 
     @Override
     public Location getLocation(int locationId) {
-        Query query = new TermQuery(new Term(FIELD_ID, String.valueOf(locationId)));
-        return queryLocations(query, searcher, reader).stream().findFirst().orElse(null);
+        if (cache != null) {
+            return cache.get(locationId);
+        }
+        Query query;
+        if (docValues) {
+            query = IntPoint.newExactQuery(FIELD_ID, locationId);
+        } else {
+            query = new TermQuery(new Term(FIELD_ID, String.valueOf(locationId)));
+        }
+        return queryLocations(query).stream().findFirst().orElse(null);
     }
 
     @Override
@@ -252,10 +492,11 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
         StopWatch stopWatch = new StopWatch();
         try {
             TopFieldDocs result = searcher.search(query, Integer.MAX_VALUE, sort);
-            List<Location> locations = new ArrayList<>();
-            for (ScoreDoc scoreDoc : result.scoreDocs) {
-                locations.add(parseLocation(searcher.doc(scoreDoc.doc)));
+            int[] docs = new int[result.scoreDocs.length];
+            for (int i = 0; i < docs.length; i++) {
+                docs[i] = result.scoreDocs[i].doc;
             }
+            List<Location> locations = Arrays.asList(loadLocations(docs));
             LOGGER.trace("query {} took {}", query, stopWatch);
             return locations;
         } catch (IOException e) {
@@ -263,40 +504,110 @@ public class LuceneLocationSource extends SingleQueryLocationSource implements C
         }
     }
 
+    @Override
+    public MultiMap<String, Location> getLocations(Collection<String> locationNames, Set<Language> languages) {
+        return getLocations(locationNames, languages, null, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All names are searched with one disjunction query; afterwards, the postings of the name terms are used to
+     * assign the hits back to the given names.
+     */
     @Override
     public MultiMap<String, Location> getLocations(Collection<String> locationNames, Set<Language> languages, GeoCoordinate coordinate, double distance) {
+        StopWatch stopWatch = new StopWatch();
         MultiMap<String, Location> result = DefaultMultiMap.createWithSet();
+        Map<BytesRef, List<String>> termNames = new HashMap<>();
         for (String locationName : locationNames) {
-            BooleanQuery query = createQuery(locationName, languages, coordinate, distance);
-            result.put(locationName, queryLocations(query, searcher, reader));
+            result.addAll(locationName, Collections.emptySet());
+            for (String term : createTerms(locationName, languages)) {
+                termNames.computeIfAbsent(new BytesRef(term), t -> new ArrayList<>(1)).add(locationName);
+            }
+        }
+        if (termNames.isEmpty()) {
+            return result;
+        }
+        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
+        queryBuilder.add(new TermInSetQuery(FIELD_NAME, termNames.keySet()), Occur.FILTER);
+        if (coordinate != null) {
+            queryBuilder.add(createDistanceQuery(coordinate, distance), Occur.FILTER);
+        }
+        try {
+            int[] docs = search(queryBuilder.build());
+            Location[] locations = loadLocations(docs);
+            for (LeafReaderContext leaf : reader.leaves()) {
+                Terms terms = leaf.reader().terms(FIELD_NAME);
+                if (terms == null) {
+                    continue;
+                }
+                TermsEnum termsEnum = terms.iterator();
+                PostingsEnum postings = null;
+                for (Map.Entry<BytesRef, List<String>> entry : termNames.entrySet()) {
+                    if (!termsEnum.seekExact(entry.getKey())) {
+                        continue;
+                    }
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                        int index = Arrays.binarySearch(docs, leaf.docBase + doc);
+                        if (index >= 0) {
+                            for (String locationName : entry.getValue()) {
+                                result.add(locationName, locations[index]);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
         }
+        LOGGER.trace("query for {} names took {}", locationNames.size(), stopWatch);
         return result;
     }
 
+    /**
+     * Create the terms to search for the given location name.
+     *
+     * @param locationName The location name.
+     * @param languages    The languages for the alternative names.
+     * @return The terms: primary name, alternative name without language, and alternative names in all languages.
+     */
+    private static List<String> createTerms(String locationName, Set<Language> languages) {
+        // location name also needs to be processed by analyzer; after all we could just lowercase here,
+        // but in case we change our analyzer, this method keeps it consistent
+        String analyzedName = analyze(locationName);
+        List<String> terms = new ArrayList<>(2 + languages.size());
+        // search for primary names
+        terms.add(analyzedName);
+        // search for alternative names without language determiner
+        terms.add(analyzedName + NAME_LANGUAGE_SEPARATOR);
+        // search for alternative names in all specified languages
+        for (Language language : languages) {
+            terms.add(analyzedName + NAME_LANGUAGE_SEPARATOR + language.getIso6391());
+        }
+        return terms;
+    }
+
+    private static Query createDistanceQuery(GeoCoordinate coordinate, double distance) {
+        return LatLonPoint.newDistanceQuery( //
+                FIELD_LAT_LNG_POINT, //
+                coordinate.getLatitude(), //
+                coordinate.getLongitude(), //
+                distance * 1000 //
+        );
+    }
+
     private static BooleanQuery createQuery(String locationName, Set<Language> languages, GeoCoordinate coordinate, double distance) {
         BooleanQuery.Builder query = new BooleanQuery.Builder();
         if (locationName != null) {
-            // location name also needs to be processed by analyzer; after all we could just lowercase here,
-            // but in case we change our analyzer, this method keeps it consistent
-            String analyzedName = analyze(locationName);
             query.setMinimumNumberShouldMatch(1);
-            // search for primary names
-            query.add(new TermQuery(new Term(FIELD_NAME, analyzedName)), Occur.SHOULD);
-            // search for alternative names without language determiner
-            query.add(new TermQuery(new Term(FIELD_NAME, analyzedName + NAME_LANGUAGE_SEPARATOR)), Occur.SHOULD);
-            // search for alternative names in all specified languages
-            for (Language language : languages) {
-                String nameLanguageString = analyzedName + NAME_LANGUAGE_SEPARATOR + language.getIso6391();
-                query.add(new TermQuery(new Term(FIELD_NAME, nameLanguageString)), Occur.SHOULD);
+            for (String term : createTerms(locationName, languages)) {
+                query.add(new TermQuery(new Term(FIELD_NAME, term)), Occur.SHOULD);
             }
         }
         if (coordinate != null) {
-            query.add(LatLonPoint.newDistanceQuery( //
-                    FIELD_LAT_LNG_POINT, //
-                    coordinate.getLatitude(), //
-                    coordinate.getLongitude(), //
-                    distance * 1000 //
-            ), Occur.FILTER);
+            query.add(createDistanceQuery(coordinate, distance), Occur.FILTER);
         }
         return query.build();
     }
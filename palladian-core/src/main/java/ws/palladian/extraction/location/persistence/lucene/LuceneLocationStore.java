@@ -8,6 +8,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.extraction.location.AlternativeName;
@@ -179,25 +180,7 @@ public final class LuceneLocationStore implements LocationStore {
                             document.add(nameField);
                         }
                     }
-                    // although Lucene offers numeric fields, e.g. IntField, in most cases, except for
-                    // latitude/longitude, we intentionally use StringFields. The JavaDoc says, that those field are
-                    // less space consuming. The numeric fields only need to be used, in case one wants sorting or range
-                    // filtering of the values.
-                    String latLng = document.get(FIELD_LAT_LNG_TEMP);
-                    if (latLng != null) {
-                        String[] split = latLng.split(LAT_LNG_SEPARATOR);
-                        double lat = Double.parseDouble(split[0]);
-                        double lng = Double.parseDouble(split[1]);
-                        // these are used for storing, resp. retrieving lat/lon value
-                        document.add(new StoredField(FIELD_LAT, lat));
-                        document.add(new StoredField(FIELD_LNG, lng));
-                        // this is used for querying by lat/lon
-                        document.add(new LatLonPoint(FIELD_LAT_LNG_POINT, lat, lng));
-                        // this is used for sorting by lat/lon
-                        document.add(new LatLonDocValuesField(FIELD_LAT_LNG_SORT, lat, lng));
-                    }
-                    document.removeField(FIELD_LAT_LNG_TEMP);
-                    resultWriter.addDocument(document);
+                    resultWriter.addDocument(createResultDocument(document));
                     if (++resultModificationCount % COMMIT_INTERVAL == 0) {
                         resultWriter.commit();
                     }
@@ -213,6 +196,53 @@ public final class LuceneLocationStore implements LocationStore {
         FileHelper.delete(tempIndexFile.getPath(), true);
     }
 
+    /**
+     * Create the document for the final index from the temporary document. Only the names are kept as stored fields;
+     * all other values go into doc values, which can be read much faster than stored fields.
+     *
+     * @param document The document from the temporary index, with the alternative names already added.
+     * @return The document for the final index.
+     */
+    private static Document createResultDocument(Document document) {
+        Document resultDocument = new Document();
+        int locationId = Integer.parseInt(document.get(FIELD_ID));
+        // this is used for querying by id
+        resultDocument.add(new IntPoint(FIELD_ID, locationId));
+        resultDocument.add(new NumericDocValuesField(FIELD_ID, locationId));
+        resultDocument.add(new SortedDocValuesField(FIELD_TYPE, new BytesRef(document.get(FIELD_TYPE))));
+        for (IndexableField nameField : document.getFields(FIELD_NAME)) {
+            resultDocument.add(new NameField(FIELD_NAME, nameField.stringValue()));
+        }
+        String latLng = document.get(FIELD_LAT_LNG_TEMP);
+        if (latLng != null) {
+            String[] split = latLng.split(LAT_LNG_SEPARATOR);
+            double lat = Double.parseDouble(split[0]);
+            double lng = Double.parseDouble(split[1]);
+            // these are used for retrieving the exact lat/lon value
+            resultDocument.add(new DoubleDocValuesField(FIELD_LAT, lat));
+            resultDocument.add(new DoubleDocValuesField(FIELD_LNG, lng));
+            // this is used for querying by lat/lon
+            resultDocument.add(new LatLonPoint(FIELD_LAT_LNG_POINT, lat, lng));
+            // this is used for sorting by lat/lon
+            resultDocument.add(new LatLonDocValuesField(FIELD_LAT_LNG_SORT, lat, lng));
+        }
+        String population = document.get(FIELD_POPULATION);
+        if (population != null) {
+            resultDocument.add(new NumericDocValuesField(FIELD_POPULATION, Long.parseLong(population)));
+        }
+        String ancestorIds = document.get(FIELD_ANCESTOR_IDS);
+        if (ancestorIds != null) {
+            // the temporary field contains the hierarchy path, i.e. the ancestor ids in reverse order
+            List<Integer> ancestorIdList = new ArrayList<>();
+            for (String ancestorId : StringUtils.split(ancestorIds, HIERARCHY_SEPARATOR)) {
+                ancestorIdList.add(Integer.parseInt(ancestorId));
+            }
+            Collections.reverse(ancestorIdList);
+            resultDocument.add(new BinaryDocValuesField(FIELD_ANCESTOR_IDS, encodeAncestorIds(ancestorIdList)));
+        }
+        return resultDocument;
+    }
+
     private static final class NameField extends Field {
         private static final FieldType FIELD_TYPE = new FieldType();
 
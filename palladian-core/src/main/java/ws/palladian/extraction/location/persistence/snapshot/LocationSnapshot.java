@@ -0,0 +1,88 @@
+package ws.palladian.extraction.location.persistence.snapshot;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+
+import java.util.Locale;
+
+/**
+ * <p>
+ * The file format of location snapshots, which are written by the {@link SnapshotLocationStore} and read by the
+ * {@link SnapshotLocationSource}. A snapshot is one file with a header, followed by sections of primitive arrays
+ * (struct-of-arrays, big endian), which are memory mapped for reading:
+ * </p>
+ *
+ * <ul>
+ * <li>for each location, ordered by ID: the ID, the type, the coordinate, the population, offsets into the ancestor
+ * IDs and offsets into the names;</li>
+ * <li>the ancestor IDs of all locations;</li>
+ * <li>the names of all locations, for each name the language code (see {@link #PRIMARY_NAME}), the length and the UTF-8
+ * bytes;</li>
+ * <li>the dictionary of distinct normalized names (see {@link #normalize(String)}) with their UTF-8 bytes, and an open
+ * addressing hash table from the names to their ordinals;</li>
+ * <li>a posting list for each name in the dictionary, with the locations and the language codes.</li>
+ * </ul>
+ *
+ * <p>
+ * Types and languages are stored as indices into tables in the header, so that snapshots remain valid when the
+ * enumerations change. Each section must be smaller than 2 GB, which is the limit for memory mapping.
+ * </p>
+ */
+final class LocationSnapshot {
+
+    static final int MAGIC = 0x504c534e;
+
+    static final int VERSION = 1;
+
+    /** Language code for primary names. */
+    static final byte PRIMARY_NAME = 0;
+
+    /**
+     * Language code for alternative names without language; codes from two on are indices into the languages + 2. The
+     * codes are stored as unsigned bytes.
+     */
+    static final byte NO_LANGUAGE = 1;
+
+    /** Population of locations without population. */
+    static final long NO_POPULATION = Long.MIN_VALUE;
+
+    static final int SECTION_IDS = 0;
+    static final int SECTION_TYPES = 1;
+    static final int SECTION_COORDINATES = 2;
+    static final int SECTION_POPULATIONS = 3;
+    static final int SECTION_ANCESTOR_OFFSETS = 4;
+    static final int SECTION_ANCESTOR_IDS = 5;
+    static final int SECTION_NAME_OFFSETS = 6;
+    static final int SECTION_NAMES = 7;
+    static final int SECTION_DICTIONARY_OFFSETS = 8;
+    static final int SECTION_DICTIONARY = 9;
+    static final int SECTION_HASH_TABLE = 10;
+    static final int SECTION_POSTING_OFFSETS = 11;
+    static final int SECTION_POSTINGS = 12;
+    static final int SECTION_POSTING_LANGUAGES = 13;
+    static final int NUM_SECTIONS = 14;
+
+    private LocationSnapshot() {
+        // no instances
+    }
+
+    /**
+     * Normalize a name for lookup, like the analyzer of the Lucene location source: lower case, and diacritics
+     * replaced by their ASCII equivalents (e.g. "Liège" becomes "liege").
+     *
+     * @param name The name.
+     * @return The normalized name.
+     */
+    static String normalize(String name) {
+        char[] input = name.toLowerCase(Locale.ROOT).toCharArray();
+        char[] output = new char[input.length * 4];
+        int length = ASCIIFoldingFilter.foldToASCII(input, 0, output, 0, input.length);
+        return new String(output, 0, length);
+    }
+
+    /** @return The slot in the hash table of the given size (a power of two) for the normalized name. */
+    static int slot(String normalizedName, int tableSize) {
+        return HashCommon.mix(normalizedName.hashCode()) & (tableSize - 1);
+    }
+
+}
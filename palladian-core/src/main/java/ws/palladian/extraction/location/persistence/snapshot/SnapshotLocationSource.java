@@ -0,0 +1,335 @@
+package ws.palladian.extraction.location.persistence.snapshot;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationBuilder;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.extraction.location.sources.SingleQueryLocationSource;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.collection.AbstractIterator2;
+import ws.palladian.helper.collection.DefaultMultiMap;
+import ws.palladian.helper.collection.MultiMap;
+import ws.palladian.helper.constants.Language;
+import ws.palladian.helper.geo.GeoCoordinate;
+import ws.palladian.helper.geo.GeoUtils;
+import ws.palladian.helper.geo.PackedRTree;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static ws.palladian.extraction.location.persistence.snapshot.LocationSnapshot.*;
+
+/**
+ * <p>
+ * A read-only location source, which serves a snapshot written by the {@link SnapshotLocationStore} from memory mapped
+ * files. Opening only maps the file, so that a gazetteer is available in a few seconds, no matter its size; the
+ * operating system pages the data in on demand, and shares it between processes. Lookups by name use a hash table with
+ * the normalized names and their posting lists, lookups by ID a binary search; {@link Location} objects are created
+ * for the results only. For queries by coordinate, an index is built on first use.
+ * </p>
+ *
+ * <p>
+ * The source is thread-safe. The mapping is released when the source is garbage collected.
+ * </p>
+ *
+ * @see LocationSnapshot for the format
+ */
+public final class SnapshotLocationSource extends SingleQueryLocationSource {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotLocationSource.class);
+
+    private final int numLocations;
+    private final LocationType[] typeTable;
+    private final Language[] languageTable;
+
+    private final IntBuffer ids;
+    private final ByteBuffer types;
+    private final FloatBuffer coordinates;
+    private final LongBuffer populations;
+    private final IntBuffer ancestorOffsets;
+    private final IntBuffer ancestorIds;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final IntBuffer dictionaryOffsets;
+    private final ByteBuffer dictionary;
+    private final IntBuffer hashTable;
+    private final IntBuffer postingOffsets;
+    private final IntBuffer postings;
+    private final ByteBuffer postingLanguages;
+
+    /** Index by coordinate with the positions of the locations as IDs; built on first use. */
+    private volatile PackedRTree spatialIndex;
+
+    /**
+     * Open a snapshot.
+     *
+     * @param file The snapshot file, not <code>null</code>.
+     * @throws IllegalStateException In case the file cannot be read, or is not a snapshot.
+     */
+    public SnapshotLocationSource(File file) {
+        Validate.notNull(file, "file must not be null");
+        StopWatch stopWatch = new StopWatch();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            long headerLength;
+            long[] sectionLengths;
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IllegalStateException(file + " is not a location snapshot");
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IllegalStateException("Unsupported snapshot version " + version + " in " + file);
+                }
+                numLocations = in.readInt();
+                in.readInt(); // number of names
+                typeTable = new LocationType[in.readInt()];
+                for (int i = 0; i < typeTable.length; i++) {
+                    typeTable[i] = LocationType.map(in.readUTF());
+                }
+                languageTable = new Language[in.readInt()];
+                for (int i = 0; i < languageTable.length; i++) {
+                    String language = in.readUTF();
+                    languageTable[i] = Arrays.stream(Language.values()).filter(l -> l.name().equals(language)).findFirst().orElse(null);
+                }
+                sectionLengths = new long[in.readInt()];
+                for (int i = 0; i < sectionLengths.length; i++) {
+                    sectionLengths[i] = in.readLong();
+                }
+                headerLength = channel.size() - Arrays.stream(sectionLengths).sum();
+            } finally {
+                in.close();
+            }
+            ByteBuffer[] sections = new ByteBuffer[sectionLengths.length];
+            long offset = headerLength;
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, sectionLengths[i]);
+                offset += sectionLengths[i];
+            }
+            ids = sections[SECTION_IDS].asIntBuffer();
+            types = sections[SECTION_TYPES];
+            coordinates = sections[SECTION_COORDINATES].asFloatBuffer();
+            populations = sections[SECTION_POPULATIONS].asLongBuffer();
+            ancestorOffsets = sections[SECTION_ANCESTOR_OFFSETS].asIntBuffer();
+            ancestorIds = sections[SECTION_ANCESTOR_IDS].asIntBuffer();
+            nameOffsets = sections[SECTION_NAME_OFFSETS].asIntBuffer();
+            names = sections[SECTION_NAMES];
+            dictionaryOffsets = sections[SECTION_DICTIONARY_OFFSETS].asIntBuffer();
+            dictionary = sections[SECTION_DICTIONARY];
+            hashTable = sections[SECTION_HASH_TABLE].asIntBuffer();
+            postingOffsets = sections[SECTION_POSTING_OFFSETS].asIntBuffer();
+            postings = sections[SECTION_POSTINGS].asIntBuffer();
+            postingLanguages = sections[SECTION_POSTING_LANGUAGES];
+        } catch (IOException e) {
+            throw new IllegalStateException("IOException when opening snapshot " + file, e);
+        }
+        LOGGER.debug("Opened snapshot with {} locations in {}", numLocations, stopWatch);
+    }
+
+    @Override
+    public Collection<Location> getLocations(String locationName, Set<Language> languages) {
+        return getLocations(locationName, languages, null, 0);
+    }
+
+    @Override
+    public MultiMap<String, Location> getLocations(Collection<String> locationNames, Set<Language> languages, GeoCoordinate coordinate, double distance) {
+        MultiMap<String, Location> result = DefaultMultiMap.createWithSet();
+        for (String locationName : locationNames) {
+            result.put(locationName, getLocations(locationName, languages, coordinate, distance));
+        }
+        return result;
+    }
+
+    private List<Location> getLocations(String locationName, Set<Language> languages, GeoCoordinate coordinate, double distance) {
+        int ordinal = lookup(normalize(locationName));
+        if (ordinal == -1) {
+            return Collections.emptyList();
+        }
+        IntSet positions = new IntLinkedOpenHashSet();
+        for (int i = postingOffsets.get(ordinal); i < postingOffsets.get(ordinal + 1); i++) {
+            int language = postingLanguages.get(i) & 0xFF;
+            if (language == PRIMARY_NAME || language == NO_LANGUAGE || (languages != null && languages.contains(languageTable[language - 2]))) {
+                positions.add(postings.get(i));
+            }
+        }
+        List<Location> locations = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            if (coordinate != null) {
+                float lat = coordinates.get(2 * position);
+                if (Float.isNaN(lat)) {
+                    continue;
+                }
+                double locationDistance = GeoUtils.computeDistance(coordinate.getLatitude(), coordinate.getLongitude(), lat, coordinates.get(2 * position + 1));
+                if (locationDistance > distance) {
+                    continue;
+                }
+            }
+            locations.add(createLocation(position));
+        }
+        return locations;
+    }
+
+    /**
+     * Look up a name in the dictionary.
+     *
+     * @param normalizedName The normalized name.
+     * @return The ordinal of the name, or -1 in case it does not exist.
+     */
+    private int lookup(String normalizedName) {
+        byte[] bytes = normalizedName.getBytes(StandardCharsets.UTF_8);
+        int tableSize = hashTable.capacity();
+        for (int slot = slot(normalizedName, tableSize); ; slot = (slot + 1) & (tableSize - 1)) {
+            int entry = hashTable.get(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int ordinal = entry - 1;
+            int start = dictionaryOffsets.get(ordinal);
+            if (dictionaryOffsets.get(ordinal + 1) - start == bytes.length && equalBytes(dictionary, start, bytes)) {
+                return ordinal;
+            }
+        }
+    }
+
+    private static boolean equalBytes(ByteBuffer buffer, int start, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Location getLocation(int locationId) {
+        int low = 0;
+        int high = numLocations - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = ids.get(middle);
+            if (id < locationId) {
+                low = middle + 1;
+            } else if (id > locationId) {
+                high = middle - 1;
+            } else {
+                return createLocation(middle);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Location> getLocations(GeoCoordinate coordinate, double distance) {
+        Validate.notNull(coordinate, "coordinate must not be null");
+        Validate.isTrue(distance >= 0, "distance must be greater/equal zero");
+        PackedRTree index = getSpatialIndex();
+        IntArrayList positions = index.findWithin(coordinate.getLatitude(), coordinate.getLongitude(), distance);
+        List<Location> locations = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            locations.add(createLocation(index.getId(positions.getInt(i))));
+        }
+        return locations;
+    }
+
+    private PackedRTree getSpatialIndex() {
+        PackedRTree index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    StopWatch stopWatch = new StopWatch();
+                    IntArrayList positions = new IntArrayList();
+                    for (int position = 0; position < numLocations; position++) {
+                        if (!Float.isNaN(coordinates.get(2 * position))) {
+                            positions.add(position);
+                        }
+                    }
+                    double[] lats = new double[positions.size()];
+                    double[] lngs = new double[positions.size()];
+                    for (int i = 0; i < positions.size(); i++) {
+                        lats[i] = coordinates.get(2 * positions.getInt(i));
+                        lngs[i] = coordinates.get(2 * positions.getInt(i) + 1);
+                    }
+                    index = spatialIndex = new PackedRTree(lats, lngs, positions.toIntArray());
+                    LOGGER.debug("Built spatial index with {} locations in {}", positions.size(), stopWatch);
+                }
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public Iterator<Location> getLocations() {
+        return new AbstractIterator2<Location>() {
+            int position = 0;
+
+            @Override
+            protected Location getNext() {
+                if (position < numLocations) {
+                    return createLocation(position++);
+                }
+                return finished();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return numLocations;
+    }
+
+    /**
+     * Create the location at the given position.
+     *
+     * @param position The position in the snapshot (not the ID).
+     * @return The location.
+     */
+    private Location createLocation(int position) {
+        LocationBuilder builder = new LocationBuilder();
+        builder.setId(ids.get(position));
+        builder.setType(typeTable[types.get(position) & 0xFF]);
+        float lat = coordinates.get(2 * position);
+        if (!Float.isNaN(lat)) {
+            builder.setCoordinate(lat, coordinates.get(2 * position + 1));
+        }
+        long population = populations.get(position);
+        builder.setPopulation(population != NO_POPULATION ? population : null);
+        int ancestorStart = ancestorOffsets.get(position);
+        int[] ancestors = new int[ancestorOffsets.get(position + 1) - ancestorStart];
+        ancestorIds.get(ancestorStart, ancestors);
+        builder.setAncestorIds(ancestors);
+        int end = nameOffsets.get(position + 1);
+        for (int offset = nameOffsets.get(position); offset < end; ) {
+            int language = names.get(offset++) & 0xFF;
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = names.get(offset++);
+                length |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            byte[] bytes = new byte[length];
+            names.get(offset, bytes);
+            offset += length;
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            if (language == PRIMARY_NAME) {
+                builder.setPrimaryName(name);
+            } else {
+                builder.addAlternativeName(name, language == NO_LANGUAGE ? null : languageTable[language - 2]);
+            }
+        }
+        return builder.create();
+    }
+
+}
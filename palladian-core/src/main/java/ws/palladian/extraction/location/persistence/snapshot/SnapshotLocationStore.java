@@ -0,0 +1,285 @@
+package ws.palladian.extraction.location.persistence.snapshot;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.extraction.location.AlternativeName;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationSource;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.extraction.location.sources.LocationStore;
+import ws.palladian.helper.NoProgress;
+import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.constants.Language;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static ws.palladian.extraction.location.persistence.snapshot.LocationSnapshot.*;
+
+/**
+ * <p>
+ * Writes a snapshot of locations, which can be served by a {@link SnapshotLocationSource}. The locations are collected
+ * in memory during the import and written to the file in {@link #finishImport(ProgressReporter)}. Use
+ * {@link #write(LocationSource, File)} to create a snapshot from an existing source (e.g. a Lucene index).
+ * </p>
+ *
+ * @see LocationSnapshot for the format
+ */
+public final class SnapshotLocationStore implements LocationStore {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotLocationStore.class);
+
+    private final File file;
+
+    private final Int2ObjectMap<Location> locations = new Int2ObjectOpenHashMap<>();
+
+    /** Alternative names which were added separately via {@link #addAlternativeNames(int, Collection)}. */
+    private final Int2ObjectMap<List<AlternativeName>> additionalNames = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * @param file The file for the snapshot, which must not exist.
+     */
+    public SnapshotLocationStore(File file) {
+        Validate.notNull(file, "file must not be null");
+        if (file.exists()) {
+            throw new IllegalArgumentException(file + " already exists. Delete the snapshot or specify a different path");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Write a snapshot with all locations of the given source.
+     *
+     * @param source The source.
+     * @param file   The file for the snapshot, which must not exist.
+     */
+    public static void write(LocationSource source, File file) {
+        Validate.notNull(source, "source must not be null");
+        SnapshotLocationStore store = new SnapshotLocationStore(file);
+        store.startImport();
+        source.getLocations().forEachRemaining(store::save);
+        store.finishImport();
+    }
+
+    @Override
+    public void save(Location location) {
+        locations.put(location.getId(), location);
+    }
+
+    @Override
+    public void addAlternativeNames(int locationId, Collection<AlternativeName> alternativeNames) {
+        additionalNames.computeIfAbsent(locationId, k -> new ArrayList<>()).addAll(alternativeNames);
+    }
+
+    @Override
+    public int getHighestId() {
+        return locations.keySet().intStream().max().orElse(0);
+    }
+
+    @Override
+    public void startImport() {
+        locations.clear();
+        additionalNames.clear();
+    }
+
+    @Override
+    public void finishImport(ProgressReporter progress) {
+        StopWatch stopWatch = new StopWatch();
+        try {
+            writeSnapshot(progress != null ? progress : NoProgress.INSTANCE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Encountered IOException while writing the snapshot to " + file, e);
+        }
+        LOGGER.debug("Wrote snapshot with {} locations to {} in {}", locations.size(), file, stopWatch);
+    }
+
+    private void writeSnapshot(ProgressReporter progress) throws IOException {
+        int[] ids = locations.keySet().toIntArray();
+        Arrays.sort(ids);
+        int numLocations = ids.length;
+        LocationType[] typeTable = LocationType.values();
+        Language[] languageTable = Language.values();
+        if (languageTable.length + 2 > 256 || typeTable.length > 256) {
+            throw new IllegalStateException("Languages and types must fit into unsigned bytes");
+        }
+
+        byte[] types = new byte[numLocations];
+        float[] coordinates = new float[numLocations * 2];
+        long[] populations = new long[numLocations];
+        int[] ancestorOffsets = new int[numLocations + 1];
+        IntArrayList ancestorIds = new IntArrayList();
+        int[] nameOffsets = new int[numLocations + 1];
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        Object2IntMap<String> dictionary = new Object2IntOpenHashMap<>();
+        List<String> dictionaryNames = new ArrayList<>();
+        // ordinal, location, language for each name of each location
+        IntArrayList postingOrdinals = new IntArrayList();
+        IntArrayList postingLocations = new IntArrayList();
+        ByteArrayOutputStream postingLanguages = new ByteArrayOutputStream();
+
+        progress.startTask("Writing snapshot", numLocations);
+        for (int i = 0; i < numLocations; i++) {
+            Location location = locations.get(ids[i]);
+            types[i] = (byte) location.getType().ordinal();
+            if (location.getCoordinate() != null) {
+                coordinates[2 * i] = (float) location.getCoordinate().getLatitude();
+                coordinates[2 * i + 1] = (float) location.getCoordinate().getLongitude();
+            } else {
+                coordinates[2 * i] = Float.NaN;
+                coordinates[2 * i + 1] = Float.NaN;
+            }
+            populations[i] = location.getPopulation() != null ? location.getPopulation() : NO_POPULATION;
+            if (location.getAncestorIds() != null) {
+                ancestorIds.addAll(location.getAncestorIds());
+            }
+            ancestorOffsets[i + 1] = ancestorIds.size();
+
+            List<AlternativeName> alternativeNames = new ArrayList<>(location.getAlternativeNames());
+            alternativeNames.addAll(additionalNames.getOrDefault(location.getId(), Collections.emptyList()));
+            writeName(names, PRIMARY_NAME, location.getPrimaryName());
+            addPosting(dictionary, dictionaryNames, location.getPrimaryName(), i, PRIMARY_NAME, postingOrdinals, postingLocations, postingLanguages);
+            for (AlternativeName alternativeName : alternativeNames) {
+                byte language = alternativeName.getLanguage() != null ? (byte) (alternativeName.getLanguage().ordinal() + 2) : NO_LANGUAGE;
+                writeName(names, language, alternativeName.getName());
+                addPosting(dictionary, dictionaryNames, alternativeName.getName(), i, language, postingOrdinals, postingLocations, postingLanguages);
+            }
+            nameOffsets[i + 1] = names.size();
+            progress.increment();
+        }
+        progress.finishTask();
+
+        // dictionary and hash table
+        int numNames = dictionaryNames.size();
+        int[] dictionaryOffsets = new int[numNames + 1];
+        ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        int tableSize = Integer.highestOneBit(Math.max(2, numNames * 2 - 1)) << 1;
+        int[] hashTable = new int[tableSize];
+        for (int ordinal = 0; ordinal < numNames; ordinal++) {
+            String name = dictionaryNames.get(ordinal);
+            dictionaryBytes.write(name.getBytes(StandardCharsets.UTF_8));
+            dictionaryOffsets[ordinal + 1] = dictionaryBytes.size();
+            int slot = slot(name, tableSize);
+            while (hashTable[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            hashTable[slot] = ordinal + 1;
+        }
+
+        // group the postings by name
+        int numPostings = postingOrdinals.size();
+        int[] postingOffsets = new int[numNames + 1];
+        for (int i = 0; i < numPostings; i++) {
+            postingOffsets[postingOrdinals.getInt(i) + 1]++;
+        }
+        for (int ordinal = 0; ordinal < numNames; ordinal++) {
+            postingOffsets[ordinal + 1] += postingOffsets[ordinal];
+        }
+        int[] positions = Arrays.copyOf(postingOffsets, numNames);
+        int[] postings = new int[numPostings];
+        byte[] languages = new byte[numPostings];
+        byte[] unsortedLanguages = postingLanguages.toByteArray();
+        for (int i = 0; i < numPostings; i++) {
+            int position = positions[postingOrdinals.getInt(i)]++;
+            postings[position] = postingLocations.getInt(i);
+            languages[position] = unsortedLanguages[i];
+        }
+
+        long[] sectionLengths = new long[NUM_SECTIONS];
+        sectionLengths[SECTION_IDS] = 4L * numLocations;
+        sectionLengths[SECTION_TYPES] = numLocations;
+        sectionLengths[SECTION_COORDINATES] = 8L * numLocations;
+        sectionLengths[SECTION_POPULATIONS] = 8L * numLocations;
+        sectionLengths[SECTION_ANCESTOR_OFFSETS] = 4L * (numLocations + 1);
+        sectionLengths[SECTION_ANCESTOR_IDS] = 4L * ancestorIds.size();
+        sectionLengths[SECTION_NAME_OFFSETS] = 4L * (numLocations + 1);
+        sectionLengths[SECTION_NAMES] = names.size();
+        sectionLengths[SECTION_DICTIONARY_OFFSETS] = 4L * (numNames + 1);
+        sectionLengths[SECTION_DICTIONARY] = dictionaryBytes.size();
+        sectionLengths[SECTION_HASH_TABLE] = 4L * tableSize;
+        sectionLengths[SECTION_POSTING_OFFSETS] = 4L * (numNames + 1);
+        sectionLengths[SECTION_POSTINGS] = 4L * numPostings;
+        sectionLengths[SECTION_POSTING_LANGUAGES] = numPostings;
+        for (long sectionLength : sectionLengths) {
+            if (sectionLength > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Section with " + sectionLength + " bytes exceeds the maximum size");
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numLocations);
+            out.writeInt(numNames);
+            out.writeInt(typeTable.length);
+            for (LocationType type : typeTable) {
+                out.writeUTF(type.name());
+            }
+            out.writeInt(languageTable.length);
+            for (Language language : languageTable) {
+                out.writeUTF(language.name());
+            }
+            out.writeInt(NUM_SECTIONS);
+            for (long sectionLength : sectionLengths) {
+                out.writeLong(sectionLength);
+            }
+            writeInts(out, ids);
+            out.write(types);
+            for (float coordinate : coordinates) {
+                out.writeFloat(coordinate);
+            }
+            for (long population : populations) {
+                out.writeLong(population);
+            }
+            writeInts(out, ancestorOffsets);
+            writeInts(out, ancestorIds.toIntArray());
+            writeInts(out, nameOffsets);
+            names.writeTo(out);
+            writeInts(out, dictionaryOffsets);
+            dictionaryBytes.writeTo(out);
+            writeInts(out, hashTable);
+            writeInts(out, postingOffsets);
+            writeInts(out, postings);
+            out.write(languages);
+        }
+    }
+
+    private static void addPosting(Object2IntMap<String> dictionary, List<String> dictionaryNames, String name, int location, byte language, IntArrayList postingOrdinals,
+            IntArrayList postingLocations, ByteArrayOutputStream postingLanguages) {
+        String normalizedName = normalize(name);
+        int ordinal = dictionary.computeIfAbsent(normalizedName, k -> {
+            dictionaryNames.add(normalizedName);
+            return dictionaryNames.size() - 1;
+        });
+        postingOrdinals.add(ordinal);
+        postingLocations.add(location);
+        postingLanguages.write(language);
+    }
+
+    private static void writeName(ByteArrayOutputStream out, byte language, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.write(language);
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+}
@@ -5,7 +5,6 @@ import org.apache.commons.lang3.Validate;
 import ws.palladian.extraction.location.Location;
 import ws.palladian.extraction.location.LocationSource;
 import ws.palladian.helper.collection.DefaultMultiMap;
-import ws.palladian.helper.collection.LruMap;
 import ws.palladian.helper.collection.MultiMap;
 import ws.palladian.helper.constants.Language;
 import ws.palladian.helper.geo.GeoCoordinate;
@@ -14,53 +13,48 @@ import java.util.*;
 
 /**
  * <p>
- * Cache decorator, useful for Web- and database-based {@link LocationSource}s.
+ * Cache decorator, useful for Web- and database-based {@link LocationSource}s. The cache is thread-safe, so that one
+ * instance can be shared between threads. Unknown names and IDs are cached as well, and concurrent misses for the same
+ * name, ID or coordinate are passed to the wrapped source only once. The caches are bounded by the number of contained
+ * locations; see {@link #getStatistics()} for hit rates and load times.
  * </p>
  *
  * @author Philipp Katz
  */
 public final class CachingLocationSource extends MultiQueryLocationSource {
 
-    /** The default cache size to use in case not specified. */
-    public static final int DEFAULT_CACHE_SIZE = 5000;
+    /**
+     * The default cache size (number of locations) to use in case not specified; this holds about 5,000 queries with
+     * ten locations each.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 50_000;
 
-    private final LruMap<String, Collection<Location>> nameCache;
+    private final WeightedCache<String, Collection<Location>> nameCache;
 
-    private final LruMap<Integer, Location> idCache;
+    private final WeightedCache<Integer, Location> idCache;
 
-    private final LruMap<String, List<Location>> coordinateCache;
+    private final WeightedCache<String, List<Location>> coordinateCache;
 
     private final LocationSource wrapped;
 
     private final int size;
 
-    /** Number of items for which we had a cache hit. */
-    private int cacheHits = 0;
-
-    /** Number of items for which we had a cache miss. */
-    private int cacheMisses = 0;
-
-    /** Number of total requests. */
-    private int requests = 0;
-
-    /** Number of total requests which had to be passed to the wrapped source. */
-    private int passedRequests = 0;
-
     /**
      * <p>
      * Create a new {@link CachingLocationSource}.
      * </p>
      *
      * @param wrapped The location source to wrap, not <code>null</code>.
-     * @param size    The size of the cache, greater zero.
+     * @param size    The size of each cache (by names, by IDs, by coordinates) as number of locations, greater zero;
+     *                each cached query counts at least one.
      */
     public CachingLocationSource(LocationSource wrapped, int size) {
         Validate.notNull(wrapped, "wrapped must not be null");
         Validate.isTrue(size > 0, "size must be greater zero");
         this.wrapped = wrapped;
-        this.nameCache = LruMap.insertionOrder(size);
-        this.idCache = LruMap.insertionOrder(size);
-        this.coordinateCache = LruMap.insertionOrder(size);
+        this.nameCache = new WeightedCache<>(size, Collection::size);
+        this.idCache = new WeightedCache<>(size, location -> 1);
+        this.coordinateCache = new WeightedCache<>(size, List::size);
         this.size = size;
     }
 
@@ -77,36 +71,28 @@ public final class CachingLocationSource extends MultiQueryLocationSource {
 
     @Override
     public MultiMap<String, Location> getLocations(Collection<String> locationNames, Set<Language> languages) {
-        MultiMap<String, Location> result = DefaultMultiMap.createWithSet();
-        Set<String> needsLookup = new HashSet<>();
-        requests++;
-
+        Map<String, String> identifiers = new LinkedHashMap<>();
         for (String locationName : locationNames) {
-            String identifier = createIdentifier(languages, locationName);
-            Collection<Location> cachedLocations = nameCache.get(identifier);
-            if (cachedLocations != null) {
-                result.put(locationName, cachedLocations);
-                cacheHits++;
-            } else {
-                needsLookup.add(locationName);
-                cacheMisses++;
-            }
+            identifiers.put(createIdentifier(languages, locationName), locationName);
         }
-
-        // get the unresolved names from the underlying location source
-        if (needsLookup.size() > 0) {
-            passedRequests++;
-            MultiMap<String, Location> retrievedLocations = wrapped.getLocations(needsLookup, languages);
-            for (String locationName : needsLookup) {
-                Collection<Location> locations = retrievedLocations.get(locationName);
-                String identifier = createIdentifier(languages, locationName);
-                nameCache.put(identifier, locations != null ? locations : Collections.<Location>emptySet());
-                if (locations != null) {
-                    result.put(locationName, locations);
-                }
+        Map<String, Collection<Location>> cachedLocations = nameCache.getAll(identifiers.keySet(), needsLookup -> {
+            // get the unresolved names from the underlying location source
+            List<String> names = new ArrayList<>();
+            for (String identifier : needsLookup) {
+                names.add(identifiers.get(identifier));
+            }
+            MultiMap<String, Location> retrievedLocations = wrapped.getLocations(names, languages);
+            Map<String, Collection<Location>> result = new HashMap<>();
+            for (String identifier : needsLookup) {
+                Collection<Location> locations = retrievedLocations.get(identifiers.get(identifier));
+                result.put(identifier, locations != null ? locations : Collections.emptySet());
             }
+            return result;
+        });
+        MultiMap<String, Location> result = DefaultMultiMap.createWithSet();
+        for (Map.Entry<String, String> entry : identifiers.entrySet()) {
+            result.put(entry.getValue(), cachedLocations.get(entry.getKey()));
         }
-
         return result;
     }
 
@@ -123,33 +109,19 @@ public final class CachingLocationSource extends MultiQueryLocationSource {
 
     @Override
     public List<Location> getLocations(List<Integer> locationIds) {
-        Map<Integer, Location> tempResult = new HashMap<>();
-        Set<Integer> needsLookup = new HashSet<>();
-        requests++;
-
-        for (Integer locationId : locationIds) {
-            Location cachedLocation = idCache.get(locationId);
-            if (cachedLocation != null) {
-                tempResult.put(locationId, cachedLocation);
-                cacheHits++;
-            } else {
-                needsLookup.add(locationId);
-                cacheMisses++;
-            }
-        }
-
-        // get the unresolved IDs from the underlying location source
-        if (needsLookup.size() > 0) {
-            passedRequests++;
-            List<Location> retrievedLocations = wrapped.getLocations(new ArrayList<Integer>(needsLookup));
-            for (Location location : retrievedLocations) {
-                tempResult.put(location.getId(), location);
+        Map<Integer, Location> cachedLocations = idCache.getAll(locationIds, needsLookup -> {
+            // get the unresolved IDs from the underlying location source
+            Map<Integer, Location> result = new HashMap<>();
+            for (Location location : wrapped.getLocations(new ArrayList<>(needsLookup))) {
+                if (location != null) {
+                    result.put(location.getId(), location);
+                }
             }
-        }
-
+            return result;
+        });
         List<Location> result = new ArrayList<>();
         for (Integer locationId : locationIds) {
-            result.add(tempResult.get(locationId));
+            result.add(cachedLocations.get(locationId));
         }
         return result;
     }
@@ -157,14 +129,35 @@ public final class CachingLocationSource extends MultiQueryLocationSource {
     @Override
     public List<Location> getLocations(GeoCoordinate coordinate, double distance) {
         String identifier = coordinate.getLatitude() + "#" + coordinate.getLongitude() + "#" + distance;
-        List<Location> locations = coordinateCache.get(identifier);
-        requests++;
-        if (locations == null) {
-            locations = wrapped.getLocations(coordinate, distance);
-            coordinateCache.put(identifier, locations);
-            passedRequests++;
-        }
-        return locations;
+        return coordinateCache.get(identifier, k -> wrapped.getLocations(coordinate, distance));
+    }
+
+    /**
+     * @return The statistics of all caches combined.
+     */
+    public Statistics getStatistics() {
+        return getNameStatistics().plus(getIdStatistics()).plus(getCoordinateStatistics());
+    }
+
+    /**
+     * @return The statistics of the cache for queries by name.
+     */
+    public Statistics getNameStatistics() {
+        return nameCache.statistics();
+    }
+
+    /**
+     * @return The statistics of the cache for queries by ID.
+     */
+    public Statistics getIdStatistics() {
+        return idCache.statistics();
+    }
+
+    /**
+     * @return The statistics of the cache for queries by coordinate.
+     */
+    public Statistics getCoordinateStatistics() {
+        return coordinateCache.statistics();
     }
 
     @Override
@@ -174,15 +167,106 @@ public final class CachingLocationSource extends MultiQueryLocationSource {
         stringBuilder.append(" (");
         stringBuilder.append(wrapped);
         stringBuilder.append(", MaxCacheSize=").append(size);
-        stringBuilder.append(", Hits=").append(cacheHits);
-        stringBuilder.append(", Misses=").append(cacheMisses);
-        stringBuilder.append(", Requests=").append(requests);
-        stringBuilder.append(", PassedRequests=").append(passedRequests);
-        stringBuilder.append(", NameCacheSize=").append(nameCache.size());
-        stringBuilder.append(", IdCacheSize=").append(idCache.size());
-        stringBuilder.append(", CoordinateCacheSize=").append(coordinateCache.size());
+        stringBuilder.append(", NameCache=").append(getNameStatistics());
+        stringBuilder.append(", IdCache=").append(getIdStatistics());
+        stringBuilder.append(", CoordinateCache=").append(getCoordinateStatistics());
         stringBuilder.append(")");
         return stringBuilder.toString();
     }
 
+    /**
+     * Snapshot of the statistics of a cache; the counts are per name, ID or coordinate (not per request).
+     */
+    public static final class Statistics {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long coalescedCount;
+        private final long loadCount;
+        private final long totalLoadTime;
+        private final long evictionCount;
+        private final int size;
+        private final long weight;
+
+        Statistics(long hitCount, long missCount, long coalescedCount, long loadCount, long totalLoadTime, long evictionCount, int size, long weight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.coalescedCount = coalescedCount;
+            this.loadCount = loadCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        Statistics plus(Statistics other) {
+            return new Statistics(hitCount + other.hitCount, missCount + other.missCount, coalescedCount + other.coalescedCount, loadCount + other.loadCount,
+                    totalLoadTime + other.totalLoadTime, evictionCount + other.evictionCount, size + other.size, weight + other.weight);
+        }
+
+        /** @return The number of lookups. */
+        public long getRequestCount() {
+            return hitCount + missCount;
+        }
+
+        /** @return The number of lookups which were answered from the cache. */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /** @return The number of lookups which were not in the cache (including the coalesced ones). */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /** @return The number of misses which waited for a load by another thread instead of querying the source. */
+        public long getCoalescedCount() {
+            return coalescedCount;
+        }
+
+        /** @return The ratio of hits and lookups, or one in case there were no lookups. */
+        public double getHitRate() {
+            long requestCount = getRequestCount();
+            return requestCount == 0 ? 1 : (double) hitCount / requestCount;
+        }
+
+        /** @return The number of requests which were passed to the wrapped source. */
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        /** @return The total time of the requests to the wrapped source in nanoseconds. */
+        public long getTotalLoadTime() {
+            return totalLoadTime;
+        }
+
+        /** @return The average time of a request to the wrapped source in nanoseconds, or zero. */
+        public double getAverageLoadTime() {
+            return loadCount == 0 ? 0 : (double) totalLoadTime / loadCount;
+        }
+
+        /** @return The number of entries which were removed to keep the size. */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /** @return The number of cached entries. */
+        public int getSize() {
+            return size;
+        }
+
+        /** @return The number of cached locations, where entries without locations count one. */
+        public long getWeight() {
+            return weight;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics [requests=" + getRequestCount() + ", hitRate=" + String.format(Locale.ROOT, "%.3f", getHitRate()) + ", coalesced=" + coalescedCount
+                    + ", loads=" + loadCount + ", averageLoadTime=" + String.format(Locale.ROOT, "%.3fms", getAverageLoadTime() / 1e6) + ", evictions="
+                    + evictionCount + ", size=" + size + ", weight=" + weight + "]";
+        }
+
+    }
+
 }
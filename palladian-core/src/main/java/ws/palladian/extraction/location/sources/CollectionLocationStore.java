@@ -1,5 +1,7 @@
 package ws.palladian.extraction.location.sources;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.extraction.location.AbstractLocation;
@@ -10,6 +12,7 @@ import ws.palladian.helper.collection.DefaultMultiMap;
 import ws.palladian.helper.collection.MultiMap;
 import ws.palladian.helper.constants.Language;
 import ws.palladian.helper.geo.GeoCoordinate;
+import ws.palladian.helper.geo.PackedRTree;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -30,6 +33,9 @@ public class CollectionLocationStore extends SingleQueryLocationSource implement
 
     private final MultiMap<String, MutableLocation> namesLocations = DefaultMultiMap.createWithSet();
 
+    /** Index of the locations with coordinates; built on first use and discarded when locations are saved. */
+    private volatile PackedRTree spatialIndex;
+
     @Override
     public Collection<Location> getLocations(String locationName, Set<Language> languages) {
         LOGGER.warn("getLocations(String,EnumSet<Language>) is not supported, ignoring language parameter");
@@ -40,6 +46,7 @@ public class CollectionLocationStore extends SingleQueryLocationSource implement
     public void save(Location location) {
         MutableLocation locationCopy = new MutableLocation(location);
         idLocation.put(location.getId(), locationCopy);
+        spatialIndex = null;
         namesLocations.add(location.getPrimaryName().toLowerCase(), locationCopy);
         for (AlternativeName alternativeName : location.getAlternativeNames()) {
             namesLocations.add(alternativeName.getName().toLowerCase(), locationCopy);
@@ -51,6 +58,46 @@ public class CollectionLocationStore extends SingleQueryLocationSource implement
         return idLocation.get(locationId);
     }
 
+    @Override
+    public List<Location> getLocations(GeoCoordinate coordinate, double distance) {
+        Validate.notNull(coordinate, "coordinate must not be null");
+        Validate.isTrue(distance >= 0, "distance must be greater/equal zero");
+        PackedRTree index = getSpatialIndex();
+        IntArrayList indices = index.findWithin(coordinate.getLatitude(), coordinate.getLongitude(), distance);
+        List<Location> locations = new ArrayList<>(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            locations.add(idLocation.get(index.getId(indices.getInt(i))));
+        }
+        return locations;
+    }
+
+    private PackedRTree getSpatialIndex() {
+        PackedRTree index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    List<MutableLocation> locations = new ArrayList<>();
+                    for (MutableLocation location : idLocation.values()) {
+                        if (location.coordinate != null) {
+                            locations.add(location);
+                        }
+                    }
+                    double[] lats = new double[locations.size()];
+                    double[] lngs = new double[locations.size()];
+                    int[] ids = new int[locations.size()];
+                    for (int i = 0; i < locations.size(); i++) {
+                        lats[i] = locations.get(i).coordinate.getLatitude();
+                        lngs[i] = locations.get(i).coordinate.getLongitude();
+                        ids[i] = locations.get(i).id;
+                    }
+                    index = spatialIndex = new PackedRTree(lats, lngs, ids);
+                }
+            }
+        }
+        return index;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -21,7 +21,7 @@ import java.util.*;
 public abstract class SingleQueryLocationSource implements LocationSource {
 
     @Override
-    public final MultiMap<String, Location> getLocations(Collection<String> locationNames, Set<Language> languages) {
+    public MultiMap<String, Location> getLocations(Collection<String> locationNames, Set<Language> languages) {
         MultiMap<String, Location> locationMap = DefaultMultiMap.createWithSet();
         for (String locationName : locationNames) {
             locationMap.put(locationName, getLocations(locationName, languages));
@@ -0,0 +1,249 @@
+package ws.palladian.extraction.location.sources;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.apache.commons.lang3.Validate;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p>
+ * Thread-safe cache, which is bounded by the total weight of its entries. The entries are distributed over segments,
+ * each of which is a LRU map with its own lock. The weight is limited for the whole cache: when it is exceeded, the
+ * least recently used entries of the segment which was written are evicted first, then those of the other segments.
+ * Only entries which are heavier than the whole cache are not cached. Values may be <code>null</code>, so that misses
+ * of the backend are cached as well. Concurrent misses for the same key are coalesced, i.e. only the first thread loads
+ * the value, the others wait for its result.
+ * </p>
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+final class WeightedCache<K, V> {
+
+    /** Marker for cached <code>null</code> values. */
+    private static final Object NULL = new Object();
+
+    /** The maximum number of segments. */
+    private static final int MAX_SEGMENTS = 16;
+
+    /** The minimum weight per segment, for determining the number of segments. */
+    private static final long MIN_SEGMENT_WEIGHT = 64;
+
+    private final Segment[] segments;
+
+    private final ToIntFunction<V> weigher;
+
+    private final long maxWeight;
+
+    private final AtomicLong weight = new AtomicLong();
+
+    private final Map<K, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxWeight The maximum total weight, greater zero.
+     * @param weigher   The weight of a non-<code>null</code> value; entries weigh at least one.
+     */
+    @SuppressWarnings("unchecked")
+    WeightedCache(long maxWeight, ToIntFunction<V> weigher) {
+        Validate.isTrue(maxWeight > 0, "maxWeight must be greater zero");
+        Validate.notNull(weigher, "weigher must not be null");
+        int numSegments = 1;
+        while (numSegments < MAX_SEGMENTS && maxWeight / (numSegments * 2) >= MIN_SEGMENT_WEIGHT) {
+            numSegments *= 2;
+        }
+        segments = (Segment[]) new WeightedCache<?, ?>.Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment();
+        }
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Get the values for the given keys, and load the missing ones in one batch.
+     *
+     * @param keys   The keys.
+     * @param loader Loads the values for the given keys; missing keys in the returned map are cached as
+     *               <code>null</code>.
+     * @return A map with the value (or <code>null</code>) for each of the given keys.
+     */
+    Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        Map<K, CompletableFuture<Object>> claimed = new LinkedHashMap<>();
+        Map<K, CompletableFuture<Object>> waiting = new HashMap<>();
+        for (K key : keys) {
+            if (result.containsKey(key) || claimed.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            Object value = segment(key).get(key);
+            if (value != null) {
+                hits.increment();
+                result.put(key, unmask(value));
+                continue;
+            }
+            misses.increment();
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+            if (existing != null) {
+                coalesced.increment();
+                waiting.put(key, existing);
+                continue;
+            }
+            // another thread might have finished loading in the meantime
+            value = segment(key).get(key);
+            if (value != null) {
+                loading.remove(key, future);
+                future.complete(value);
+                result.put(key, unmask(value));
+            } else {
+                claimed.put(key, future);
+            }
+        }
+        if (!claimed.isEmpty()) {
+            loads.increment();
+            long start = System.nanoTime();
+            Map<K, V> loaded;
+            try {
+                loaded = loader.apply(Collections.unmodifiableSet(new LinkedHashSet<>(claimed.keySet())));
+            } catch (RuntimeException | Error e) {
+                for (Map.Entry<K, CompletableFuture<Object>> entry : claimed.entrySet()) {
+                    loading.remove(entry.getKey(), entry.getValue());
+                    entry.getValue().completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                loadTime.add(System.nanoTime() - start);
+            }
+            for (Map.Entry<K, CompletableFuture<Object>> entry : claimed.entrySet()) {
+                K key = entry.getKey();
+                V value = loaded.get(key);
+                put(key, value != null ? value : NULL, value != null ? Math.max(1, weigher.applyAsInt(value)) : 1);
+                loading.remove(key, entry.getValue());
+                entry.getValue().complete(value != null ? value : NULL);
+                result.put(key, value);
+            }
+        }
+        for (Map.Entry<K, CompletableFuture<Object>> entry : waiting.entrySet()) {
+            try {
+                result.put(entry.getKey(), unmask(entry.getValue().join()));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the value for the given key, and load it in case it is missing.
+     *
+     * @param key    The key.
+     * @param loader Loads the value for the key; <code>null</code> is cached as well.
+     * @return The value, or <code>null</code>.
+     */
+    V get(K key, Function<K, V> loader) {
+        return getAll(Collections.singleton(key), keys -> Collections.singletonMap(key, loader.apply(key))).get(key);
+    }
+
+    /** @return The number of entries. */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** @return The total weight of the entries. */
+    long weight() {
+        return weight.get();
+    }
+
+    /** @return A snapshot of the statistics. */
+    CachingLocationSource.Statistics statistics() {
+        return new CachingLocationSource.Statistics(hits.sum(), misses.sum(), coalesced.sum(), loads.sum(), loadTime.sum(), evictions.sum(), size(), weight());
+    }
+
+    private int segmentIndex(K key) {
+        return HashCommon.mix(key.hashCode()) & (segments.length - 1);
+    }
+
+    private Segment segment(K key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private void put(K key, Object value, int valueWeight) {
+        if (valueWeight > maxWeight) {
+            return; // would replace everything else
+        }
+        int index = segmentIndex(key);
+        segments[index].put(key, value, valueWeight);
+        for (int i = 1; i < segments.length && weight.get() > maxWeight; i++) {
+            segments[(index + i) & (segments.length - 1)].evict(null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unmask(Object value) {
+        return value == NULL ? null : (V) value;
+    }
+
+    private final class Segment {
+
+        /** The entries in access order, with the value and its weight. */
+        private final LinkedHashMap<K, Map.Entry<Object, Integer>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized Object get(K key) {
+            Map.Entry<Object, Integer> entry = entries.get(key);
+            return entry != null ? entry.getKey() : null;
+        }
+
+        synchronized void put(K key, Object value, int valueWeight) {
+            Map.Entry<Object, Integer> previous = entries.put(key, new AbstractMap.SimpleImmutableEntry<>(value, valueWeight));
+            weight.addAndGet(valueWeight - (previous != null ? previous.getValue() : 0));
+            evict(key);
+        }
+
+        /**
+         * Evict the least recently used entries, until the weight of the cache is within its limit, or this segment has
+         * no more entries.
+         *
+         * @param keep The key which must not be evicted, or <code>null</code>.
+         */
+        synchronized void evict(K keep) {
+            Iterator<Map.Entry<K, Map.Entry<Object, Integer>>> iterator = entries.entrySet().iterator();
+            while (weight.get() > maxWeight && iterator.hasNext()) {
+                Map.Entry<K, Map.Entry<Object, Integer>> entry = iterator.next();
+                if (entry.getKey().equals(keep)) {
+                    continue;
+                }
+                weight.addAndGet(-entry.getValue().getValue());
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+    }
+
+}
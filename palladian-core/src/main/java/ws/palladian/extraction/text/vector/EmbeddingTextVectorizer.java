@@ -1,5 +1,6 @@
 package ws.palladian.extraction.text.vector;
 
+import org.apache.commons.lang3.tuple.Pair;
 import ws.palladian.core.FeatureVector;
 import ws.palladian.core.InstanceBuilder;
 import ws.palladian.core.dataset.AbstractDatasetFeatureVectorTransformer;
@@ -34,11 +35,30 @@ public class EmbeddingTextVectorizer extends AbstractDatasetFeatureVectorTransfo
 
     @Override
     public FeatureVector apply(FeatureVector featureVector) {
-        String textValue = getTextValue(featureVector);
+        float[] documentVector = vectorize(getTextValue(featureVector));
+
+        InstanceBuilder vectorBuilder = new InstanceBuilder();
+        for (int i = 0; i < documentVector.length; i++) {
+            vectorBuilder.set("embedding-" + i, documentVector[i]);
+        }
+
+        return vectorBuilder.create();
+    }
+
+    /**
+     * Create the document vector for a text, which is the average of its words' vectors. The vectors can be added to a
+     * {@link HnswIndex}, so that documents can be matched by their similarity (see {@link #nearest(String, HnswIndex,
+     * int)}).
+     *
+     * @param text The text, not <code>null</code>.
+     * @return The document vector.
+     */
+    public float[] vectorize(String text) {
+        Objects.requireNonNull(text, "text must not be null");
         if (!dictionary.isCaseSensitive()) {
-            textValue = textValue.toLowerCase();
+            text = text.toLowerCase();
         }
-        List<String> words = Tokenizer.tokenize(textValue.toLowerCase());
+        List<String> words = Tokenizer.tokenize(text.toLowerCase());
 
         float[] documentVector = new float[dictionary.vectorSize()];
         for (String word : words) {
@@ -51,13 +71,20 @@ public class EmbeddingTextVectorizer extends AbstractDatasetFeatureVectorTransfo
             documentVector = FloatVectorUtil.scalar(documentVector, 1f / words.size());
             // documentVector = FloatVectorUtil.normalize(documentVector);
         }
+        return documentVector;
+    }
 
-        InstanceBuilder vectorBuilder = new InstanceBuilder();
-        for (int i = 0; i < documentVector.length; i++) {
-            vectorBuilder.set("embedding-" + i, documentVector[i]);
-        }
-
-        return vectorBuilder.create();
+    /**
+     * Find the most similar documents for a text in an index of document vectors created by {@link #vectorize(String)}.
+     *
+     * @param text  The text, not <code>null</code>.
+     * @param index The index, not <code>null</code>.
+     * @param k     The number of documents to return.
+     * @return The keys of the most similar documents with their cosine similarity, most similar first.
+     */
+    public List<Pair<String, Float>> nearest(String text, HnswIndex index, int k) {
+        Objects.requireNonNull(index, "index must not be null");
+        return index.nearest(vectorize(text), k);
     }
 
     // XXX copied from TextVectorizer
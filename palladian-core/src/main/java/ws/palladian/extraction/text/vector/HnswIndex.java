@@ -0,0 +1,529 @@
+package ws.palladian.extraction.text.vector;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
+import ws.palladian.helper.NoProgress;
+import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.functional.Factory;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * An approximate nearest neighbor index for vectors using cosine similarity, based on a Hierarchical Navigable Small
+ * World graph. Every vector is linked to its approximate nearest neighbors on the lowest layer, and to exponentially
+ * fewer, more distant ones on the higher layers; queries descend from the top layer and search the lowest layer with a
+ * candidate list of size <code>ef</code>, which trades recall against latency.
+ * </p>
+ *
+ * <p>
+ * The index can either be created over all words of a {@link WordVectorDictionary} (to find most similar words), or
+ * over arbitrary keys and vectors, e.g. document vectors created with
+ * {@link EmbeddingTextVectorizer#vectorize(String)}. It is built once using the {@link Builder}, is immutable and
+ * thread-safe afterwards, and can be persisted using serialization (e.g.
+ * {@link ws.palladian.helper.io.FileHelper#serialize(Serializable, String)}).
+ * </p>
+ *
+ * @see <a href="https://arxiv.org/abs/1603.09320">Efficient and robust approximate nearest neighbor search using
+ * Hierarchical Navigable Small World graphs; Yu. A. Malkov, D. A. Yashunin</a>
+ */
+public final class HnswIndex implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** The default number of links per vector on the higher layers; the lowest layer allows twice as much. */
+    public static final int DEFAULT_M = 16;
+
+    /** The default size of the candidate list while building. */
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+
+    /** The default size of the candidate list for queries. */
+    public static final int DEFAULT_EF = 50;
+
+    private final int dimension;
+
+    private final int m;
+
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    /** The seed for the random layer assignment. */
+    private final long seed;
+
+    /** Created from the seed and the size, when it is used first after creation or deserialization. */
+    private transient Random random;
+
+    private String[] keys;
+
+    /** The normalized vectors, one after another. */
+    private float[] vectors;
+
+    /** The links on the lowest layer, (maxM0 + 1) values per vector: the number of links, followed by the links. */
+    private int[] links0;
+
+    /** The links on the higher layers, (m + 1) values per layer of each vector; null for vectors on the lowest layer. */
+    private int[][] upperLinks;
+
+    private int size;
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    private HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.seed = seed;
+        this.keys = new String[16];
+        this.vectors = new float[16 * dimension];
+        this.links0 = new int[16 * (maxM0 + 1)];
+        this.upperLinks = new int[16][];
+    }
+
+    /** Builder for a {@link HnswIndex}. */
+    public static final class Builder implements Factory<HnswIndex> {
+
+        private final int dimension;
+
+        private int m = DEFAULT_M;
+
+        private int efConstruction = DEFAULT_EF_CONSTRUCTION;
+
+        private long seed = 1;
+
+        private HnswIndex index;
+
+        /**
+         * @param dimension The dimension of the vectors, greater zero.
+         */
+        public Builder(int dimension) {
+            Validate.isTrue(dimension > 0, "dimension must be greater zero");
+            this.dimension = dimension;
+        }
+
+        /**
+         * @param m The number of links per vector on the higher layers, at least two. Higher values increase recall and
+         *          memory consumption; typical values are between 8 and 48.
+         * @return The builder.
+         */
+        public Builder m(int m) {
+            Validate.isTrue(m >= 2, "m must be at least two");
+            Validate.validState(index == null, "vectors were already added");
+            this.m = m;
+            return this;
+        }
+
+        /**
+         * @param efConstruction The size of the candidate list while building; higher values result in a better graph,
+         *                       but increase the building time.
+         * @return The builder.
+         */
+        public Builder efConstruction(int efConstruction) {
+            Validate.isTrue(efConstruction > 0, "efConstruction must be greater zero");
+            Validate.validState(index == null, "vectors were already added");
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /**
+         * @param seed The seed for the random layer assignment, so that builds are reproducible.
+         * @return The builder.
+         */
+        public Builder seed(long seed) {
+            Validate.validState(index == null, "vectors were already added");
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Add a vector.
+         *
+         * @param key    The key of the vector, not <code>null</code>.
+         * @param vector The vector, not <code>null</code>.
+         * @return The builder.
+         */
+        public Builder add(String key, float[] vector) {
+            Validate.notNull(key, "key must not be null");
+            Validate.notNull(vector, "vector must not be null");
+            Validate.isTrue(vector.length == dimension, "vector must have dimension " + dimension + ", but was " + vector.length);
+            if (index == null) {
+                index = new HnswIndex(dimension, m, efConstruction, seed);
+            }
+            index.insert(key, vector);
+            return this;
+        }
+
+        /**
+         * Add all words of the dictionary.
+         *
+         * @param dictionary The dictionary, not <code>null</code>.
+         * @param progress   The progress reporter, not <code>null</code>.
+         * @return The builder.
+         */
+        public Builder addAll(WordVectorDictionary dictionary, ProgressReporter progress) {
+            Validate.notNull(dictionary, "dictionary must not be null");
+            Validate.notNull(progress, "progress must not be null");
+            progress.startTask("Indexing word vectors", dictionary.size());
+            for (String word : dictionary.words()) {
+                add(word, dictionary.getVector(word));
+                progress.increment();
+            }
+            progress.finishTask();
+            return this;
+        }
+
+        @Override
+        public HnswIndex create() {
+            HnswIndex result = index != null ? index : new HnswIndex(dimension, m, efConstruction, seed);
+            result.trim();
+            index = null;
+            return result;
+        }
+
+    }
+
+    /**
+     * Build an index over all words of the given dictionary, using the default parameters.
+     *
+     * @param dictionary The dictionary, not <code>null</code>.
+     * @return The index.
+     */
+    public static HnswIndex build(WordVectorDictionary dictionary) {
+        Validate.notNull(dictionary, "dictionary must not be null");
+        return new Builder(dictionary.vectorSize()).addAll(dictionary, NoProgress.INSTANCE).create();
+    }
+
+    private void insert(String key, float[] vector) {
+        int node = size++;
+        ensureCapacity(size);
+        keys[node] = key;
+        float[] query = normalize(vector);
+        System.arraycopy(query, 0, vectors, node * dimension, dimension);
+        if (random == null) {
+            random = new Random(seed + size);
+        }
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        upperLinks[node] = level > 0 ? new int[level * (m + 1)] : null;
+        if (entryPoint == -1) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = searchLayer(query, current, 1, l).getBest();
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            Heap candidates = searchLayer(query, current, efConstruction, l);
+            current = candidates.getBest();
+            int[] selected = selectNeighbors(query, candidates.sortedNodes(), maxLinks(l));
+            setLinks(node, l, selected, selected.length);
+            for (int neighbor : selected) {
+                addLink(neighbor, node, l);
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    /**
+     * Select neighbors with the heuristic from the paper: a candidate is only linked in case it is more similar to the
+     * query than to any of the already selected neighbors, which keeps links to different directions.
+     */
+    private int[] selectNeighbors(float[] query, int[] candidates, int maxLinks) {
+        int[] selected = new int[Math.min(candidates.length, maxLinks)];
+        int numSelected = 0;
+        for (int i = 0; i < candidates.length && numSelected < selected.length; i++) {
+            int candidate = candidates[i];
+            float similarity = similarity(query, candidate);
+            boolean keep = true;
+            for (int j = 0; j < numSelected && keep; j++) {
+                keep = similarity(selected[j], candidate) < similarity;
+            }
+            if (keep) {
+                selected[numSelected++] = candidate;
+            }
+        }
+        return Arrays.copyOf(selected, numSelected);
+    }
+
+    private void addLink(int node, int newNeighbor, int level) {
+        int[] links = level == 0 ? links0 : upperLinks[node];
+        int offset = linksOffset(node, level);
+        int count = links[offset];
+        if (count < maxLinks(level)) {
+            links[offset + 1 + count] = newNeighbor;
+            links[offset] = count + 1;
+            return;
+        }
+        // too many links; select again among the existing ones and the new one
+        float[] vector = Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        Heap candidates = new Heap(count + 1);
+        for (int i = 0; i < count; i++) {
+            int neighbor = links[offset + 1 + i];
+            candidates.add(neighbor, similarity(vector, neighbor));
+        }
+        candidates.add(newNeighbor, similarity(vector, newNeighbor));
+        int[] selected = selectNeighbors(vector, candidates.sortedNodes(), maxLinks(level));
+        setLinks(node, level, selected, selected.length);
+    }
+
+    private void setLinks(int node, int level, int[] neighbors, int count) {
+        int[] links = level == 0 ? links0 : upperLinks[node];
+        int offset = linksOffset(node, level);
+        links[offset] = count;
+        System.arraycopy(neighbors, 0, links, offset + 1, count);
+    }
+
+    private int linksOffset(int node, int level) {
+        return level == 0 ? node * (maxM0 + 1) : (level - 1) * (m + 1);
+    }
+
+    /**
+     * Search the nearest vectors on one layer, starting from the given entry point.
+     *
+     * @return The at most ef most similar vectors.
+     */
+    private Heap searchLayer(float[] query, int entry, int ef, int level) {
+        IntOpenHashSet visited = new IntOpenHashSet();
+        visited.add(entry);
+        float entrySimilarity = similarity(query, entry);
+        // candidates to explore, most similar first; results with the least similar first
+        Heap candidates = new Heap(ef);
+        Heap results = new Heap(ef);
+        candidates.add(entry, -entrySimilarity);
+        results.add(entry, entrySimilarity);
+        while (candidates.size() > 0) {
+            float candidateSimilarity = -candidates.peekScore();
+            int candidate = candidates.poll();
+            if (results.size() >= ef && candidateSimilarity < results.peekScore()) {
+                break;
+            }
+            int[] links = level == 0 ? links0 : upperLinks[candidate];
+            int offset = linksOffset(candidate, level);
+            int count = links[offset];
+            for (int i = 0; i < count; i++) {
+                int neighbor = links[offset + 1 + i];
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float similarity = similarity(query, neighbor);
+                if (results.size() < ef || similarity > results.peekScore()) {
+                    candidates.add(neighbor, -similarity);
+                    results.add(neighbor, similarity);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find the approximate nearest neighbors using the {@link #DEFAULT_EF}.
+     *
+     * @param query The query vector, not <code>null</code>.
+     * @param k     The number of neighbors, greater zero.
+     * @return The keys of the nearest neighbors with their cosine similarity, most similar first.
+     */
+    public List<Pair<String, Float>> nearest(float[] query, int k) {
+        return nearest(query, k, DEFAULT_EF);
+    }
+
+    /**
+     * Find the approximate nearest neighbors.
+     *
+     * @param query The query vector, not <code>null</code>.
+     * @param k     The number of neighbors, greater zero.
+     * @param ef    The size of the candidate list; higher values increase recall and latency. Values smaller than
+     *              <code>k</code> are increased to <code>k</code>.
+     * @return The keys of the nearest neighbors with their cosine similarity, most similar first.
+     */
+    public List<Pair<String, Float>> nearest(float[] query, int k, int ef) {
+        Validate.notNull(query, "query must not be null");
+        Validate.isTrue(query.length == dimension, "query must have dimension " + dimension + ", but was " + query.length);
+        Validate.isTrue(k > 0, "k must be greater zero");
+        if (entryPoint == -1) {
+            return new ArrayList<>();
+        }
+        float[] normalizedQuery = normalize(query);
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = searchLayer(normalizedQuery, current, 1, l).getBest();
+        }
+        Heap results = searchLayer(normalizedQuery, current, Math.max(ef, k), 0);
+        int[] nodes = results.sortedNodes();
+        List<Pair<String, Float>> nearest = new ArrayList<>(Math.min(k, nodes.length));
+        for (int i = 0; i < nodes.length && i < k; i++) {
+            nearest.add(Pair.of(keys[nodes[i]], similarity(normalizedQuery, nodes[i])));
+        }
+        return nearest;
+    }
+
+    private float[] normalize(float[] vector) {
+        float magnitude = FloatVectorUtil.magnitude(vector);
+        return magnitude > 0 ? FloatVectorUtil.scalar(vector, 1 / magnitude) : new float[vector.length];
+    }
+
+    private float similarity(float[] query, int node) {
+        int offset = node * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        return dot;
+    }
+
+    private float similarity(int node1, int node2) {
+        int offset1 = node1 * dimension;
+        int offset2 = node2 * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += vectors[offset1 + i] * vectors[offset2 + i];
+        }
+        return dot;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            resize(Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    private void trim() {
+        if (size != keys.length) {
+            resize(size);
+        }
+    }
+
+    private void resize(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        links0 = Arrays.copyOf(links0, capacity * (maxM0 + 1));
+        upperLinks = Arrays.copyOf(upperLinks, capacity);
+    }
+
+    /** @return The number of vectors in the index. */
+    public int size() {
+        return size;
+    }
+
+    /** @return The dimension of the vectors. */
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public String toString() {
+        return "HnswIndex [size=" + size + ", dimension=" + dimension + ", m=" + m + ", efConstruction=" + efConstruction + ", maxLevel=" + maxLevel + "]";
+    }
+
+    /** A binary min-heap of nodes by score, using primitive arrays. */
+    private static final class Heap {
+
+        private int[] nodes;
+
+        private float[] scores;
+
+        private int size;
+
+        Heap(int capacity) {
+            nodes = new int[Math.max(capacity + 1, 2)];
+            scores = new float[nodes.length];
+        }
+
+        void add(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            scores[index] = score;
+        }
+
+        int poll() {
+            int result = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int index = 0;
+            for (; ; ) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= lastScore) {
+                    break;
+                }
+                nodes[index] = nodes[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            nodes[index] = lastNode;
+            scores[index] = lastScore;
+            return result;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** @return The nodes, highest score first; empties the heap. */
+        int[] sortedNodes() {
+            int[] result = new int[size];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = poll();
+            }
+            return result;
+        }
+
+        /** @return The node with the highest score. */
+        int getBest() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            return nodes[best];
+        }
+
+    }
+
+}
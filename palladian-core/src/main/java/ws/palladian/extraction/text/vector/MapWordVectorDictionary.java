@@ -9,6 +9,7 @@ import ws.palladian.helper.io.LineAction;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /***
  * Keep the word vectors in a map.
@@ -24,37 +25,54 @@ public class MapWordVectorDictionary implements WordVectorDictionary {
     }
 
     public static MapWordVectorDictionary readFromVecFile(File vecFile, final int lineLimit) {
-        ProgressMonitor progressMonitor = new ProgressMonitor(FileHelper.getNumberOfLines(vecFile), 5., "Reading vectors from " + vecFile);
         final Map<String, float[]> entries = new HashMap<>();
-        final int[] vectorSize = {-1};
         final boolean[] caseSensitive = {false};
+        readVecFile(vecFile, lineLimit, (token, vector) -> {
+            // automatically detect if the dictionary is case-sensitive
+            if (!token.equals(token.toLowerCase())) {
+                caseSensitive[0] = true;
+            }
+            entries.put(token, vector);
+        });
+        int vectorSize = entries.isEmpty() ? -1 : entries.values().iterator().next().length;
+        LOGGER.debug("Dictionary is case sensitive? {}", caseSensitive[0]);
+        return new MapWordVectorDictionary(entries, vectorSize, caseSensitive[0], vecFile);
+    }
+
+    /**
+     * Read the words and vectors from a text file, where each line contains a word, followed by the vector's values,
+     * separated by spaces. A header line with the number of words and the vector size (as written by fastText) is
+     * skipped.
+     *
+     * @param vecFile   The file.
+     * @param lineLimit The maximum number of lines to read.
+     * @param consumer  The consumer which receives each word and its vector.
+     */
+    static void readVecFile(File vecFile, final int lineLimit, BiConsumer<String, float[]> consumer) {
+        ProgressMonitor progressMonitor = new ProgressMonitor(FileHelper.getNumberOfLines(vecFile), 5., "Reading vectors from " + vecFile);
         FileHelper.performActionOnEveryLine(vecFile, new LineAction() {
             @Override
             public void performAction(String line, int lineNumber) {
                 progressMonitor.incrementAndPrintProgress();
                 String[] values = line.split(" ");
-                String token = values[0];
-
-                // automatically detect if the dictionary is case-sensitive
-                if (!token.equals(token.toLowerCase())) {
-                    caseSensitive[0] = true;
-                }
-
-                if (vectorSize[0] == -1) {
-                    vectorSize[0] = values.length - 1;
+                if (lineNumber == 0 && values.length == 2 && isInteger(values[0]) && isInteger(values[1])) {
+                    return;
                 }
+                String token = values[0];
                 float[] vector = new float[values.length - 1];
                 for (int i = 1; i < values.length; i++) {
                     vector[i - 1] = Float.parseFloat(values[i]);
                 }
-                entries.put(token, vector);
+                consumer.accept(token, vector);
                 if (lineNumber >= lineLimit) {
                     breakLineLoop();
                 }
             }
         });
-        LOGGER.debug("Dictionary is case sensitive? {}", caseSensitive[0]);
-        return new MapWordVectorDictionary(entries, vectorSize[0], caseSensitive[0], vecFile);
+    }
+
+    private static boolean isInteger(String value) {
+        return !value.isEmpty() && value.chars().allMatch(c -> c >= '0' && c <= '9');
     }
 
     private final Map<String, float[]> entries;
@@ -89,6 +107,11 @@ public class MapWordVectorDictionary implements WordVectorDictionary {
         return caseSensitive;
     }
 
+    @Override
+    public Iterable<String> words() {
+        return entries.keySet();
+    }
+
     @Override
     public String toString() {
         return "MapWordVectorDictionary [" + vecFile.getName() + "]";
@@ -0,0 +1,557 @@
+package ws.palladian.extraction.text.vector;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.collection.AbstractIterator2;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * <p>
+ * A read-only {@link WordVectorDictionary} which is served directly from a memory-mapped file. In contrast to the
+ * {@link MapWordVectorDictionary}, which keeps a <code>float[]</code> per word on the heap (about 4 GB for three million
+ * words with 300 dimensions), opening this dictionary only maps the file; the vectors stay in the OS' page cache and
+ * can be shared by several JVMs on the same host.
+ * </p>
+ *
+ * <p>
+ * The file contains the vocabulary as UTF-8 bytes in unsigned byte order, an open-addressing hash table for the
+ * lookups, and one contiguous block of vectors. Optionally, the vectors are quantized to one byte per value (scaled by
+ * the maximum absolute value of each vector), which reduces the size by a factor of four with a small loss of
+ * precision. The layout is as follows (all numbers little endian):
+ *
+ * <pre>
+ * magic, version, vectorSize, #words, flags (1 = case sensitive, 2 = quantized), tableSize, #termBytes, padding
+ * termOffsets:   int[#words + 1]   -- start of each word in termBytes
+ * vectorIndices: int[#words]       -- index of each word's vector
+ * hashTable:     int[tableSize]    -- word index, or -1 for empty slots
+ * termBytes:     byte[#termBytes], padded to a multiple of eight bytes
+ * scales:        float[#vectors]   -- only when quantized
+ * vectors:       float[#vectors * vectorSize], or byte[#vectors * vectorSize] when quantized
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * Create such a file from an existing dictionary using {@link #write(WordVectorDictionary, File, boolean)}, or convert
+ * a word2vec <code>.bin</code> or text <code>.vec</code> file using {@link #convert(File, File, boolean)}; the
+ * conversion streams the vectors and only keeps the vocabulary in memory. Open the file using {@link #open(File)}.
+ * </p>
+ */
+public final class MappedWordVectorDictionary implements WordVectorDictionary {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedWordVectorDictionary.class);
+
+    /** Magic number at the beginning of each file ("PWVM"). */
+    private static final int MAGIC = 0x5057564D;
+
+    /** Version of the file format; if you make incompatible changes, update this constant. */
+    private static final int FILE_VERSION = 1;
+
+    private static final int HEADER_SIZE = 8 * Integer.BYTES;
+
+    private static final int FLAG_CASE_SENSITIVE = 1;
+
+    private static final int FLAG_QUANTIZED = 2;
+
+    /** Maximum size of one mapped chunk of vectors. */
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private final File file;
+
+    private final int vectorSize;
+
+    private final int numWords;
+
+    private final boolean caseSensitive;
+
+    private final boolean quantized;
+
+    private final IntBuffer termOffsets;
+
+    private final IntBuffer vectorIndices;
+
+    private final IntBuffer hashTable;
+
+    private final int hashMask;
+
+    private final ByteBuffer termBytes;
+
+    private final FloatBuffer scales;
+
+    /** The number of vectors per mapped chunk. */
+    private final int vectorsPerChunk;
+
+    /** The vectors, when not quantized. */
+    private final FloatBuffer[] floatChunks;
+
+    /** The vectors, when quantized. */
+    private final ByteBuffer[] byteChunks;
+
+    private MappedWordVectorDictionary(File file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer header = channel.map(READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is no word vector file");
+            }
+            int version = header.getInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Unsupported version: " + version);
+            }
+            vectorSize = header.getInt();
+            numWords = header.getInt();
+            int flags = header.getInt();
+            caseSensitive = (flags & FLAG_CASE_SENSITIVE) != 0;
+            quantized = (flags & FLAG_QUANTIZED) != 0;
+            int tableSize = header.getInt();
+            hashMask = tableSize - 1;
+            int numTermBytes = header.getInt();
+
+            long position = HEADER_SIZE;
+            termOffsets = map(channel, position, (numWords + 1L) * Integer.BYTES).asIntBuffer();
+            position += (numWords + 1L) * Integer.BYTES;
+            vectorIndices = map(channel, position, (long) numWords * Integer.BYTES).asIntBuffer();
+            position += (long) numWords * Integer.BYTES;
+            hashTable = map(channel, position, (long) tableSize * Integer.BYTES).asIntBuffer();
+            position += (long) tableSize * Integer.BYTES;
+            termBytes = map(channel, position, numTermBytes);
+            position += padding(numTermBytes);
+
+            int bytesPerValue = quantized ? Byte.BYTES : Float.BYTES;
+            long numVectors;
+            if (quantized) {
+                numVectors = (channel.size() - position) / (Float.BYTES + (long) vectorSize * bytesPerValue);
+                scales = map(channel, position, numVectors * Float.BYTES).asFloatBuffer();
+                position += numVectors * Float.BYTES;
+            } else {
+                numVectors = (channel.size() - position) / ((long) vectorSize * bytesPerValue);
+                scales = null;
+            }
+            long bytesPerVector = (long) vectorSize * bytesPerValue;
+            vectorsPerChunk = (int) Math.max(1, CHUNK_SIZE / bytesPerVector);
+            int numChunks = (int) ((numVectors + vectorsPerChunk - 1) / vectorsPerChunk);
+            floatChunks = quantized ? null : new FloatBuffer[numChunks];
+            byteChunks = quantized ? new ByteBuffer[numChunks] : null;
+            for (int i = 0; i < numChunks; i++) {
+                long chunkVectors = Math.min(vectorsPerChunk, numVectors - (long) i * vectorsPerChunk);
+                ByteBuffer chunk = map(channel, position, chunkVectors * bytesPerVector);
+                position += chunkVectors * bytesPerVector;
+                if (quantized) {
+                    byteChunks[i] = chunk;
+                } else {
+                    floatChunks[i] = chunk.asFloatBuffer();
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** @return The size of the given number of bytes, padded to a multiple of eight. */
+    private static long padding(long numBytes) {
+        return (numBytes + 7) / 8 * 8;
+    }
+
+    /**
+     * Open a file which was created using {@link #write(WordVectorDictionary, File, boolean)} or
+     * {@link #convert(File, File, boolean)}.
+     *
+     * @param file The file, not <code>null</code>.
+     * @return The dictionary which is backed by the given file.
+     * @throws IOException In case the file cannot be read, or is not a valid word vector file.
+     */
+    public static MappedWordVectorDictionary open(File file) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        return new MappedWordVectorDictionary(file);
+    }
+
+    /**
+     * Write a {@link WordVectorDictionary} to a file in the mapped format.
+     *
+     * @param dictionary The dictionary to write, not <code>null</code>.
+     * @param file       The destination file, not <code>null</code>.
+     * @param quantize   <code>true</code> to quantize the vectors to one byte per value.
+     * @throws IOException In case writing fails.
+     */
+    public static void write(WordVectorDictionary dictionary, File file, boolean quantize) throws IOException {
+        Validate.notNull(dictionary, "dictionary must not be null");
+        Validate.notNull(file, "file must not be null");
+        try (Writer writer = new Writer(file, dictionary.vectorSize(), quantize)) {
+            for (String word : dictionary.words()) {
+                writer.add(word, dictionary.getVector(word));
+            }
+            writer.finish(dictionary.isCaseSensitive());
+        }
+    }
+
+    /**
+     * Convert a word2vec binary file (extension <code>.bin</code>) or a text file with one word and its vector per line
+     * (any other extension, e.g. <code>.vec</code> or <code>.txt</code>) into the mapped format and open it. Whether
+     * the dictionary is case sensitive is detected automatically, like when reading the files into a
+     * {@link MapWordVectorDictionary}.
+     *
+     * @param inputFile The word vector file, not <code>null</code>.
+     * @param file      The destination file, not <code>null</code>.
+     * @param quantize  <code>true</code> to quantize the vectors to one byte per value.
+     * @return The converted dictionary, backed by the destination file.
+     * @throws IOException In case reading or writing fails.
+     */
+    public static MappedWordVectorDictionary convert(File inputFile, File file, boolean quantize) throws IOException {
+        Validate.notNull(inputFile, "inputFile must not be null");
+        Validate.notNull(file, "file must not be null");
+        Writer[] writer = {null};
+        boolean[] caseSensitive = {false};
+        try {
+            BiConsumer<String, float[]> consumer = (word, vector) -> {
+                try {
+                    if (writer[0] == null) {
+                        writer[0] = new Writer(file, vector.length, quantize);
+                    }
+                    writer[0].add(word, vector);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            // the case sensitivity is detected from all words, also those which are skipped by the reader
+            Consumer<String> caseCheck = word -> {
+                if (!word.equals(word.toLowerCase())) {
+                    caseSensitive[0] = true;
+                }
+            };
+            if (FileHelper.getFileType(inputFile.getName()).equals("bin")) {
+                Word2VecReader.read(inputFile, consumer, caseCheck);
+            } else {
+                MapWordVectorDictionary.readVecFile(inputFile, Integer.MAX_VALUE, consumer.andThen((word, vector) -> caseCheck.accept(word)));
+            }
+            Validate.validState(writer[0] != null, "%s contains no vectors", inputFile);
+            writer[0].finish(caseSensitive[0]);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (writer[0] != null) {
+                writer[0].close();
+            }
+        }
+        return open(file);
+    }
+
+    /**
+     * Find the index of the given word in the vocabulary.
+     *
+     * @param word The word.
+     * @return The index, or -1 in case the word does not exist.
+     */
+    private int indexOf(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        for (int slot = hash(key) & hashMask; ; slot = (slot + 1) & hashMask) {
+            int index = hashTable.get(slot);
+            if (index == -1) {
+                return -1;
+            }
+            int start = termOffsets.get(index);
+            int length = termOffsets.get(index + 1) - start;
+            if (length == key.length && equals(start, key)) {
+                return index;
+            }
+        }
+    }
+
+    private boolean equals(int start, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (termBytes.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** FNV-1a hash of the bytes, with a final mixing step. */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private String getWord(int index) {
+        int start = termOffsets.get(index);
+        byte[] bytes = new byte[termOffsets.get(index + 1) - start];
+        termBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public float[] getVector(String word) {
+        Validate.notNull(word, "word must not be null");
+        int index = indexOf(word);
+        if (index == -1) {
+            return null;
+        }
+        int vectorIndex = vectorIndices.get(index);
+        int chunk = vectorIndex / vectorsPerChunk;
+        int offset = (vectorIndex % vectorsPerChunk) * vectorSize;
+        float[] vector = new float[vectorSize];
+        if (quantized) {
+            float scale = scales.get(vectorIndex);
+            ByteBuffer values = byteChunks[chunk];
+            for (int i = 0; i < vectorSize; i++) {
+                vector[i] = values.get(offset + i) * scale;
+            }
+        } else {
+            floatChunks[chunk].get(offset, vector);
+        }
+        return vector;
+    }
+
+    /**
+     * Get a word's vector as a read-only view on the mapped file, without copying it to the heap. For quantized
+     * dictionaries, the vector has to be decoded, so that the returned buffer wraps a new array.
+     *
+     * @param word The word, not <code>null</code>.
+     * @return The vector, or <code>null</code> in case the word does not exist.
+     */
+    public FloatBuffer getVectorBuffer(String word) {
+        Validate.notNull(word, "word must not be null");
+        if (quantized) {
+            float[] vector = getVector(word);
+            return vector != null ? FloatBuffer.wrap(vector).asReadOnlyBuffer() : null;
+        }
+        int index = indexOf(word);
+        if (index == -1) {
+            return null;
+        }
+        int vectorIndex = vectorIndices.get(index);
+        int offset = (vectorIndex % vectorsPerChunk) * vectorSize;
+        return floatChunks[vectorIndex / vectorsPerChunk].slice(offset, vectorSize).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int size() {
+        return numWords;
+    }
+
+    @Override
+    public int vectorSize() {
+        return vectorSize;
+    }
+
+    @Override
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /** @return <code>true</code> in case the vectors are quantized to one byte per value. */
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    /** @return The words in unsigned UTF-8 byte order. */
+    @Override
+    public Iterable<String> words() {
+        return () -> new AbstractIterator2<String>() {
+            int index = 0;
+
+            @Override
+            protected String getNext() {
+                return index < numWords ? getWord(index++) : finished();
+            }
+        };
+    }
+
+    /** @return The file which backs this dictionary. */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedWordVectorDictionary [" + file.getName() + (quantized ? ", quantized" : "") + "]";
+    }
+
+    /**
+     * Writes the vectors to a temporary file while they are added, and assembles the final file after all vectors were
+     * added, so that only the vocabulary is kept in memory.
+     */
+    private static final class Writer implements Closeable {
+
+        private final File file;
+
+        private final int vectorSize;
+
+        private final boolean quantize;
+
+        private final File vectorFile;
+
+        private final OutputStream vectorOut;
+
+        private final ByteBuffer vectorBuffer;
+
+        /** The words, with the index of the last vector which was added for the word. */
+        private final Object2IntMap<String> words = new Object2IntOpenHashMap<>();
+
+        private final FloatArrayList scales = new FloatArrayList();
+
+        private final StopWatch stopWatch = new StopWatch();
+
+        private int numVectors;
+
+        Writer(File file, int vectorSize, boolean quantize) throws IOException {
+            Validate.isTrue(vectorSize > 0, "vectorSize must be greater zero");
+            this.file = file;
+            this.vectorSize = vectorSize;
+            this.quantize = quantize;
+            this.vectorFile = File.createTempFile("vectors", ".tmp");
+            this.vectorOut = new BufferedOutputStream(new FileOutputStream(vectorFile), 1 << 16);
+            this.vectorBuffer = ByteBuffer.allocate(vectorSize * (quantize ? Byte.BYTES : Float.BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void add(String word, float[] vector) throws IOException {
+            Validate.isTrue(vector.length == vectorSize, "vector of '%s' must have size %s, but was %s", word, vectorSize, vector.length);
+            vectorBuffer.clear();
+            if (quantize) {
+                float max = 0;
+                for (float value : vector) {
+                    max = Math.max(max, Math.abs(value));
+                }
+                float scale = max > 0 ? max / Byte.MAX_VALUE : 1;
+                for (float value : vector) {
+                    vectorBuffer.put((byte) Math.round(value / scale));
+                }
+                scales.add(scale);
+            } else {
+                for (float value : vector) {
+                    vectorBuffer.putFloat(value);
+                }
+            }
+            vectorOut.write(vectorBuffer.array());
+            // in case of duplicates, the last vector wins, like in a map
+            words.put(word, numVectors++);
+        }
+
+        void finish(boolean caseSensitive) throws IOException {
+            vectorOut.close();
+
+            // sort the vocabulary in unsigned byte order
+            List<byte[]> sortedWords = new ArrayList<>(words.size());
+            for (String word : words.keySet()) {
+                sortedWords.add(word.getBytes(StandardCharsets.UTF_8));
+            }
+            sortedWords.sort(Arrays::compareUnsigned);
+            int numWords = sortedWords.size();
+            long numTermBytes = 0;
+            for (byte[] word : sortedWords) {
+                numTermBytes += word.length;
+            }
+            Validate.isTrue(numTermBytes <= Integer.MAX_VALUE, "too many term bytes: %s", numTermBytes);
+
+            // hash table with a load factor of at most 0.5
+            int tableSize = Integer.highestOneBit(Math.max(1, numWords) * 2 - 1) << 1;
+            int[] hashTable = new int[tableSize];
+            Arrays.fill(hashTable, -1);
+            for (int index = 0; index < numWords; index++) {
+                int slot = hash(sortedWords.get(index)) & (tableSize - 1);
+                while (hashTable[slot] != -1) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                hashTable[slot] = index;
+            }
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)) {
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(FILE_VERSION).putInt(vectorSize).putInt(numWords);
+                buffer.putInt((caseSensitive ? FLAG_CASE_SENSITIVE : 0) | (quantize ? FLAG_QUANTIZED : 0));
+                buffer.putInt(tableSize).putInt((int) numTermBytes).putInt(0);
+                out.write(buffer.array());
+                // term offsets
+                int offset = 0;
+                for (byte[] word : sortedWords) {
+                    writeInt(out, offset);
+                    offset += word.length;
+                }
+                writeInt(out, offset);
+                // vector indices
+                for (byte[] word : sortedWords) {
+                    writeInt(out, words.getInt(new String(word, StandardCharsets.UTF_8)));
+                }
+                // hash table
+                for (int index : hashTable) {
+                    writeInt(out, index);
+                }
+                // term bytes
+                for (byte[] word : sortedWords) {
+                    out.write(word);
+                }
+                for (long i = numTermBytes; i < padding(numTermBytes); i++) {
+                    out.write(0);
+                }
+                // scales
+                for (int i = 0; i < scales.size(); i++) {
+                    writeInt(out, Float.floatToIntBits(scales.getFloat(i)));
+                }
+                out.flush();
+                // vectors
+                try (FileChannel vectorChannel = FileChannel.open(vectorFile.toPath())) {
+                    long position = 0;
+                    long size = vectorChannel.size();
+                    while (position < size) {
+                        position += vectorChannel.transferTo(position, size - position, channel);
+                    }
+                }
+            }
+            LOGGER.info("Wrote {} words with {} vectors to {} in {}", numWords, numVectors, file, stopWatch);
+        }
+
+        private static void writeInt(OutputStream out, int value) throws IOException {
+            out.write(value);
+            out.write(value >>> 8);
+            out.write(value >>> 16);
+            out.write(value >>> 24);
+        }
+
+        @Override
+        public void close() throws IOException {
+            vectorOut.close();
+            FileHelper.delete(vectorFile);
+        }
+
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: " + MappedWordVectorDictionary.class.getSimpleName() + " <vectorFile> <outputFile> [--quantize]");
+            System.exit(1);
+        }
+        boolean quantize = args.length > 2 && args[2].equals("--quantize");
+        MappedWordVectorDictionary dictionary = convert(new File(args[0]), new File(args[1]), quantize);
+        System.out.println(dictionary + ": " + dictionary.size() + " words");
+    }
+
+}
@@ -8,6 +8,8 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import static java.lang.Integer.MAX_VALUE;
@@ -28,7 +30,40 @@ public class Word2VecReader {
     // https://github.com/jkinkead/Word2VecJava/blob/841b0cf8c063fb32ed7ee117871ccbb68075b05b/src/main/java/com/medallia/word2vec/Word2VecModel.java
 
     public static MapWordVectorDictionary fromBinFile(File binFile) throws IOException {
+        Map<String, float[]> entries = new HashMap<>();
+        boolean[] caseSensitive = {false};
+        int vectorSize = read(binFile, entries::put, word -> {
+            // automatically detect if the dictionary is case-sensitive
+            if (!word.equals(word.toLowerCase())) {
+                caseSensitive[0] = true;
+            }
+        });
+        return new MapWordVectorDictionary(entries, vectorSize, caseSensitive[0], binFile);
+    }
+
+    /**
+     * Read the words and vectors from a binary word2vec file, without keeping them in memory.
+     *
+     * @param binFile  The file.
+     * @param consumer The consumer which receives each word and its vector.
+     * @return The vector size.
+     * @throws IOException In case reading fails.
+     */
+    public static int read(File binFile, BiConsumer<String, float[]> consumer) throws IOException {
+        return read(binFile, consumer, word -> {
+        });
+    }
 
+    /**
+     * Read the words and vectors from a binary word2vec file, without keeping them in memory.
+     *
+     * @param binFile  The file.
+     * @param consumer The consumer which receives each word and its vector; words with an underscore are skipped.
+     * @param allWords The consumer which receives each word, including the skipped ones.
+     * @return The vector size.
+     * @throws IOException In case reading fails.
+     */
+    static int read(File binFile, BiConsumer<String, float[]> consumer, Consumer<String> allWords) throws IOException {
         try (FileInputStream fis = new FileInputStream(binFile)) {
             FileChannel channel = fis.getChannel();
             MappedByteBuffer buffer = channel.map(READ_ONLY, 0, Math.min(channel.size(), MAX_VALUE));
@@ -53,9 +88,6 @@ public class Word2VecReader {
             int vocabSize = Integer.parseInt(firstLine.substring(0, index));
             int vectorSize = Integer.parseInt(firstLine.substring(index + 1));
 
-            Map<String, float[]> entries = new HashMap<>();
-            boolean caseSensitive = false;
-
             for (int vectorIdx = 0; vectorIdx < vocabSize; vectorIdx++) {
 
                 // read vocab
@@ -78,13 +110,9 @@ public class Word2VecReader {
                 float[] floats = new float[vectorSize];
                 buffer.asFloatBuffer().get(floats);
                 String word = sb.toString();
+                allWords.accept(word);
                 if (FILTER.test(word)) {
-                    entries.put(word, floats);
-                }
-
-                // automatically detect if the dictionary is case-sensitive
-                if (!word.equals(word.toLowerCase())) {
-                    caseSensitive = true;
+                    consumer.accept(word, floats);
                 }
 
                 buffer.position(buffer.position() + 4 * vectorSize);
@@ -99,7 +127,7 @@ public class Word2VecReader {
                     bufferCount += 1;
                 }
             }
-            return new MapWordVectorDictionary(entries, vectorSize, caseSensitive, binFile);
+            return vectorSize;
         }
 
     }
@@ -8,4 +8,7 @@ public interface WordVectorDictionary {
     int vectorSize();
 
     boolean isCaseSensitive();
+
+    /** @return All words in this dictionary. */
+    Iterable<String> words();
 }
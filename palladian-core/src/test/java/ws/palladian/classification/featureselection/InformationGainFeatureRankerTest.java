@@ -3,10 +3,12 @@ package ws.palladian.classification.featureselection;
 import org.junit.Test;
 import ws.palladian.classification.utils.CsvDatasetReader;
 import ws.palladian.core.Instance;
+import ws.palladian.core.InstanceBuilder;
 import ws.palladian.helper.ProgressMonitor;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -48,4 +50,17 @@ public class InformationGainFeatureRankerTest {
         assertEquals(0.1649, result.getFeature("ash").getScore(), DELTA);
     }
 
+    @Test
+    public void testInformationGain_nullValues() {
+        // missing features count as null values
+        List<Instance> dataset = Arrays.asList( //
+                new InstanceBuilder().set("a", "x").set("b", "y").create("A"), //
+                new InstanceBuilder().set("a", "x").create("A"), //
+                new InstanceBuilder().set("b", "y").create("B"), //
+                new InstanceBuilder().setNull("a").create("B"));
+        FeatureRanking result = new InformationGainFeatureRanker().rankFeatures(dataset, new ProgressMonitor());
+        assertEquals(1, result.getFeature("a").getScore(), DELTA);
+        assertEquals(0, result.getFeature("b").getScore(), DELTA);
+    }
+
 }
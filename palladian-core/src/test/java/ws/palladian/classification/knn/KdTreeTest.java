@@ -0,0 +1,93 @@
+package ws.palladian.classification.knn;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KdTreeTest {
+
+    @Test
+    public void testNeighborHeap() {
+        NeighborHeap heap = new NeighborHeap(3);
+        assertTrue(heap.add(0, 5.));
+        assertTrue(heap.add(1, 1.));
+        assertTrue(heap.add(2, 3.));
+        assertTrue(heap.isFull());
+        assertEquals(5., heap.getMaxDistance(), 0);
+        assertFalse(heap.add(3, 7.));
+        assertTrue(heap.add(4, 2.));
+        // equal distance, but higher row index
+        assertFalse(heap.add(5, 3.));
+        heap.sort();
+        assertEquals(3, heap.size());
+        assertEquals(1, heap.getRow(0));
+        assertEquals(4, heap.getRow(1));
+        assertEquals(2, heap.getRow(2));
+        assertEquals(3., heap.getDistance(2), 0);
+    }
+
+    @Test
+    public void testSearch() {
+        Random random = new Random(1);
+        int numRows = 5000;
+        int numDimensions = 3;
+        float[] data = new float[numRows * numDimensions];
+        for (int i = 0; i < data.length; i++) {
+            // some missing values and duplicates
+            data[i] = random.nextInt(50) == 0 ? Float.NaN : random.nextInt(200) / 10f;
+        }
+        KdTree tree = new KdTree(numRows, numDimensions, (row, dimension) -> data[row * numDimensions + dimension]);
+        assertEquals(numRows, tree.size());
+        assertTrue(tree.getNumNodes() > 1);
+
+        float[] weights = {1, 2, 0.5f};
+        float[] missingPenalties = {3, 3, 3};
+        for (int q = 0; q < 100; q++) {
+            double[] query = new double[numDimensions];
+            for (int d = 0; d < numDimensions; d++) {
+                query[d] = q % 10 == 0 && d == 0 ? Double.NaN : random.nextDouble() * 20;
+            }
+            KdTree.RowDistance distance = row -> {
+                double result = 0;
+                for (int d = 0; d < numDimensions; d++) {
+                    float value = data[row * numDimensions + d];
+                    if (Double.isNaN(query[d]) || Float.isNaN(value)) {
+                        result += missingPenalties[d];
+                    } else {
+                        double diff = query[d] - value;
+                        result += weights[d] * diff * diff;
+                    }
+                }
+                return result;
+            };
+
+            NeighborHeap expected = new NeighborHeap(10);
+            for (int row = 0; row < numRows; row++) {
+                expected.add(row, distance.distance(row));
+            }
+            expected.sort();
+            NeighborHeap actual = new NeighborHeap(10);
+            tree.search(query, weights, missingPenalties, distance, actual);
+            actual.sort();
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(Arrays.toString(query), expected.getRow(i), actual.getRow(i));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyTree() {
+        KdTree tree = new KdTree(0, 2, (row, dimension) -> 0);
+        NeighborHeap heap = new NeighborHeap(3);
+        tree.search(new double[]{1, 2}, new float[]{1, 1}, new float[]{1, 1}, row -> 0, heap);
+        assertEquals(0, heap.size());
+    }
+
+}
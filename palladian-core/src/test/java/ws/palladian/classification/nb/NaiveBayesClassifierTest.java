@@ -115,6 +115,22 @@ public class NaiveBayesClassifierTest {
         assertTrue(matrix.getAccuracy() > 0.77);
     }
 
+    @Test
+    public void testBatchClassification() throws FileNotFoundException {
+        List<Instance> instances = new CsvDatasetReader(getResourceFile("/classifier/adultData.txt"), false).readAll();
+        NaiveBayesModel model = new NaiveBayesLearner().train(instances);
+        NaiveBayesClassifier classifier = new NaiveBayesClassifier();
+        List<FeatureVector> vectors = new ArrayList<>();
+        for (Instance instance : instances) {
+            vectors.add(instance.getVector());
+        }
+        List<CategoryEntries> results = classifier.classify(vectors, model);
+        assertEquals(vectors.size(), results.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            assertEquals(classifier.classify(vectors.get(i), model), results.get(i));
+        }
+    }
+
     @Test
     public void testSerialization() throws IOException {
         List<Instance> instances = new CsvDatasetReader(getResourceFile("/classifier/diabetesData.txt"), false).readAll();
@@ -30,4 +30,18 @@ public class DictionaryTrieModelTest extends AbstractDictionaryModelTest {
         assertEquals(4, model.getTermCounts().getCount(CATEGORY_2));
     }
 
+    @Test
+    public void testAddDictionary() {
+        DictionaryTrieModel.Builder builder = new DictionaryTrieModel.Builder();
+        builder.addDictionary(model);
+        builder.addDictionary(model);
+        DictionaryModel mergedModel = builder.create();
+        assertEquals(4, mergedModel.getNumUniqTerms());
+        assertEquals(5, mergedModel.getNumEntries());
+        assertEquals(12, mergedModel.getNumDocuments());
+        assertEquals(6, mergedModel.getCategoryEntries(WORD_3).getCount(CATEGORY_1));
+        assertEquals(2, mergedModel.getCategoryEntries(WORD_3).getCount(CATEGORY_2));
+        assertEquals(10, mergedModel.getTermCounts().getCount(CATEGORY_1));
+    }
+
 }
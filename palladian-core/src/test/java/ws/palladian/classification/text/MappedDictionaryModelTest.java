@@ -0,0 +1,56 @@
+package ws.palladian.classification.text;
+
+import org.junit.Before;
+import org.junit.Test;
+import ws.palladian.classification.text.DictionaryModel.DictionaryEntry;
+import ws.palladian.core.Category;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.helper.io.FileHelper;
+import ws.palladian.helper.io.ResourceHelper;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedDictionaryModelTest extends AbstractDictionaryModelTest {
+
+    private DictionaryModel trieModel;
+
+    @Before
+    public void setUpMapped() throws IOException {
+        trieModel = model;
+        File file = new File(FileHelper.getTempDir(), "dictionaryModel.mapped");
+        MappedDictionaryModel.write(trieModel, file);
+        model = MappedDictionaryModel.open(file);
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        File serializedModel = ResourceHelper.getResourceFile("/model/testDictionaryTrieModel_v1.ser");
+        File file = new File(FileHelper.getTempDir(), "dictionaryModel_v1.mapped");
+        MappedDictionaryModel convertedModel = MappedDictionaryModel.convert(serializedModel, file);
+        assertSameEntries(trieModel, convertedModel);
+        assertSameEntries(convertedModel, trieModel);
+    }
+
+    @Test
+    public void testSameEntries() {
+        assertEquals(trieModel.getNumUniqTerms(), model.getNumUniqTerms());
+        assertEquals(trieModel.getDocumentCounts(), model.getDocumentCounts());
+        assertEquals(trieModel.getTermCounts(), model.getTermCounts());
+        assertSameEntries(trieModel, model);
+        assertSameEntries(model, trieModel);
+    }
+
+    private static void assertSameEntries(DictionaryModel expected, DictionaryModel actual) {
+        for (DictionaryEntry entry : expected) {
+            CategoryEntries actualEntries = actual.getCategoryEntries(entry.getTerm());
+            assertEquals(entry.getCategoryEntries().getTotalCount(), actualEntries.getTotalCount());
+            for (Category category : entry.getCategoryEntries()) {
+                assertEquals(category.getCount(), actualEntries.getCount(category.getName()));
+            }
+        }
+    }
+
+}
@@ -1,15 +1,22 @@
 package ws.palladian.classification.text;
 
 import org.junit.Test;
+import ws.palladian.core.Category;
 import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.FeatureVector;
 import ws.palladian.core.Instance;
 import ws.palladian.core.InstanceBuilder;
+import ws.palladian.core.dataset.DefaultDataset;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static ws.palladian.classification.text.BayesScorer.Options.COMPLEMENT;
+import static ws.palladian.classification.text.BayesScorer.Options.LAPLACE;
 import static ws.palladian.classification.text.BayesScorer.Options.PRIORS;
 
 public class PalladianTextClassifierTest {
@@ -58,4 +65,68 @@ public class PalladianTextClassifierTest {
         assertEquals(0.88, result.getMostLikely().getProbability(), 0.01);
     }
 
+    @Test
+    public void testParallelTraining() {
+        List<Instance> manyDocs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            manyDocs.add(new InstanceBuilder().setText("Chinese Beijing " + i).create(i % 3 == 0 ? "yes" : "no"));
+            manyDocs.addAll(docs);
+        }
+        DictionaryModel model = new PalladianTextClassifier(featureSetting).train(new DefaultDataset(manyDocs));
+        DictionaryModel parallelModel = new PalladianTextClassifier(featureSetting).train(new DefaultDataset(manyDocs), 4);
+        assertEquals(model, parallelModel);
+        assertEquals(model.getNumUniqTerms(), parallelModel.getNumUniqTerms());
+        assertEquals(model.getTermCounts(), parallelModel.getTermCounts());
+    }
+
+    @Test
+    public void testBatchClassification() {
+        List<FeatureVector> vectors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            vectors.add(new InstanceBuilder().setText(i % 2 == 0 ? TEST_TEXT + " " + i : "Beijing Macao " + i).create());
+        }
+        for (FeatureSetting setting : Arrays.asList(featureSetting, FeatureSettingBuilder.chars(2, 5).create())) {
+            PalladianTextClassifier classifier = new PalladianTextClassifier(setting);
+            DictionaryModel model = classifier.train(docs);
+            List<CategoryEntries> results = classifier.classify(vectors, model);
+            assertEquals(vectors.size(), results.size());
+            for (int i = 0; i < vectors.size(); i++) {
+                assertEquals(classifier.classify(vectors.get(i), model), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testCharNGramScoring() {
+        FeatureSetting charSetting = FeatureSettingBuilder.chars(2, 5).characterPadding().maxTerms(30).create();
+        List<PalladianTextClassifier.Scorer> scorers = Arrays.asList(PalladianTextClassifier.DEFAULT_SCORER, new BayesScorer(LAPLACE),
+                ExperimentalScorers.KLScorer.INSTANCE);
+        for (PalladianTextClassifier.Scorer scorer : scorers) {
+            // the map model is classified through the generic path, the trie model through the CharNGramScoringEngine
+            PalladianTextClassifier mapClassifier = new PalladianTextClassifier(charSetting, new DictionaryMapModel.Builder());
+            DictionaryModel mapModel = mapClassifier.train(docs);
+            PalladianTextClassifier trieClassifier = new PalladianTextClassifier(charSetting, scorer);
+            DictionaryModel trieModel = trieClassifier.train(docs);
+            PalladianTextClassifier genericClassifier = new PalladianTextClassifier(charSetting, scorer);
+            for (String text : Arrays.asList(TEST_TEXT, "Beijing", "xyz", "", "Chinese Macao Chinese Shanghai Tokyo")) {
+                CategoryEntries expected = genericClassifier.classify(text, mapModel);
+                CategoryEntries actual = trieClassifier.classify(text, trieModel);
+                assertEquals(expected.size(), actual.size());
+                for (Category category : expected) {
+                    assertEquals(category.getProbability(), actual.getProbability(category.getName()), 0.0001);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testThreadSafety() {
+        assertTrue(new PalladianTextClassifier(featureSetting).isThreadSafe());
+        assertTrue(new PalladianTextClassifier(featureSetting, new BayesScorer(LAPLACE)).isThreadSafe());
+        // the thread-safety of other scorers is unknown
+        PalladianTextClassifier.Scorer customScorer = new PalladianTextClassifier.DefaultScorer() {
+        };
+        assertFalse(new PalladianTextClassifier(featureSetting, customScorer).isThreadSafe());
+    }
+
 }
@@ -0,0 +1,84 @@
+package ws.palladian.extraction.location;
+
+import org.junit.Test;
+import ws.palladian.extraction.location.LocationExtractionPipeline.Stage;
+import ws.palladian.extraction.location.sources.CollectionLocationStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LocationExtractionPipelineTest {
+
+    private static final String[] TEXTS = {
+            "The mayor of Berlin met with officials from Paris on Monday.",
+            "Nikki Lynn Barlow, 18, of 208 Routon St. was arrested in Dresden.",
+            "No locations in this sentence at all.",
+            "The ship was last seen at 52.5200° N, 13.4050° E, near Potsdam and Berlin.",
+            "From London to Paris, and then back to London via Calais."
+    };
+
+    private static PalladianLocationExtractor createExtractor() {
+        CollectionLocationStore store = new CollectionLocationStore();
+        store.save(new LocationBuilder().setId(1).setPrimaryName("Berlin").setType(LocationType.CITY).setCoordinate(52.52437, 13.41053).setPopulation(3426354L).create());
+        store.save(new LocationBuilder().setId(2).setPrimaryName("Paris").setType(LocationType.CITY).setCoordinate(48.85341, 2.3488).setPopulation(2138551L).create());
+        store.save(new LocationBuilder().setId(3).setPrimaryName("Dresden").setType(LocationType.CITY).setCoordinate(51.05089, 13.73832).setPopulation(486854L).create());
+        store.save(new LocationBuilder().setId(4).setPrimaryName("Potsdam").setType(LocationType.CITY).setCoordinate(52.39886, 13.06566).setPopulation(140809L).create());
+        store.save(new LocationBuilder().setId(5).setPrimaryName("London").setType(LocationType.CITY).setCoordinate(51.50853, -0.12574).setPopulation(7556900L).create());
+        store.save(new LocationBuilder().setId(6).setPrimaryName("Calais").setType(LocationType.CITY).setCoordinate(50.95194, 1.85635).setPopulation(75836L).create());
+        return new PalladianLocationExtractor(store);
+    }
+
+    @Test
+    public void testPipeline() {
+        PalladianLocationExtractor extractor = createExtractor();
+        List<String> texts = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String text = TEXTS[i % TEXTS.length];
+            texts.add(text);
+            expected.add(extractor.getAnnotations(text).toString());
+        }
+        try (LocationExtractionPipeline pipeline = new LocationExtractionPipeline(extractor, 3, 4)) {
+            Iterator<List<LocationAnnotation>> results = pipeline.process(texts.iterator());
+            for (String expectedResult : expected) {
+                assertEquals(expectedResult, results.next().toString());
+            }
+            assertFalse(results.hasNext());
+            for (Stage stage : Stage.values()) {
+                assertEquals(20, pipeline.getDocumentCount(stage));
+            }
+        }
+        // the sample texts contain locations
+        assertFalse(expected.get(0).equals("[]"));
+
+        try (Stream<List<LocationAnnotation>> stream = extractor.getAnnotations(texts.stream(), 2, 3)) {
+            List<String> streamed = stream.map(Object::toString).collect(Collectors.toList());
+            assertEquals(expected, streamed);
+        }
+    }
+
+    @Test
+    public void testStreamStopsThreadsWhenConsumed() throws InterruptedException {
+        PalladianLocationExtractor extractor = createExtractor();
+        List<List<LocationAnnotation>> results = extractor.getAnnotations(Arrays.stream(TEXTS), 2, 2).collect(Collectors.toList());
+        assertEquals(TEXTS.length, results.size());
+        // the stream was not closed; the threads are stopped anyway, after the last result
+        long end = System.currentTimeMillis() + 10000;
+        while (hasPipelineThreads() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertFalse(hasPipelineThreads());
+    }
+
+    private static boolean hasPipelineThreads() {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.isAlive() && t.getName().startsWith("location-extraction-"));
+    }
+
+}
@@ -233,6 +233,19 @@ public abstract class AbstractLocationStoreTest {
         assertEqualLocations(byId(2926304, TEST_LOCATIONS), byId(2926304, flein));
     }
 
+    @Test
+    public void testGetLocationsByNames() {
+        MultiMap<String, Location> locations = locationSource.getLocations(Arrays.asList("Flein", "stuttgart", "Shtutgarti", "Nowhere"), EnumSet.of(Language.ALBANIAN));
+        assertEquals(2, locations.get("Flein").size());
+        assertContainsLocation(6555517, locations.get("Flein"));
+        assertContainsLocation(2926304, locations.get("Flein"));
+        assertEquals(1, locations.get("stuttgart").size());
+        assertEqualLocations(byId(2825297, TEST_LOCATIONS), locations.getFirst("stuttgart"));
+        assertEquals(1, locations.get("Shtutgarti").size());
+        assertEqualLocations(byId(2825297, TEST_LOCATIONS), locations.getFirst("Shtutgarti"));
+        assertEquals(0, locations.get("Nowhere").size());
+    }
+
     @Test
     public void testSize() {
         assertEquals(10, locationSource.size());
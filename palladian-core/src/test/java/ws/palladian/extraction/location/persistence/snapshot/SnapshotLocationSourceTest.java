@@ -0,0 +1,54 @@
+package ws.palladian.extraction.location.persistence.snapshot;
+
+import org.junit.Test;
+import ws.palladian.extraction.location.AlternativeName;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationBuilder;
+import ws.palladian.extraction.location.LocationSource;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.extraction.location.persistence.AbstractLocationStoreTest;
+import ws.palladian.extraction.location.sources.LocationStore;
+import ws.palladian.helper.constants.Language;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotLocationSourceTest extends AbstractLocationStoreTest {
+
+    private final File snapshotFile = FileHelper.getTempFile();
+
+    @Override
+    public LocationStore createLocationStore() {
+        return new SnapshotLocationStore(snapshotFile);
+    }
+
+    @Override
+    public LocationSource createLocationSource() {
+        return new SnapshotLocationSource(snapshotFile);
+    }
+
+    @Test
+    public void testLanguagesWithHighOrdinals() {
+        // the codes of the last languages do not fit into a signed byte
+        File file = FileHelper.getTempFile();
+        SnapshotLocationStore store = new SnapshotLocationStore(file);
+        store.startImport();
+        store.save(new LocationBuilder().setId(1).setPrimaryName("Johannesburg").setType(LocationType.CITY) //
+                .addAlternativeName("eGoli", Language.ZULU).addAlternativeName("Joburg", Language.ZARMA).create());
+        store.finishImport();
+        SnapshotLocationSource source = new SnapshotLocationSource(file);
+
+        Location location = source.getLocation(1);
+        assertTrue(location.getAlternativeNames().contains(new AlternativeName("eGoli", Language.ZULU)));
+        assertTrue(location.getAlternativeNames().contains(new AlternativeName("Joburg", Language.ZARMA)));
+        Collection<Location> locations = source.getLocations("egoli", EnumSet.of(Language.ZULU));
+        assertEquals(1, locations.size());
+        assertTrue(source.getLocations("egoli", EnumSet.of(Language.ENGLISH)).isEmpty());
+    }
+
+}
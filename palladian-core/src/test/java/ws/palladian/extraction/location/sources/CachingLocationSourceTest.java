@@ -0,0 +1,152 @@
+package ws.palladian.extraction.location.sources;
+
+import org.junit.Test;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationBuilder;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.helper.constants.Language;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CachingLocationSourceTest {
+
+    private static final Set<Language> LANGUAGES = EnumSet.of(Language.ENGLISH);
+
+    /** Counts the requests, and optionally blocks them until released. */
+    private static final class CountingLocationSource extends SingleQueryLocationSource {
+
+        final Map<String, List<Location>> locations = new HashMap<>();
+        final AtomicInteger nameRequests = new AtomicInteger();
+        final AtomicInteger idRequests = new AtomicInteger();
+        volatile CountDownLatch latch;
+
+        CountingLocationSource(int numLocations) {
+            for (int i = 1; i <= numLocations; i++) {
+                Location location = new LocationBuilder().setId(i).setPrimaryName("location" + i).setType(LocationType.CITY).create();
+                locations.put(location.getPrimaryName(), Collections.singletonList(location));
+            }
+        }
+
+        @Override
+        public Collection<Location> getLocations(String locationName, Set<Language> languages) {
+            nameRequests.incrementAndGet();
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return locations.getOrDefault(locationName, Collections.emptyList());
+        }
+
+        @Override
+        public Location getLocation(int locationId) {
+            idRequests.incrementAndGet();
+            List<Location> result = locations.get("location" + locationId);
+            return result != null ? result.get(0) : null;
+        }
+
+    }
+
+    @Test
+    public void testCaching() {
+        CountingLocationSource wrapped = new CountingLocationSource(10);
+        CachingLocationSource cache = new CachingLocationSource(wrapped, 100);
+
+        assertEquals(1, cache.getLocations("location1", LANGUAGES).size());
+        assertEquals(1, cache.getLocations("location1", LANGUAGES).size());
+        assertEquals(1, wrapped.nameRequests.get());
+        // unknown names are cached as well
+        assertTrue(cache.getLocations("unknown", LANGUAGES).isEmpty());
+        assertTrue(cache.getLocations("unknown", LANGUAGES).isEmpty());
+        assertEquals(2, wrapped.nameRequests.get());
+
+        assertEquals(2, cache.getLocation(2).getId());
+        assertEquals(2, cache.getLocation(2).getId());
+        assertNull(cache.getLocation(11));
+        assertNull(cache.getLocation(11));
+        assertEquals(2, wrapped.idRequests.get());
+        List<Location> locations = cache.getLocations(Arrays.asList(3, 2, 11));
+        assertEquals(3, locations.size());
+        assertEquals(3, locations.get(0).getId());
+        assertEquals(2, locations.get(1).getId());
+        assertNull(locations.get(2));
+        assertEquals(3, wrapped.idRequests.get());
+
+        CachingLocationSource.Statistics statistics = cache.getStatistics();
+        assertEquals(11, statistics.getRequestCount());
+        assertEquals(6, statistics.getHitCount());
+        assertEquals(5, statistics.getMissCount());
+        assertEquals(5, statistics.getLoadCount());
+        assertEquals(6. / 11, statistics.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testEviction() {
+        CountingLocationSource wrapped = new CountingLocationSource(1000);
+        CachingLocationSource cache = new CachingLocationSource(wrapped, 100);
+        for (int i = 1; i <= 1000; i++) {
+            cache.getLocations("location" + i, LANGUAGES);
+        }
+        CachingLocationSource.Statistics statistics = cache.getNameStatistics();
+        assertTrue(statistics.getWeight() <= 100);
+        assertTrue(statistics.getSize() > 0);
+        assertEquals(1000 - statistics.getSize(), statistics.getEvictionCount());
+    }
+
+    @Test
+    public void testHeavyEntry() {
+        CountingLocationSource wrapped = new CountingLocationSource(10);
+        List<Location> heavy = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            heavy.add(new LocationBuilder().setId(100 + i).setPrimaryName("heavy").setType(LocationType.CITY).create());
+        }
+        wrapped.locations.put("heavy", heavy);
+        // more than the share of one segment
+        CachingLocationSource cache = new CachingLocationSource(wrapped, 5000);
+        assertEquals(400, cache.getLocations("heavy", LANGUAGES).size());
+        assertEquals(400, cache.getLocations("heavy", LANGUAGES).size());
+        assertEquals(1, wrapped.nameRequests.get());
+        for (int i = 1; i <= 10; i++) {
+            cache.getLocations("location" + i, LANGUAGES);
+        }
+        assertEquals(410, cache.getNameStatistics().getWeight());
+        // more than the whole cache
+        CachingLocationSource smallCache = new CachingLocationSource(wrapped, 100);
+        smallCache.getLocations("heavy", LANGUAGES);
+        assertEquals(0, smallCache.getNameStatistics().getWeight());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        CountingLocationSource wrapped = new CountingLocationSource(10);
+        wrapped.latch = new CountDownLatch(1);
+        CachingLocationSource cache = new CachingLocationSource(wrapped, 100);
+        int numThreads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Collection<Location>>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> cache.getLocations("location1", LANGUAGES)));
+            }
+            // wait until the other threads wait for the first one
+            while (cache.getNameStatistics().getCoalescedCount() < numThreads - 1) {
+                Thread.sleep(10);
+            }
+            wrapped.latch.countDown();
+            for (Future<Collection<Location>> future : futures) {
+                assertEquals(1, future.get().size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, wrapped.nameRequests.get());
+        assertEquals(numThreads - 1, cache.getNameStatistics().getCoalescedCount());
+    }
+
+}
@@ -0,0 +1,126 @@
+package ws.palladian.extraction.text.vector;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import ws.palladian.core.InstanceBuilder;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HnswIndexTest {
+
+    private static Map<String, float[]> createVectors(int numVectors, int dimension, Random random) {
+        // clustered vectors, like embeddings of related words
+        float[][] centers = new float[20][dimension];
+        for (float[] center : centers) {
+            for (int i = 0; i < dimension; i++) {
+                center[i] = (float) random.nextGaussian();
+            }
+        }
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (int v = 0; v < numVectors; v++) {
+            float[] center = centers[v % centers.length];
+            float[] vector = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = center[i] + 0.5f * (float) random.nextGaussian();
+            }
+            vectors.put("word" + v, vector);
+        }
+        return vectors;
+    }
+
+    private static List<String> bruteForce(Map<String, float[]> vectors, float[] query, int k) {
+        List<Pair<String, Float>> similarities = new ArrayList<>();
+        for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+            similarities.add(Pair.of(entry.getKey(), FloatVectorUtil.cosine(query, entry.getValue())));
+        }
+        similarities.sort((p1, p2) -> Float.compare(p2.getValue(), p1.getValue()));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            result.add(similarities.get(i).getKey());
+        }
+        return result;
+    }
+
+    private static double recall(HnswIndex index, Map<String, float[]> vectors, Random random, int ef) {
+        int dimension = index.dimension();
+        int found = 0;
+        int total = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                query[i] = (float) random.nextGaussian();
+            }
+            List<String> expected = bruteForce(vectors, query, 10);
+            List<Pair<String, Float>> actual = index.nearest(query, 10, ef);
+            assertEquals(10, actual.size());
+            for (Pair<String, Float> neighbor : actual) {
+                if (expected.contains(neighbor.getKey())) {
+                    found++;
+                }
+            }
+            total += expected.size();
+        }
+        return (double) found / total;
+    }
+
+    @Test
+    public void testNearest() {
+        Random random = new Random(1);
+        Map<String, float[]> vectors = createVectors(5000, 32, random);
+        HnswIndex.Builder builder = new HnswIndex.Builder(32);
+        vectors.forEach(builder::add);
+        HnswIndex index = builder.create();
+        assertEquals(5000, index.size());
+
+        assertTrue(recall(index, vectors, random, HnswIndex.DEFAULT_EF) > 0.9);
+        assertTrue(recall(index, vectors, random, 200) > 0.97);
+
+        // the vector itself is the most similar one
+        List<Pair<String, Float>> nearest = index.nearest(vectors.get("word42"), 5);
+        assertEquals("word42", nearest.get(0).getKey());
+        assertEquals(1, nearest.get(0).getValue(), 0.0001);
+        assertTrue(nearest.get(1).getValue() <= nearest.get(0).getValue());
+    }
+
+    @Test
+    public void testDictionaryAndSerialization() throws Exception {
+        Map<String, float[]> vectors = createVectors(500, 8, new Random(2));
+        MapWordVectorDictionary dictionary = new MapWordVectorDictionary(vectors, 8, false, new File("test.vec"));
+        HnswIndex index = HnswIndex.build(dictionary);
+        assertEquals(500, index.size());
+
+        File tempFile = new File(FileHelper.getTempDir(), "hnswIndex.ser.gz");
+        FileHelper.serialize(index, tempFile.getPath());
+        HnswIndex loadedIndex = FileHelper.deserialize(tempFile.getPath());
+        FileHelper.delete(tempFile);
+        assertEquals(index.nearest(vectors.get("word1"), 10), loadedIndex.nearest(vectors.get("word1"), 10));
+    }
+
+    @Test
+    public void testEmbeddingTextVectorizer() {
+        Map<String, float[]> vectors = new HashMap<>();
+        vectors.put("cat", new float[]{1, 0, 0});
+        vectors.put("dog", new float[]{0.9f, 0.1f, 0});
+        vectors.put("car", new float[]{0, 1, 0});
+        vectors.put("bus", new float[]{0, 0.9f, 0.1f});
+        vectors.put("tree", new float[]{0, 0, 1});
+        EmbeddingTextVectorizer vectorizer = new EmbeddingTextVectorizer("text", new MapWordVectorDictionary(vectors, 3, false, new File("test.vec")));
+        HnswIndex.Builder builder = new HnswIndex.Builder(3);
+        builder.add("pets", vectorizer.vectorize("The cat and the dog"));
+        builder.add("traffic", vectorizer.vectorize("A car and a bus"));
+        builder.add("forest", vectorizer.vectorize("Tree tree tree"));
+        HnswIndex index = builder.create();
+        assertEquals("traffic", vectorizer.nearest("bus", index, 1).get(0).getKey());
+        assertEquals("pets", vectorizer.nearest("Dog", index, 3).get(0).getKey());
+
+        // the feature vector contains the same values as the document vector
+        float[] documentVector = vectorizer.vectorize("cat car");
+        assertEquals(documentVector[1], vectorizer.apply(new InstanceBuilder().setText("cat car").create()).getNumeric("embedding-1").getFloat(), 0);
+    }
+
+}
@@ -0,0 +1,115 @@
+package ws.palladian.extraction.text.vector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MappedWordVectorDictionaryTest {
+
+    private File tempDir;
+
+    @Before
+    public void setUp() {
+        tempDir = new File(FileHelper.getTempDir(), "mappedWordVectors-" + UUID.randomUUID());
+        assertTrue(tempDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        FileHelper.delete(tempDir.getPath(), true);
+    }
+
+    private static MapWordVectorDictionary createDictionary() {
+        Random random = new Random(1);
+        Map<String, float[]> entries = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            float[] vector = new float[10];
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+            entries.put("word" + i, vector);
+        }
+        entries.put("über", new float[10]);
+        return new MapWordVectorDictionary(entries, 10, false, new File("test.vec"));
+    }
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        MapWordVectorDictionary dictionary = createDictionary();
+        File file = new File(tempDir, "vectors.bin");
+        MappedWordVectorDictionary.write(dictionary, file, false);
+        MappedWordVectorDictionary mappedDictionary = MappedWordVectorDictionary.open(file);
+
+        assertEquals(dictionary.size(), mappedDictionary.size());
+        assertEquals(10, mappedDictionary.vectorSize());
+        assertFalse(mappedDictionary.isCaseSensitive());
+        assertFalse(mappedDictionary.isQuantized());
+        for (Map.Entry<String, float[]> entry : dictionary.getEntries().entrySet()) {
+            assertArrayEquals(entry.getValue(), mappedDictionary.getVector(entry.getKey()), 0);
+        }
+        assertNull(mappedDictionary.getVector("word1000"));
+        assertNull(mappedDictionary.getVector(""));
+
+        FloatBuffer buffer = mappedDictionary.getVectorBuffer("word42");
+        assertEquals(10, buffer.remaining());
+        assertEquals(dictionary.getVector("word42")[3], buffer.get(3), 0);
+
+        List<String> words = new ArrayList<>();
+        mappedDictionary.words().forEach(words::add);
+        assertEquals(dictionary.size(), words.size());
+        assertEquals("word0", words.get(0));
+        assertEquals("über", words.get(words.size() - 1));
+    }
+
+    @Test
+    public void testQuantized() throws IOException {
+        MapWordVectorDictionary dictionary = createDictionary();
+        File file = new File(tempDir, "vectors.bin");
+        MappedWordVectorDictionary.write(dictionary, file, true);
+        MappedWordVectorDictionary mappedDictionary = MappedWordVectorDictionary.open(file);
+        assertTrue(mappedDictionary.isQuantized());
+        for (Map.Entry<String, float[]> entry : dictionary.getEntries().entrySet()) {
+            float[] expected = entry.getValue();
+            float[] actual = mappedDictionary.getVector(entry.getKey());
+            float max = 0;
+            for (float value : expected) {
+                max = Math.max(max, Math.abs(value));
+            }
+            assertArrayEquals(expected, actual, max / 127 / 2 + 1e-6f);
+        }
+        assertArrayEquals(new float[10], mappedDictionary.getVector("über"), 0);
+    }
+
+    @Test
+    public void testConvertVecFile() throws IOException {
+        File vecFile = new File(tempDir, "vectors.vec");
+        FileHelper.writeToFile(vecFile.getPath(), "3 2\nHouse 0.5 1.5\ntree -1 2\nhouse 3 4\n");
+        File file = new File(tempDir, "vectors.bin");
+        MappedWordVectorDictionary dictionary = MappedWordVectorDictionary.convert(vecFile, file, false);
+        assertEquals(3, dictionary.size());
+        assertEquals(2, dictionary.vectorSize());
+        assertTrue(dictionary.isCaseSensitive());
+        assertArrayEquals(new float[]{0.5f, 1.5f}, dictionary.getVector("House"), 0);
+        assertArrayEquals(new float[]{3, 4}, dictionary.getVector("house"), 0);
+        assertArrayEquals(new float[]{-1, 2}, dictionary.getVector("tree"), 0);
+    }
+
+    @Test
+    public void testReadVecFileWithoutHeader() throws IOException {
+        // one dimension, so the first line also has two tokens
+        File vecFile = new File(tempDir, "vectors1.vec");
+        FileHelper.writeToFile(vecFile.getPath(), "tree 0.5\nhouse 2\n");
+        MapWordVectorDictionary dictionary = MapWordVectorDictionary.readFromVecFile(vecFile);
+        assertEquals(2, dictionary.size());
+        assertArrayEquals(new float[]{0.5f}, dictionary.getVector("tree"), 0);
+    }
+
+}
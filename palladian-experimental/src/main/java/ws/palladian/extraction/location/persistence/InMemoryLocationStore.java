@@ -1,5 +1,8 @@
 package ws.palladian.extraction.location.persistence;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import org.apache.commons.lang.Validate;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -12,6 +15,7 @@ import ws.palladian.helper.ProgressReporter;
 import ws.palladian.helper.collection.AbstractIterator2;
 import ws.palladian.helper.constants.Language;
 import ws.palladian.helper.geo.GeoCoordinate;
+import ws.palladian.helper.geo.PackedRTree;
 
 import java.util.*;
 
@@ -35,6 +39,14 @@ public final class InMemoryLocationStore extends SingleQueryLocationSource imple
     private final LocationContainer[] locations;
     private int size;
 
+    /**
+     * The locations with coordinates (each location once, as the array above contains a location for each name), and
+     * an index over them with the positions in the array as IDs; built on first use and discarded when locations are
+     * saved.
+     */
+    private volatile LocationContainer[] spatialLocations;
+    private volatile PackedRTree spatialIndex;
+
     public InMemoryLocationStore(int capacity) {
         keys = new int[capacity];
         locations = new LocationContainer[capacity];
@@ -123,6 +135,48 @@ public final class InMemoryLocationStore extends SingleQueryLocationSource imple
             add(name, locationContainer);
         }
         size++;
+        spatialIndex = null;
+    }
+
+    @Override
+    public List<Location> getLocations(GeoCoordinate coordinate, double distance) {
+        Validate.notNull(coordinate, "coordinate must not be null");
+        Validate.isTrue(distance >= 0, "distance must be greater/equal zero");
+        PackedRTree index;
+        LocationContainer[] indexedLocations;
+        synchronized (this) {
+            if (spatialIndex == null) {
+                buildSpatialIndex();
+            }
+            index = spatialIndex;
+            indexedLocations = spatialLocations;
+        }
+        IntArrayList indices = index.findWithin(coordinate.getLatitude(), coordinate.getLongitude(), distance);
+        List<Location> result = new ArrayList<>(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            result.add(indexedLocations[index.getId(indices.getInt(i))].createLocation());
+        }
+        return result;
+    }
+
+    private void buildSpatialIndex() {
+        IntSet ids = new IntOpenHashSet();
+        List<LocationContainer> containers = new ArrayList<>();
+        for (LocationContainer location : locations) {
+            if (location != null && !Float.isNaN(location.lat) && ids.add(location.id)) {
+                containers.add(location);
+            }
+        }
+        double[] lats = new double[containers.size()];
+        double[] lngs = new double[containers.size()];
+        int[] positions = new int[containers.size()];
+        for (int i = 0; i < containers.size(); i++) {
+            lats[i] = containers.get(i).lat;
+            lngs[i] = containers.get(i).lng;
+            positions[i] = i;
+        }
+        spatialLocations = containers.toArray(new LocationContainer[0]);
+        spatialIndex = new PackedRTree(lats, lngs, positions);
     }
 
     private void add(String name, LocationContainer location) {
@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * <p>
@@ -36,6 +37,21 @@ public class DatabaseManager {
      */
     private final DataSource dataSource;
 
+    /** The default number of rows which are sent to the database with one {@link PreparedStatement#executeBatch()}. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** Marks the end of the data in the queue of a parallel batch insertion. */
+    private static final List<List<?>> END_OF_DATA = new ArrayList<>(0);
+
+    /** The number of rows which are sent to the database at once during batch operations. */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Whether the driver returns the generated keys of all rows in a batch; <code>null</code> as long as this is not
+     * known.
+     */
+    private volatile Boolean batchGeneratedKeys;
+
     /** Since we catch db errors, this field holds the last thrown error to be retrieved from the outside. */
     private static StringBuilder lastError;
 
@@ -67,6 +83,24 @@ public class DatabaseManager {
         return dataSource.getConnection();
     }
 
+    /**
+     * <p>
+     * Set the number of rows which are sent to the database with one {@link PreparedStatement#executeBatch()} during
+     * batch insertions and updates. Larger chunks reduce the number of round trips, but need more memory.
+     * </p>
+     *
+     * @param batchSize The batch size, greater zero. Default is {@value #DEFAULT_BATCH_SIZE}.
+     */
+    public final void setBatchSize(int batchSize) {
+        Validate.isTrue(batchSize > 0, "batchSize must be greater zero");
+        this.batchSize = batchSize;
+    }
+
+    /** @return The number of rows which are sent to the database at once during batch operations. */
+    public final int getBatchSize() {
+        return batchSize;
+    }
+
     /**
      * <p>
      * Check, whether an item for the specified query exists.
@@ -101,7 +135,8 @@ public class DatabaseManager {
      * <p>
      * Run a batch insertion. The generated ID for each inserted object is provided via the {@link BatchDataProvider}.
      * For each successful insertion, {@link BatchDataProvider#insertedItem(int, int)} is triggered to allow access to
-     * the generated ID.
+     * the generated ID. The rows are sent to the database in chunks of {@link #getBatchSize()} rows, all rows are
+     * inserted in one transaction.
      * </p>
      *
      * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
@@ -111,74 +146,230 @@ public class DatabaseManager {
     public final int runBatchInsert(String sql, BatchDataProvider provider) {
         Validate.notEmpty(sql, "sql must not be empty");
         Validate.notNull(provider, "provider must not be null");
+        return runBatchInsert(sql, new BatchDataProviderAdapter(provider, false), true);
+    }
 
-        Connection connection = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        int affectedRows = 0;
-        List<?> data = null;
+    /**
+     * <p>
+     * Run a batch insertion without retrieving generated IDs; {@link BatchDataProvider#insertedItem(int, int)} is
+     * triggered with <code>-1</code> for each inserted row.
+     * </p>
+     *
+     * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
+     * @param provider A callback, which provides the necessary data for the insertion, not <code>null</code>.
+     * @return The number of inserted rows.
+     */
+    public final int runBatchInsertNoIds(String sql, BatchDataProvider provider) {
+        Validate.notEmpty(sql, "sql must not be empty");
+        Validate.notNull(provider, "provider must not be null");
+        return runBatchInsert(sql, new BatchDataProviderAdapter(provider, false), false);
+    }
 
-        try {
-            connection = getConnection();
-            connection.setAutoCommit(false);
+    /**
+     * <p>
+     * Run a batch insertion. The generated <code>long</code> ID for each inserted object is provided via
+     * {@link BatchDataProvider#insertedItemLongId(int, long)}.
+     * </p>
+     *
+     * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
+     * @param provider A callback, which provides the necessary data for the insertion, not <code>null</code>.
+     * @return The number of inserted rows.
+     */
+    public final long runBatchInsertLongId(String sql, BatchDataProvider provider) {
+        Validate.notEmpty(sql, "sql must not be empty");
+        Validate.notNull(provider, "provider must not be null");
+        return runBatchInsert(sql, new BatchDataProviderAdapter(provider, true), true);
+    }
 
-            ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    /**
+     * <p>
+     * Run a batch insertion with data which is streamed from the provider, until it returns <code>null</code>. The
+     * generated IDs are provided via {@link StreamingBatchDataProvider#insertedItem(int, long)}. The rows are sent to
+     * the database in chunks of {@link #getBatchSize()} rows, all rows are inserted in one transaction.
+     * </p>
+     *
+     * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
+     * @param provider A callback, which provides the necessary data for the insertion, not <code>null</code>.
+     * @return The number of inserted rows.
+     */
+    public final int runBatchInsert(String sql, StreamingBatchDataProvider provider) {
+        Validate.notEmpty(sql, "sql must not be empty");
+        Validate.notNull(provider, "provider must not be null");
+        return runBatchInsert(sql, provider, true);
+    }
 
-            for (int i = 0; i < provider.getCount(); i++) {
-                data = provider.getData(i);
-                fillPreparedStatement(ps, data);
-                ps.executeUpdate();
+    /**
+     * <p>
+     * Run a batch insertion with data which is streamed from the provider, until it returns <code>null</code>, without
+     * retrieving generated IDs.
+     * </p>
+     *
+     * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
+     * @param provider A callback, which provides the necessary data for the insertion, not <code>null</code>.
+     * @return The number of inserted rows.
+     */
+    public final int runBatchInsertNoIds(String sql, StreamingBatchDataProvider provider) {
+        Validate.notEmpty(sql, "sql must not be empty");
+        Validate.notNull(provider, "provider must not be null");
+        return runBatchInsert(sql, provider, false);
+    }
 
-                rs = ps.getGeneratedKeys();
-                if (rs.next()) {
-                    provider.insertedItem(i, rs.getInt(1));
-                } else if (ps.getUpdateCount() == 1) {
-                    // no ID generated
-                    provider.insertedItem(i, -1);
-                }
-                affectedRows++;
+    /**
+     * <p>
+     * Run a batch insertion, which is split across several connections from the pool. The data is read from the
+     * provider in the calling thread, the chunks are inserted by the given number of threads, each using its own
+     * connection and transaction. The transactions are only committed after all chunks have been inserted
+     * successfully, in case of an error, all of them are rolled back. Generated IDs are not retrieved, and the order
+     * of the inserted rows is not preserved.
+     * </p>
+     *
+     * @param sql        Update statement which may contain parameter markers, not <code>null</code> or empty.
+     * @param provider   A callback, which provides the necessary data for the insertion, not <code>null</code>.
+     * @param numThreads The number of threads (and connections) to use, greater zero.
+     * @return The number of inserted rows.
+     */
+    public final int runParallelBatchInsert(String sql, StreamingBatchDataProvider provider, int numThreads) {
+        Validate.notEmpty(sql, "sql must not be empty");
+        Validate.notNull(provider, "provider must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+        if (numThreads == 1) {
+            return runBatchInsert(sql, provider, false);
+        }
+
+        List<Connection> connections = new ArrayList<>();
+        List<Future<Integer>> futures = new ArrayList<>();
+        BlockingQueue<List<List<?>>> queue = new ArrayBlockingQueue<>(2 * numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        int affectedRows = 0;
+
+        try {
+            for (int i = 0; i < numThreads; i++) {
+                Connection connection = getConnection();
+                connections.add(connection);
+                connection.setAutoCommit(false);
+                PreparedStatement ps = connection.prepareStatement(sql);
+                futures.add(executor.submit(() -> {
+                    int insertedRows = 0;
+                    List<List<?>> chunk = null;
+                    try {
+                        while ((chunk = queue.take()) != END_OF_DATA) {
+                            for (List<?> args : chunk) {
+                                fillPreparedStatement(ps, args);
+                                ps.addBatch();
+                            }
+                            ps.executeBatch();
+                            insertedRows += chunk.size();
+                        }
+                    } catch (SQLException e) {
+                        // only the worker knows the row which failed
+                        logError(e, sql, getFailedRow(e, chunk));
+                        throw e;
+                    } finally {
+                        close(ps);
+                    }
+                    return insertedRows;
+                }));
             }
 
-            connection.commit();
-            connection.setAutoCommit(true);
+            List<List<?>> chunk = new ArrayList<>(batchSize);
+            for (List<?> data; (data = provider.next()) != null; ) {
+                chunk.add(data);
+                if (chunk.size() == batchSize) {
+                    enqueue(queue, chunk, futures);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (chunk.size() > 0) {
+                enqueue(queue, chunk, futures);
+            }
+            for (int i = 0; i < numThreads; i++) {
+                enqueue(queue, END_OF_DATA, futures);
+            }
+            for (Future<Integer> future : futures) {
+                affectedRows += future.get();
+            }
+            for (Connection connection : connections) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException e) {
-            rollback(connection);
-            affectedRows = 0;
-            Object[] args = null;
-            if (data != null) {
-                args = data.toArray();
+            affectedRows = rollbackParallel(executor, connections);
+            logError(e, sql);
+        } catch (ExecutionException e) {
+            affectedRows = rollbackParallel(executor, connections);
+            Throwable cause = e.getCause();
+            if (!(cause instanceof SQLException)) { // SQLExceptions were logged by the worker
+                throw new IllegalStateException("Exception during parallel batch insertion", cause);
             }
-            logError(e, sql, args);
+        } catch (InterruptedException e) {
+            affectedRows = rollbackParallel(executor, connections);
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // e.g. from the provider
+            rollbackParallel(executor, connections);
+            throw e;
         } finally {
-            close(connection, ps, rs);
+            executor.shutdownNow();
+            for (Connection connection : connections) {
+                close(connection);
+            }
         }
 
         return affectedRows;
     }
 
-    public final int runBatchInsertNoIds(String sql, BatchDataProvider provider) {
-        Validate.notEmpty(sql, "sql must not be empty");
-        Validate.notNull(provider, "provider must not be null");
+    /**
+     * Put a chunk into the queue for the workers of a parallel insertion; fails fast, in case a worker finished
+     * unexpectedly, because of an exception.
+     */
+    private static void enqueue(BlockingQueue<List<List<?>>> queue, List<List<?>> chunk, List<Future<Integer>> workers)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<Integer> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("Worker finished before the end of the data");
+                }
+            }
+        }
+    }
+
+    private static int rollbackParallel(ExecutorService executor, List<Connection> connections) {
+        executor.shutdownNow();
+        try {
+            // wait for running batches, before the connections are rolled back
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Connection connection : connections) {
+            rollback(connection);
+        }
+        return 0;
+    }
 
+    private int runBatchInsert(String sql, StreamingBatchDataProvider provider, boolean generatedKeys) {
         Connection connection = null;
         PreparedStatement ps = null;
-        ResultSet rs = null;
         int affectedRows = 0;
-        List<?> data = null;
+        List<List<?>> chunk = new ArrayList<>(batchSize);
 
         try {
             connection = getConnection();
             connection.setAutoCommit(false);
 
-            ps = connection.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
-
-            for (int i = 0; i < provider.getCount(); i++) {
-                data = provider.getData(i);
-                fillPreparedStatement(ps, data);
-                ps.executeUpdate();
+            ps = connection.prepareStatement(sql, generatedKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
 
-                provider.insertedItem(i, -1);
-                affectedRows++;
+            for (List<?> data; (data = provider.next()) != null; ) {
+                chunk.add(data);
+                if (chunk.size() == batchSize) {
+                    affectedRows += executeChunk(connection, ps, chunk, affectedRows, provider, generatedKeys);
+                    chunk.clear();
+                }
+            }
+            if (chunk.size() > 0) {
+                affectedRows += executeChunk(connection, ps, chunk, affectedRows, provider, generatedKeys);
+                chunk.clear();
             }
 
             connection.commit();
@@ -186,64 +377,119 @@ public class DatabaseManager {
         } catch (SQLException e) {
             rollback(connection);
             affectedRows = 0;
-            Object[] args = null;
-            if (data != null) {
-                args = data.toArray();
-            }
-            logError(e, sql, args);
+            logError(e, sql, getFailedRow(e, chunk));
         } finally {
-            close(connection, ps, rs);
+            close(connection, ps);
         }
 
         return affectedRows;
     }
 
-    public final long runBatchInsertLongId(String sql, BatchDataProvider provider) {
-        Validate.notEmpty(sql, "sql must not be empty");
-        Validate.notNull(provider, "provider must not be null");
-
-        Connection connection = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        int affectedRows = 0;
-        List<?> data = null;
+    /**
+     * @return The arguments of the first row of the chunk which was not executed successfully, or <code>null</code>.
+     */
+    private static Object[] getFailedRow(SQLException e, List<List<?>> chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return null;
+        }
+        int failedRow = 0;
+        if (e instanceof BatchUpdateException) {
+            failedRow = Math.min(((BatchUpdateException) e).getUpdateCounts().length, chunk.size() - 1);
+        }
+        return chunk.get(failedRow).toArray();
+    }
 
-        try {
-            connection = getConnection();
-            connection.setAutoCommit(false);
+    /**
+     * Execute one chunk of a batch insertion and pass the generated IDs to the provider.
+     *
+     * @return The number of inserted rows.
+     */
+    private int executeChunk(Connection connection, PreparedStatement ps, List<List<?>> chunk, int offset,
+                             StreamingBatchDataProvider provider, boolean generatedKeys) throws SQLException {
+        if (!generatedKeys) {
+            for (List<?> data : chunk) {
+                fillPreparedStatement(ps, data);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            for (int i = 0; i < chunk.size(); i++) {
+                provider.insertedItem(offset + i, -1);
+            }
+            return chunk.size();
+        }
 
-            ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        Boolean supported = batchGeneratedKeys;
+        if (supported == null && !connection.getMetaData().supportsSavepoints()) {
+            supported = batchGeneratedKeys = false;
+        }
+        if (Boolean.FALSE.equals(supported) || chunk.size() == 1) {
+            executeRows(ps, chunk, offset, provider);
+            return chunk.size();
+        }
 
-            for (int i = 0; i < provider.getCount(); i++) {
-                data = provider.getData(i);
-                fillPreparedStatement(ps, data);
-                ps.executeUpdate();
+        // keep a savepoint to be able to insert the chunk row by row, in case the keys of the batch cannot be assigned
+        // to its rows: the driver might not return the keys of all rows in a batch (SQLite, e.g. only returns the
+        // last one), or some rows were not inserted (e.g. duplicates with INSERT IGNORE)
+        Savepoint savepoint = connection.setSavepoint();
+        for (List<?> data : chunk) {
+            fillPreparedStatement(ps, data);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        long[] ids = new long[chunk.size()];
+        int numIds = 0;
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next()) {
+                if (numIds < ids.length) {
+                    ids[numIds] = rs.getLong(1);
+                }
+                numIds++;
+            }
+        }
+        // without keys, the statement might not generate any, or the driver does not return them for batches; when
+        // we do not know yet, check row by row
+        if (numIds == chunk.size() || numIds == 0 && supported != null) {
+            connection.releaseSavepoint(savepoint);
+            if (numIds > 0) {
+                batchGeneratedKeys = true;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                provider.insertedItem(offset + i, numIds > 0 ? ids[i] : -1);
+            }
+            return chunk.size();
+        }
+        LOGGER.debug("Got {} generated keys for a batch with {} rows, inserting row by row", numIds, chunk.size());
+        connection.rollback(savepoint);
+        int numRowIds = executeRows(ps, chunk, offset, provider);
+        if (supported == null && numRowIds == chunk.size()) {
+            // the statement generates keys for all rows, but the driver does not return them for batches
+            batchGeneratedKeys = false;
+        }
+        return chunk.size();
+    }
 
-                rs = ps.getGeneratedKeys();
+    /**
+     * Execute a chunk row by row, for drivers which do not return the generated keys for a batch.
+     *
+     * @return The number of rows for which a key was generated.
+     */
+    private static int executeRows(PreparedStatement ps, List<List<?>> chunk, int offset,
+                                   StreamingBatchDataProvider provider) throws SQLException {
+        int numIds = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            fillPreparedStatement(ps, chunk.get(i));
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
-                    provider.insertedItemLongId(i, rs.getLong(1));
+                    provider.insertedItem(offset + i, rs.getLong(1));
+                    numIds++;
                 } else if (ps.getUpdateCount() == 1) {
                     // no ID generated
-                    provider.insertedItemLongId(i, -1);
+                    provider.insertedItem(offset + i, -1);
                 }
-                affectedRows++;
             }
-
-            connection.commit();
-            connection.setAutoCommit(true);
-        } catch (SQLException e) {
-            rollback(connection);
-            affectedRows = 0;
-            Object[] args = null;
-            if (data != null) {
-                args = data.toArray();
-            }
-            logError(e, sql, args);
-        } finally {
-            close(connection, ps, rs);
         }
-
-        return affectedRows;
+        return numIds;
     }
 
     /**
@@ -356,7 +602,8 @@ public class DatabaseManager {
 
     /**
      * <p>
-     * Run a batch update.
+     * Run a batch update. The statements are sent to the database in chunks of {@link #getBatchSize()} rows, all
+     * updates are performed in one transaction.
      * </p>
      *
      * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
@@ -369,30 +616,34 @@ public class DatabaseManager {
 
         Connection connection = null;
         PreparedStatement ps = null;
-        int[] result = new int[0];
+        IntArrayList result = new IntArrayList();
 
         try {
             connection = getConnection();
             connection.setAutoCommit(false);
             ps = connection.prepareStatement(sql);
 
-            for (int i = 0; i < provider.getCount(); i++) {
+            int count = provider.getCount();
+            for (int i = 0; i < count; i++) {
                 List<?> args = provider.getData(i);
                 fillPreparedStatement(ps, args);
                 ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == count - 1) {
+                    result.addElements(result.size(), ps.executeBatch());
+                }
             }
 
-            result = ps.executeBatch();
             connection.commit();
             connection.setAutoCommit(true);
         } catch (SQLException e) {
             rollback(connection);
+            result.clear();
             logError(e, sql);
         } finally {
             close(connection, ps);
         }
 
-        return result;
+        return result.toIntArray();
     }
 
     /**
@@ -1332,6 +1583,34 @@ public class DatabaseManager {
         }
     }
 
+    /** Adapts a {@link BatchDataProvider} to a {@link StreamingBatchDataProvider}. */
+    private static final class BatchDataProviderAdapter implements StreamingBatchDataProvider {
+        private final BatchDataProvider provider;
+        private final boolean longIds;
+        private final int count;
+        private int number;
+
+        BatchDataProviderAdapter(BatchDataProvider provider, boolean longIds) {
+            this.provider = provider;
+            this.longIds = longIds;
+            this.count = provider.getCount();
+        }
+
+        @Override
+        public List<?> next() {
+            return number < count ? provider.getData(number++) : null;
+        }
+
+        @Override
+        public void insertedItem(int number, long generatedId) {
+            if (longIds) {
+                provider.insertedItemLongId(number, generatedId);
+            } else {
+                provider.insertedItem(number, (int) generatedId);
+            }
+        }
+    }
+
     public StringBuilder getLastError() {
         return lastError;
     }
@@ -0,0 +1,37 @@
+package ws.palladian.persistence;
+
+import java.util.List;
+
+/**
+ * <p>
+ * A callback interface which provides data for batch database updates one row after the other, without the need to
+ * know the number of rows in advance (in contrast to {@link BatchDataProvider}). This allows to stream large imports
+ * from a file into the database.
+ * </p>
+ */
+@FunctionalInterface
+public interface StreamingBatchDataProvider {
+
+    /**
+     * <p>
+     * Retrieve the next data item for the batch. The list provides the parameters for the SQL statement.
+     * </p>
+     *
+     * @return List with parameters for the SQL statement, or <code>null</code> in case there is no more data.
+     */
+    List<?> next();
+
+    /**
+     * <p>
+     * Returns the generated ID for an inserted item. This is triggered after the chunk containing the item has been
+     * inserted successfully; the transaction is only committed after all items have been inserted.
+     * </p>
+     *
+     * @param number      Number in the data, starting with 0.
+     * @param generatedId The generated ID for the inserted item, <code>-1</code>, in case no ID was generated.
+     */
+    default void insertedItem(int number, long generatedId) {
+        // no operation per default.
+    }
+
+}
@@ -1,6 +1,7 @@
 package ws.palladian.persistence.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 /**
@@ -143,4 +144,18 @@ public interface Json {
      * @throws IOException As thrown by the {@link Writer}.
      */
     Writer write(Writer writer) throws IOException;
+
+    /**
+     * <p>
+     * Write the contents of the {@link Json} as UTF-8 encoded JSON text directly to a stream, without creating the
+     * text in memory first. The stream is not closed.
+     * </p>
+     *
+     * @param outputStream The stream.
+     * @param indentFactor The number of spaces to add to each level of indentation, 0 for compact output.
+     * @throws IOException As thrown by the stream.
+     */
+    default void write(OutputStream outputStream, int indentFactor) throws IOException {
+        JsonUtils.write(this, outputStream, indentFactor);
+    }
 }
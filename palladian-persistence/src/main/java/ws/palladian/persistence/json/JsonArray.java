@@ -3,7 +3,6 @@ package ws.palladian.persistence.json;
 import com.jsoniter.JsonIterator;
 import com.jsoniter.any.Any;
 import com.jsoniter.output.JsonStream;
-import com.jsoniter.spi.Config;
 import com.jsoniter.spi.JsoniterSpi;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import ws.palladian.helper.nlp.PatternHelper;
@@ -414,8 +413,7 @@ public class JsonArray extends AbstractList<Object> implements Json, Serializabl
     @Override
     public String toString(int indentFactor) {
         try {
-            Config conf = JsoniterSpi.getCurrentConfig().copyBuilder().indentionStep(indentFactor).build();
-            return JsonStream.serialize(conf, this);
+            return JsonStream.serialize(JsonUtils.getSerializationConfig(indentFactor), this);
         } catch (Exception e) {
             try {
                 return this.write(new StringWriter(), indentFactor, 0).toString();
@@ -462,30 +460,7 @@ public class JsonArray extends AbstractList<Object> implements Json, Serializabl
 
     @Override
     public Object query(String jPath) throws JsonException {
-        if (jPath.isEmpty()) {
-            return this;
-        }
-        String[] pathSplit = JsonUtils.splitJPath(jPath);
-        String head = pathSplit[0];
-        String remainingPath = pathSplit[1];
-        if (!head.matches("\\[\\d+]")) {
-            return null;
-        }
-        int index = Integer.parseInt(head.substring(1, head.length() - 1));
-        Object value;
-        try {
-            value = get(index);
-        } catch (IndexOutOfBoundsException e) {
-            throw new JsonException("Illegal index: " + index);
-        }
-        if (value instanceof Json) {
-            Json child = (Json) value;
-            return child.query(remainingPath);
-        } else if (remainingPath.isEmpty()) {
-            return value;
-        } else {
-            throw new JsonException("No value/item for query.");
-        }
+        return JsonPathExpression.compile(jPath).query(this);
     }
 
     @Override
@@ -6,7 +6,11 @@ import ws.palladian.helper.ProgressMonitor;
 import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.io.FileHelper;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -15,10 +19,18 @@ import java.util.stream.Collectors;
  * A simple JSON database. No 16MB file limits that mongo db has.
  * </p>
  *
+ * <p>
+ * With {@link Storage#FILES}, each document is written to a separate file and the indexes are kept in memory. With
+ * {@link Storage#SEGMENTS}, the documents are kept in a log structured store with on-disk B-tree indexes, which is
+ * suited for millions of documents, allows concurrent updates of different documents and non-blocking reads. The
+ * database must be closed in this case, and the optional dependency <code>com.h2database:h2</code> must be on the
+ * classpath.
+ * </p>
+ *
  * @author David Urbansky
  * @since 28.06.2020
  */
-public class JsonDatabase {
+public class JsonDatabase implements Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonDatabase.class);
 
     private String rootPath;
@@ -30,15 +42,33 @@ public class JsonDatabase {
 
     private final int numSubdirectories;
 
+    /** The store for {@link Storage#SEGMENTS}, <code>null</code> for {@link Storage#FILES}. */
+    private final JsonSegmentStore segmentStore;
+
     public enum Action {
         ADD, MERGE, NOTHING
     }
 
+    public enum Storage {
+        /** One pretty-printed file per document, indexes are JSON files which are loaded into memory. */
+        FILES,
+        /** All documents in one log structured file, with on-disk indexes. */
+        SEGMENTS
+    }
+
     public JsonDatabase(String path, int numSubdirectories) {
         this(path, new HashMap<>(), numSubdirectories);
     }
 
     public JsonDatabase(String path, Map<String, List<String>> collectionFieldIndexMap, int numSubdirectories) {
+        this(path, collectionFieldIndexMap, numSubdirectories, Storage.FILES);
+    }
+
+    public JsonDatabase(String path, Map<String, List<String>> collectionFieldIndexMap, Storage storage) {
+        this(path, collectionFieldIndexMap, 0, storage);
+    }
+
+    private JsonDatabase(String path, Map<String, List<String>> collectionFieldIndexMap, int numSubdirectories, Storage storage) {
         this.rootPath = path;
         this.numSubdirectories = numSubdirectories;
         if (!rootPath.endsWith("/")) {
@@ -46,6 +76,20 @@ public class JsonDatabase {
         }
         FileHelper.createDirectory(rootPath);
 
+        if (storage == Storage.SEGMENTS) {
+            segmentStore = new JsonSegmentStore(rootPath);
+            for (Map.Entry<String, List<String>> collectionFields : collectionFieldIndexMap.entrySet()) {
+                String collectionName = collectionFields.getKey();
+                for (String field : collectionFields.getValue()) {
+                    if (!segmentStore.getIndexedFields(collectionName).contains(field)) {
+                        segmentStore.createIndex(collectionName, field);
+                    }
+                }
+            }
+            return;
+        }
+        segmentStore = null;
+
         for (Map.Entry<String, List<String>> stringCollectionEntry : collectionFieldIndexMap.entrySet()) {
             String collectionName = stringCollectionEntry.getKey();
             Collection<String> fieldNames = stringCollectionEntry.getValue();
@@ -95,6 +139,12 @@ public class JsonDatabase {
         } else {
             id = jsonObject.tryGetString("_id");
         }
+        if (segmentStore != null) {
+            synchronized (segmentStore.getLock(collectionName, id)) {
+                segmentStore.put(collectionName, id, jsonObject);
+            }
+            return true;
+        }
         String fileName = id + ".json";
 
         String folderedPath = getFolderedPath(fileName);
@@ -118,7 +168,19 @@ public class JsonDatabase {
         return FileHelper.getFolderedPath(filename, numSubdirectories);
     }
 
-    public synchronized Action upsert(String collectionName, JsonObject jsonDocument) {
+    public Action upsert(String collectionName, JsonObject jsonDocument) {
+        if (segmentStore != null) {
+            // only modifications of the same document need to be serialized
+            synchronized (segmentStore.getLock(collectionName, jsonDocument.tryGetString("_id"))) {
+                return upsertUnsynchronized(collectionName, jsonDocument);
+            }
+        }
+        synchronized (this) {
+            return upsertUnsynchronized(collectionName, jsonDocument);
+        }
+    }
+
+    private Action upsertUnsynchronized(String collectionName, JsonObject jsonDocument) {
         // try finding the game by id (id_name)
         JsonObject existingDocument = getById(collectionName, jsonDocument.tryGetString("_id"));
 
@@ -160,6 +222,10 @@ public class JsonDatabase {
         if (value == null) {
             return Collections.emptyList();
         }
+        if (segmentStore != null) {
+            List<JsonObject> jsonObjects = segmentStore.get(collection, field, value);
+            return jsonObjects != null ? jsonObjects : Collections.emptyList();
+        }
         // check if we have an index on the field
         Map<String, List<String>> indexContent = indexMap.get(collection + "_idx-" + field);
         if (indexContent != null) {
@@ -182,12 +248,18 @@ public class JsonDatabase {
     }
 
     public boolean delete(String collectionName, String id) {
+        if (segmentStore != null) {
+            return segmentStore.delete(collectionName, id);
+        }
         String fileName = id + ".json";
         String filePath = rootPath + collectionName + "/" + getFolderedPath(fileName);
         return FileHelper.delete(filePath);
     }
 
     public int countCollectionEntries(String collection) {
+        if (segmentStore != null) {
+            return segmentStore.count(collection);
+        }
         int count = 0;
         File folder = new File(rootPath + collection);
         if (folder.exists() && folder.isDirectory()) {
@@ -227,7 +299,15 @@ public class JsonDatabase {
         return getAllFiles(collection, 0);
     }
 
+    /**
+     * Iterate over the files of the documents in a collection. With {@link Storage#SEGMENTS}, the documents are not
+     * stored as files; they are written to a new temporary directory while iterating, which is not deleted
+     * automatically, and changes to the files do not affect the database.
+     */
     public JsonDbIterator<File> getAllFiles(String collection, int startIndex) {
+        if (segmentStore != null) {
+            return exportFiles(collection, startIndex);
+        }
         final List<File> collectionFiles = getFiles(collection).stream().filter(f -> !f.getName().startsWith("_idx")).collect(Collectors.toList());
 
         JsonDbIterator<File> jsonDbIterator = new JsonDbIterator<>() {
@@ -255,11 +335,42 @@ public class JsonDatabase {
         return jsonDbIterator;
     }
 
+    private JsonDbIterator<File> exportFiles(String collection, int startIndex) {
+        JsonDbIterator<JsonObject> documents = segmentStore.iterate(collection, startIndex);
+        File directory;
+        try {
+            directory = Files.createTempDirectory("jsonDatabase-" + collection).toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        JsonDbIterator<File> jsonDbIterator = new JsonDbIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public File next() {
+                JsonObject document = documents.next();
+                index.incrementAndGet();
+                File file = new File(directory, document.tryGetString("_id") + ".json");
+                FileHelper.writeToFile(file.getPath(), document.toString(2));
+                return file;
+            }
+        };
+        jsonDbIterator.setIndex(startIndex);
+        jsonDbIterator.setTotalCount(documents.getTotalCount());
+        return jsonDbIterator;
+    }
+
     public JsonDbIterator<JsonObject> getAll(String collection) {
         return getAll(collection, 0);
     }
 
     public JsonDbIterator<JsonObject> getAll(String collection, int startIndex) {
+        if (segmentStore != null) {
+            return segmentStore.iterate(collection, startIndex);
+        }
         final List<File> collectionFiles = getFiles(collection);
 
         JsonDbIterator<JsonObject> jsonDbIterator = new JsonDbIterator<>() {
@@ -293,6 +404,25 @@ public class JsonDatabase {
     }
 
     public JsonDbIterator<JsonObject> getAll(String collection, String field, String value) {
+        if (segmentStore != null) {
+            List<String> ids = Optional.ofNullable(segmentStore.getIds(collection, field, value)).orElse(Collections.emptyList());
+            JsonDbIterator<JsonObject> jsonDbIterator = new JsonDbIterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return ids.size() > index.get();
+                }
+
+                @Override
+                public JsonObject next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return segmentStore.get(collection, ids.get(index.getAndIncrement()));
+                }
+            };
+            jsonDbIterator.setTotalCount(ids.size());
+            return jsonDbIterator;
+        }
         Map<String, List<String>> indexContent = indexMap.get(collection + "_idx-" + field);
         final List<String> collectionFiles = new ArrayList<>(indexContent.get(value)); // need to make a copy otherwise it may grow when updating the index
 
@@ -336,6 +466,9 @@ public class JsonDatabase {
     //    }
 
     public JsonObject getById(String collection, String id) {
+        if (segmentStore != null) {
+            return segmentStore.get(collection, id);
+        }
         return JsonObject.tryParse(FileHelper.tryReadFileToStringNoReplacement(new File(rootPath + collection + "/" + getFolderedPath(id + ".json"))));
     }
 
@@ -348,10 +481,21 @@ public class JsonDatabase {
     }
 
     public boolean exists(String collection, String id) {
+        if (segmentStore != null) {
+            return segmentStore.exists(collection, id);
+        }
         return new File(rootPath + collection + "/" + getFolderedPath(id + ".json")).exists();
     }
 
     public synchronized void rebuildInitializedIndexes() {
+        if (segmentStore != null) {
+            for (String collection : segmentStore.getIndexedCollections()) {
+                for (String field : new ArrayList<>(segmentStore.getIndexedFields(collection))) {
+                    segmentStore.createIndex(collection, field);
+                }
+            }
+            return;
+        }
         for (Map.Entry<String, List<String>> collectionKeysEntry : indexedFieldsForCollection.entrySet()) {
             for (String field : collectionKeysEntry.getValue()) {
                 createIndex(collectionKeysEntry.getKey(), field, false);
@@ -364,6 +508,10 @@ public class JsonDatabase {
     }
 
     public synchronized void createIndex(String collection, String field, boolean reloadIndexes) {
+        if (segmentStore != null) {
+            segmentStore.createIndex(collection, field);
+            return;
+        }
         String indexFilePath = rootPath + collection + "/_idx-" + field + ".json";
         JsonObject indexJson = new JsonObject();
         final List<File> files = getFiles(collection);
@@ -433,6 +581,11 @@ public class JsonDatabase {
     }
 
     public void writeIndex() {
+        if (segmentStore != null) {
+            // the indexes are updated with each change, just make sure everything is on disk
+            segmentStore.commit();
+            return;
+        }
         for (Map.Entry<String, Map<String, List<String>>> stringMapEntry : indexMap.entrySet()) {
             String collection = stringMapEntry.getKey();
             for (Map.Entry<String, List<String>> collectionEntry : stringMapEntry.getValue().entrySet()) {
@@ -443,6 +596,23 @@ public class JsonDatabase {
         }
     }
 
+    /**
+     * Reclaim the space of outdated documents; only applicable for {@link Storage#SEGMENTS}, where this is also done
+     * in the background, when the store contains a lot of unused space.
+     */
+    public void compact() {
+        if (segmentStore != null) {
+            segmentStore.compact();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (segmentStore != null) {
+            segmentStore.close();
+        }
+    }
+
     public static void main(String[] args) {
         //        JsonDatabase db = new JsonDatabase("data/rawdb");
         //        JsonObject jsonObject = db.get("objects", "object_id", "999250");
@@ -4,11 +4,9 @@ import com.jayway.jsonpath.JsonPath;
 import com.jsoniter.JsonIterator;
 import com.jsoniter.any.Any;
 import com.jsoniter.output.JsonStream;
-import com.jsoniter.spi.Config;
 import com.jsoniter.spi.JsoniterSpi;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
-import ws.palladian.helper.math.MathHelper;
 import ws.palladian.helper.nlp.PatternHelper;
 
 import java.io.IOException;
@@ -571,8 +569,7 @@ public class JsonObject extends AbstractMap<String, Object> implements Json, Ser
     @Override
     public String toString(int indentFactor) {
         try {
-            Config conf = JsoniterSpi.getCurrentConfig().copyBuilder().indentionStep(indentFactor).build();
-            return JsonStream.serialize(conf, this);
+            return JsonStream.serialize(JsonUtils.getSerializationConfig(indentFactor), this);
         } catch (Exception e) {
             /** Fallback writer if Jsoniter fails */
             try {
@@ -590,43 +587,7 @@ public class JsonObject extends AbstractMap<String, Object> implements Json, Ser
 
     @Override
     public Object query(String jPath) throws JsonException {
-        if (jPath.isEmpty()) {
-            return this;
-        }
-        return query(this, jPath);
-    }
-
-    private Object query(Object value, String jPath) throws JsonException {
-        String[] pathSplit = JsonUtils.splitJPath(jPath);
-        String key = pathSplit[0];
-
-        Object value2 = null;
-        if (value instanceof List) {
-            List v = (List) value;
-            int index = MathHelper.parseStringNumber(key).intValue();
-            if (index >= v.size()) {
-                throw new JsonException("Illegal index: " + index);
-            }
-            value2 = v.get(index);
-        } else if (value instanceof Map) {
-            Map v = (Map) value;
-            if (!v.containsKey(key)) {
-                throw new JsonException("No key: " + key);
-            }
-            value2 = v.get(key);
-        }
-
-        String remainingPath = pathSplit[1];
-        if (remainingPath.isEmpty()) {
-            return value2;
-        }
-
-        if (value2 instanceof Json) {
-            Json child = (Json) value2;
-            return child.query(remainingPath);
-        } else {
-            return query(value2, remainingPath.substring(1));
-        }
+        return JsonPathExpression.compile(jPath).query(this);
     }
 
     public String tryQueryJsonPathString(String jPath) {
@@ -677,20 +638,52 @@ public class JsonObject extends AbstractMap<String, Object> implements Json, Ser
         }
     }
 
+    /**
+     * Perform a JSONPath query (e.g. <code>$.entries[?(@.id == 5)].title</code>); the compiled path is cached.
+     *
+     * @param jPath The JSONPath.
+     * @return The first matching value, or <code>null</code> in case nothing matches.
+     */
     public Object queryJsonPath(String jPath) {
-        net.minidev.json.JSONArray jsa = JsonPath.read(this, jPath);
-        if (jsa == null || jsa.isEmpty()) {
+        return queryJsonPath(JsonUtils.compileJsonPath(jPath));
+    }
+
+    /**
+     * Perform a JSONPath query with a compiled path.
+     *
+     * @param jsonPath The compiled JSONPath.
+     * @return The first matching value, or <code>null</code> in case nothing matches.
+     */
+    public Object queryJsonPath(JsonPath jsonPath) {
+        List<Object> matches = JsonUtils.readJsonPath(this, jsonPath);
+        if (matches.isEmpty()) {
             return null;
         }
-        return jsa.get(0);
+        return matches.get(0);
     }
 
+    /**
+     * Perform a JSONPath query; the compiled path is cached.
+     *
+     * @param jPath The JSONPath.
+     * @return All matching values, or <code>null</code> in case nothing matches.
+     */
     public List<Object> queryJsonPathArray(String jPath) {
-        net.minidev.json.JSONArray jsa = JsonPath.read(this, jPath);
-        if (jsa == null || jsa.isEmpty()) {
+        return queryJsonPathArray(JsonUtils.compileJsonPath(jPath));
+    }
+
+    /**
+     * Perform a JSONPath query with a compiled path.
+     *
+     * @param jsonPath The compiled JSONPath.
+     * @return All matching values, or <code>null</code> in case nothing matches.
+     */
+    public List<Object> queryJsonPathArray(JsonPath jsonPath) {
+        List<Object> matches = JsonUtils.readJsonPath(this, jsonPath);
+        if (matches.isEmpty()) {
             return null;
         }
-        return new ArrayList<>(jsa);
+        return new ArrayList<>(matches);
     }
 
     @Override
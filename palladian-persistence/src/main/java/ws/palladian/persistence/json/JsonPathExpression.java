@@ -0,0 +1,176 @@
+package ws.palladian.persistence.json;
+
+import org.apache.commons.lang3.Validate;
+import ws.palladian.helper.math.MathHelper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A compiled "JPath" as used by the <code>query</code> methods of {@link JsonObject} and {@link JsonArray} (e.g.
+ * <code>entries[5]/location/lat</code>). The path is split into its steps once, instead of splitting (and for array
+ * indices, matching a regular expression) on each query and each level. Compiled paths are cached, so
+ * {@link #compile(String)} can be called for each query; for paths which are created dynamically, keep the instance.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ * </p>
+ */
+public final class JsonPathExpression {
+
+    /** The maximum number of cached expressions; further expressions are compiled, but not cached. */
+    private static final int MAX_CACHED_EXPRESSIONS = 10000;
+
+    private static final Map<String, JsonPathExpression> CACHE = new ConcurrentHashMap<>();
+
+    /** One step of the path; the remaining steps are linked. */
+    private static final class Step {
+        /** The key (for objects) or the index in brackets (for arrays). */
+        final String head;
+        /** The index, in case the head has the form <code>[n]</code>, -1 otherwise. */
+        final int index;
+        /** The remaining path, empty in case this is the last step. */
+        final String remaining;
+        /** The next step, <code>null</code> in case this is the last step. */
+        final Step next;
+        /** The remaining path without its separator, which is used for non-JSON containers; compiled on demand. */
+        volatile Step nextWithoutSeparator;
+
+        Step(String path) {
+            String[] pathSplit = JsonUtils.splitJPath(path);
+            head = pathSplit[0];
+            index = parseIndex(head);
+            remaining = pathSplit[1];
+            next = remaining.isEmpty() ? null : new Step(remaining);
+        }
+
+        Step getNextWithoutSeparator() {
+            Step step = nextWithoutSeparator;
+            if (step == null) {
+                step = nextWithoutSeparator = new Step(remaining.substring(1));
+            }
+            return step;
+        }
+    }
+
+    private final String jPath;
+
+    /** The first step, <code>null</code> for the empty path. */
+    private final Step first;
+
+    private JsonPathExpression(String jPath) {
+        this.jPath = jPath;
+        this.first = jPath.isEmpty() ? null : new Step(jPath);
+    }
+
+    /**
+     * Get the compiled expression for the given path.
+     *
+     * @param jPath The path, not <code>null</code>.
+     * @return The compiled expression.
+     */
+    public static JsonPathExpression compile(String jPath) {
+        Validate.notNull(jPath, "jPath must not be null");
+        JsonPathExpression expression = CACHE.get(jPath);
+        if (expression == null) {
+            expression = new JsonPathExpression(jPath);
+            if (CACHE.size() < MAX_CACHED_EXPRESSIONS) {
+                CACHE.put(jPath, expression);
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Evaluate the path on the given JSON, as {@link Json#query(String)}.
+     *
+     * @param json The JSON object or array.
+     * @return The value, or <code>null</code> in case an array is queried with an invalid index expression.
+     * @throws JsonException In case a key does not exist or an index is out of bounds.
+     */
+    public Object query(Json json) throws JsonException {
+        if (first == null) {
+            return json;
+        }
+        return query(json, first);
+    }
+
+    private static Object query(Json json, Step step) throws JsonException {
+        if (json instanceof JsonArray) {
+            return queryArray((JsonArray) json, step);
+        }
+        return queryValue(json, step);
+    }
+
+    private static Object queryArray(JsonArray array, Step step) throws JsonException {
+        if (step.index < 0) {
+            return null;
+        }
+        Object value;
+        try {
+            value = array.get(step.index);
+        } catch (IndexOutOfBoundsException e) {
+            throw new JsonException("Illegal index: " + step.index);
+        }
+        if (value instanceof Json) {
+            return step.next == null ? value : query((Json) value, step.next);
+        } else if (step.next == null) {
+            return value;
+        } else {
+            throw new JsonException("No value/item for query.");
+        }
+    }
+
+    private static Object queryValue(Object value, Step step) throws JsonException {
+        Object value2 = null;
+        if (value instanceof List) {
+            List<?> v = (List<?>) value;
+            int index = MathHelper.parseStringNumber(step.head).intValue();
+            if (index >= v.size()) {
+                throw new JsonException("Illegal index: " + index);
+            }
+            value2 = v.get(index);
+        } else if (value instanceof Map) {
+            Map<?, ?> v = (Map<?, ?>) value;
+            if (!v.containsKey(step.head)) {
+                throw new JsonException("No key: " + step.head);
+            }
+            value2 = v.get(step.head);
+        }
+        if (step.next == null) {
+            return value2;
+        }
+        if (value2 instanceof Json) {
+            return query((Json) value2, step.next);
+        }
+        return queryValue(value2, step.getNextWithoutSeparator());
+    }
+
+    private static int parseIndex(String head) {
+        int length = head.length();
+        if (length < 3 || head.charAt(0) != '[' || head.charAt(length - 1) != ']') {
+            return -1;
+        }
+        for (int i = 1; i < length - 1; i++) {
+            char c = head.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Integer.parseInt(head.substring(1, length - 1));
+        } catch (NumberFormatException e) {
+            // too large for any array
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return jPath;
+    }
+
+}
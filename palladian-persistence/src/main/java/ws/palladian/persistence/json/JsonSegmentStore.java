@@ -0,0 +1,327 @@
+package ws.palladian.persistence.json;
+
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.ProgressMonitor;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Storage engine for the {@link JsonDatabase}, which keeps all documents in one H2 MVStore file instead of one file per
+ * document. The store is log structured: changes are appended as chunks to the end of the file, chunks with a low fill
+ * rate are rewritten by the (background and explicit) compaction. Documents and indexes are copy-on-write B-trees, so
+ * reads never block and iterations see a consistent snapshot.
+ * </p>
+ *
+ * <p>
+ * For each collection, there is a map with the documents by ID. For each indexed field, there is a map with keys
+ * composed of the value and the document ID, so that all documents for a value can be found with one range scan.
+ * </p>
+ */
+final class JsonSegmentStore implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonSegmentStore.class);
+
+    static final String FILE_NAME = "documents.mv";
+
+    private static final String DOCUMENTS_PREFIX = "documents/";
+
+    private static final String INDEX_PREFIX = "index/";
+
+    /** Separates the value and the ID in the keys of the index maps. */
+    private static final char SEPARATOR = '\u0000';
+
+    /** Rewrite chunks, when less than this percentage of their content is still in use. */
+    private static final int AUTO_COMPACT_FILL_RATE = 50;
+
+    /** The maximum time for an explicit compaction in milliseconds. */
+    private static final int MAX_COMPACT_TIME = 60_000;
+
+    private static final int NUM_LOCKS = 64;
+
+    private final MVStore store;
+
+    /** collection => indexed fields */
+    private final Map<String, Set<String>> indexedFields = new ConcurrentHashMap<>();
+
+    /** Stripes for modifications of documents; reads do not lock. */
+    private final Object[] locks = new Object[NUM_LOCKS];
+
+    JsonSegmentStore(String directoryPath) {
+        store = new MVStore.Builder() //
+                .fileName(directoryPath + FILE_NAME) //
+                .compress() //
+                .autoCompactFillRate(AUTO_COMPACT_FILL_RATE) //
+                .open();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        for (String mapName : store.getMapNames()) {
+            if (mapName.startsWith(INDEX_PREFIX)) {
+                String[] parts = mapName.substring(INDEX_PREFIX.length()).split("/", 2);
+                getIndexedFields(parts[0]).add(parts[1]);
+            }
+        }
+    }
+
+    /** @return The lock for modifications of the document with the given ID. */
+    Object getLock(String collection, String id) {
+        return locks[Math.floorMod(Objects.hash(collection, id), locks.length)];
+    }
+
+    Set<String> getIndexedCollections() {
+        return new HashSet<>(indexedFields.keySet());
+    }
+
+    Set<String> getIndexedFields(String collection) {
+        return indexedFields.computeIfAbsent(collection, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    private MVMap<String, String> documents(String collection) {
+        return store.openMap(DOCUMENTS_PREFIX + collection);
+    }
+
+    private MVMap<String, String> index(String collection, String field) {
+        return store.openMap(INDEX_PREFIX + collection + "/" + field);
+    }
+
+    JsonObject get(String collection, String id) {
+        if (id == null || !store.hasMap(DOCUMENTS_PREFIX + collection)) {
+            return null;
+        }
+        return JsonObject.tryParse(documents(collection).get(id));
+    }
+
+    boolean exists(String collection, String id) {
+        return id != null && store.hasMap(DOCUMENTS_PREFIX + collection) && documents(collection).containsKey(id);
+    }
+
+    /**
+     * Add or replace a document, and update the indexes; callers must hold the lock for the ID.
+     *
+     * @param collection The collection.
+     * @param id         The ID of the document.
+     * @param document   The document.
+     */
+    void put(String collection, String id, JsonObject document) {
+        String previous = documents(collection).put(id, document.toString());
+        Set<String> fields = getIndexedFields(collection);
+        if (fields.isEmpty()) {
+            return;
+        }
+        JsonObject previousDocument = JsonObject.tryParse(previous);
+        for (String field : fields) {
+            MVMap<String, String> index = index(collection, field);
+            Set<String> values = getIndexValues(document, field);
+            if (previousDocument != null) {
+                for (String previousValue : getIndexValues(previousDocument, field)) {
+                    if (!values.contains(previousValue)) {
+                        index.remove(indexKey(previousValue, id));
+                    }
+                }
+            }
+            for (String value : values) {
+                index.put(indexKey(value, id), "");
+            }
+        }
+    }
+
+    /**
+     * Remove a document and its index entries.
+     *
+     * @return <code>true</code> in case the document existed.
+     */
+    boolean delete(String collection, String id) {
+        if (id == null || !store.hasMap(DOCUMENTS_PREFIX + collection)) {
+            return false;
+        }
+        synchronized (getLock(collection, id)) {
+            JsonObject previous = JsonObject.tryParse(documents(collection).remove(id));
+            if (previous == null) {
+                return false;
+            }
+            for (String field : getIndexedFields(collection)) {
+                MVMap<String, String> index = index(collection, field);
+                for (String value : getIndexValues(previous, field)) {
+                    index.remove(indexKey(value, id));
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Get the IDs of all documents with the given value, as they are at the time of the call.
+     *
+     * @return The IDs, or <code>null</code> in case the field is not indexed.
+     */
+    List<String> getIds(String collection, String field, String value) {
+        if (!getIndexedFields(collection).contains(field)) {
+            return null;
+        }
+        String prefix = value + SEPARATOR;
+        List<String> ids = new ArrayList<>();
+        Cursor<String, String> cursor = index(collection, field).cursor(prefix);
+        while (cursor.hasNext()) {
+            String key = cursor.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            ids.add(key.substring(prefix.length()));
+        }
+        return ids;
+    }
+
+    /**
+     * Get the documents with the given value; documents which were modified since the IDs were read from the index,
+     * and no longer contain the value, are skipped.
+     *
+     * @return The documents, or <code>null</code> in case the field is not indexed.
+     */
+    List<JsonObject> get(String collection, String field, String value) {
+        List<String> ids = getIds(collection, field, value);
+        if (ids == null) {
+            return null;
+        }
+        List<JsonObject> documents = new ArrayList<>();
+        for (String id : ids) {
+            JsonObject document = get(collection, id);
+            if (document != null && getIndexValues(document, field).contains(value)) {
+                documents.add(document);
+            }
+        }
+        return documents;
+    }
+
+    int count(String collection) {
+        if (!store.hasMap(DOCUMENTS_PREFIX + collection)) {
+            return 0;
+        }
+        return (int) documents(collection).sizeAsLong();
+    }
+
+    /**
+     * Iterate through a snapshot of a collection, in the order of the IDs.
+     *
+     * @param collection The collection.
+     * @param startIndex The number of documents to skip.
+     * @return The iterator.
+     */
+    JsonDbIterator<JsonObject> iterate(String collection, int startIndex) {
+        MVMap<String, String> documents = documents(collection);
+        long size = documents.sizeAsLong();
+        String startKey = startIndex < size ? documents.getKey(startIndex) : null;
+        Cursor<String, String> cursor = startKey != null ? documents.cursor(startKey) : null;
+        JsonDbIterator<JsonObject> iterator = new JsonDbIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor != null && cursor.hasNext();
+            }
+
+            @Override
+            public JsonObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                cursor.next();
+                index.incrementAndGet();
+                return JsonObject.tryParse(cursor.getValue());
+            }
+        };
+        iterator.setIndex(startIndex);
+        iterator.setTotalCount((int) size);
+        return iterator;
+    }
+
+    /**
+     * (Re)build the index for a field from all documents in the collection. Each document is indexed while holding its
+     * lock, and the field is registered before, so that {@link #put(String, String, JsonObject)} maintains the index for
+     * concurrent updates, which are therefore neither lost nor overwritten with an outdated state.
+     */
+    void createIndex(String collection, String field) {
+        MVMap<String, String> index = index(collection, field);
+        getIndexedFields(collection).add(field);
+        MVMap<String, String> documents = documents(collection);
+        // remove the entries which do not match the documents any more, in case the index is rebuilt
+        Cursor<String, String> indexCursor = index.cursor(null);
+        while (indexCursor.hasNext()) {
+            String key = indexCursor.next();
+            int separatorIndex = key.lastIndexOf(SEPARATOR);
+            String value = key.substring(0, separatorIndex);
+            String id = key.substring(separatorIndex + 1);
+            synchronized (getLock(collection, id)) {
+                JsonObject document = JsonObject.tryParse(documents.get(id));
+                if (document == null || !getIndexValues(document, field).contains(value)) {
+                    index.remove(key);
+                }
+            }
+        }
+        ProgressMonitor pm = new ProgressMonitor(documents.sizeAsLong(), 10.0, "Creating Index " + field);
+        Cursor<String, String> cursor = documents.cursor(null);
+        while (cursor.hasNext()) {
+            String id = cursor.next();
+            pm.incrementAndPrintProgress();
+            synchronized (getLock(collection, id)) {
+                // the cursor iterates over a snapshot, the document might have changed in the meantime
+                String json = documents.get(id);
+                if (json == null) {
+                    continue;
+                }
+                JsonObject document = JsonObject.tryParse(json);
+                if (document == null) {
+                    LOGGER.warn("null json when creating index, id: " + id);
+                    continue;
+                }
+                for (String value : getIndexValues(document, field)) {
+                    index.put(indexKey(value, id), "");
+                }
+            }
+        }
+    }
+
+    /** Write all pending changes to disk. */
+    void commit() {
+        store.commit();
+    }
+
+    /** Rewrite sparsely used chunks, so that the file shrinks after many updates or deletions. */
+    void compact() {
+        store.commit();
+        store.compactFile(MAX_COMPACT_TIME);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private static String indexKey(String value, String id) {
+        return value + SEPARATOR + id;
+    }
+
+    /**
+     * @return The values of the field, which are indexed; one value per entry for arrays, an empty set in case the
+     * field is missing.
+     */
+    static Set<String> getIndexValues(JsonObject document, String field) {
+        Object value = document.get(field);
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        Set<String> values = new LinkedHashSet<>();
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                values.add(String.valueOf(item));
+            }
+        } else {
+            values.add(String.valueOf(value));
+        }
+        return values;
+    }
+
+}
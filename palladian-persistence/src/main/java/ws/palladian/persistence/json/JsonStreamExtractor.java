@@ -0,0 +1,300 @@
+package ws.palladian.persistence.json;
+
+import com.jsoniter.JsonIterator;
+import com.jsoniter.ValueType;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Extracts values for a set of "JPaths" (as used by {@link Json#query(String)}, e.g. <code>entries[5]/title</code>)
+ * from JSON text while it is read, without building the complete {@link JsonObject} tree. Everything which is not
+ * selected by one of the paths is skipped; only the selected values are materialized. Use <code>[*]</code> to select
+ * all items of an array, the values are collected in a {@link JsonArray} then (e.g. <code>entries[*]/id</code>).
+ * </p>
+ *
+ * <p>
+ * {@link #extract(InputStream)} reads the complete stream into memory before extracting; only
+ * {@link #extractEach(InputStream, Consumer)} streams, and keeps just one item of the top level array in memory.
+ * </p>
+ *
+ * <p>
+ * The paths are compiled once, so instances should be reused; they are immutable and can be shared between threads.
+ * </p>
+ */
+public final class JsonStreamExtractor {
+
+    private static final String WILDCARD = "[*]";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** A node in the tree of paths. */
+    private static final class Node {
+        final Map<String, Node> fields = new HashMap<>();
+        final Map<Integer, Node> indices = new HashMap<>();
+        Node wildcard;
+        /** The path which ends at this node, <code>null</code> in case no path ends here. */
+        String path;
+        /** Whether the node is below a wildcard, so that its values are collected. */
+        boolean collect;
+
+        boolean isLeaf() {
+            return fields.isEmpty() && indices.isEmpty() && wildcard == null;
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * @param jPaths The paths to extract; a path must not be a prefix of another path, and <code>[*]</code> cannot be
+     *               combined with indices for the same array.
+     */
+    public JsonStreamExtractor(String... jPaths) {
+        Validate.notEmpty(jPaths, "jPaths must not be empty");
+        for (String jPath : jPaths) {
+            Validate.notEmpty(jPath, "jPath must not be empty");
+            Node node = root;
+            boolean collect = false;
+            for (String remaining = jPath; !remaining.isEmpty(); ) {
+                Validate.isTrue(node.path == null, "jPath must not be prefix of another jPath: %s", node.path);
+                String[] pathSplit = JsonUtils.splitJPath(remaining);
+                String head = pathSplit[0];
+                remaining = pathSplit[1];
+                if (head.equals(WILDCARD)) {
+                    Validate.isTrue(node.indices.isEmpty(), "[*] cannot be combined with indices: %s", jPath);
+                    node = node.wildcard != null ? node.wildcard : (node.wildcard = new Node());
+                    collect = true;
+                } else if (head.matches("\\[\\d+]")) {
+                    Validate.isTrue(node.wildcard == null, "[*] cannot be combined with indices: %s", jPath);
+                    node = node.indices.computeIfAbsent(Integer.parseInt(head.substring(1, head.length() - 1)), k -> new Node());
+                } else {
+                    node = node.fields.computeIfAbsent(head, k -> new Node());
+                }
+            }
+            Validate.isTrue(node.isLeaf() && node.path == null, "jPath must not be prefix of another jPath: %s", jPath);
+            node.path = jPath;
+            node.collect = collect;
+        }
+    }
+
+    /**
+     * Extract the values from a JSON text.
+     *
+     * @param json The JSON text.
+     * @return The values by path, in case a path does not exist, it is missing in the map.
+     * @throws JsonException In case the JSON is malformed.
+     */
+    public Map<String, Object> extract(String json) throws JsonException {
+        try {
+            return extract(JsonIterator.parse(json.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * Extract the values from a stream with UTF-8 encoded JSON text. The complete stream is read into memory (use
+     * {@link #extractEach(InputStream, Consumer)} for large arrays). The stream is not closed.
+     *
+     * @param inputStream The stream.
+     * @return The values by path, in case a path does not exist, it is missing in the map.
+     * @throws IOException   In case reading fails.
+     * @throws JsonException In case the JSON is malformed.
+     */
+    public Map<String, Object> extract(InputStream inputStream) throws IOException, JsonException {
+        Validate.notNull(inputStream, "inputStream must not be null");
+        return extract(JsonIterator.parse(inputStream.readAllBytes()));
+    }
+
+    private Map<String, Object> extract(JsonIterator iterator) throws IOException, JsonException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            extract(iterator, root, result);
+        } catch (com.jsoniter.spi.JsonException | IndexOutOfBoundsException e) {
+            // jsoniter runs out of the buffer for truncated input
+            throw new JsonException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Extract the values from each item of a JSON array, which is read incrementally from the stream; e.g. for an
+     * export with millions of records, where each of them is of interest, but only a few of its properties. Only one
+     * item is held in memory at a time. The paths are relative to the items. The stream is not closed.
+     *
+     * @param inputStream The stream with UTF-8 encoded JSON text; the top level value must be an array.
+     * @param consumer    Receives the values by path, for each item.
+     * @return The number of items.
+     * @throws IOException   In case reading fails.
+     * @throws JsonException In case the JSON is malformed or is not an array.
+     */
+    public int extractEach(InputStream inputStream, Consumer<Map<String, Object>> consumer) throws IOException, JsonException {
+        Validate.notNull(inputStream, "inputStream must not be null");
+        Validate.notNull(consumer, "consumer must not be null");
+        ItemReader reader = new ItemReader(inputStream);
+        int count = 0;
+        for (byte[] item = reader.next(); item != null; item = reader.next()) {
+            consumer.accept(extract(JsonIterator.parse(item)));
+            count++;
+        }
+        return count;
+    }
+
+    private static void extract(JsonIterator iterator, Node node, Map<String, Object> result) throws IOException {
+        if (node.path != null) {
+            Object value = readValue(iterator);
+            if (node.collect) {
+                ((JsonArray) result.computeIfAbsent(node.path, k -> new JsonArray())).add(value);
+            } else {
+                result.put(node.path, value);
+            }
+            return;
+        }
+        ValueType valueType = iterator.whatIsNext();
+        if (valueType == ValueType.OBJECT && !node.fields.isEmpty()) {
+            for (String field = iterator.readObject(); field != null; field = iterator.readObject()) {
+                Node child = node.fields.get(field);
+                if (child != null) {
+                    extract(iterator, child, result);
+                } else {
+                    iterator.skip();
+                }
+            }
+        } else if (valueType == ValueType.ARRAY && (node.wildcard != null || !node.indices.isEmpty())) {
+            for (int index = 0; iterator.readArray(); index++) {
+                Node child = node.wildcard != null ? node.wildcard : node.indices.get(index);
+                if (child != null) {
+                    extract(iterator, child, result);
+                } else {
+                    iterator.skip();
+                }
+            }
+        } else {
+            iterator.skip();
+        }
+    }
+
+    /** Read a value; objects and arrays are converted to {@link JsonObject}s and {@link JsonArray}s. */
+    private static Object readValue(JsonIterator iterator) throws IOException {
+        switch (iterator.whatIsNext()) {
+            case OBJECT:
+                JsonObject jsonObject = new JsonObject();
+                for (String field = iterator.readObject(); field != null; field = iterator.readObject()) {
+                    jsonObject.put(field, readValue(iterator));
+                }
+                return jsonObject;
+            case ARRAY:
+                JsonArray jsonArray = new JsonArray();
+                while (iterator.readArray()) {
+                    jsonArray.add(readValue(iterator));
+                }
+                return jsonArray;
+            default:
+                return iterator.read();
+        }
+    }
+
+    /**
+     * Splits the top level array of a stream into its items, without parsing them; only string literals and nesting
+     * are tracked, so that the separating commas can be found.
+     */
+    private static final class ItemReader {
+        private final InputStream inputStream;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean started;
+        private boolean finished;
+        private byte[] item = new byte[BUFFER_SIZE];
+
+        ItemReader(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = inputStream.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private int readNonWhitespace() throws IOException {
+            int b;
+            do {
+                b = read();
+            } while (b == ' ' || b == '\n' || b == '\r' || b == '\t');
+            return b;
+        }
+
+        /** @return The bytes of the next item, or <code>null</code> after the last item. */
+        byte[] next() throws IOException, JsonException {
+            if (finished) {
+                return null;
+            }
+            int b = readNonWhitespace();
+            if (!started) {
+                if (b != '[') {
+                    throw new JsonException("A JSON array is expected");
+                }
+                started = true;
+                b = readNonWhitespace();
+                if (b == ']') {
+                    finished = true;
+                    return null;
+                }
+            }
+            int length = 0;
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            for (; ; b = read()) {
+                if (b == -1) {
+                    throw new JsonException("Unexpected end of the JSON array");
+                }
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                } else if (b == '"') {
+                    inString = true;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (depth == 0) {
+                        if (b == ']') {
+                            finished = true;
+                            break;
+                        }
+                        throw new JsonException("Unexpected '}' in the JSON array");
+                    }
+                    depth--;
+                } else if (b == ',' && depth == 0) {
+                    break;
+                }
+                if (length == item.length) {
+                    item = Arrays.copyOf(item, length * 2);
+                }
+                item[length++] = (byte) b;
+            }
+            if (length == 0) {
+                throw new JsonException("Empty item in the JSON array");
+            }
+            return Arrays.copyOf(item, length);
+        }
+    }
+
+}
@@ -1,18 +1,113 @@
 package ws.palladian.persistence.json;
 
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jsoniter.output.JsonStream;
+import com.jsoniter.spi.Config;
+import com.jsoniter.spi.JsoniterSpi;
 import ws.palladian.helper.nlp.PatternHelper;
 
-import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public class JsonUtils {
+    /** The maximum number of cached JSONPaths; further paths are compiled, but not cached. */
+    private static final int MAX_CACHED_JSON_PATHS = 10000;
+
+    private static final Map<String, JsonPath> JSON_PATH_CACHE = new ConcurrentHashMap<>();
+
+    /** Return all matches as list, also for definite paths, and no exceptions for missing properties. */
+    private static final Configuration JSON_PATH_CONFIGURATION = Configuration.defaultConfiguration().addOptions(
+            Option.ALWAYS_RETURN_LIST, Option.SUPPRESS_EXCEPTIONS);
+
+    /** Jsoniter configurations by indentation, building them is expensive. */
+    private static final Config[] SERIALIZATION_CONFIGS = new Config[16];
+
     private JsonUtils() {
         // util.
     }
 
+    /**
+     * @param jPath The JSONPath.
+     * @return The compiled path, from the cache in case it was compiled before.
+     */
+    public static JsonPath compileJsonPath(String jPath) {
+        JsonPath jsonPath = JSON_PATH_CACHE.get(jPath);
+        if (jsonPath == null) {
+            jsonPath = JsonPath.compile(jPath);
+            if (JSON_PATH_CACHE.size() < MAX_CACHED_JSON_PATHS) {
+                JSON_PATH_CACHE.put(jPath, jsonPath);
+            }
+        }
+        return jsonPath;
+    }
+
+    /**
+     * @return All values matching the path, or an empty list.
+     */
+    static List<Object> readJsonPath(Json json, JsonPath jsonPath) {
+        List<Object> matches = jsonPath.read(json, JSON_PATH_CONFIGURATION);
+        return matches != null ? matches : Collections.emptyList();
+    }
+
+    static Config getSerializationConfig(int indentFactor) {
+        if (indentFactor < 0 || indentFactor >= SERIALIZATION_CONFIGS.length) {
+            return JsoniterSpi.getCurrentConfig().copyBuilder().indentionStep(indentFactor).build();
+        }
+        Config config = SERIALIZATION_CONFIGS[indentFactor];
+        if (config == null) {
+            config = JsoniterSpi.getCurrentConfig().copyBuilder().indentionStep(indentFactor).build();
+            SERIALIZATION_CONFIGS[indentFactor] = config;
+        }
+        return config;
+    }
+
+    /** Counts the written bytes, to know whether the fallback writer can still be used after an error. */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    static void write(Json json, OutputStream outputStream, int indentFactor) throws IOException {
+        CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        try {
+            JsonStream.serialize(getSerializationConfig(indentFactor), json, countingStream);
+        } catch (RuntimeException e) {
+            if (countingStream.count > 0) {
+                throw new IOException("Error while serializing JSON", e);
+            }
+            // fallback writer if Jsoniter fails
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (json instanceof JsonObject) {
+                ((JsonObject) json).write(writer, indentFactor, 0);
+            } else if (json instanceof JsonArray) {
+                ((JsonArray) json).write(writer, indentFactor, 0);
+            } else {
+                json.write(writer);
+            }
+            writer.flush();
+        }
+    }
+
     public static boolean parseBoolean(Object object) throws JsonException {
         try {
             if (object.equals(Boolean.FALSE) || object instanceof String && ((String) object).equalsIgnoreCase("false")) {
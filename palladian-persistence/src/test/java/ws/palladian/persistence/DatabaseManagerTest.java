@@ -198,6 +198,98 @@ public class DatabaseManagerTest {
         assertEquals(4, generatedIds[3]);
     }
 
+    @Test
+    public void testStreamingBatchInsert() {
+        databaseManager.setBatchSize(3);
+        final long[] generatedIds = new long[10];
+        int insertedRows = databaseManager.runBatchInsert(INSERT_TEST, new StreamingBatchDataProvider() {
+            int count = 0;
+
+            @Override
+            public List<?> next() {
+                return count < 10 ? Arrays.asList("name" + count++, 30, 70, true) : null;
+            }
+
+            @Override
+            public void insertedItem(int number, long generatedId) {
+                generatedIds[number] = generatedId;
+            }
+        });
+        assertEquals(10, insertedRows);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, generatedIds[i]);
+            assertEquals(i + 1, (int) databaseManager.runSingleQuery(RowConverters.INTEGER, "SELECT id FROM test WHERE name = ?", "name" + i));
+        }
+    }
+
+    @Test
+    public void testParallelBatchInsert() {
+        databaseManager.setBatchSize(7);
+        int[] count = {0};
+        int insertedRows = databaseManager.runParallelBatchInsert(INSERT_TEST_2, () -> count[0] < 100 ? Arrays.asList("name" + count[0]++, 30, 70, true) : null, 4);
+        assertEquals(100, insertedRows);
+        assertEquals(100, (int) databaseManager.runSingleQuery(RowConverters.INTEGER, "SELECT COUNT(*) FROM test2"));
+    }
+
+    @Test
+    public void testBatchInsertIgnoreDuplicates() {
+        DatabaseManager mySqlManager = DatabaseManagerFactory.create(DatabaseManager.class, "jdbc:h2:mem:testIgnore;MODE=MySQL;DB_CLOSE_DELAY=-1", JDBC_USERNAME, JDBC_PASSWORD);
+        mySqlManager.runUpdate("CREATE TABLE items (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(255) UNIQUE, PRIMARY KEY (id))");
+        try {
+            String insertIgnore = "INSERT IGNORE INTO items (name) VALUES (?)";
+            int[] ids = mySqlManager.runBatchInsertReturnIds(insertIgnore, Arrays.asList(Arrays.asList("a"), Arrays.asList("b")));
+            assertArrayEquals(new int[]{1, 2}, ids);
+            // the driver returned all keys for the first batch; the duplicate in the second one must not fail it
+            ids = mySqlManager.runBatchInsertReturnIds(insertIgnore, Arrays.asList(Arrays.asList("a"), Arrays.asList("c"), Arrays.asList("d")));
+            assertEquals(0, ids[0]);
+            assertTrue(ids[1] > 2 && ids[2] > ids[1]);
+            assertEquals(4, (int) mySqlManager.runSingleQuery(RowConverters.INTEGER, "SELECT COUNT(*) FROM items"));
+            assertEquals(ids[2], (int) mySqlManager.runSingleQuery(RowConverters.INTEGER, "SELECT id FROM items WHERE name = ?", "d"));
+        } finally {
+            mySqlManager.runUpdate("DROP TABLE items");
+        }
+    }
+
+    @Test
+    public void testParallelBatchInsertRollback() {
+        databaseManager.setBatchSize(7);
+        int[] count = {0};
+        // the last row duplicates the previous one in the same chunk, which violates the unique constraint
+        int insertedRows = databaseManager.runParallelBatchInsert(INSERT_TEST_2, () -> count[0] < 100 ? Arrays.asList("name" + Math.min(count[0]++, 98), 30, 70, true) : null, 4);
+        assertEquals(0, insertedRows);
+        assertEquals(0, (int) databaseManager.runSingleQuery(RowConverters.INTEGER, "SELECT COUNT(*) FROM test2"));
+    }
+
+    @Test
+    public void testParallelBatchInsertProviderFailure() {
+        databaseManager.setBatchSize(7);
+        int[] count = {0};
+        try {
+            databaseManager.runParallelBatchInsert(INSERT_TEST_2, () -> {
+                if (count[0] == 50) {
+                    throw new IllegalStateException("provider failed");
+                }
+                return Arrays.asList("name" + count[0]++, 30, 70, true);
+            }, 4);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("provider failed", e.getMessage());
+        }
+        assertEquals(0, (int) databaseManager.runSingleQuery(RowConverters.INTEGER, "SELECT COUNT(*) FROM test2"));
+    }
+
+    @Test
+    public void testRunBatchUpdate() {
+        databaseManager.setBatchSize(2);
+        List<List<Object>> params = new ArrayList<>();
+        for (Object[] data : Arrays.asList(d1, d2, d3, d4, d1)) {
+            params.add(Arrays.asList(data));
+        }
+        int[] result = databaseManager.runBatchUpdate(INSERT_TEST, params);
+        assertEquals(5, result.length);
+        assertEquals(5, (int) databaseManager.runSingleQuery(RowConverters.INTEGER, COUNT_TEST));
+    }
+
     @Test
     public void runAggregateQuery() {
         databaseManager.runInsertReturnId(INSERT_TEST, d1);
@@ -0,0 +1,131 @@
+package ws.palladian.persistence.json;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class JsonDatabaseTest {
+
+    private String path;
+
+    @Before
+    public void setUp() {
+        path = new File(FileHelper.getTempDir(), "jsonDatabaseTest_" + System.nanoTime()).getPath();
+    }
+
+    @After
+    public void tearDown() {
+        FileHelper.delete(path, true);
+    }
+
+    private static JsonObject document(String id, String source, String... tags) {
+        JsonObject document = new JsonObject();
+        document.put("_id", id);
+        document.put("source", source);
+        document.put("tags", new JsonArray(Arrays.asList(tags)));
+        return document;
+    }
+
+    private static Set<String> ids(Collection<JsonObject> documents) {
+        Set<String> ids = new HashSet<>();
+        for (JsonObject document : documents) {
+            ids.add(document.tryGetString("_id"));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testSegments() {
+        Map<String, List<String>> indexes = Map.of("items", Arrays.asList("source", "tags"));
+        try (JsonDatabase db = new JsonDatabase(path, indexes, JsonDatabase.Storage.SEGMENTS)) {
+            assertTrue(db.add("items", document("1", "wikipedia", "a", "b")));
+            assertTrue(db.add("items", document("2", "wikipedia", "b")));
+            assertTrue(db.add("items", document("3", "dbpedia", "c")));
+
+            assertEquals("dbpedia", db.getById("items", "3").tryGetString("source"));
+            assertNull(db.getById("items", "4"));
+            assertTrue(db.exists("items", "1"));
+            assertEquals(3, db.countCollectionEntries("items"));
+            assertEquals(Set.of("1", "2"), ids(db.get("items", "source", "wikipedia")));
+            assertEquals(Set.of("1", "2"), ids(db.get("items", "tags", "b")));
+            assertTrue(db.get("items", "unindexed", "x").isEmpty());
+
+            // merge adds the tag
+            assertEquals(JsonDatabase.Action.MERGE, db.upsert("items", document("1", "wikipedia", "c")));
+            assertEquals(Set.of("1", "3"), ids(db.get("items", "tags", "c")));
+
+            // replacing the document removes the outdated index entries
+            db.add("items", document("1", "dbpedia", "a", "b", "c"));
+            assertEquals(Set.of("2"), ids(db.get("items", "source", "wikipedia")));
+
+            assertTrue(db.delete("items", "2"));
+            assertFalse(db.delete("items", "2"));
+            assertTrue(db.get("items", "source", "wikipedia").isEmpty());
+        }
+
+        // indexes and documents are available after reopening, without specifying the indexes again
+        try (JsonDatabase db = new JsonDatabase(path, Collections.emptyMap(), JsonDatabase.Storage.SEGMENTS)) {
+            assertEquals(2, db.countCollectionEntries("items"));
+            assertEquals(Set.of("1", "3"), ids(db.get("items", "source", "dbpedia")));
+            assertEquals(Set.of("a", "b", "c"), new HashSet<>(db.getById("items", "1").tryGetJsonArray("tags")));
+
+            List<JsonObject> all = new ArrayList<>();
+            db.getAll("items").forEachRemaining(all::add);
+            assertEquals(Set.of("1", "3"), ids(all));
+
+            JsonDbIterator<JsonObject> iterator = db.getAll("items", 1);
+            assertEquals(2, iterator.getTotalCount());
+            assertEquals("3", iterator.next().tryGetString("_id"));
+            assertFalse(iterator.hasNext());
+
+            // the documents are exported to files
+            JsonDbIterator<File> files = db.getAllFiles("items");
+            assertEquals(2, files.getTotalCount());
+            File file = files.next();
+            assertEquals("1.json", file.getName());
+            assertEquals("dbpedia", JsonObject.tryParse(FileHelper.tryReadFileToStringNoReplacement(file)).tryGetString("source"));
+            assertEquals("3.json", files.next().getName());
+            assertFalse(files.hasNext());
+            FileHelper.delete(file.getParent(), true);
+
+            // rebuilding keeps the valid entries only
+            db.rebuildInitializedIndexes();
+            assertEquals(Set.of("1", "3"), ids(db.get("items", "source", "dbpedia")));
+            assertTrue(db.get("items", "source", "wikipedia").isEmpty());
+        }
+    }
+
+    @Test
+    public void testSegmentsConcurrentUpserts() throws InterruptedException {
+        Map<String, List<String>> indexes = Map.of("items", Collections.singletonList("tags"));
+        try (JsonDatabase db = new JsonDatabase(path, indexes, JsonDatabase.Storage.SEGMENTS)) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 1000; i++) {
+                int number = i;
+                executor.execute(() -> db.upsert("items", document(String.valueOf(number % 100), "source", "tag" + number)));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+            assertEquals(100, db.countCollectionEntries("items"));
+            for (int i = 0; i < 100; i++) {
+                // all merges of the same document are applied
+                assertEquals(10, db.getById("items", String.valueOf(i)).tryGetJsonArray("tags").size());
+            }
+            assertEquals(Set.of("42"), ids(db.get("items", "tags", "tag542")));
+
+            db.compact();
+            assertEquals(100, db.countCollectionEntries("items"));
+        }
+    }
+
+}
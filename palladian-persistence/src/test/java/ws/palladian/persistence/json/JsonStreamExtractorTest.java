@@ -0,0 +1,118 @@
+package ws.palladian.persistence.json;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonStreamExtractorTest {
+
+    private static final String JSON = "{\"name\":\"test\",\"skipped\":{\"deep\":[1,2,{\"x\":\"y\"}]},\"entries\":[" + //
+            "{\"id\":0,\"title\":\"zero\",\"location\":{\"lat\":1.5,\"lng\":2.5}}," + //
+            "{\"id\":1,\"title\":\"one\",\"tags\":[\"a\",\"b\"]}," + //
+            "{\"id\":2,\"title\":\"two \\\"quoted\\\"\"}]}";
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExtract() throws IOException, JsonException {
+        JsonStreamExtractor extractor = new JsonStreamExtractor("name", "entries[1]/title", "entries[0]/location",
+                "entries[1]/tags", "missing");
+        Map<String, Object> result = extractor.extract(stream(JSON));
+        assertEquals(4, result.size());
+        assertEquals("test", result.get("name"));
+        assertEquals("one", result.get("entries[1]/title"));
+        JsonObject location = (JsonObject) result.get("entries[0]/location");
+        assertEquals(1.5, location.tryGetDouble("lat"), 0);
+        assertEquals(Arrays.asList("a", "b"), result.get("entries[1]/tags"));
+        assertFalse(result.containsKey("missing"));
+
+        // same values as the query on the complete tree
+        JsonObject jsonObject = new JsonObject(JSON);
+        assertEquals(jsonObject.query("entries[1]/title"), extractor.extract(JSON).get("entries[1]/title"));
+    }
+
+    @Test
+    public void testExtractWildcard() throws JsonException {
+        Map<String, Object> result = new JsonStreamExtractor("entries[*]/id", "entries[*]/title").extract(JSON);
+        assertEquals(Arrays.asList(0, 1, 2), result.get("entries[*]/id"));
+        assertEquals(Arrays.asList("zero", "one", "two \"quoted\""), result.get("entries[*]/title"));
+    }
+
+    @Test
+    public void testExtractEach() throws IOException, JsonException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"id\":").append(i);
+            json.append(",\"text\":\"").append("lorem ipsum ".repeat(100)).append("\",\"nested\":{\"value\":").append(i * 2).append("}}");
+        }
+        json.append(']');
+        List<Map<String, Object>> items = new ArrayList<>();
+        int count = new JsonStreamExtractor("id", "nested/value").extractEach(stream(json.toString()), items::add);
+        assertEquals(1000, count);
+        assertEquals(1000, items.size());
+        assertEquals(999, items.get(999).get("id"));
+        assertEquals(1998, items.get(999).get("nested/value"));
+
+        // multi-byte characters are copied unchanged
+        items.clear();
+        new JsonStreamExtractor("text").extractEach(stream("[{\"text\":\"Grüße ÿ\"},{\"text\":\"€\"}]"), items::add);
+        assertEquals("Grüße ÿ", items.get(0).get("text"));
+        assertEquals("€", items.get(1).get("text"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrefixPaths() {
+        new JsonStreamExtractor("entries", "entries[0]/id");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWildcardWithIndex() {
+        new JsonStreamExtractor("entries[*]/id", "entries[0]/title");
+    }
+
+    @Test(expected = JsonException.class)
+    public void testMalformed() throws JsonException {
+        new JsonStreamExtractor("entries[0]/id").extract("{\"entries\":[{\"id\":");
+    }
+
+    @Test
+    public void testCompiledQueries() throws JsonException {
+        JsonObject jsonObject = new JsonObject(JSON);
+        JsonPathExpression expression = JsonPathExpression.compile("entries[0]/location/lat");
+        assertSame(expression, JsonPathExpression.compile("entries[0]/location/lat"));
+        assertEquals(1.5, (Double) expression.query(jsonObject), 0);
+        assertEquals("b", jsonObject.queryString("entries[1]/tags[1]"));
+        assertEquals("b", jsonObject.queryJsonArray("entries").queryString("[1]/tags[1]"));
+        assertNull(jsonObject.tryQueryString("entries[3]/title"));
+        assertNull(jsonObject.tryQueryString("entries[0]/missing"));
+
+        // definite and indefinite JSONPaths
+        assertEquals("one", jsonObject.queryJsonPath("$.entries[1].title"));
+        assertEquals("two \"quoted\"", jsonObject.queryJsonPath("$.entries[?(@.id == 2)].title"));
+        assertEquals(Arrays.asList("zero", "one", "two \"quoted\""), jsonObject.queryJsonPathArray("$.entries[*].title"));
+        assertNull(jsonObject.queryJsonPath("$.entries[0].missing"));
+    }
+
+    @Test
+    public void testWriteToStream() throws IOException, JsonException {
+        JsonObject jsonObject = new JsonObject(JSON);
+        for (int indent : new int[]{0, 2}) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            jsonObject.write(outputStream, indent);
+            assertEquals(jsonObject.toString(indent), outputStream.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+}
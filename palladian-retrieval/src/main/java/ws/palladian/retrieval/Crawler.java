@@ -1,17 +1,20 @@
 package ws.palladian.retrieval;
 
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import ws.palladian.helper.Callback;
 import ws.palladian.helper.StopWatch;
-import ws.palladian.helper.ThreadHelper;
 import ws.palladian.helper.UrlHelper;
 import ws.palladian.helper.html.HtmlHelper;
 import ws.palladian.helper.html.XPathHelper;
 import ws.palladian.helper.io.FileHelper;
 import ws.palladian.helper.nlp.PatternHelper;
+import ws.palladian.retrieval.crawler.CrawlFrontier;
+import ws.palladian.retrieval.crawler.PersistentFrontier;
+import ws.palladian.retrieval.crawler.PolitenessFrontier;
 import ws.palladian.retrieval.helper.NoThrottle;
 import ws.palladian.retrieval.helper.RequestThrottle;
 
@@ -19,6 +22,7 @@ import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,6 +36,12 @@ import java.util.stream.Collectors;
  * A simple web crawler which can crawl web pages within a domain or crawl cross domain.
  * </p>
  *
+ * <p>
+ * A crawler is used for one crawl: the frontier keeps all URLs which were seen, and the threads are stopped when the
+ * crawl has finished. To crawl again (also from the same start URLs), create a new crawler. A
+ * {@link PersistentFrontier} continues a previous crawl instead, so its start URLs are usually seen already.
+ * </p>
+ *
  * @author David Urbansky
  */
 public class Crawler {
@@ -59,7 +69,7 @@ public class Crawler {
 
     private ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
 
-    /** The number of milliseconds each host gets between two requests. */
+    /** Global throttle, applied to all requests; use {@link PolitenessFrontier} for limits per host. */
     private RequestThrottle requestThrottle = NoThrottle.INSTANCE;
 
     private Consumer<String> errorCallback;
@@ -94,8 +104,12 @@ public class Crawler {
 
     /** Do not look for more URLs if visited stopCount pages already, -1 for infinity. */
     private int stopCount = -1;
-    private Set<String> urlStack = Collections.synchronizedSet(new HashSet<>());
-    private Set<String> visitedUrls = Collections.synchronizedSet(new HashSet<>());
+
+    /** The URLs to crawl and the URLs which have been seen already. */
+    private CrawlFrontier frontier = new PolitenessFrontier();
+
+    /** The number of URLs which were taken from the frontier. */
+    private final AtomicInteger visitedCount = new AtomicInteger();
 
     /** If true, all query params in the URL ?= will be stripped. */
     private boolean stripQueryParams = true;
@@ -159,8 +173,8 @@ public class Crawler {
         if (document != null) {
             Set<String> links = getDocumentLinks(document);
 
-            if (urlStack.isEmpty() || visitedUrls.isEmpty() || (System.currentTimeMillis() / 1000) % 5 == 0) {
-                LOGGER.info("retrieved {} links from {} || stack size: {}, visited: {}", new Object[]{links.size(), currentUrl, urlStack.size(), visitedUrls.size()});
+            if (frontier.size() == 0 || (System.currentTimeMillis() / 1000) % 5 == 0) {
+                LOGGER.info("retrieved {} links from {} || stack size: {}, visited: {}", new Object[]{links.size(), currentUrl, frontier.size(), visitedCount.get()});
             }
 
             addUrlsToStack(links, currentUrl);
@@ -223,40 +237,43 @@ public class Crawler {
      * Start the crawling process.
      */
     private void startCrawl() {
-        // crawl
+        // crawl; the semaphore limits the URLs taken from the frontier to the ones which can be processed, so that
+        // the politeness of the frontier applies to the actual requests
         final AtomicLong lastCrawlTime = new AtomicLong(System.currentTimeMillis());
         long silentStopTimeMillis = TimeUnit.MINUTES.toMillis(silentStopTime);
-        while ((stopCount == -1 || visitedUrls.size() < stopCount) && ((System.currentTimeMillis() - lastCrawlTime.get()) < silentStopTimeMillis)) {
+        Semaphore permits = new Semaphore(maxThreads);
+        while ((stopCount == -1 || visitedCount.get() < stopCount) && ((System.currentTimeMillis() - lastCrawlTime.get()) < silentStopTimeMillis)) {
             try {
+                if (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+                    continue;
+                }
                 final String url = getUrlFromStack();
-                if (url != null) {
-                    Thread ct = new Thread("CrawlThread-" + url) {
-                        @Override
-                        public void run() {
-                            try {
-                                if (stopCount == 0) {
-                                    return;
-                                }
-                                crawl(url);
-                                lastCrawlTime.set(System.currentTimeMillis());
-                            } catch (Throwable t) {
-                                // whatever
-                                t.printStackTrace();
-                                LOGGER.error(t.getMessage(), t);
-                                if (errorCallback != null) {
-                                    errorCallback.accept(url);
-                                }
-                            }
+                if (url == null || executor.isShutdown()) {
+                    permits.release();
+                    continue;
+                }
+                executor.submit(() -> {
+                    try {
+                        if (stopCount == 0) {
+                            return;
                         }
-                    };
-
-                    if (!executor.isShutdown()) {
-                        executor.submit(ct);
+                        crawl(url);
+                        lastCrawlTime.set(System.currentTimeMillis());
+                    } catch (Throwable t) {
+                        // whatever
+                        t.printStackTrace();
+                        LOGGER.error(t.getMessage(), t);
+                        if (errorCallback != null) {
+                            errorCallback.accept(url);
+                        }
+                    } finally {
+                        permits.release();
                     }
-                } else {
-                    // powernap
-                    ThreadHelper.deepSleep(1000);
-                }
+                });
+            } catch (InterruptedException e) {
+                LOGGER.error(e.getMessage(), e);
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
             }
@@ -293,13 +310,15 @@ public class Crawler {
     /**
      * Start the crawling process.
      *
-     * @param urlStack  The URLs to crawl.
+     * @param urlStack  The URLs to crawl; URLs which were already seen by the frontier are not crawled again.
      * @param inDomain  Follow links that point to other pages within the given domain.
      * @param outDomain Follow outbound links.
      */
     public void startCrawl(Set<String> urlStack, boolean inDomain, boolean outDomain, boolean subDomain) {
-        this.urlStack.clear();
-        this.urlStack.addAll(urlStack);
+        int added = frontier.addAll(urlStack);
+        if (added < urlStack.size()) {
+            LOGGER.info("{} of {} start URLs were already seen and are not crawled again", urlStack.size() - added, urlStack.size());
+        }
         this.inDomain = inDomain;
         this.outDomain = outDomain;
         this.subDomain = subDomain;
@@ -309,32 +328,37 @@ public class Crawler {
     /**
      * Start the crawling process.
      *
-     * @param startURL  The URL where the crawler should start.
+     * @param startURL  The URL where the crawler should start; in case it was already seen by the frontier, it is not
+     *                  crawled again.
      * @param inDomain  Follow links that point to other pages within the given domain.
      * @param outDomain Follow outbound links.
      */
     public void startCrawl(String startURL, boolean inDomain, boolean outDomain, boolean subDomain) {
-        urlStack.clear();
-        urlStack.add(startURL);
+        if (!frontier.add(startURL)) {
+            LOGGER.info("The start URL {} was already seen and is not crawled again", startURL);
+        }
         this.inDomain = inDomain;
         this.outDomain = outDomain;
         this.subDomain = subDomain;
         startCrawl();
     }
 
-    private synchronized String getUrlFromStack() {
-        Iterator<String> iterator = urlStack.iterator();
-        if (iterator.hasNext()) {
-            String url = iterator.next();
-            urlStack.remove(url);
+    /**
+     * Take the next URL from the frontier, waiting for at most one second.
+     *
+     * @return The URL, or <code>null</code> in case no URL was available.
+     * @throws InterruptedException In case the thread was interrupted while waiting.
+     */
+    private String getUrlFromStack() throws InterruptedException {
+        String url = frontier.poll(1, TimeUnit.SECONDS);
+        if (url != null) {
             addVisitedUrl(url);
-            return url;
         }
-        return null;
+        return url;
     }
 
     protected void addVisitedUrl(String url) {
-        visitedUrls.add(url);
+        visitedCount.incrementAndGet();
     }
 
     public void setStopCount(int number) {
@@ -389,7 +413,7 @@ public class Crawler {
         this.urlAttributeModification.add(attributeToAddToUrl);
     }
 
-    protected synchronized void addUrlsToStack(Set<String> urls, String sourceUrl) {
+    protected void addUrlsToStack(Set<String> urls, String sourceUrl) {
         for (String url : urls) {
             addUrlToStack(url, sourceUrl);
         }
@@ -423,11 +447,11 @@ public class Crawler {
         return url;
     }
 
-    protected synchronized void addUrlToStack(String url, String sourceUrl) {
+    protected void addUrlToStack(String url, String sourceUrl) {
         url = cleanUrl(url);
 
         // check URL first
-        if (url != null && url.length() < 400 && !visitedUrls.contains(url) && documentRetriever.getDownloadFilter().test(url) && validate(url)) {
+        if (url != null && url.length() < 400 && !frontier.isSeen(url) && documentRetriever.getDownloadFilter().test(url) && validate(url)) {
             boolean follow = true;
 
             // check whether the url should be followed
@@ -449,8 +473,7 @@ public class Crawler {
                 }
             }
 
-            if (follow) {
-                urlStack.add(url);
+            if (follow && frontier.add(url)) {
                 if (trackLinks) {
                     trackedLinks.put(url, sourceUrl);
                 }
@@ -520,20 +543,25 @@ public class Crawler {
         this.stripQueryParams = stripQueryParams;
     }
 
-    public Set<String> getUrlStack() {
-        return urlStack;
-    }
-
-    public void setUrlStack(Set<String> urlStack) {
-        this.urlStack = urlStack;
+    public CrawlFrontier getFrontier() {
+        return frontier;
     }
 
-    public Set<String> getVisitedUrls() {
-        return visitedUrls;
+    /**
+     * Set the frontier which keeps the URLs to crawl, e.g. a {@link PolitenessFrontier} which limits the requests per
+     * host, or a {@link PersistentFrontier} for crawls which should be resumable or do not fit into memory. Must be set
+     * before starting to crawl.
+     *
+     * @param frontier The frontier, not <code>null</code>.
+     */
+    public void setFrontier(CrawlFrontier frontier) {
+        Validate.notNull(frontier, "frontier must not be null");
+        this.frontier = frontier;
     }
 
-    public void setVisitedUrls(Set<String> visitedUrls) {
-        this.visitedUrls = visitedUrls;
+    /** @return The number of URLs which have been taken from the frontier for crawling. */
+    public int getNumVisitedUrls() {
+        return visitedCount.get();
     }
 
     public boolean isRetryFailedRetrievals() {
@@ -1,23 +1,21 @@
 package ws.palladian.retrieval;
 
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.functional.Predicates;
 import ws.palladian.helper.html.HtmlHelper;
-import ws.palladian.retrieval.helper.FixedIntervalRequestThrottle;
+import ws.palladian.retrieval.crawler.CrawlFrontier;
+import ws.palladian.retrieval.crawler.PolitenessFrontier;
 import ws.palladian.retrieval.helper.NoThrottle;
 import ws.palladian.retrieval.helper.RequestThrottle;
 import ws.palladian.retrieval.parser.DocumentParser;
 import ws.palladian.retrieval.parser.ParserFactory;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -52,7 +50,16 @@ public class HttpCrawler {
         @Override
         public void run() {
             for (; ; ) {
-                String url = takeNextUrl();
+                String url;
+                try {
+                    url = frontier.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (url == null) {
+                    continue;
+                }
                 LOGGER.debug("Fetching {}", url);
                 for (int attempt = 1; ; attempt++) {
                     try {
@@ -89,7 +96,7 @@ public class HttpCrawler {
         @Override
         public void run() {
             for (; ; ) {
-                LOGGER.info("Queue: {}, processed: {}", urlQueue.size(), checkedUrls.size());
+                LOGGER.info("Queue: {}, processed: {}", frontier.size(), frontier.getSeenCount() - frontier.size());
                 try {
                     Thread.sleep(10000);
                 } catch (InterruptedException e) {
@@ -103,9 +110,7 @@ public class HttpCrawler {
 
     private static final int NUM_THREADS = 10;
 
-    private final Queue<String> urlQueue;
-
-    private final Set<String> checkedUrls;
+    private final CrawlFrontier frontier;
 
     private final HttpRetriever httpRetriever;
 
@@ -128,8 +133,20 @@ public class HttpCrawler {
     }
 
     public HttpCrawler(Predicate<String> urlFilter, Consumer<HttpResult> action, RequestThrottle throttle, RetryPolicy retryPolicy) {
-        urlQueue = new ConcurrentLinkedQueue<>();
-        checkedUrls = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        this(urlFilter, action, throttle, retryPolicy, new PolitenessFrontier());
+    }
+
+    /**
+     * @param urlFilter   Filter for the extracted URLs which should be crawled.
+     * @param action      The action to perform for each retrieved page.
+     * @param throttle    Global throttle, applied to all requests.
+     * @param retryPolicy The policy for failed requests.
+     * @param frontier    The frontier which keeps the URLs to crawl, e.g. a {@link PolitenessFrontier} to limit the
+     *                    requests per host.
+     */
+    public HttpCrawler(Predicate<String> urlFilter, Consumer<HttpResult> action, RequestThrottle throttle, RetryPolicy retryPolicy, CrawlFrontier frontier) {
+        Validate.notNull(frontier, "frontier must not be null");
+        this.frontier = frontier;
         httpRetriever = HttpRetrieverFactory.getHttpRetriever();
         htmlParser = ParserFactory.createHtmlParser();
         this.urlFilter = urlFilter;
@@ -139,38 +156,11 @@ public class HttpCrawler {
     }
 
     public boolean add(String url) {
-        return add(Collections.singleton(url)) == 1;
+        return frontier.add(url);
     }
 
     public int add(Collection<String> urls) {
-        int added = 0;
-        synchronized (urlQueue) {
-            for (String url : urls) {
-                if (checkedUrls.contains(url)) {
-                    continue;
-                }
-                if (!urlQueue.contains(url)) {
-                    urlQueue.add(url);
-                    added++;
-                }
-            }
-        }
-        return added;
-    }
-
-    private String takeNextUrl() {
-        for (; ; ) {
-            String url = urlQueue.poll();
-            if (url != null) {
-                checkedUrls.add(url);
-                return url;
-            }
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                // ignore.
-            }
-        }
+        return frontier.addAll(urls);
     }
 
     public void start() {
@@ -187,7 +177,7 @@ public class HttpCrawler {
             public void accept(HttpResult result) {
                 System.out.println("Fetched " + result.getUrl());
             }
-        }, new FixedIntervalRequestThrottle(100, TimeUnit.MILLISECONDS));
+        }, NoThrottle.INSTANCE, NoRetryPolicy.INSTANCE, new PolitenessFrontier(100, TimeUnit.MILLISECONDS, 1));
         crawler.add("http://www.breakingnews.com");
         crawler.start();
     }
@@ -0,0 +1,26 @@
+package ws.palladian.retrieval;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Processes the body of an HTTP response as stream, so that large responses do not need to be buffered in memory. See
+ * {@link HttpRetriever#execute(HttpRequest2, HttpResponseHandler)}.
+ *
+ * @param <T> The type of the result.
+ */
+@FunctionalInterface
+public interface HttpResponseHandler<T> {
+
+    /**
+     * Process the response.
+     *
+     * @param result  The status code, headers and locations of the response; the content of this result is empty.
+     * @param content The body of the response (empty in case the response has no body); it is closed after this
+     *                method returns.
+     * @return The result of the processing.
+     * @throws IOException In case reading the body fails.
+     */
+    T handle(HttpResult result, InputStream content) throws IOException;
+
+}
@@ -0,0 +1,111 @@
+package ws.palladian.retrieval;
+
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Collects an asynchronous response into an {@link HttpResult}. When the maximum file size is reached, the exchange is
+ * aborted with a {@link MaxFileSizeReachedException}, which carries the result with the content up to this point.
+ */
+final class HttpResultConsumer extends AbstractBinResponseConsumer<HttpResult> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Aborts the exchange, so that the remaining content is not downloaded. */
+    static final class MaxFileSizeReachedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient HttpResult result;
+
+        MaxFileSizeReachedException(HttpResult result) {
+            super("Max. file size reached for " + result.getUrl());
+            this.result = result;
+        }
+
+        /** @return The result with the content up to the max. file size. */
+        HttpResult getResult() {
+            return result;
+        }
+
+    }
+
+    private final String url;
+
+    private final long maxFileSize;
+
+    private final List<String> locations;
+
+    private ByteArrayOutputStream content;
+
+    private HttpResponse response;
+
+    private long receivedBytes;
+
+    /**
+     * @param url         The requested URL.
+     * @param maxFileSize The maximum number of bytes to keep, -1 for no limit.
+     * @param locations   The list with the locations, which is filled while redirects are followed.
+     */
+    HttpResultConsumer(String url, long maxFileSize, List<String> locations) {
+        this.url = url;
+        this.maxFileSize = maxFileSize;
+        this.locations = locations;
+    }
+
+    @Override
+    protected void start(HttpResponse response, ContentType contentType) {
+        this.response = response;
+        this.content = new ByteArrayOutputStream(BUFFER_SIZE);
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return BUFFER_SIZE;
+    }
+
+    @Override
+    protected void data(ByteBuffer data, boolean endOfStream) throws IOException {
+        int length = data.remaining();
+        receivedBytes += length;
+        if (maxFileSize != -1) {
+            length = (int) Math.min(length, maxFileSize - content.size());
+        }
+        if (data.hasArray()) {
+            content.write(data.array(), data.arrayOffset() + data.position(), length);
+        } else {
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+            content.write(bytes, 0, length);
+        }
+        data.position(data.limit());
+        if (maxFileSize != -1 && content.size() >= maxFileSize && !endOfStream) {
+            throw new MaxFileSizeReachedException(buildResult());
+        }
+    }
+
+    @Override
+    protected HttpResult buildResult() {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (Header header : response.getHeaders()) {
+            headers.computeIfAbsent(header.getName(), k -> new ArrayList<>()).add(header.getValue());
+        }
+        byte[] bytes = content != null ? content.toByteArray() : new byte[0];
+        HttpResult result = new HttpResult(url, bytes, headers, response.getCode(), receivedBytes, locations);
+        result.setMaxFileSizeReached(maxFileSize != -1 && bytes.length >= maxFileSize);
+        return result;
+    }
+
+    @Override
+    public void releaseResources() {
+        content = null;
+    }
+
+}
@@ -4,40 +4,39 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.hc.client5.http.ClientProtocolException;
-import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.Credentials;
 import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
 import org.apache.hc.client5.http.classic.methods.*;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
-import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.*;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
-import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
 import org.apache.hc.core5.http.protocol.HttpContext;
-import org.apache.hc.core5.http.protocol.HttpCoreContext;
 import org.apache.hc.core5.net.URIAuthority;
-import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.helper.UrlHelper;
 import ws.palladian.helper.constants.SizeUnit;
-import ws.palladian.helper.io.FileHelper;
 import ws.palladian.helper.nlp.StringHelper;
 import ws.palladian.retrieval.helper.HttpHelper;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,8 +45,10 @@ import java.util.concurrent.TimeUnit;
  * GET, POST, and HEAD. Results for these requests are supplied as instances of {@link HttpResult}. Further more, this
  * class provides the possibility to save the results from HTTP requests as files for archival purposes. This class is
  * heavily based upon Apache HttpComponents, which provide a much more reliable HTTP implementation than the original
- * <code>java.net.*</code> components. Connections are pooled by a static, shared connection pool. The corresponding
- * settings for the pooling are {@link #setNumConnections(int)} and {@link #setNumConnectionsPerRoute(int)}.
+ * <code>java.net.*</code> components. Connections are pooled by the connection pool of the
+ * {@link HttpRetrieverFactory}, and the HTTP clients are long-lived and shared between all instances. Besides the
+ * buffered {@link HttpResult}s, response bodies can be streamed via {@link #execute(HttpRequest2, HttpResponseHandler)},
+ * and requests can be executed asynchronously (optionally with HTTP/2) via {@link #executeAsync(HttpRequest2)}.
  * </p>
  *
  * <p>
@@ -119,11 +120,12 @@ public class HttpRetriever {
     private final RequestConfig.Builder requestConfigBuilder = RequestConfig.custom();
 
     /**
-     * Identifier for Connection Metrics; see comment in constructor.
+     * The maximum size of an array which can be allocated safely.
      */
-    private static final String CONTEXT_METRICS_ID = "CONTEXT_METRICS_ID";
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
-    private static final String CONTEXT_LOCATIONS_ID = "CONTEXT_LOCATIONS_ID";
+    /** The maximum size of the buffer which is allocated up front for the announced content length. */
+    private static final int MAX_PREALLOCATION = 1024 * 1024;
 
     // ///////////// Settings ////////
 
@@ -152,6 +154,11 @@ public class HttpRetriever {
      */
     private int numRetries = DEFAULT_NUM_RETRIES;
 
+    /**
+     * Whether to negotiate HTTP/2 for asynchronous requests.
+     */
+    private boolean http2 = false;
+
     // ///////////// Misc. ////////
 
     /**
@@ -305,53 +312,21 @@ public class HttpRetriever {
     // internal functionality
     // ////////////////////////////////////////////////////////////////
 
-    private HttpClientBuilder createHttpClientBuilder() {
-        // initialize the HttpClient
-        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().setConnectionManager(connectionManager);
-        if (userAgent != null) {
-            httpClientBuilder.setUserAgent(userAgent);
+    /**
+     * Create the context for one request. The cookie store is scoped on *one* request and discarded after that; see
+     * https://bitbucket.org/palladian/palladian/issue/286/possibility-to-accept-cookies-in "one request" actually
+     * means, that we have e.g. a GET and receive several redirects, where cookies previously set cookies are
+     * necessary.
+     */
+    private HttpClientContext createContext(RequestConfig requestConfig, boolean cookies) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(requestConfig);
+        if (cookies) {
+            context.setCookieStore(new ApacheCookieStoreAdapter(Objects.requireNonNullElseGet(cookieStore, DefaultCookieStore::new)));
+        } else {
+            context.setCookieStore(new BasicCookieStore());
         }
-
-        httpClientBuilder.setDefaultRequestConfig(requestConfigBuilder.build());
-        DefaultHttpRequestRetryStrategy retryStrategy = new DefaultHttpRequestRetryStrategy(numRetries, TimeValue.ofSeconds(1L));
-        httpClientBuilder.setRetryStrategy(retryStrategy);
-        /*
-         * fix #261 to get connection metrics for head requests, see also discussion at
-         * http://old.nabble.com/ConnectionShutdownException-when-trying-to-get-metrics-after-HEAD-request-td31358878.html
-         * start code taken from apache, licensed as http://www.apache.org/licenses/LICENSE-2.0
-         * http://svn.apache.org/viewvc/jakarta/jmeter/trunk/src/protocol/http/org/apache/jmeter/protocol/http/sampler/
-         * HTTPHC4Impl.java?annotate=1090914&pathrev=1090914
-         */
-        HttpResponseInterceptor metricsSaver = (httpResponse, entityDetails, context) -> {
-            HttpConnectionMetrics endpoint = (HttpConnectionMetrics) context.getAttribute(HttpCoreContext.CONNECTION_ENDPOINT);
-            context.setAttribute(CONTEXT_METRICS_ID, endpoint);
-        };
-        httpClientBuilder.addResponseInterceptorLast(metricsSaver);
-
-        HttpRequestInterceptor httpRequestInterceptor = (request, entityDetails, context) -> {
-            List<String> locations = (List<String>) context.getAttribute(CONTEXT_LOCATIONS_ID);
-            if (locations == null) {
-                locations = new ArrayList<>();
-                context.setAttribute(CONTEXT_LOCATIONS_ID, locations);
-            }
-            HttpRoute route = (HttpRoute) context.getAttribute("http.route");
-            String targetHost = route != null ?
-                    route.getTargetHost().getSchemeName() + "://" + route.getTargetHost().getHostName() :
-                    request.getScheme() + "://" + request.getAuthority().getHostName();
-            String fullLocation = targetHost + request.getRequestUri();
-            locations.add(fullLocation);
-        };
-        httpClientBuilder.addRequestInterceptorLast(httpRequestInterceptor);
-
-        // set the cookie store; this is scoped on *one* request and discarded after that;
-        // see https://bitbucket.org/palladian/palladian/issue/286/possibility-to-accept-cookies-in
-        // "one request" actually means, that we have e.g. a GET and receive several redirects,
-        // where cookies previously set cookies are necessary; this is not a typical case,
-        // and if we should encounter any issues by this change, remove this code (and the modification
-        // in the constructor) again.
-        httpClientBuilder.setDefaultCookieStore(new ApacheCookieStoreAdapter(Objects.requireNonNullElseGet(cookieStore, DefaultCookieStore::new)));
-
-        return httpClientBuilder;
+        return context;
     }
 
     private String createUrl(HttpRequest httpRequest) {
@@ -395,17 +370,110 @@ public class HttpRetriever {
      * @throws HttpException
      */
     private HttpResult execute(String url, HttpUriRequest request) throws HttpException {
-        HttpResult result;
-        InputStream in = null;
+        return execute(url, request, (response, context, proxyUsed) -> {
+            HttpConnectionMetrics metrics = (HttpConnectionMetrics) context.getAttribute(SharedHttpClients.CONTEXT_METRICS_ID);
+
+            HttpEntity entity = response.getEntity();
+            byte[] entityContent;
+            boolean maxFileSizeReached = false;
+            if (entity != null) {
+                InputStream in = entity.getContent();
+                entityContent = readContent(in, entity.getContentLength());
+                maxFileSizeReached = maxFileSize != -1 && entityContent.length >= maxFileSize;
+                if (maxFileSizeReached) {
+                    // do not close the stream, as this would read the remaining content; the request is aborted instead
+                    LOGGER.debug("Cancel transfer of {}, as max. file size limit of {} bytes was reached", url, maxFileSize);
+                } else {
+                    in.close();
+                }
+            } else {
+                entityContent = new byte[0];
+            }
+
+            long receivedBytes = 0;
+            if (metrics != null) {
+                receivedBytes = metrics.getReceivedBytesCount();
+            }
+
+            HttpResult result = createResult(url, response, context, entityContent, receivedBytes);
+            result.setMaxFileSizeReached(maxFileSizeReached);
+            addDownload(receivedBytes);
+            checkProxy(proxyUsed, result);
+            return result;
+        });
+    }
+
+    /**
+     * Read the content of a response into an array, up to the maximum file size. In case the length is known, the
+     * array is allocated with the exact size (but at most {@value #MAX_PREALLOCATION} bytes at first, as the announced
+     * length might be wrong, and grown while reading), else wise it is copied once at the end.
+     *
+     * @param in            The stream with the content.
+     * @param contentLength The length of the content as announced by the server, or a negative value if unknown.
+     * @return The content.
+     * @throws IOException In case reading fails.
+     */
+    private byte[] readContent(InputStream in, long contentLength) throws IOException {
+        int limit = (int) Math.min(maxFileSize != -1 ? maxFileSize : MAX_ARRAY_SIZE, MAX_ARRAY_SIZE);
+        if (contentLength < 0 || contentLength > limit) {
+            return in.readNBytes(limit);
+        }
+        byte[] content = new byte[(int) Math.min(contentLength, MAX_PREALLOCATION)];
+        int length = in.readNBytes(content, 0, content.length);
+        while (length == content.length && length < contentLength) {
+            content = Arrays.copyOf(content, (int) Math.min(contentLength, 2L * content.length));
+            length += in.readNBytes(content, length, content.length - length);
+        }
+        return length == content.length ? content : Arrays.copyOf(content, length);
+    }
 
-        HttpClientBuilder clientBuilder = createHttpClientBuilder();
+    /**
+     * Execute a request, and process the response body as stream, so that large responses are not buffered in
+     * memory. The maximum file size ({@link #setMaxFileSize(long)}) is not applied; the handler decides how much it
+     * reads.
+     *
+     * @param request The request, not <code>null</code>.
+     * @param handler The handler which processes the response, not <code>null</code>.
+     * @param <T>     The type of the result.
+     * @return The result of the handler.
+     * @throws HttpException In case the request fails, or the handler throws an {@link IOException}.
+     */
+    public <T> T execute(HttpRequest2 request, HttpResponseHandler<T> handler) throws HttpException {
+        Validate.notNull(request, "request must not be null");
+        Validate.notNull(handler, "handler must not be null");
+        String url = request.getUrl();
+        return execute(url, new ApacheRequestAdapter(request), (response, context, proxyUsed) -> {
+            HttpResult result = createResult(url, response, context, new byte[0], 0);
+            checkProxy(proxyUsed, result);
+            HttpEntity entity = response.getEntity();
+            try (InputStream in = entity != null ? entity.getContent() : InputStream.nullInputStream()) {
+                return handler.handle(result, in);
+            } finally {
+                HttpConnectionMetrics metrics = (HttpConnectionMetrics) context.getAttribute(SharedHttpClients.CONTEXT_METRICS_ID);
+                if (metrics != null) {
+                    addDownload(metrics.getReceivedBytesCount());
+                }
+            }
+        });
+    }
 
-        Proxy proxyUsed = setProxy(url, request, clientBuilder);
+    /** Processes a response within {@link HttpRetriever#execute(String, HttpUriRequest, ResponseReader)}. */
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(ClassicHttpResponse response, HttpContext context, Proxy proxyUsed) throws IOException, HttpException;
+    }
 
-        CloseableHttpClient client = clientBuilder.build();
+    private <T> T execute(String url, HttpUriRequest request, ResponseReader<T> reader) throws HttpException {
+        Proxy proxyUsed = proxyProvider.getProxy(url);
+        CloseableHttpClient client = SharedHttpClients.getClient(connectionManager, numRetries);
+        RequestConfig requestConfig = requestConfigBuilder.build();
 
         try {
-            HttpContext context = new BasicHttpContext();
+            HttpClientContext context = createContext(requestConfig, true);
+            setProxy(proxyUsed, request, context);
+            if (userAgent != null && request.getFirstHeader(HttpHeaders.USER_AGENT) == null) {
+                request.setHeader(HttpHeaders.USER_AGENT, userAgent);
+            }
 
             try { // including credentials in the url doesn't work out of the box anymore, try to set the Authorization header
                 if (request.getAuthority() != null && request.getAuthority().getUserInfo() != null && request.getHeader("Authorization") == null) {
@@ -420,102 +488,155 @@ public class HttpRetriever {
             try {
                 response = client.execute(request, context);
             } catch (ClientProtocolException e0) {
-                // see comments on lines 351-356: this is required to handle circular redirects, e.g. https://www.washingtonpost.com/business/2023/10/02/corporate-diversity-inclusion-affirmative-action-ruling/
-                clientBuilder = createHttpClientBuilder();
-                clientBuilder.setDefaultCookieStore(null);
-                client = clientBuilder.build();
-                context = new BasicHttpContext();
+                // this is required to handle circular redirects, e.g. https://www.washingtonpost.com/business/2023/10/02/corporate-diversity-inclusion-affirmative-action-ruling/
+                context = createContext(requestConfig, false);
+                setProxy(proxyUsed, request, context);
                 response = client.execute(request, context);
             }
-            HttpConnectionMetrics metrics = (HttpConnectionMetrics) context.getAttribute(CONTEXT_METRICS_ID);
+            return reader.read(response, context, proxyUsed);
+        } catch (IllegalStateException | IOException e) {
+            proxyProvider.removeProxy(proxyUsed, e);
+            throw new HttpException("Exception " + e + " for URL \"" + url + "\": " + e.getMessage(), e);
+        } finally {
+            request.abort();
+        }
+    }
 
-            HttpEntity entity = response.getEntity();
-            byte[] entityContent;
-            boolean maxFileSizeReached = false;
+    private static HttpResult createResult(String url, ClassicHttpResponse response, HttpContext context, byte[] content, long receivedBytes) {
+        Map<String, List<String>> headers = convertHeaders(response.getHeaders());
+        // did we get redirected?
+        @SuppressWarnings("unchecked")
+        List<String> locations = (List<String>) context.getAttribute(SharedHttpClients.CONTEXT_LOCATIONS_ID);
+        return new HttpResult(url, content, headers, response.getCode(), receivedBytes, locations);
+    }
+
+    /**
+     * Decide, whether the used proxy is removed or promoted.
+     *
+     * @throws HttpException In case the proxy was removed.
+     */
+    private void checkProxy(Proxy proxyUsed, HttpResult result) throws HttpException {
+        int statusCode = result.getStatusCode();
+        if (proxyRemoveStatusCodes.contains(statusCode) || proxyRemoveCallback != null && proxyRemoveCallback.shouldRemove(result)) {
+            proxyProvider.removeProxy(proxyUsed, statusCode);
+            throw new HttpException("invalid result, remove proxy: " + proxyUsed + ", URL: " + result.getUrl());
+        } else {
+            proxyProvider.promoteProxy(proxyUsed);
+        }
+    }
+
+    /**
+     * Execute a request asynchronously; the content of the result is buffered completely, up to the specified limit in
+     * maxFileSize. The asynchronous requests use a separate, shared connection pool with the default settings and
+     * the default SSL configuration; HTTP/2 is used, in case it was enabled via {@link #setHttp2(boolean)}.
+     *
+     * @param request The request, not <code>null</code>.
+     * @return A future with the result; it completes exceptionally with an {@link HttpException} in case the request
+     * fails.
+     */
+    public CompletableFuture<HttpResult> executeAsync(HttpRequest2 request) {
+        Validate.notNull(request, "request must not be null");
+        String url = request.getUrl();
+        CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        Proxy proxyUsed;
+        try {
+            proxyUsed = proxyProvider.getProxy(url);
+        } catch (HttpException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            AsyncRequestBuilder requestBuilder = AsyncRequestBuilder.create(request.getMethod().toString()).setUri(url);
+            for (Entry<String, String> header : request.getHeaders().entrySet()) {
+                requestBuilder.setHeader(header.getKey(), header.getValue());
+            }
+            if (userAgent != null && !request.getHeaders().containsKey(HttpHeaders.USER_AGENT)) {
+                requestBuilder.setHeader(HttpHeaders.USER_AGENT, userAgent);
+            }
+            ws.palladian.retrieval.HttpEntity entity = request.getEntity();
             if (entity != null) {
-                in = entity.getContent();
-
-                // read the payload, stop if a download size limitation has been set
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                byte[] buffer = new byte[1024];
-                for (; ; ) {
-                    if (maxFileSize != -1 && out.size() >= maxFileSize) {
-                        LOGGER.debug("Cancel transfer of {}, as max. file size limit of {} bytes was reached", url, maxFileSize);
-                        maxFileSizeReached = true;
-                        break;
-                    }
-                    int bytesToRead = buffer.length;
-                    if (maxFileSize != -1) {
-                        bytesToRead = (int) Math.min(maxFileSize - out.size(), buffer.length);
-                    }
-                    int bytesRead = in.read(buffer, 0, bytesToRead);
-                    if (bytesRead == -1) {
-                        break;
-                    }
-                    out.write(buffer, 0, bytesRead);
+                byte[] body;
+                try (InputStream in = entity.getInputStream()) {
+                    body = in.readAllBytes();
                 }
-
-                entityContent = out.toByteArray();
-            } else {
-                entityContent = new byte[0];
+                ContentType contentType = entity.getContentType() != null ? ContentType.parse(entity.getContentType()) : null;
+                requestBuilder.setEntity(AsyncEntityProducers.create(body, contentType));
             }
-
-            int statusCode = response.getCode();
-            long receivedBytes = 0;
-
-            if (metrics != null) {
-                receivedBytes = metrics.getReceivedBytesCount();
+            HttpClientContext context = createContext(requestConfigBuilder.build(), true);
+            if (proxyUsed != null) {
+                context.setAttribute(SharedHttpClients.CONTEXT_PROXY_ID, new HttpHost(proxyUsed.getAddress(), proxyUsed.getPort()));
+                if (StringUtils.isNotEmpty(proxyUsed.getUsername())) {
+                    context.setCredentialsProvider(createCredentialsProvider(proxyUsed));
+                    requestBuilder.setHeader("Proxy-Authorization", createProxyAuthorization(proxyUsed));
+                }
             }
+            List<String> locations = new ArrayList<>();
+            locations.add(url);
+            HttpResultConsumer consumer = new HttpResultConsumer(url, maxFileSize, locations);
+            SharedHttpClients.getAsyncClient(http2).execute(requestBuilder.build(), consumer, null, context, new FutureCallback<>() {
+                @Override
+                public void completed(HttpResult result) {
+                    for (URI redirect : context.getRedirectLocations().getAll()) {
+                        locations.add(redirect.toString());
+                    }
+                    addDownload(result.getTransferedBytes());
+                    try {
+                        checkProxy(proxyUsed, result);
+                        future.complete(result);
+                    } catch (HttpException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
 
-            Map<String, List<String>> headers = convertHeaders(response.getHeaders());
-
-            // did we get redirected?
-            List<String> locations = (List<String>) context.getAttribute(CONTEXT_LOCATIONS_ID);
-
-            result = new HttpResult(url, entityContent, headers, statusCode, receivedBytes, locations);
-            result.setMaxFileSizeReached(maxFileSizeReached);
-            addDownload(receivedBytes);
-
-            if (proxyRemoveStatusCodes.contains(statusCode) || proxyRemoveCallback != null && proxyRemoveCallback.shouldRemove(result)) {
-                proxyProvider.removeProxy(proxyUsed, statusCode);
-                throw new HttpException("invalid result, remove proxy: " + proxyUsed + ", URL: " + url);
-            } else {
-                proxyProvider.promoteProxy(proxyUsed);
-            }
+                @Override
+                public void failed(Exception e) {
+                    // the consumer aborts the exchange, when the max. file size is reached
+                    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                        if (cause instanceof HttpResultConsumer.MaxFileSizeReachedException) {
+                            LOGGER.debug("Cancelled transfer of {}, as max. file size limit of {} bytes was reached", url, maxFileSize);
+                            completed(((HttpResultConsumer.MaxFileSizeReachedException) cause).getResult());
+                            return;
+                        }
+                    }
+                    proxyProvider.removeProxy(proxyUsed, e);
+                    future.completeExceptionally(new HttpException("Exception " + e + " for URL \"" + url + "\": " + e.getMessage(), e));
+                }
 
-        } catch (IllegalStateException | IOException e) {
-            proxyProvider.removeProxy(proxyUsed, e);
-            throw new HttpException("Exception " + e + " for URL \"" + url + "\": " + e.getMessage(), e);
-        } finally {
-            FileHelper.close(in);
-            request.abort();
+                @Override
+                public void cancelled() {
+                    future.cancel(false);
+                }
+            });
+        } catch (IOException | IllegalArgumentException e) {
+            future.completeExceptionally(new HttpException("Exception " + e + " for URL \"" + url + "\": " + e.getMessage(), e));
         }
-
-        return result;
+        return future;
     }
 
-    private Proxy setProxy(String url, HttpUriRequest request, HttpClientBuilder clientBuilder) throws HttpException {
-        Proxy proxy = proxyProvider.getProxy(url);
+    private static void setProxy(Proxy proxy, HttpUriRequest request, HttpClientContext context) {
         if (proxy == null) {
-            return null;
+            return;
         }
-        HttpHost proxyHost = new HttpHost(proxy.getAddress(), proxy.getPort());
-        clientBuilder.setProxy(proxyHost);
+        context.setAttribute(SharedHttpClients.CONTEXT_PROXY_ID, new HttpHost(proxy.getAddress(), proxy.getPort()));
 
         // set proxy authentication if available
         if (StringUtils.isNotEmpty(proxy.getUsername())) {
-            Credentials credentials = new UsernamePasswordCredentials(proxy.getUsername(), proxy.getPassword().toCharArray());
-            AuthScope scope = new AuthScope(proxy.getAddress(), proxy.getPort());
-            BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-            credentialsProvider.setCredentials(scope, credentials);
-            clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-
-            String usernamePassword = proxy.getUsername() + ":" + proxy.getPassword();
-            String encoded = new String(Base64.encodeBase64(new String(usernamePassword).getBytes()));
-            request.setHeader("Proxy-Authorization", "Basic " + encoded);
+            context.setCredentialsProvider(createCredentialsProvider(proxy));
+            request.setHeader("Proxy-Authorization", createProxyAuthorization(proxy));
         }
+    }
+
+    private static BasicCredentialsProvider createCredentialsProvider(Proxy proxy) {
+        Credentials credentials = new UsernamePasswordCredentials(proxy.getUsername(), proxy.getPassword().toCharArray());
+        AuthScope scope = new AuthScope(proxy.getAddress(), proxy.getPort());
+        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(scope, credentials);
+        return credentialsProvider;
+    }
 
-        return proxy;
+    private static String createProxyAuthorization(Proxy proxy) {
+        String usernamePassword = proxy.getUsername() + ":" + proxy.getPassword();
+        return "Basic " + new String(Base64.encodeBase64(usernamePassword.getBytes()));
     }
 
     /**
@@ -540,23 +661,23 @@ public class HttpRetriever {
 
         RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectionTimeoutRedirects, TimeUnit.MILLISECONDS).setResponseTimeout(socketTimeoutRedirects,
                 TimeUnit.MILLISECONDS).setRedirectsEnabled(false).build();
-        // set a bot user agent here; else wise we get no redirects on some shortening services, like t.co
-        // see: https://dev.twitter.com/docs/tco-redirection-behavior
-        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().setUserAgent(REDIRECT_USER_AGENT).setDefaultRequestConfig(requestConfig).setConnectionManager(
-                connectionManager);
+        CloseableHttpClient client = SharedHttpClients.getClient(connectionManager, numRetries);
 
         for (; ; ) {
             HttpHead headRequest;
-            Proxy proxy = null;
+            Proxy proxy = proxyProvider.getProxy(url);
+            HttpClientContext context = createContext(requestConfig, false);
             try {
                 headRequest = new HttpHead(url);
-                proxy = setProxy(url, headRequest, httpClientBuilder);
+                setProxy(proxy, headRequest, context);
             } catch (IllegalArgumentException e) {
                 throw new HttpException("Invalid URL: \"" + url + "\"");
             }
+            // set a bot user agent here; else wise we get no redirects on some shortening services, like t.co
+            // see: https://dev.twitter.com/docs/tco-redirection-behavior
+            headRequest.setHeader(HttpHeaders.USER_AGENT, REDIRECT_USER_AGENT);
             try {
-                CloseableHttpClient client = httpClientBuilder.build();
-                ClassicHttpResponse response = client.execute(headRequest);
+                ClassicHttpResponse response = client.execute(headRequest, context);
                 int statusCode = response.getCode();
                 LOGGER.debug("Result {} for {}", statusCode, url);
                 if (statusCode >= 300 && statusCode < 400) {
@@ -646,7 +767,24 @@ public class HttpRetriever {
     public boolean downloadAndSave(String url, String filePath, Map<String, String> requestHeaders, boolean includeHttpResponseHeaders) {
         boolean result = false;
         try {
-            HttpResult httpResult = execute(new HttpRequest2Builder(HttpMethod.GET, url).addHeaders(requestHeaders).create());
+            HttpRequest2 request = new HttpRequest2Builder(HttpMethod.GET, url).addHeaders(requestHeaders).create();
+            if (maxFileSize == -1) {
+                // no size limit, so write the content to the file while it is received
+                return execute(request, (httpResult, content) -> {
+                    if (httpResult.getStatusCode() != 200) {
+                        LOGGER.error("status code != 200 (code: {}) for {}", httpResult.getStatusCode(), url);
+                        return false;
+                    }
+                    try {
+                        HttpHelper.saveToFile(httpResult, content, filePath, includeHttpResponseHeaders);
+                        return true;
+                    } catch (IOException e) {
+                        LOGGER.error("Error while saving to {}", filePath, e);
+                        return false;
+                    }
+                });
+            }
+            HttpResult httpResult = execute(request);
             if (httpResult.getStatusCode() != 200) {
                 throw new HttpException("status code != 200 (code: " + httpResult.getStatusCode() + ") for " + url);
             }
@@ -690,6 +828,17 @@ public class HttpRetriever {
         this.userAgent = userAgent;
     }
 
+    /**
+     * <p>
+     * Use HTTP/2 for requests via {@link #executeAsync(HttpRequest2)}, in case the server supports it.
+     * </p>
+     *
+     * @param http2 <code>true</code> to negotiate HTTP/2, <code>false</code> to use HTTP/1.1 (default).
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
     /**
      * <p>
      * Set the maximum number of bytes to download per request.
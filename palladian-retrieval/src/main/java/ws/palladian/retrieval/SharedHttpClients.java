@@ -0,0 +1,182 @@
+package ws.palladian.retrieval;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import ws.palladian.helper.collection.LruMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Long-lived HTTP clients, which are shared by all {@link HttpRetriever} instances. Building a client is comparatively
+ * expensive, so the clients are cached by connection manager and retry setting. Everything which differs between
+ * requests (proxy, cookies, credentials, timeouts, user agent) is passed via the request context or the request
+ * headers, so that one client can serve all of them.
+ * </p>
+ */
+final class SharedHttpClients {
+
+    /** Identifier for connection metrics in the context. */
+    static final String CONTEXT_METRICS_ID = "CONTEXT_METRICS_ID";
+
+    /** Identifier for the list of requested locations in the context. */
+    static final String CONTEXT_LOCATIONS_ID = "CONTEXT_LOCATIONS_ID";
+
+    /** Identifier for the proxy {@link HttpHost} in the context; not present, in case no proxy is used. */
+    static final String CONTEXT_PROXY_ID = "CONTEXT_PROXY_ID";
+
+    /** The maximum number of cached clients; clients share the connection manager, so evicting them is cheap. */
+    private static final int MAX_CLIENTS = 64;
+
+    private static final Map<ClientKey, CloseableHttpClient> CLIENTS = LruMap.accessOrder(MAX_CLIENTS);
+
+    private static CloseableHttpAsyncClient asyncClient;
+
+    private static CloseableHttpAsyncClient asyncClientHttp2;
+
+    private static final class ClientKey {
+        final PoolingHttpClientConnectionManager connectionManager;
+        final int numRetries;
+
+        ClientKey(PoolingHttpClientConnectionManager connectionManager, int numRetries) {
+            this.connectionManager = connectionManager;
+            this.numRetries = numRetries;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            ClientKey other = (ClientKey) obj;
+            return connectionManager == other.connectionManager && numRetries == other.numRetries;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(connectionManager), numRetries);
+        }
+    }
+
+    /** Takes the proxy for a request from the context, instead of fixing it per client. */
+    private static final class ContextRoutePlanner extends DefaultRoutePlanner {
+        ContextRoutePlanner() {
+            super(DefaultSchemePortResolver.INSTANCE);
+        }
+
+        @Override
+        protected HttpHost determineProxy(HttpHost target, HttpContext context) {
+            return (HttpHost) context.getAttribute(CONTEXT_PROXY_ID);
+        }
+    }
+
+    private SharedHttpClients() {
+        // no instances
+    }
+
+    /**
+     * Get the client for the given settings, build it, in case it does not exist yet.
+     *
+     * @param connectionManager The connection manager.
+     * @param numRetries        The number of retries.
+     * @return The client.
+     */
+    static CloseableHttpClient getClient(PoolingHttpClientConnectionManager connectionManager, int numRetries) {
+        ClientKey key = new ClientKey(connectionManager, numRetries);
+        synchronized (CLIENTS) {
+            return CLIENTS.computeIfAbsent(key, k -> createClient(connectionManager, numRetries));
+        }
+    }
+
+    private static CloseableHttpClient createClient(PoolingHttpClientConnectionManager connectionManager, int numRetries) {
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
+        // the connection manager is owned by the HttpRetrieverFactory, and must survive the client
+        httpClientBuilder.setConnectionManager(connectionManager).setConnectionManagerShared(true);
+        httpClientBuilder.setRoutePlanner(new ContextRoutePlanner());
+        httpClientBuilder.setRetryStrategy(new DefaultHttpRequestRetryStrategy(numRetries, TimeValue.ofSeconds(1L)));
+        /*
+         * fix #261 to get connection metrics for head requests, see also discussion at
+         * http://old.nabble.com/ConnectionShutdownException-when-trying-to-get-metrics-after-HEAD-request-td31358878.html
+         * start code taken from apache, licensed as http://www.apache.org/licenses/LICENSE-2.0
+         * http://svn.apache.org/viewvc/jakarta/jmeter/trunk/src/protocol/http/org/apache/jmeter/protocol/http/sampler/
+         * HTTPHC4Impl.java?annotate=1090914&pathrev=1090914
+         */
+        HttpResponseInterceptor metricsSaver = (httpResponse, entityDetails, context) -> {
+            HttpConnectionMetrics endpoint = (HttpConnectionMetrics) context.getAttribute(HttpCoreContext.CONNECTION_ENDPOINT);
+            context.setAttribute(CONTEXT_METRICS_ID, endpoint);
+        };
+        httpClientBuilder.addResponseInterceptorLast(metricsSaver);
+
+        HttpRequestInterceptor httpRequestInterceptor = (request, entityDetails, context) -> {
+            @SuppressWarnings("unchecked")
+            List<String> locations = (List<String>) context.getAttribute(CONTEXT_LOCATIONS_ID);
+            if (locations == null) {
+                locations = new ArrayList<>();
+                context.setAttribute(CONTEXT_LOCATIONS_ID, locations);
+            }
+            HttpRoute route = (HttpRoute) context.getAttribute("http.route");
+            String targetHost = route != null ?
+                    route.getTargetHost().getSchemeName() + "://" + route.getTargetHost().getHostName() :
+                    request.getScheme() + "://" + request.getAuthority().getHostName();
+            String fullLocation = targetHost + request.getRequestUri();
+            locations.add(fullLocation);
+        };
+        httpClientBuilder.addRequestInterceptorLast(httpRequestInterceptor);
+        return httpClientBuilder.build();
+    }
+
+    /**
+     * Get the client for asynchronous requests; it has its own connection pool, and is started on first use.
+     *
+     * @param http2 <code>true</code> to negotiate HTTP/2 with servers which support it, <code>false</code> to always
+     *              use HTTP/1.1.
+     * @return The client.
+     */
+    static synchronized CloseableHttpAsyncClient getAsyncClient(boolean http2) {
+        if (http2) {
+            if (asyncClientHttp2 == null) {
+                asyncClientHttp2 = createAsyncClient(HttpVersionPolicy.NEGOTIATE);
+            }
+            return asyncClientHttp2;
+        }
+        if (asyncClient == null) {
+            asyncClient = createAsyncClient(HttpVersionPolicy.FORCE_HTTP_1);
+        }
+        return asyncClient;
+    }
+
+    private static CloseableHttpAsyncClient createAsyncClient(HttpVersionPolicy versionPolicy) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom() //
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create() //
+                        .setMaxConnTotal(HttpRetrieverFactory.DEFAULT_NUM_CONNECTIONS) //
+                        .setMaxConnPerRoute(HttpRetrieverFactory.DEFAULT_NUM_CONNECTIONS_PER_ROUTE) //
+                        .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(versionPolicy).build()) //
+                        .build()) //
+                .setRoutePlanner(new ContextRoutePlanner()) //
+                .setRetryStrategy(new DefaultHttpRequestRetryStrategy(HttpRetriever.DEFAULT_NUM_RETRIES, TimeValue.ofSeconds(1L))) //
+                .build();
+        client.start();
+        return client;
+    }
+
+}
@@ -0,0 +1,61 @@
+package ws.palladian.retrieval.crawler;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * The crawl frontier keeps the URLs which are still to be crawled and remembers the URLs which were already added, so
+ * that each URL is handed out only once. Implementations are thread-safe and decide in which order URLs are handed out
+ * (e.g. considering politeness per host).
+ * </p>
+ */
+public interface CrawlFrontier {
+
+    /**
+     * Add a URL, in case it was not added before.
+     *
+     * @param url The URL, not <code>null</code>.
+     * @return <code>true</code> in case the URL was added, <code>false</code> in case it was seen before.
+     */
+    boolean add(String url);
+
+    /**
+     * Add URLs which were not added before.
+     *
+     * @param urls The URLs, not <code>null</code>.
+     * @return The number of added URLs.
+     */
+    default int addAll(Collection<String> urls) {
+        int added = 0;
+        for (String url : urls) {
+            if (add(url)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Take the next URL which may be crawled now. In case no URL is available yet, wait at most for the given time.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout, not <code>null</code>.
+     * @return The URL, or <code>null</code> in case no URL became available within the given time.
+     * @throws InterruptedException In case the thread was interrupted while waiting.
+     */
+    String poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * @param url The URL.
+     * @return <code>true</code> in case the URL was added before (it is queued, or was already handed out).
+     */
+    boolean isSeen(String url);
+
+    /** @return The number of URLs which are queued. */
+    int size();
+
+    /** @return The number of URLs which were added in total. */
+    long getSeenCount();
+
+}
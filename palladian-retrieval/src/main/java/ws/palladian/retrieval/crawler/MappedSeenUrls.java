@@ -0,0 +1,290 @@
+package ws.palladian.retrieval.crawler;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * {@link SeenUrls} as a memory-mapped hash table of 64 bit URL fingerprints (see {@link SeenUrls#fingerprint(String)}),
+ * with open addressing and linear probing. The table lives in the page cache instead of the heap, and survives
+ * restarts. When the table becomes too full, it is rehashed into a new file with twice the capacity; a file is never
+ * replaced while it is mapped.
+ * </p>
+ * <p>
+ * The tables are stored next to the given file, with the capacity as suffix (e.g. <code>seen.1024</code>). File layout
+ * (little endian): magic (int), version (int), capacity (long), size (long), followed by the slots (long each, zero for
+ * an empty slot). The magic is written last, so that a table which was not completely rehashed is ignored.
+ * </p>
+ */
+public final class MappedSeenUrls implements SeenUrls, Closeable {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedSeenUrls.class);
+
+    private static final int MAGIC = 0x50535555;
+
+    private static final int FILE_VERSION = 1;
+
+    private static final int HEADER_SIZE = 24;
+
+    /** Slots per mapped chunk (1 GB). */
+    private static final int CHUNK_SLOTS = 1 << 27;
+
+    /** Rehash into a larger table, when this load factor is exceeded. */
+    private static final double MAX_LOAD = 0.6;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final File file;
+
+    private File tableFile;
+
+    private RandomAccessFile randomAccessFile;
+
+    private MappedByteBuffer header;
+
+    private MappedByteBuffer[] chunkBuffers;
+
+    private LongBuffer[] chunks;
+
+    private long capacity;
+
+    private long size;
+
+    /**
+     * Open the seen set for the given file, or create a new one.
+     *
+     * @param file             The file, not <code>null</code>; the tables are stored with the capacity as suffix.
+     * @param expectedCapacity The expected number of URLs, used for sizing a new table.
+     * @throws IOException In case the file cannot be opened or created.
+     */
+    public MappedSeenUrls(File file, long expectedCapacity) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        this.file = file;
+        File existing = findTable(file);
+        if (existing == null) {
+            long newCapacity = Long.highestOneBit(Math.max(MIN_CAPACITY, (long) (expectedCapacity / MAX_LOAD)) - 1) << 1;
+            existing = getTableFile(file, newCapacity);
+            create(existing, newCapacity);
+            map(existing);
+            complete();
+        } else {
+            map(existing);
+        }
+    }
+
+    private static File getTableFile(File file, long capacity) {
+        return new File(file.getPath() + "." + capacity);
+    }
+
+    /**
+     * Find the complete table with the largest capacity, and remove the other tables, which are left over by a crash
+     * while rehashing, or which could not be deleted after rehashing.
+     *
+     * @return The table, or <code>null</code> in case there is none.
+     */
+    private static File findTable(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        File[] candidates = directory.listFiles((dir, name) -> name.matches(Pattern.quote(file.getName()) + "\\.\\d+"));
+        if (candidates == null) {
+            return null;
+        }
+        File result = null;
+        long resultCapacity = 0;
+        for (File candidate : candidates) {
+            long capacity = readCapacity(candidate);
+            if (capacity > resultCapacity) {
+                result = candidate;
+                resultCapacity = capacity;
+            }
+        }
+        for (File candidate : candidates) {
+            if (candidate != result) {
+                LOGGER.debug("Deleting {}", candidate);
+                Files.deleteIfExists(candidate.toPath());
+            }
+        }
+        return result;
+    }
+
+    /** @return The capacity of the table, or zero in case the table is incomplete. */
+    private static long readCapacity(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                return 0;
+            }
+            if (header.getInt(4) != FILE_VERSION) {
+                throw new IOException("Unsupported version " + header.getInt(4) + " in " + file);
+            }
+            return header.getLong(8);
+        }
+    }
+
+    /** Create an empty table; it is not complete until {@link #complete()} was called after mapping it. */
+    private static void create(File file, long capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(HEADER_SIZE + capacity * Long.BYTES);
+            MappedByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0).putInt(FILE_VERSION).putLong(capacity).putLong(0);
+            header.force();
+        }
+    }
+
+    private void map(File file) throws IOException {
+        tableFile = file;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        FileChannel channel = randomAccessFile.getChannel();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        capacity = header.getLong(8);
+        size = header.getLong(16);
+        int numChunks = (int) ((capacity + CHUNK_SLOTS - 1) / CHUNK_SLOTS);
+        chunkBuffers = new MappedByteBuffer[numChunks];
+        chunks = new LongBuffer[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            long slots = Math.min(CHUNK_SLOTS, capacity - (long) i * CHUNK_SLOTS);
+            long position = HEADER_SIZE + (long) i * CHUNK_SLOTS * Long.BYTES;
+            chunkBuffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, slots * Long.BYTES);
+            chunkBuffers[i].order(ByteOrder.LITTLE_ENDIAN);
+            chunks[i] = chunkBuffers[i].asLongBuffer();
+        }
+    }
+
+    /** Write the mapped table to disk, and mark it as complete. */
+    private void complete() {
+        force();
+        header.putInt(0, MAGIC);
+        header.force();
+    }
+
+    private static long getSlot(LongBuffer[] chunks, long slot) {
+        return chunks[(int) (slot / CHUNK_SLOTS)].get((int) (slot % CHUNK_SLOTS));
+    }
+
+    private long getSlot(long slot) {
+        return getSlot(chunks, slot);
+    }
+
+    private void setSlot(long slot, long value) {
+        chunks[(int) (slot / CHUNK_SLOTS)].put((int) (slot % CHUNK_SLOTS), value);
+    }
+
+    /** @return The fingerprint, where zero is replaced, because it marks empty slots. */
+    private static long nonZeroFingerprint(String url) {
+        long fingerprint = SeenUrls.fingerprint(url);
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+
+    /**
+     * @param fingerprint The fingerprint.
+     * @return The slot which contains the fingerprint, or the empty slot where it would be inserted.
+     */
+    private long findSlot(long fingerprint) {
+        long mask = capacity - 1;
+        for (long slot = fingerprint & mask; ; slot = (slot + 1) & mask) {
+            long value = getSlot(slot);
+            if (value == 0 || value == fingerprint) {
+                return slot;
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean add(String url) {
+        long fingerprint = nonZeroFingerprint(url);
+        long slot = findSlot(fingerprint);
+        if (getSlot(slot) != 0) {
+            return false;
+        }
+        setSlot(slot, fingerprint);
+        header.putLong(16, ++size);
+        if (size > capacity * MAX_LOAD) {
+            try {
+                grow();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not grow " + tableFile, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rehash into a new table with twice the capacity. The old table stays untouched until the new one is complete,
+     * and is deleted afterwards.
+     */
+    private void grow() throws IOException {
+        File oldFile = tableFile;
+        RandomAccessFile oldRandomAccessFile = randomAccessFile;
+        LongBuffer[] oldChunks = chunks;
+        long oldCapacity = capacity;
+        long oldSize = size;
+        File newFile = getTableFile(file, oldCapacity * 2);
+        LOGGER.debug("Growing {} to {}", oldFile, newFile);
+        Files.deleteIfExists(newFile.toPath());
+        create(newFile, oldCapacity * 2);
+        map(newFile);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            long value = getSlot(oldChunks, slot);
+            if (value != 0) {
+                setSlot(findSlot(value), value);
+            }
+        }
+        size = oldSize;
+        header.putLong(16, size);
+        complete();
+        oldRandomAccessFile.close();
+        if (!oldFile.delete()) {
+            LOGGER.warn("Could not delete {}, it is removed when opening the next time", oldFile);
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(String url) {
+        long fingerprint = nonZeroFingerprint(url);
+        return getSlot(findSlot(fingerprint)) != 0;
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    /** Write the modified pages to disk. */
+    public synchronized void force() {
+        for (MappedByteBuffer chunk : chunkBuffers) {
+            chunk.force();
+        }
+        header.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        randomAccessFile.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedSeenUrls [file=" + tableFile + ", capacity=" + capacity + ", size=" + size + "]";
+    }
+
+}
@@ -0,0 +1,542 @@
+package ws.palladian.retrieval.crawler;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A {@link PolitenessFrontier} which keeps its state on disk, so that a crawl can be resumed after a restart or crash,
+ * and which needs a bounded amount of heap independent of the size of the crawl. The directory contains:
+ * </p>
+ * <ul>
+ * <li><code>queue.log</code>: an append-only log with all added URLs,</li>
+ * <li><code>seen.&lt;capacity&gt;</code>: the seen URLs as memory-mapped {@link MappedSeenUrls},</li>
+ * <li><code>checkpoint</code>: the read position in the log, and the URLs which were taken from the log, but not yet
+ * handed out.</li>
+ * </ul>
+ * <p>
+ * Only a window of at most <code>windowSize</code> URLs is kept in memory; it is refilled from the log while URLs are
+ * taken. A host may occupy at most a tenth of the window; for further URLs of the host, only their position in the log
+ * is kept, and they are moved into the window once the host has room again. This way, a host which has to wait for
+ * politeness does not block the other hosts in the log. At most ten times <code>windowSize</code> positions are kept;
+ * when this limit is reached, reading the log pauses until the waiting hosts have been drained.
+ * </p>
+ * <p>
+ * When a checkpoint is written and at least half of the log has been consumed, the log is compacted, so that it only
+ * contains the URLs which were not handed out yet.
+ * </p>
+ * <p>
+ * A checkpoint is written periodically while polling, by {@link #checkpoint()} and on {@link #close()}. After a crash,
+ * the crawl continues from the last checkpoint; URLs which were handed out after the checkpoint are handed out again.
+ * Added URLs are recorded in the seen set only after their record was written to the log, so URLs which were added
+ * after the checkpoint are either resumed from the log, or are not seen and can be added again.
+ * </p>
+ */
+public class PersistentFrontier extends PolitenessFrontier implements Closeable {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentFrontier.class);
+
+    private static final int CHECKPOINT_MAGIC = 0x50434b50;
+
+    private static final int CHECKPOINT_VERSION = 2;
+
+    public static final int DEFAULT_WINDOW_SIZE = 100_000;
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private static final long EXPECTED_URLS = 1_000_000;
+
+    /** The number of added URLs after which the log is written and the URLs are recorded in the seen set. */
+    private static final int FLUSH_THRESHOLD = 1024;
+
+    /** The maximum number of log positions of waiting URLs, as multiple of the window size. */
+    private static final int OVERFLOW_FACTOR = 10;
+
+    private final File logFile;
+
+    private final File checkpointFile;
+
+    private final MappedSeenUrls seenUrls;
+
+    private final int windowSize;
+
+    /** The maximum number of URLs of one host in the window. */
+    private final int maxUrlsPerHost;
+
+    /** The maximum number of log positions of waiting URLs. */
+    private final long maxOverflow;
+
+    /** The added URLs whose records might not be written to the log yet, and which are not in the seen set yet. */
+    private final Set<String> unflushedUrls = new HashSet<>();
+
+    /** Guards the log and the offsets; acquired before the lock of the super class. */
+    private final Object ioLock = new Object();
+
+    private FileOutputStream logFileStream;
+
+    private DataOutputStream logOut;
+
+    private RandomAccessFile logReader;
+
+    /** The number of compactions of the log; the new log is written to <code>queue.log.&lt;generation&gt;</code>. */
+    private long generation;
+
+    /** The position up to which the log has been written. */
+    private long writeOffset;
+
+    /** The position up to which the log has been read. */
+    private long readOffset;
+
+    /** The number of URLs in the log after the read position. */
+    private long pendingInLog;
+
+    /** The log positions of the read URLs which did not fit into the window, because their host had its share. */
+    private final Map<String, LongArrayFIFOQueue> overflow = new LinkedHashMap<>();
+
+    /** The number of positions in {@link #overflow}. */
+    private long overflowCount;
+
+    /** The size of the records in {@link #overflow}, which have to be kept when compacting the log. */
+    private long overflowBytes;
+
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    private long lastCheckpoint = System.nanoTime();
+
+    /**
+     * Open a persistent frontier without limits per host, or resume the crawl in the given directory.
+     *
+     * @param directory The directory for the files, not <code>null</code>; created, in case it does not exist.
+     * @throws IOException In case the files cannot be opened or created.
+     */
+    public PersistentFrontier(File directory) throws IOException {
+        this(directory, 0, TimeUnit.MILLISECONDS, 1, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Open a persistent frontier which limits the requests per host, or resume the crawl in the given directory.
+     *
+     * @param directory  The directory for the files, not <code>null</code>; created, in case it does not exist.
+     * @param interval   The minimum time between two requests to the same host (after a burst), zero for no limit.
+     * @param unit       The unit of the interval, not <code>null</code>.
+     * @param burst      The number of requests to a host which may be performed without waiting, greater zero.
+     * @param windowSize The maximum number of queued URLs which are kept in memory, greater zero.
+     * @throws IOException In case the files cannot be opened or created.
+     */
+    public PersistentFrontier(File directory, long interval, TimeUnit unit, int burst, int windowSize) throws IOException {
+        this(directory, interval, unit, burst, windowSize, openSeenUrls(directory));
+    }
+
+    private PersistentFrontier(File directory, long interval, TimeUnit unit, int burst, int windowSize, MappedSeenUrls seenUrls) throws IOException {
+        super(interval, unit, burst, seenUrls);
+        Validate.isTrue(windowSize > 0, "windowSize must be greater zero");
+        this.seenUrls = seenUrls;
+        this.windowSize = windowSize;
+        this.maxUrlsPerHost = Math.max(1, windowSize / 10);
+        this.maxOverflow = (long) OVERFLOW_FACTOR * windowSize;
+        this.logFile = new File(directory, "queue.log");
+        this.checkpointFile = new File(directory, "checkpoint");
+        List<String> window = new ArrayList<>();
+        LongArrayList overflowOffsets = new LongArrayList();
+        readCheckpoint(window, overflowOffsets);
+        recoverCompactedLog();
+        truncatePartialRecord();
+        openLog();
+        window.forEach(this::enqueue);
+        for (long offset : overflowOffsets) {
+            addOverflow(offset, readRecordAt(offset));
+        }
+        LOGGER.debug("Opened {} with {} URLs in window, {} waiting, {} in log", directory, window.size(), overflowCount,
+                pendingInLog);
+    }
+
+    private static MappedSeenUrls openSeenUrls(File directory) throws IOException {
+        Validate.notNull(directory, "directory must not be null");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        return new MappedSeenUrls(new File(directory, "seen"), EXPECTED_URLS);
+    }
+
+    /**
+     * Read the last checkpoint.
+     *
+     * @param window          Receives the URLs in the window at the time of the checkpoint.
+     * @param overflowOffsets Receives the log positions of the waiting URLs at the time of the checkpoint.
+     */
+    private void readCheckpoint(List<String> window, LongArrayList overflowOffsets) throws IOException {
+        if (!checkpointFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+            int version;
+            if (in.readInt() != CHECKPOINT_MAGIC || (version = in.readInt()) < 1 || version > CHECKPOINT_VERSION) {
+                throw new IOException(checkpointFile + " is not a valid checkpoint");
+            }
+            if (version >= 2) {
+                generation = in.readLong();
+            }
+            readOffset = in.readLong();
+            int numUrls = in.readInt();
+            for (int i = 0; i < numUrls; i++) {
+                window.add(readRecord(in));
+            }
+            if (version >= 2) {
+                int numOffsets = in.readInt();
+                for (int i = 0; i < numOffsets; i++) {
+                    overflowOffsets.add(in.readLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * Finish a compaction which was interrupted after its checkpoint had been written, and remove the compacted logs
+     * which were left by a crash before their checkpoint had been written.
+     */
+    private void recoverCompactedLog() throws IOException {
+        File compactedLog = new File(logFile.getPath() + "." + generation);
+        if (compactedLog.exists()) {
+            LOGGER.info("Completing compaction of {}", logFile);
+            Files.move(compactedLog.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        File[] staleLogs = logFile.getParentFile().listFiles((dir, name) -> name.startsWith(logFile.getName() + "."));
+        if (staleLogs != null) {
+            for (File staleLog : staleLogs) {
+                Files.delete(staleLog.toPath());
+            }
+        }
+    }
+
+    /**
+     * Count the URLs after the read position, and remove an incomplete record at the end of the log, which was left
+     * by a crash while writing.
+     */
+    private void truncatePartialRecord() throws IOException {
+        if (!logFile.exists()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            long length = raf.length();
+            long position = Math.min(readOffset, length);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(raf.getChannel().position(position))));
+            while (position + Integer.BYTES <= length) {
+                int recordLength = in.readInt();
+                if (recordLength < 0 || position + Integer.BYTES + recordLength > length) {
+                    break;
+                }
+                in.skipNBytes(recordLength);
+                position += Integer.BYTES + recordLength;
+                pendingInLog++;
+            }
+            if (position < length) {
+                LOGGER.warn("Truncating incomplete record at {} in {}", position, logFile);
+                raf.getChannel().truncate(position);
+            }
+            writeOffset = position;
+            readOffset = Math.min(readOffset, position);
+        }
+    }
+
+    private void openLog() throws IOException {
+        logFileStream = new FileOutputStream(logFile, true);
+        logOut = new DataOutputStream(new BufferedOutputStream(logFileStream));
+        logReader = new RandomAccessFile(logFile, "r");
+    }
+
+    private String readRecordAt(long offset) throws IOException {
+        logReader.seek(offset);
+        return readRecord(logReader);
+    }
+
+    private static String readRecord(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int writeRecord(DataOutput out, String url) throws IOException {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    @Override
+    public boolean add(String url) {
+        Validate.notNull(url, "url must not be null");
+        synchronized (ioLock) {
+            if (unflushedUrls.contains(url) || seenUrls.contains(url)) {
+                return false;
+            }
+            boolean logEmpty = pendingInLog == 0;
+            try {
+                writeOffset += writeRecord(logOut, url);
+                unflushedUrls.add(url);
+                if (unflushedUrls.size() >= FLUSH_THRESHOLD) {
+                    flushLog();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write to " + logFile, e);
+            }
+            if (logEmpty && super.size() < windowSize && getQueuedCount(getHost(url)) < maxUrlsPerHost) {
+                // nothing is waiting in the log, so go straight into the window
+                readOffset = writeOffset;
+                enqueue(url);
+            } else {
+                pendingInLog++;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (ioLock) {
+            if ((overflowCount > 0 || pendingInLog > 0) && super.size() <= windowSize / 2) {
+                refill();
+            }
+            if (checkpointInterval > 0 && System.nanoTime() - lastCheckpoint > checkpointInterval) {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    LOGGER.warn("Could not write checkpoint to {}", checkpointFile, e);
+                }
+            }
+        }
+        return super.poll(timeout, unit);
+    }
+
+    /**
+     * Move URLs into the window, until the window is full. First, the waiting URLs of hosts which have room again are
+     * moved; then, the log is read further. For URLs of hosts which already have their share of the window, only the
+     * position in the log is kept.
+     */
+    private void refill() {
+        try {
+            flushLog();
+            Iterator<Map.Entry<String, LongArrayFIFOQueue>> iterator = overflow.entrySet().iterator();
+            while (iterator.hasNext() && super.size() < windowSize) {
+                Map.Entry<String, LongArrayFIFOQueue> entry = iterator.next();
+                LongArrayFIFOQueue offsets = entry.getValue();
+                int free = Math.min(maxUrlsPerHost - getQueuedCount(entry.getKey()), windowSize - super.size());
+                for (; free > 0 && !offsets.isEmpty(); free--) {
+                    String url = readRecordAt(offsets.dequeueLong());
+                    overflowCount--;
+                    overflowBytes -= recordSize(url);
+                    enqueue(url);
+                }
+                if (offsets.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+            if (pendingInLog == 0 || super.size() >= windowSize || overflowCount >= maxOverflow) {
+                return;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(logReader.getChannel().position(readOffset))));
+            while (pendingInLog > 0 && super.size() < windowSize && overflowCount < maxOverflow) {
+                long offset = readOffset;
+                String url = readRecord(in);
+                readOffset += recordSize(url);
+                pendingInLog--;
+                if (getQueuedCount(getHost(url)) < maxUrlsPerHost) {
+                    enqueue(url);
+                } else {
+                    addOverflow(offset, url);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read from " + logFile, e);
+        }
+    }
+
+    private void addOverflow(long offset, String url) {
+        overflow.computeIfAbsent(getHost(url), host -> new LongArrayFIFOQueue()).enqueue(offset);
+        overflowCount++;
+        overflowBytes += recordSize(url);
+    }
+
+    private static int recordSize(String url) {
+        return Integer.BYTES + url.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /** Write the buffered log records, and record their URLs in the seen set. */
+    private void flushLog() throws IOException {
+        logOut.flush();
+        for (String url : unflushedUrls) {
+            seenUrls.add(url);
+        }
+        unflushedUrls.clear();
+    }
+
+    /**
+     * Write the log and the seen URLs to disk, and record the current position, so that the crawl can be resumed from
+     * this point. When at least half of the log has been consumed, the log is compacted.
+     *
+     * @throws IOException In case writing fails.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (ioLock) {
+            flushLog();
+            CompactedLog compactedLog = null;
+            if (writeOffset > 0 && readOffset - overflowBytes >= writeOffset / 2) {
+                compactedLog = compactLog();
+            } else {
+                logFileStream.getChannel().force(false);
+            }
+            seenUrls.force();
+            if (compactedLog == null) {
+                writeCheckpoint(generation, readOffset, overflow);
+            } else {
+                writeCheckpoint(generation + 1, compactedLog.readOffset, compactedLog.overflow);
+                // once the checkpoint refers to the compacted log, it replaces the log, also after a crash
+                Files.move(compactedLog.file.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logOut.close();
+                logReader.close();
+                openLog();
+                generation++;
+                readOffset = compactedLog.readOffset;
+                writeOffset = compactedLog.writeOffset;
+                overflow.clear();
+                overflow.putAll(compactedLog.overflow);
+            }
+            lastCheckpoint = System.nanoTime();
+        }
+    }
+
+    private void writeCheckpoint(long generation, long readOffset, Map<String, LongArrayFIFOQueue> overflow) throws IOException {
+        List<String> window = getQueuedUrls();
+        File tempFile = new File(checkpointFile.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeLong(generation);
+            out.writeLong(readOffset);
+            out.writeInt(window.size());
+            for (String url : window) {
+                writeRecord(out, url);
+            }
+            out.writeInt((int) overflowCount);
+            for (LongArrayFIFOQueue offsets : overflow.values()) {
+                for (long offset : toArray(offsets)) {
+                    out.writeLong(offset);
+                }
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** A log which only contains the waiting URLs and the URLs after the read position, with the positions within. */
+    private static final class CompactedLog {
+        final File file;
+        final long readOffset;
+        final long writeOffset;
+        final Map<String, LongArrayFIFOQueue> overflow;
+
+        CompactedLog(File file, long readOffset, long writeOffset, Map<String, LongArrayFIFOQueue> overflow) {
+            this.file = file;
+            this.readOffset = readOffset;
+            this.writeOffset = writeOffset;
+            this.overflow = overflow;
+        }
+    }
+
+    /** Write the waiting URLs and the URLs after the read position to <code>queue.log.&lt;generation&gt;</code>. */
+    private CompactedLog compactLog() throws IOException {
+        File file = new File(logFile.getPath() + "." + (generation + 1));
+        Map<String, LongArrayFIFOQueue> compactedOverflow = new LinkedHashMap<>();
+        long position = 0;
+        try (FileOutputStream fileOut = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            for (Map.Entry<String, LongArrayFIFOQueue> entry : overflow.entrySet()) {
+                LongArrayFIFOQueue compactedOffsets = new LongArrayFIFOQueue(entry.getValue().size());
+                for (long offset : toArray(entry.getValue())) {
+                    compactedOffsets.enqueue(position);
+                    position += writeRecord(out, readRecordAt(offset));
+                }
+                compactedOverflow.put(entry.getKey(), compactedOffsets);
+            }
+            out.flush();
+            FileChannel channel = fileOut.getChannel();
+            for (long copied = 0; copied < writeOffset - readOffset; ) {
+                copied += logReader.getChannel().transferTo(readOffset + copied, writeOffset - readOffset - copied, channel);
+            }
+            channel.force(false);
+        }
+        long compactedWriteOffset = position + writeOffset - readOffset;
+        LOGGER.debug("Compacted {} from {} to {} bytes", logFile, writeOffset, compactedWriteOffset);
+        return new CompactedLog(file, position, compactedWriteOffset, compactedOverflow);
+    }
+
+    /** @return The positions in the queue, which is left unchanged. */
+    private static long[] toArray(LongArrayFIFOQueue offsets) {
+        long[] result = new long[offsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.dequeueLong();
+            offsets.enqueue(result[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Set the interval in which checkpoints are written automatically while polling.
+     *
+     * @param interval The interval, zero to disable automatic checkpoints.
+     * @param unit     The unit of the interval, not <code>null</code>.
+     */
+    public void setCheckpointInterval(long interval, TimeUnit unit) {
+        Validate.isTrue(interval >= 0, "interval must be greater/equal zero");
+        Validate.notNull(unit, "unit must not be null");
+        synchronized (ioLock) {
+            this.checkpointInterval = unit.toNanos(interval);
+        }
+    }
+
+    @Override
+    public boolean isSeen(String url) {
+        synchronized (ioLock) {
+            return unflushedUrls.contains(url) || super.isSeen(url);
+        }
+    }
+
+    @Override
+    public long getSeenCount() {
+        synchronized (ioLock) {
+            return super.getSeenCount() + unflushedUrls.size();
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (ioLock) {
+            return (int) Math.min(Integer.MAX_VALUE, super.size() + overflowCount + pendingInLog);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (ioLock) {
+            checkpoint();
+            logOut.close();
+            logReader.close();
+            seenUrls.close();
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package ws.palladian.retrieval.crawler;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * An in-memory {@link CrawlFrontier} with one queue per host. Each host has a token bucket, which allows a burst of
+ * requests, and afterwards one request per interval. Hosts with queued URLs are kept in a priority queue ordered by the
+ * time when their next request is allowed, so that taking the next URL does not need to look at hosts which have to
+ * wait. Threads waiting for the next URL do not hold the lock while waiting.
+ * </p>
+ */
+public class PolitenessFrontier implements CrawlFrontier {
+
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
+
+    private static final class HostQueue {
+        final Deque<String> urls = new ArrayDeque<>();
+        /** The theoretical arrival time of the next request, see the generic cell rate algorithm. */
+        long theoreticalArrival;
+        /** The time, when the next request to this host is allowed. */
+        long readyAt;
+        /** Tie breaker for hosts with the same ready time. */
+        long sequence;
+        /** <code>true</code> in case this host is in the ready queue. */
+        boolean scheduled;
+
+        HostQueue(long now) {
+            theoreticalArrival = now;
+            readyAt = now;
+        }
+    }
+
+    /** The time between two requests to the same host in nanoseconds; zero for no limit. */
+    private final long interval;
+
+    /** The time by which requests to a host may be earlier than the interval allows, to allow bursts. */
+    private final long burstTolerance;
+
+    private final SeenUrls seenUrls;
+
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+
+    private final PriorityQueue<HostQueue> readyQueue = new PriorityQueue<>(Comparator.<HostQueue>comparingLong(h -> h.readyAt).thenComparingLong(h -> h.sequence));
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    /** When the number of hosts exceeds this value, hosts without queued URLs and full bucket are removed. */
+    private int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+    private long sequence;
+
+    private int size;
+
+    /**
+     * Create a new frontier without limits per host.
+     */
+    public PolitenessFrontier() {
+        this(0, TimeUnit.MILLISECONDS, 1);
+    }
+
+    /**
+     * Create a new frontier which limits the requests per host.
+     *
+     * @param interval The minimum time between two requests to the same host (after a burst), zero for no limit.
+     * @param unit     The unit of the interval, not <code>null</code>.
+     * @param burst    The number of requests to a host which may be performed without waiting, greater zero.
+     */
+    public PolitenessFrontier(long interval, TimeUnit unit, int burst) {
+        this(interval, unit, burst, SeenUrls.fingerprints());
+    }
+
+    /**
+     * Create a new frontier which limits the requests per host.
+     *
+     * @param interval The minimum time between two requests to the same host (after a burst), zero for no limit.
+     * @param unit     The unit of the interval, not <code>null</code>.
+     * @param burst    The number of requests to a host which may be performed without waiting, greater zero.
+     * @param seenUrls The set for the seen URLs, not <code>null</code>.
+     */
+    public PolitenessFrontier(long interval, TimeUnit unit, int burst, SeenUrls seenUrls) {
+        Validate.isTrue(interval >= 0, "interval must be greater/equal zero");
+        Validate.notNull(unit, "unit must not be null");
+        Validate.isTrue(burst > 0, "burst must be greater zero");
+        Validate.notNull(seenUrls, "seenUrls must not be null");
+        this.interval = unit.toNanos(interval);
+        this.burstTolerance = (burst - 1) * this.interval;
+        this.seenUrls = seenUrls;
+    }
+
+    @Override
+    public boolean add(String url) {
+        Validate.notNull(url, "url must not be null");
+        if (!seenUrls.add(url)) {
+            return false;
+        }
+        enqueue(url);
+        return true;
+    }
+
+    /**
+     * Queue a URL without checking and recording it in the seen set.
+     *
+     * @param url The URL.
+     */
+    protected void enqueue(String url) {
+        String host = getHost(url);
+        lock.lock();
+        try {
+            HostQueue hostQueue = hosts.get(host);
+            if (hostQueue == null) {
+                long now = System.nanoTime();
+                if (hosts.size() >= sweepThreshold) {
+                    sweepIdleHosts(now);
+                }
+                hostQueue = new HostQueue(now);
+                hosts.put(host, hostQueue);
+            }
+            hostQueue.urls.add(url);
+            size++;
+            if (!hostQueue.scheduled) {
+                hostQueue.scheduled = true;
+                hostQueue.sequence = sequence++;
+                readyQueue.add(hostQueue);
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the hosts which have no queued URLs and whose bucket is full again; they are in the same state as a new
+     * host, so this keeps the memory bounded by the hosts which are actually queued or waiting.
+     *
+     * @param now The current time.
+     */
+    private void sweepIdleHosts(long now) {
+        hosts.values().removeIf(h -> !h.scheduled && h.theoreticalArrival - now <= 0);
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, 2 * hosts.size());
+    }
+
+    @Override
+    public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                long now = System.nanoTime();
+                HostQueue head = readyQueue.peek();
+                if (head != null && head.readyAt - now <= 0) {
+                    readyQueue.poll();
+                    String url = head.urls.poll();
+                    size--;
+                    // the request takes one token from the bucket
+                    head.theoreticalArrival = Math.max(head.theoreticalArrival - now, 0) + now + interval;
+                    head.readyAt = head.theoreticalArrival - burstTolerance;
+                    if (head.urls.isEmpty()) {
+                        head.scheduled = false;
+                    } else {
+                        head.sequence = sequence++;
+                        readyQueue.add(head);
+                    }
+                    if (!readyQueue.isEmpty()) {
+                        // let the next waiting thread look at the next host
+                        changed.signal();
+                    }
+                    return url;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    return null;
+                }
+                changed.awaitNanos(head == null ? remaining : Math.min(remaining, head.readyAt - now));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isSeen(String url) {
+        return seenUrls.contains(url);
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getSeenCount() {
+        return seenUrls.size();
+    }
+
+    /** @return The number of hosts which have queued URLs, or which were requested recently. */
+    public int getNumHosts() {
+        lock.lock();
+        try {
+            return hosts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param host The host, as determined by {@link #getHost(String)}.
+     * @return The number of queued URLs of the host.
+     */
+    int getQueuedCount(String host) {
+        lock.lock();
+        try {
+            HostQueue hostQueue = hosts.get(host);
+            return hostQueue != null ? hostQueue.urls.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return A snapshot of the queued URLs. */
+    List<String> getQueuedUrls() {
+        lock.lock();
+        try {
+            List<String> urls = new ArrayList<>(size);
+            for (HostQueue hostQueue : hosts.values()) {
+                urls.addAll(hostQueue.urls);
+            }
+            return urls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the host of a URL, by which the politeness is determined.
+     *
+     * @param url The URL.
+     * @return The lower-cased host without user info and port; an empty string in case there is no host.
+     */
+    static String getHost(String url) {
+        int start = url.indexOf("://");
+        start = start == -1 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        int userInfoEnd = url.lastIndexOf('@', end - 1);
+        if (userInfoEnd >= start) {
+            start = userInfoEnd + 1;
+        }
+        int portStart = url.lastIndexOf(':', end - 1);
+        if (portStart >= start && url.lastIndexOf(']', end - 1) < portStart) {
+            end = portStart;
+        }
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "PolitenessFrontier [queued=" + size() + ", seen=" + getSeenCount() + ", hosts=" + getNumHosts() + "]";
+    }
+
+}
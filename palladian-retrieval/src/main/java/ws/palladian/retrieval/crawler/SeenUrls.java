@@ -0,0 +1,111 @@
+package ws.palladian.retrieval.crawler;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import ws.palladian.helper.collection.BloomFilter;
+
+/**
+ * <p>
+ * The set of URLs which a {@link CrawlFrontier} has seen already. Implementations are thread-safe.
+ * </p>
+ */
+public interface SeenUrls {
+
+    /**
+     * Record a URL.
+     *
+     * @param url The URL.
+     * @return <code>true</code> in case the URL was not seen before.
+     */
+    boolean add(String url);
+
+    /**
+     * @param url The URL.
+     * @return <code>true</code> in case the URL was seen before.
+     */
+    boolean contains(String url);
+
+    /** @return The number of recorded URLs. */
+    long size();
+
+    /**
+     * Create a seen set which keeps a 64 bit fingerprint for each URL. It needs about 8 bytes per URL (plus hash table
+     * overhead), independent of the URL lengths; the probability of a collision is negligible for any realistic
+     * crawl.
+     *
+     * @return The seen set.
+     */
+    static SeenUrls fingerprints() {
+        return new SeenUrls() {
+            private final LongOpenHashSet fingerprints = new LongOpenHashSet();
+
+            @Override
+            public synchronized boolean add(String url) {
+                return fingerprints.add(fingerprint(url));
+            }
+
+            @Override
+            public synchronized boolean contains(String url) {
+                return fingerprints.contains(fingerprint(url));
+            }
+
+            @Override
+            public synchronized long size() {
+                return fingerprints.size();
+            }
+        };
+    }
+
+    /**
+     * Create a seen set backed by a {@link BloomFilter}, for huge crawls where even the fingerprints do not fit into
+     * memory. With the given false positive probability, new URLs are considered as seen and are skipped.
+     *
+     * @param falsePositiveProbability The accepted false positive probability, in range [0,1].
+     * @param expectedUrls             The expected number of URLs, greater zero.
+     * @return The seen set.
+     */
+    static SeenUrls bloomFilter(double falsePositiveProbability, int expectedUrls) {
+        return new SeenUrls() {
+            private final BloomFilter<String> filter = new BloomFilter<>(falsePositiveProbability, expectedUrls);
+
+            @Override
+            public synchronized boolean add(String url) {
+                if (filter.test(url)) {
+                    return false;
+                }
+                filter.add(url);
+                return true;
+            }
+
+            @Override
+            public synchronized boolean contains(String url) {
+                return filter.test(url);
+            }
+
+            @Override
+            public synchronized long size() {
+                return filter.getNumAddedItems();
+            }
+        };
+    }
+
+    /**
+     * Calculate a 64 bit fingerprint for the given URL (FNV-1a, followed by a final mixing step).
+     *
+     * @param url The URL.
+     * @return The fingerprint.
+     */
+    static long fingerprint(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
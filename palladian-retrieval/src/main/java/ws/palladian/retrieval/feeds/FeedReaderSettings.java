@@ -64,6 +64,15 @@ public interface FeedReaderSettings {
 
     Factory<FeedParser> DEFAULT_PARSER_FACTORY = RomeFeedParser::new;
 
+    /**
+     * The maximum number of feeds from the same host which are read at the same time; some providers (like
+     * feedburner) host several hundred feeds and tend to block parallel requests.
+     */
+    int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+    /** The interval in which the feeds are reloaded from the store, to pick up added or removed feeds. */
+    long DEFAULT_STORE_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+
     /**
      * @return The store which provides persistence for the feed data, not <code>null</code>.
      */
@@ -104,6 +113,17 @@ public interface FeedReaderSettings {
 
     Factory<? extends FeedParser> getParserFactory();
 
+    /**
+     * @return The maximum number of feeds from the same host which are read at the same time, greater/equal one.
+     */
+    int getMaxRequestsPerHost();
+
+    /**
+     * @return The interval in milliseconds in which the feeds are reloaded from the store, greater/equal the wake up
+     * interval; a shorter configured interval is extended to the wake up interval.
+     */
+    long getStoreRefreshInterval();
+
     /**
      * <p>
      * A builder for {@link FeedReaderSettings} instances.
@@ -123,6 +143,8 @@ public interface FeedReaderSettings {
         long maximumFeedSize = DEFAULT_MAXIMUM_FEED_SIZE;
         long executionWarnTime = DEFAULT_EXECUTION_WARN_TIME;
         Factory<? extends FeedParser> parserFactory = DEFAULT_PARSER_FACTORY;
+        int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+        long storeRefreshInterval = DEFAULT_STORE_REFRESH_INTERVAL;
 
         public Builder setStore(FeedStore store) {
             this.store = store;
@@ -184,6 +206,16 @@ public interface FeedReaderSettings {
             return this;
         }
 
+        public Builder setMaxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        public Builder setStoreRefreshInterval(long storeRefreshInterval) {
+            this.storeRefreshInterval = storeRefreshInterval;
+            return this;
+        }
+
         @Override
         public FeedReaderSettings create() {
             Validate.notNull(store, "store must not be null");
@@ -198,6 +230,7 @@ public interface FeedReaderSettings {
             Validate.isTrue(maximumFeedSize >= 1, "maximumFeedSize must be greater/equal one");
             Validate.isTrue(executionWarnTime >= 1, "executionWarnTime must be greater/equal one");
             Validate.notNull(parserFactory, "parserFactory must not be null");
+            Validate.isTrue(maxRequestsPerHost >= 1, "maxRequestsPerHost must be greater/equal one");
             return new ImmutableFeedReaderSettings(this);
         }
     }
@@ -19,6 +19,8 @@ final class ImmutableFeedReaderSettings implements FeedReaderSettings {
     private long maximumFeedSize;
     private long executionWarnTime;
     private Factory<? extends FeedParser> parserFactory;
+    private int maxRequestsPerHost;
+    private long storeRefreshInterval;
 
     ImmutableFeedReaderSettings(Builder builder) {
         store = builder.store;
@@ -33,6 +35,8 @@ final class ImmutableFeedReaderSettings implements FeedReaderSettings {
         maximumFeedSize = builder.maximumFeedSize;
         executionWarnTime = builder.executionWarnTime;
         parserFactory = builder.parserFactory;
+        maxRequestsPerHost = builder.maxRequestsPerHost;
+        storeRefreshInterval = Math.max(builder.storeRefreshInterval, builder.wakeUpInterval);
     }
 
     @Override
@@ -95,4 +99,14 @@ final class ImmutableFeedReaderSettings implements FeedReaderSettings {
         return parserFactory;
     }
 
+    @Override
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    @Override
+    public long getStoreRefreshInterval() {
+        return storeRefreshInterval;
+    }
+
 }
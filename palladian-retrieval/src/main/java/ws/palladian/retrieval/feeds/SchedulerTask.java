@@ -2,18 +2,29 @@ package ws.palladian.retrieval.feeds;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ws.palladian.helper.UrlHelper;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * <p>
  * A scheduler task handles the distribution of feeds to worker threads that read these feeds.
  * </p>
  *
+ * <p>
+ * The feeds are kept in a priority queue by the time they are due next, so that a wake up only looks at the feeds
+ * which are due, instead of checking all feeds. A feed is out of the queue while it is read, and is put back with its
+ * next due time (which is determined by the {@link ws.palladian.retrieval.feeds.updates.UpdateStrategy}) when its
+ * {@link FeedTask} is done. The number of feeds from the same host which are read at the same time is limited; further
+ * due feeds of that host wait, and are started as soon as a task for the host is done. The feeds are reloaded from the
+ * store in the configured refresh interval only, to pick up added and removed feeds.
+ * </p>
+ *
  * @author Klemens Muthmann
  * @author David Urbansky
  * @author Philipp Katz
@@ -21,15 +32,47 @@ import java.util.concurrent.TimeUnit;
 class SchedulerTask extends TimerTask {
     private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerTask.class);
 
+    /** A feed in the queue, with the time when it is due. */
+    private static final class ScheduledFeed implements Comparable<ScheduledFeed> {
+        final long dueTime;
+        final Feed feed;
+
+        ScheduledFeed(long dueTime, Feed feed) {
+            this.dueTime = dueTime;
+            this.feed = feed;
+        }
+
+        @Override
+        public int compareTo(ScheduledFeed other) {
+            return Long.compare(dueTime, other.dueTime);
+        }
+    }
+
     /** The thread pool managing threads that read feeds. */
     private final ExecutorService threadPool;
 
-    /** Tasks currently scheduled but not yet checked. */
-    private final Map<Integer, Future<FeedTaskResult>> scheduledTasks;
+    private final FeedReaderSettings settings;
+
+    /** Creates the task which reads a feed. */
+    private final Function<Feed, Callable<FeedTaskResult>> taskFactory;
 
-    private final Long lastWakeUpTime = null;
+    /** The feeds which are not currently read, by due time. */
+    private final PriorityQueue<ScheduledFeed> queue = new PriorityQueue<>();
 
-    private final FeedReaderSettings settings;
+    /**
+     * IDs of the feeds from the last refresh which are not blocked; feeds which were removed from the store are dropped
+     * from the queue. Blocked feeds are removed, so that a refresh adds them again once they are unblocked in the store.
+     */
+    private Set<Integer> feedIds = new HashSet<>();
+
+    /** Number of feeds currently read per host. */
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+
+    /** Due feeds per host, which wait because the maximum number of feeds for the host is currently read. */
+    private final Map<String, Deque<Feed>> waitingPerHost = new HashMap<>();
+
+    /** The time of the last refresh from the store, <code>null</code> before the first run. */
+    private Long lastRefreshTime = null;
 
     /**
      * <p>
@@ -39,46 +82,145 @@ class SchedulerTask extends TimerTask {
      * @param settings necessary settings, not <code>null</code>.
      */
     SchedulerTask(FeedReaderSettings settings) {
+        this(settings, feed -> new FeedTask(settings, feed));
+    }
+
+    SchedulerTask(FeedReaderSettings settings, Function<Feed, Callable<FeedTaskResult>> taskFactory) {
         this.threadPool = Executors.newFixedThreadPool(settings.getNumThreads());
-        this.scheduledTasks = new HashMap<>();
         this.settings = settings;
+        this.taskFactory = taskFactory;
     }
 
     @Override
-    public void run() {
+    public synchronized void run() {
+        long now = System.currentTimeMillis();
+        if (lastRefreshTime == null || now - lastRefreshTime >= settings.getStoreRefreshInterval()) {
+            refreshFeeds(now);
+            lastRefreshTime = now;
+        }
         int numScheduled = 0;
-        // schedule all feeds
-        for (Feed feed : getFeeds()) {
-            // remove completed FeedTasks
-            removeFeedTaskIfDone(feed.getId());
-            if (needsLookup(feed)) {
-                if (!scheduledTasks.containsKey(feed.getId())) {
-                    scheduledTasks.put(feed.getId(), threadPool.submit(new FeedTask(settings, feed)));
-                    numScheduled++;
-                }
+        while (!queue.isEmpty() && queue.peek().dueTime <= now) {
+            if (scheduleIfNeeded(queue.poll().feed, now)) {
+                numScheduled++;
             }
         }
-        LOGGER.debug("scheduled {} feeds", numScheduled);
+        LOGGER.debug("scheduled {} feeds, {} in queue", numScheduled, queue.size());
     }
 
     /**
-     * Get all feeds from database. When called the first time, the feeds are shuffled randomly, on all subsequent
-     * calls, the ordering received from database is preserved.
-     * <p>
-     * Background: In some feed lists, there are several hundred feeds hosted by the same provider like feedburner. The
-     * shuffle is required to avoid polling one provider with several hundred threads in parallel since some providers
-     * tend to block those parallel requests.
-     * </p>
+     * Schedule a due feed, in case it is still in the store and needs a lookup; otherwise, it is dropped or put back
+     * into the queue.
+     *
+     * @return <code>true</code> in case the feed was scheduled.
      */
-    private Collection<Feed> getFeeds() {
-        if (lastWakeUpTime == null) {
-            List<Feed> feedList = new ArrayList<>();
-            feedList.addAll(settings.getStore().getFeeds());
-            Collections.shuffle(feedList);
-            return feedList;
+    private boolean scheduleIfNeeded(Feed feed, long now) {
+        if (!feedIds.contains(feed.getId())) {
+            return false; // removed from the store
+        }
+        if (needsLookup(feed)) {
+            schedule(feed);
+            return true;
+        }
+        if (feed.isBlocked()) {
+            feedIds.remove(feed.getId());
         } else {
-            return settings.getStore().getFeeds();
+            // e.g. the update interval was changed externally; make sure, that we don't pick it up again now
+            queue.add(new ScheduledFeed(Math.max(getDueTime(feed, now), now + 1), feed));
         }
+        return false;
+    }
+
+    /**
+     * Load the feeds from the store and add those to the queue, which are not known yet. When called the first time,
+     * the feeds are shuffled randomly, so that feeds with the same due time are not ordered by host.
+     */
+    private void refreshFeeds(long now) {
+        List<Feed> feeds = new ArrayList<>(settings.getStore().getFeeds());
+        if (lastRefreshTime == null) {
+            Collections.shuffle(feeds);
+        }
+        Set<Integer> currentIds = new HashSet<>();
+        int numAdded = 0;
+        for (Feed feed : feeds) {
+            if (feed.isBlocked()) {
+                continue;
+            }
+            currentIds.add(feed.getId());
+            if (!feedIds.contains(feed.getId())) {
+                queue.add(new ScheduledFeed(getDueTime(feed, now), feed));
+                numAdded++;
+            }
+        }
+        feedIds = currentIds;
+        LOGGER.debug("refreshed feeds from store, {} feeds, {} added", currentIds.size(), numAdded);
+    }
+
+    /** Start reading the feed, or let it wait in case there are too many running feeds for the host. */
+    private void schedule(Feed feed) {
+        String host = getHost(feed);
+        int running = runningPerHost.getOrDefault(host, 0);
+        if (running >= settings.getMaxRequestsPerHost()) {
+            waitingPerHost.computeIfAbsent(host, k -> new ArrayDeque<>()).add(feed);
+            return;
+        }
+        runningPerHost.put(host, running + 1);
+        Callable<FeedTaskResult> task = taskFactory.apply(feed);
+        threadPool.submit(() -> {
+            try {
+                return task.call();
+            } finally {
+                taskDone(feed, host);
+            }
+        });
+    }
+
+    /**
+     * Put the feed back into the queue, and start the next waiting feed of the host. Waiting feeds are checked like
+     * the feeds from the queue, as they might have been removed from the store in the meantime.
+     */
+    private synchronized void taskDone(Feed feed, String host) {
+        int running = runningPerHost.get(host) - 1;
+        if (running == 0) {
+            runningPerHost.remove(host);
+        } else {
+            runningPerHost.put(host, running);
+        }
+        long now = System.currentTimeMillis();
+        if (feed.isBlocked()) {
+            feedIds.remove(feed.getId());
+        } else if (feedIds.contains(feed.getId())) {
+            queue.add(new ScheduledFeed(getDueTime(feed, now), feed));
+        }
+        Deque<Feed> waiting = waitingPerHost.get(host);
+        while (waiting != null && !waiting.isEmpty()) {
+            Feed next = waiting.poll();
+            if (waiting.isEmpty()) {
+                waitingPerHost.remove(host);
+            }
+            if (scheduleIfNeeded(next, now)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Get the time when the feed needs to be looked up next; see {@link #needsLookup(Feed)}.
+     *
+     * @param feed The feed.
+     * @param now  The current time.
+     * @return The time, which is <code>now</code> for feeds which need to be looked up immediately.
+     */
+    private long getDueTime(Feed feed, long now) {
+        boolean immediateRetry =
+                feed.getChecks() == 0 && feed.getUnreachableCount() <= settings.getMaxImmediateRetries() && feed.getUnparsableCount() <= settings.getMaxImmediateRetries();
+        if (immediateRetry || feed.getLastPollTime() == null) {
+            return now;
+        }
+        return feed.getLastPollTime().getTime() + TimeUnit.MINUTES.toMillis(feed.getUpdateInterval()) + 1;
+    }
+
+    private static String getHost(Feed feed) {
+        return UrlHelper.getDomain(feed.getFeedUrl(), false, true);
     }
 
     /**
@@ -135,16 +277,4 @@ class SchedulerTask extends TimerTask {
         }
         return ret;
     }
-
-    /**
-     * Removes the feed's {@link FeedTask} from the queue if it is contained and already done.
-     *
-     * @param feedId The feed to check and remove if the {@link FeedTask} is done.
-     */
-    private void removeFeedTaskIfDone(int feedId) {
-        final Future<FeedTaskResult> future = scheduledTasks.get(feedId);
-        if (future != null && future.isDone()) {
-            scheduledTasks.remove(feedId);
-        }
-    }
 }
@@ -32,18 +32,23 @@ public class FixedIntervalRequestThrottle implements RequestThrottle {
     }
 
     @Override
-    public synchronized void hold() {
-        long sinceLast = System.currentTimeMillis() - lastRequest;
-        if (sinceLast < pauseInterval) {
+    public void hold() {
+        long toWait;
+        synchronized (this) {
+            // reserve the time slot, so that we do not need to hold the monitor while sleeping
+            long now = System.currentTimeMillis();
+            long nextRequest = Math.max(now, lastRequest + pauseInterval);
+            lastRequest = nextRequest;
+            toWait = nextRequest - now;
+        }
+        if (toWait > 0) {
             try {
-                long toWait = pauseInterval - sinceLast;
                 LOGGER.debug("Waiting for {} milliseconds", toWait);
                 Thread.sleep(toWait);
             } catch (InterruptedException e) {
                 LOGGER.warn("{}", e);
             }
         }
-        lastRequest = System.currentTimeMillis();
     }
 
     @Override
@@ -98,9 +98,29 @@ public final class HttpHelper {
      * @return <tt>true</tt> if everything worked properly, <tt>false</tt> otherwise.
      */
     public static boolean saveToFile(HttpResult httpResult, String filePath, boolean includeHttpResponseHeaders) {
+        try {
+            saveToFile(httpResult, new ByteArrayInputStream(httpResult.getContent()), filePath, includeHttpResponseHeaders);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Error while saving to {}", filePath, e);
+            return false;
+        }
+    }
 
-        boolean result = false;
-        OutputStream out = null;
+    /**
+     * <p>
+     * Save the content from a stream to a specified path, without buffering it in memory.
+     * </p>
+     *
+     * @param httpResult                 The httpResult with the status code and the headers.
+     * @param content                    The content to save.
+     * @param filePath                   the path where the downloaded contents should be saved to; if file name ends with ".gz", the file
+     *                                   is compressed automatically.
+     * @param includeHttpResponseHeaders whether to prepend the received HTTP headers for the request to the saved
+     *                                   content.
+     * @throws IOException In case reading or writing fails.
+     */
+    public static void saveToFile(HttpResult httpResult, InputStream content, String filePath, boolean includeHttpResponseHeaders) throws IOException {
         boolean compress = filePath.endsWith(".gz") || filePath.endsWith(".gzip");
 
         Map<String, List<String>> headers = httpResult.getHeaders();
@@ -110,11 +130,10 @@ public final class HttpHelper {
             compress = false;
         }
 
-        try {
-            FileHelper.createDirectoriesAndFile(filePath);
-
-            out = new BufferedOutputStream(new FileOutputStream(filePath));
+        FileHelper.createDirectoriesAndFile(filePath);
 
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath));
+        try {
             if (compress) {
                 out = new GZIPOutputStream(out);
             }
@@ -134,17 +153,10 @@ public final class HttpHelper {
                 out.write(headerBuilder.toString().getBytes("UTF-8"));
             }
 
-            out.write(httpResult.getContent());
-            result = true;
-
-        } catch (IOException e) {
-            LOGGER.error("Error while saving to {}", filePath, e);
+            content.transferTo(out);
         } finally {
             FileHelper.close(out);
         }
-
-        return result;
-
     }
 
     /**
@@ -5,7 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.helper.date.DateHelper;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 
@@ -26,7 +26,7 @@ public class TimeWindowRequestThrottle implements RequestThrottle {
 
     private final Queue<Long> requestTimestamps;
 
-    private long totalThrottledTime;
+    private volatile long totalThrottledTime;
 
     /**
      * <p>
@@ -44,29 +44,35 @@ public class TimeWindowRequestThrottle implements RequestThrottle {
         Validate.isTrue(maximumRequests > 0, "maximumRequests must be greater zero");
         this.timeWindow = unit.toMillis(timeWindow);
         this.maximumRequests = maximumRequests;
-        this.requestTimestamps = new LinkedList<>();
+        this.requestTimestamps = new ArrayDeque<>();
         this.totalThrottledTime = 0;
     }
 
     @Override
-    public synchronized void hold() {
-        // if maximum request counts would be exceeded, we need to wait
-        if (getNumRequestsInWindow() >= maximumRequests) {
-            Long oldestTimestamp = requestTimestamps.poll();
-            long timeToWait = Math.max(0, oldestTimestamp - (System.currentTimeMillis() - timeWindow));
-            totalThrottledTime += timeToWait;
-            if (timeToWait > 5000) { // show info, when we have to wait long
-                LOGGER.info("Waiting for {}", DateHelper.getTimeString(timeToWait));
-            } else {
-                LOGGER.debug("Waiting for {}", DateHelper.getTimeString(timeToWait));
+    public void hold() {
+        long timeToWait = 0;
+        synchronized (this) {
+            // if maximum request counts would be exceeded, we need to wait
+            if (getNumRequestsInWindow() >= maximumRequests) {
+                Long oldestTimestamp = requestTimestamps.poll();
+                timeToWait = Math.max(0, oldestTimestamp - (System.currentTimeMillis() - timeWindow));
+                totalThrottledTime += timeToWait;
             }
+            // reserve the slot now, so that we do not need to hold the monitor while sleeping
+            requestTimestamps.add(System.currentTimeMillis() + timeToWait);
+        }
+        if (timeToWait > 5000) { // show info, when we have to wait long
+            LOGGER.info("Waiting for {}", DateHelper.getTimeString(timeToWait));
+        } else if (timeToWait > 0) {
+            LOGGER.debug("Waiting for {}", DateHelper.getTimeString(timeToWait));
+        }
+        if (timeToWait > 0) {
             try {
                 Thread.sleep(timeToWait);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
-        requestTimestamps.add(System.currentTimeMillis());
     }
 
     /**
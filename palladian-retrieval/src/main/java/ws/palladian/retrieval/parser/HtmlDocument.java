@@ -0,0 +1,98 @@
+package ws.palladian.retrieval.parser;
+
+import org.jsoup.helper.W3CDom;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import ws.palladian.helper.html.XPathHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A parsed HTML document, as created by {@link JsoupParser#parseHtml(ws.palladian.retrieval.HttpResult)}. It keeps the
+ * Jsoup document, which can be queried with CSS selectors directly. The W3C {@link Document} for JAXP based code is
+ * only created when it is requested via {@link #getW3cDocument()} (or an XPath query), and then kept for subsequent
+ * calls.
+ * </p>
+ */
+public final class HtmlDocument {
+
+    private final org.jsoup.nodes.Document document;
+
+    private Document w3cDocument;
+
+    HtmlDocument(org.jsoup.nodes.Document document) {
+        this.document = document;
+    }
+
+    /** @return The Jsoup document. */
+    public org.jsoup.nodes.Document getJsoupDocument() {
+        return document;
+    }
+
+    /**
+     * @param cssQuery The CSS selector.
+     * @return The matching elements, or an empty list.
+     */
+    public Elements select(String cssQuery) {
+        return document.select(cssQuery);
+    }
+
+    /**
+     * @param cssQuery The CSS selector.
+     * @return The first matching element, or <code>null</code>.
+     */
+    public Element selectFirst(String cssQuery) {
+        return document.selectFirst(cssQuery);
+    }
+
+    /**
+     * Select the elements matching the given XPath, which is evaluated with {@link XPathHelper#getXhtmlNodes(Document,
+     * String)}. This needs the W3C document, which is created on the first call.
+     *
+     * @param xPath The XPath.
+     * @return The Jsoup elements corresponding to the matching W3C elements, or an empty list.
+     */
+    public List<Element> selectXpath(String xPath) {
+        List<Element> elements = new ArrayList<>();
+        for (Node node : XPathHelper.getXhtmlNodes(getW3cDocument(), xPath)) {
+            Object source = node.getUserData(W3CDom.SourceProperty);
+            if (source instanceof Element) {
+                elements.add((Element) source);
+            }
+        }
+        return elements;
+    }
+
+    /** @return The URL of the document, or an empty string in case it is unknown. */
+    public String getLocation() {
+        return document.baseUri();
+    }
+
+    /**
+     * Get the document as W3C document; it is converted on the first call. Modifications of the Jsoup document after
+     * the conversion are not reflected.
+     *
+     * @return The W3C document.
+     */
+    public synchronized Document getW3cDocument() {
+        if (w3cDocument == null) {
+            w3cDocument = JsoupParser.toW3cDocument(document);
+        }
+        return w3cDocument;
+    }
+
+    /** @return <code>true</code> in case the W3C document has already been created. */
+    public synchronized boolean isConverted() {
+        return w3cDocument != null;
+    }
+
+    @Override
+    public String toString() {
+        return "HtmlDocument [location=" + getLocation() + ", converted=" + isConverted() + "]";
+    }
+
+}
@@ -1,24 +1,29 @@
 package ws.palladian.retrieval.parser;
 
+import org.apache.commons.io.IOUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.helper.W3CDom;
 import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Element;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
+import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.nlp.PatternHelper;
 import ws.palladian.persistence.ParserException;
+import ws.palladian.retrieval.HttpResult;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Parser for HTML documents using Jsoup.
+ * Parser for HTML documents using Jsoup. Besides parsing into W3C {@link Document}s, the parser can create
+ * {@link HtmlDocument}s via {@link #parseHtml(HttpResult)}, which keep the Jsoup document and convert it into a W3C
+ * document only on demand.
  *
  * @author David Urbansky
  */
@@ -26,6 +31,15 @@ public final class JsoupParser extends BaseDocumentParser {
 
     private static final Map<String, String> NAMESPACE_MAP = new HashMap<>();
     private static final Pattern NAMESPACE_REGEX = PatternHelper.compileOrGet("^[a-zA-Z_][a-zA-Z0-9_.-]*$");
+    private static final byte[] META = "<meta".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SCRIPT_START = "<script".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SCRIPT_END = "</script".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STYLE_START = "<style".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STYLE_END = "</style".getBytes(StandardCharsets.US_ASCII);
+    private static final Pattern HTTP_EQUIV_CONTENT_TYPE = Pattern.compile("http-equiv\\s*=\\s*[\"']?content-type(?![\\w-])", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTENT_ATTRIBUTE = Pattern.compile("\\scontent\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))", Pattern.CASE_INSENSITIVE);
 
     static {
         NAMESPACE_MAP.put("xlink", "http://www.w3.org/1999/xlink");
@@ -37,61 +51,203 @@ public final class JsoupParser extends BaseDocumentParser {
 
     @Override
     public Document parse(InputSource inputSource) throws ParserException {
+        return toW3cDocument(parseJsoup(inputSource));
+    }
+
+    /**
+     * <p>
+     * Parse the provided {@link HttpResult} into an {@link HtmlDocument}, without converting it into a W3C
+     * {@link Document}. Use this, when the document is processed with CSS selectors or Jsoup directly.
+     * </p>
+     *
+     * @param httpResult The result to parse, not <code>null</code>.
+     * @return The parsed document.
+     * @throws ParserException In case, parsing fails.
+     */
+    public HtmlDocument parseHtml(HttpResult httpResult) throws ParserException {
+        byte[] content = httpResult.getContent();
+        if (content.length == 0) {
+            throw new ParserException("HttpResult has no content");
+        }
+        InputSource inputSource = new InputSource(new ByteArrayInputStream(content));
+        String charset = httpResult.getCharset();
+        if (isSupportedCharset(charset)) {
+            inputSource.setEncoding(charset);
+        }
+        org.jsoup.nodes.Document document = parseJsoup(inputSource);
+        // set the (potentially redirected) URL
+        String location = CollectionHelper.getLast(httpResult.getLocations());
+        if (location != null) {
+            document.setBaseUri(location);
+        }
+        return new HtmlDocument(document);
+    }
+
+    /**
+     * <p>
+     * Parse the provided {@link InputSource} into an {@link HtmlDocument}, without converting it into a W3C
+     * {@link Document}.
+     * </p>
+     *
+     * @param inputSource The input to parse, not <code>null</code>.
+     * @return The parsed document.
+     * @throws ParserException In case, parsing fails.
+     */
+    public HtmlDocument parseHtml(InputSource inputSource) throws ParserException {
+        return new HtmlDocument(parseJsoup(inputSource));
+    }
+
+    /**
+     * Decode the input once and parse it with Jsoup. In case no encoding is given, it is determined from a byte order
+     * mark, or the content-type meta tag in the raw bytes, before decoding.
+     */
+    private static org.jsoup.nodes.Document parseJsoup(InputSource inputSource) throws ParserException {
         try {
-            byte[] inputBytes = inputStreamToByteArray(inputSource.getByteStream());
+            if (inputSource.getByteStream() == null && inputSource.getCharacterStream() != null) {
+                return Jsoup.parse(IOUtils.toString(inputSource.getCharacterStream()));
+            }
+            byte[] inputBytes = inputSource.getByteStream().readAllBytes();
             String encoding = inputSource.getEncoding();
-            String xml = byteArrayToString(inputBytes, encoding);
-            org.jsoup.nodes.Document parse = Jsoup.parse(xml);
-            if (encoding == null) { // make sure content-type meta tag is handled correctly
-                String documentEncoding = getDocumentEncoding(parse);
-                if (documentEncoding != null && !documentEncoding.equalsIgnoreCase(StandardCharsets.UTF_8.name())) {
-                    inputSource.setEncoding(documentEncoding);
-                    xml = byteArrayToString(inputBytes, documentEncoding);
-                    parse = Jsoup.parse(xml);
+            int offset = 0;
+            if (encoding == null) {
+                Charset bomCharset = getBomCharset(inputBytes);
+                if (bomCharset != null) {
+                    encoding = bomCharset.name();
+                    offset = bomCharset == StandardCharsets.UTF_8 ? 3 : 2;
+                } else {
+                    // make sure content-type meta tag is handled correctly
+                    String documentEncoding = getDocumentEncoding(inputBytes);
+                    if (documentEncoding != null && !documentEncoding.equalsIgnoreCase(StandardCharsets.UTF_8.name())) {
+                        inputSource.setEncoding(documentEncoding);
+                        encoding = documentEncoding;
+                    }
                 }
             }
-            // unknown namespaces can cause problems with the documents (e.g. cloning or serializing), this is somehow handled by ValidatorNuParser out of the box
-            addNamespacesToHtml(parse);
-            return W3CDom.convert(parse);
-        } catch (IOException e) {
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return Jsoup.parse(new String(inputBytes, offset, inputBytes.length - offset, charset));
+        } catch (IOException | IllegalArgumentException e) {
             throw new ParserException(e);
         }
     }
 
-    private static String getDocumentEncoding(org.jsoup.nodes.Document document) {
-        Element encodingMeta = document.selectFirst("meta[http-equiv=\"content-type\"]");
-        if (encodingMeta == null) {
-            return null;
-        }
-        String content = encodingMeta.attr("content");
-        if (!content.isEmpty()) {
-            String[] parts = content.split(";");
-            for (String part : parts) {
-                if (part.trim().startsWith("charset=")) {
-                    String encoding = part.trim().substring("charset=".length());
-                    if (isSupportedCharset(encoding)) {
-                        return encoding;
+    /**
+     * Convert a Jsoup document to a W3C document.
+     *
+     * @param document The Jsoup document; namespaces are added to its html element.
+     * @return The W3C document.
+     */
+    static Document toW3cDocument(org.jsoup.nodes.Document document) {
+        // unknown namespaces can cause problems with the documents (e.g. cloning or serializing), this is somehow handled by ValidatorNuParser out of the box
+        addNamespacesToHtml(document);
+        Document w3cDocument = W3CDom.convert(document);
+        if (!document.baseUri().isEmpty()) {
+            w3cDocument.setDocumentURI(document.baseUri());
+        }
+        return w3cDocument;
+    }
+
+    private static Charset getBomCharset(byte[] bytes) {
+        if (bytes.length >= 3 && (bytes[0] & 0xff) == 0xef && (bytes[1] & 0xff) == 0xbb && (bytes[2] & 0xff) == 0xbf) {
+            return StandardCharsets.UTF_8;
+        }
+        if (bytes.length >= 2 && (bytes[0] & 0xff) == 0xfe && (bytes[1] & 0xff) == 0xff) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (bytes.length >= 2 && (bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xfe) {
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+
+    /**
+     * Find the charset of the first content-type meta tag in the raw bytes, without decoding the document. Comments,
+     * scripts and style sheets are skipped.
+     *
+     * @param bytes The bytes of the document.
+     * @return The charset, or <code>null</code> in case there is no supported charset in the first content-type meta
+     * tag.
+     */
+    static String getDocumentEncoding(byte[] bytes) {
+        for (int start = 0; start < bytes.length; start++) {
+            if (bytes[start] != '<') {
+                continue;
+            }
+            byte[] skipTo = null;
+            if (startsWithIgnoreCase(bytes, COMMENT_START, start)) {
+                skipTo = COMMENT_END;
+            } else if (startsWithTagIgnoreCase(bytes, SCRIPT_START, start)) {
+                skipTo = SCRIPT_END;
+            } else if (startsWithTagIgnoreCase(bytes, STYLE_START, start)) {
+                skipTo = STYLE_END;
+            }
+            if (skipTo != null) {
+                start = indexOfIgnoreCase(bytes, skipTo, start + 1);
+                if (start == -1) {
+                    return null; // unterminated, so there is no meta tag after it
+                }
+                continue;
+            }
+            if (!startsWithTagIgnoreCase(bytes, META, start)) {
+                continue;
+            }
+            int end = start;
+            while (end < bytes.length && bytes[end] != '>') {
+                end++;
+            }
+            // the tag is plain ASCII, so decoding it as ISO-8859-1 is safe for all ASCII compatible encodings
+            String tag = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+            if (HTTP_EQUIV_CONTENT_TYPE.matcher(tag).find()) {
+                Matcher contentMatcher = CONTENT_ATTRIBUTE.matcher(tag);
+                if (!contentMatcher.find()) {
+                    return null;
+                }
+                String content = Optional.ofNullable(contentMatcher.group(1)).orElse(Optional.ofNullable(contentMatcher.group(2)).orElse(contentMatcher.group(3)));
+                for (String part : content.split(";")) {
+                    if (part.trim().startsWith("charset=")) {
+                        String encoding = part.trim().substring("charset=".length());
+                        if (isSupportedCharset(encoding)) {
+                            return encoding;
+                        }
                     }
                 }
+                return null;
             }
         }
         return null;
     }
 
-    private static String byteArrayToString(byte[] byteArray, String encoding) throws UnsupportedEncodingException {
-        encoding = Optional.ofNullable(encoding).orElse(StandardCharsets.UTF_8.name());
-        return new String(byteArray, encoding);
+    private static int indexOfIgnoreCase(byte[] bytes, byte[] lowerCaseSearch, int fromIndex) {
+        for (int i = fromIndex; i <= bytes.length - lowerCaseSearch.length; i++) {
+            if (startsWithIgnoreCase(bytes, lowerCaseSearch, i)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private static byte[] inputStreamToByteArray(InputStream inputStream) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        int nRead;
-        byte[] data = new byte[16384];
-        while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, nRead);
+    private static boolean startsWithIgnoreCase(byte[] bytes, byte[] lowerCaseSearch, int offset) {
+        if (offset + lowerCaseSearch.length > bytes.length) {
+            return false;
         }
-        buffer.flush();
-        return buffer.toByteArray();
+        for (int j = 0; j < lowerCaseSearch.length; j++) {
+            int b = bytes[offset + j];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCaseSearch[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Like {@link #startsWithIgnoreCase(byte[], byte[], int)}, but the tag name must end after the search. */
+    private static boolean startsWithTagIgnoreCase(byte[] bytes, byte[] lowerCaseTag, int offset) {
+        if (!startsWithIgnoreCase(bytes, lowerCaseTag, offset)) {
+            return false;
+        }
+        int next = offset + lowerCaseTag.length;
+        return next == bytes.length || bytes[next] == '>' || bytes[next] == '/' || Character.isWhitespace(bytes[next]);
     }
 
     private static void addNamespacesToHtml(org.jsoup.nodes.Document document) {
@@ -100,17 +256,18 @@ public final class JsoupParser extends BaseDocumentParser {
             return;
         }
         Map<String, String> namespaces = new HashMap<>();
-        Set<String> attrs = Collections.synchronizedSet(new HashSet<>());
-        document.getAllElements().parallelStream().forEach(el -> {
-            attrs.add(el.tag().getName());
+        Set<String> attrs = new HashSet<>();
+        for (Element el : document.getAllElements()) {
+            if (el.tagName().indexOf(':') != -1) {
+                attrs.add(el.tagName());
+            }
             for (Attribute attribute : el.attributes()) {
-                attrs.add(attribute.getKey());
+                if (attribute.getKey().indexOf(':') != -1) {
+                    attrs.add(attribute.getKey());
+                }
             }
-        });
+        }
         for (String attr : attrs) {
-            if (!attr.contains(":")) {
-                continue;
-            }
             String[] split = attr.split(":");
             if (split.length != 2) {
                 continue;
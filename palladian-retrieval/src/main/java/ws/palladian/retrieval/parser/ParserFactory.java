@@ -25,6 +25,18 @@ public final class ParserFactory {
         return new JsoupParser();
     }
 
+    /**
+     * <p>
+     * Create an HTML parser, which can also produce {@link HtmlDocument}s, which are queried via Jsoup directly, and
+     * are converted to DOM documents only on demand.
+     * </p>
+     *
+     * @return The parser.
+     */
+    public static JsoupParser createJsoupParser() {
+        return new JsoupParser();
+    }
+
     public static DocumentParser createHtmlParser2() {
         return new ValidatorNuParser();
     }
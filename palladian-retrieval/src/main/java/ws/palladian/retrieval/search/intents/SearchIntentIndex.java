@@ -0,0 +1,146 @@
+package ws.palladian.retrieval.search.intents;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import ws.palladian.helper.nlp.AhoCorasick;
+import ws.palladian.helper.nlp.StringHelper;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * The triggers of a list of {@link SearchIntent}s, compiled for matching a query in one pass: {@link QueryMatchType#MATCH}
+ * triggers are looked up in a hash map, {@link QueryMatchType#PHRASE_MATCH} and {@link QueryMatchType#CONTAINS}
+ * triggers are found with an {@link AhoCorasick} automaton. Each trigger is referenced by an entry which combines the
+ * index of the intent and the index of the trigger within the intent, so that sorting the entries gives the order in
+ * which intents and triggers were checked one after another.
+ */
+final class SearchIntentIndex {
+
+    /** Triggers of one match type which are found via an automaton. */
+    private static final class TriggerAutomaton {
+        final AhoCorasick automaton;
+        /** The entries for each pattern of the automaton. */
+        final long[][] entries;
+        /** Entries of triggers with empty text. */
+        final long[] emptyEntries;
+
+        TriggerAutomaton(Map<String, LongArrayList> triggers) {
+            List<String> patterns = new ArrayList<>(triggers.keySet());
+            automaton = new AhoCorasick(patterns);
+            entries = new long[patterns.size()][];
+            for (int i = 0; i < patterns.size(); i++) {
+                entries[i] = triggers.get(patterns.get(i)).toLongArray();
+            }
+            LongArrayList empty = triggers.get("");
+            emptyEntries = empty != null ? empty.toLongArray() : new long[0];
+        }
+    }
+
+    private static final long[] NO_ENTRIES = new long[0];
+
+    private final Map<String, long[]> matchTriggers;
+
+    private final TriggerAutomaton phraseMatchTriggers;
+
+    private final TriggerAutomaton containsTriggers;
+
+    private final long[] regexTriggers;
+
+    SearchIntentIndex(List<SearchIntent> intents) {
+        Map<QueryMatchType, Map<String, LongArrayList>> triggers = new EnumMap<>(QueryMatchType.class);
+        LongArrayList regexEntries = new LongArrayList();
+        for (int intentIndex = 0; intentIndex < intents.size(); intentIndex++) {
+            List<SearchIntentTrigger> intentTriggers = intents.get(intentIndex).getIntentTriggers();
+            for (int triggerIndex = 0; triggerIndex < intentTriggers.size(); triggerIndex++) {
+                SearchIntentTrigger trigger = intentTriggers.get(triggerIndex);
+                long entry = entry(intentIndex, triggerIndex);
+                if (trigger.getMatchType() == QueryMatchType.REGEX) {
+                    regexEntries.add(entry);
+                } else {
+                    Map<String, LongArrayList> textTriggers = triggers.computeIfAbsent(trigger.getMatchType(), t -> new LinkedHashMap<>());
+                    textTriggers.computeIfAbsent(trigger.getText(), t -> new LongArrayList(1)).add(entry);
+                }
+            }
+        }
+        matchTriggers = new HashMap<>();
+        triggers.getOrDefault(QueryMatchType.MATCH, Collections.emptyMap()).forEach((text, entries) -> matchTriggers.put(text, entries.toLongArray()));
+        phraseMatchTriggers = new TriggerAutomaton(triggers.getOrDefault(QueryMatchType.PHRASE_MATCH, Collections.emptyMap()));
+        containsTriggers = new TriggerAutomaton(triggers.getOrDefault(QueryMatchType.CONTAINS, Collections.emptyMap()));
+        regexTriggers = regexEntries.toLongArray();
+    }
+
+    static long entry(int intentIndex, int triggerIndex) {
+        return (long) intentIndex << 32 | triggerIndex;
+    }
+
+    static int intentIndex(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int triggerIndex(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Find the first trigger of the given match type which matches the query.
+     *
+     * @param matchType The match type, not {@link QueryMatchType#REGEX}.
+     * @param query     The query.
+     * @param eligible  Predicate which tells whether an intent (given by its index) may be matched.
+     * @return The entry of the first matching trigger of the first eligible intent, or -1 if there is none.
+     */
+    long findFirst(QueryMatchType matchType, String query, IntPredicate eligible) {
+        switch (matchType) {
+            case MATCH:
+                return first(matchTriggers.getOrDefault(query, NO_ENTRIES), eligible);
+            case PHRASE_MATCH:
+                return findFirst(phraseMatchTriggers, query, true, eligible);
+            case CONTAINS:
+                return findFirst(containsTriggers, query, false, eligible);
+            default:
+                throw new IllegalArgumentException("Unsupported match type: " + matchType);
+        }
+    }
+
+    private static long findFirst(TriggerAutomaton triggers, String query, boolean words, IntPredicate eligible) {
+        LongArrayList candidates = new LongArrayList();
+        if (!words) {
+            // String#contains matches the empty string
+            candidates.addElements(0, triggers.emptyEntries);
+        }
+        BitSet matchedPatterns = new BitSet();
+        triggers.automaton.match(query, (patternIndex, start, end) -> {
+            if (matchedPatterns.get(patternIndex)) {
+                return;
+            }
+            if (!words || StringHelper.isWordAt(query, start, end - start)) {
+                matchedPatterns.set(patternIndex);
+                long[] entries = triggers.entries[patternIndex];
+                candidates.addElements(candidates.size(), entries);
+            }
+        });
+        long[] sortedCandidates = candidates.toLongArray();
+        Arrays.sort(sortedCandidates);
+        return first(sortedCandidates, eligible);
+    }
+
+    private static long first(long[] sortedEntries, IntPredicate eligible) {
+        int lastIntentIndex = -1;
+        for (long entry : sortedEntries) {
+            int intentIndex = intentIndex(entry);
+            if (intentIndex != lastIntentIndex) {
+                if (eligible.test(intentIndex)) {
+                    return entry;
+                }
+                lastIntentIndex = intentIndex;
+            }
+        }
+        return -1;
+    }
+
+    /** @return The entries of all {@link QueryMatchType#REGEX} triggers, in order. */
+    long[] getRegexTriggers() {
+        return regexTriggers;
+    }
+
+}
@@ -66,10 +66,17 @@ import java.util.regex.PatternSyntaxException;
  * ]
  */
 public class SearchIntentParser {
+    /** The match types which are looked up in the {@link SearchIntentIndex}, in the order they are checked. */
+    private static final QueryMatchType[] INDEXED_MATCH_TYPES = {QueryMatchType.MATCH, QueryMatchType.PHRASE_MATCH, QueryMatchType.CONTAINS};
+
     List<SearchIntent> intents = new ArrayList<>();
 
+    /** The triggers of the intents, compiled at construction; later changes to the intents are not reflected. */
+    private final SearchIntentIndex index;
+
     public SearchIntentParser(List<? extends SearchIntent> intents) {
         this.intents.addAll(intents);
+        this.index = new SearchIntentIndex(this.intents);
     }
 
     public SearchIntentParser(File intentActionFile) throws JsonException {
@@ -78,6 +85,7 @@ public class SearchIntentParser {
 
     public SearchIntentParser(JsonArray intentActionJson) {
         parseIntentFile(intentActionJson);
+        this.index = new SearchIntentIndex(this.intents);
     }
 
     private void parseIntentFile(JsonArray intentActionsJson) {
@@ -162,63 +170,47 @@ public class SearchIntentParser {
 
         ol:
         do {
-            // XXX this could be slightly faster if we index actions by their match type so we don't have to iterate through all intents all the time
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
-                }
-
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    if (intentTrigger.getMatchType() == QueryMatchType.MATCH && intentTrigger.getText().equals(query)) {
-                        intentMatchFound = true;
-                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.MATCH, intent, query, null, intentTrigger);
-                        intentActions.add(im);
-                        matchedIntentIds.add(intent.getId());
-                        query = im.getModifiedQuery();
-                        if (im.getRedirect() != null) {
-                            return intentActions;
-                        }
-                        continue ol;
+            // MATCH, PHRASE_MATCH and CONTAINS triggers are checked in this order via the compiled index
+            for (QueryMatchType matchType : INDEXED_MATCH_TYPES) {
+                long entry = index.findFirst(matchType, query, intentIndex -> {
+                    SearchIntent intent = intents.get(intentIndex);
+                    return !matchedIntentIds.contains(intent.getId()) && (contextMatcher == null || contextMatcher.match(intent.getContext()));
+                });
+                if (entry != -1) {
+                    SearchIntent intent = intents.get(SearchIntentIndex.intentIndex(entry));
+                    SearchIntentTrigger intentTrigger = intent.getIntentTriggers().get(SearchIntentIndex.triggerIndex(entry));
+                    intentMatchFound = true;
+                    ActivatedSearchIntentAction im = processMatch(matchType, intent, query, null, intentTrigger);
+                    intentActions.add(im);
+                    matchedIntentIds.add(intent.getId());
+                    query = im.getModifiedQuery();
+                    if (im.getRedirect() != null) {
+                        return intentActions;
                     }
+                    continue ol;
                 }
             }
 
-            for (SearchIntent intent : intents) {
+            for (long entry : index.getRegexTriggers()) {
+                SearchIntent intent = intents.get(SearchIntentIndex.intentIndex(entry));
                 if (matchedIntentIds.contains(intent.getId())) {
                     continue;
                 }
                 if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
                     continue;
                 }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    if (intentTrigger.getMatchType() == QueryMatchType.PHRASE_MATCH && StringHelper.containsWordCaseSensitive(intentTrigger.getText(), query)) {
-                        intentMatchFound = true;
-                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.PHRASE_MATCH, intent, query, null, intentTrigger);
-                        intentActions.add(im);
-                        matchedIntentIds.add(intent.getId());
-                        query = im.getModifiedQuery();
-                        if (im.getRedirect() != null) {
-                            return intentActions;
-                        }
-                        continue ol;
-                    }
-                }
-            }
+                SearchIntentTrigger intentTrigger = intent.getIntentTriggers().get(SearchIntentIndex.triggerIndex(entry));
+                String regex = intentTrigger.getText();
 
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
+                // for URL replacements we want to replace the entire query, not just the matching part
+                if (intent.getIntentAction().getRedirect() != null) {
+                    regex = ".*" + regex + ".*";
                 }
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    if (intentTrigger.getMatchType() == QueryMatchType.CONTAINS && query.contains(intentTrigger.getText())) {
+                try {
+                    Matcher matcher = PatternHelper.compileOrGet(regex, Pattern.CASE_INSENSITIVE).matcher(query);
+                    if (matcher.find()) {
                         intentMatchFound = true;
-                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.CONTAINS, intent, query, null, intentTrigger);
+                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.REGEX, intent, query, matcher, intentTrigger);
                         intentActions.add(im);
                         matchedIntentIds.add(intent.getId());
                         query = im.getModifiedQuery();
@@ -227,42 +219,8 @@ public class SearchIntentParser {
                         }
                         continue ol;
                     }
-                }
-            }
-
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
-                }
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    String regex = intentTrigger.getText();
-
-                    // for URL replacements we want to replace the entire query, not just the matching part
-                    if (intent.getIntentAction().getRedirect() != null) {
-                        regex = ".*" + regex + ".*";
-                    }
-                    try {
-                        if (intentTrigger.getMatchType() == QueryMatchType.REGEX) {
-                            Matcher matcher = PatternHelper.compileOrGet(regex, Pattern.CASE_INSENSITIVE).matcher(query);
-                            if (matcher.find()) {
-                                intentMatchFound = true;
-                                ActivatedSearchIntentAction im = processMatch(QueryMatchType.REGEX, intent, query, matcher, intentTrigger);
-                                intentActions.add(im);
-                                matchedIntentIds.add(intent.getId());
-                                query = im.getModifiedQuery();
-                                if (im.getRedirect() != null) {
-                                    return intentActions;
-                                }
-                                continue ol;
-                            }
-                        }
-                    } catch (PatternSyntaxException e) {
-                        e.printStackTrace();
-                        continue;
-                    }
+                } catch (PatternSyntaxException e) {
+                    e.printStackTrace();
                 }
             }
             intentMatchFound = false;
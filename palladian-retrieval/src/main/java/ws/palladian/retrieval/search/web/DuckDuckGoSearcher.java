@@ -1,5 +1,6 @@
 package ws.palladian.retrieval.search.web;
 
+import org.jsoup.nodes.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -9,9 +10,12 @@ import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.constants.Language;
 import ws.palladian.helper.html.XPathHelper;
 import ws.palladian.helper.nlp.StringHelper;
-import ws.palladian.retrieval.DocumentRetriever;
+import ws.palladian.retrieval.HttpResult;
+import ws.palladian.retrieval.HttpRetrieverFactory;
 import ws.palladian.retrieval.configuration.ConfigurationOption;
 import ws.palladian.retrieval.helper.FixedIntervalRequestThrottle;
+import ws.palladian.retrieval.parser.HtmlDocument;
+import ws.palladian.retrieval.parser.ParserFactory;
 import ws.palladian.retrieval.resources.BasicWebContent;
 import ws.palladian.retrieval.resources.WebContent;
 import ws.palladian.retrieval.search.AbstractSearcher;
@@ -92,15 +96,15 @@ public final class DuckDuckGoSearcher extends AbstractSearcher<WebContent> {
 
     @Override
     public List<WebContent> search(String query, int resultCount, Language language) throws SearcherException {
-        DocumentRetriever documentRetriever = new DocumentRetriever();
-
         String requestUrl = String.format(HTML_URL, UrlHelper.encodeParameter(query));
         LOGGER.debug("Request URL = {}", requestUrl);
 
-        Document document;
+        HtmlDocument document;
         try {
             THROTTLE.hold();
-            document = documentRetriever.getWebDocument(requestUrl);
+            HttpResult httpResult = HttpRetrieverFactory.getHttpRetriever().httpGet(requestUrl);
+            // the results are selected with CSS, so the document does not need to be converted to a W3C document
+            document = ParserFactory.createJsoupParser().parseHtml(httpResult);
         } catch (Exception e) {
             throw new SearcherException("HTTP error while searching for \"" + query + "\" with " + getName() + " (request URL: \"" + requestUrl + "\"): " + e.getMessage(), e);
         }
@@ -108,6 +112,31 @@ public final class DuckDuckGoSearcher extends AbstractSearcher<WebContent> {
         return search(document, resultCount);
     }
 
+    /**
+     * Extract the results from a parsed result page.
+     *
+     * @param document    The result page.
+     * @param resultCount The maximum number of results.
+     * @return The results, or an empty list.
+     */
+    public List<WebContent> search(HtmlDocument document, int resultCount) {
+        List<WebContent> result = new ArrayList<>();
+        for (Element body : document.select("div.result__body")) {
+            BasicWebContent.Builder builder = new BasicWebContent.Builder();
+            Element snippet = body.selectFirst("a.result__snippet");
+            builder.setSummary(snippet != null ? snippet.text() : "");
+            Element title = body.selectFirst("h2");
+            builder.setTitle(title != null ? StringHelper.trim(title.text()) : "");
+            Element link = body.selectFirst("h2 a[href]");
+            String url = link != null ? link.attr("href") : "";
+            builder.setUrl(url);
+            if (!url.isEmpty() && !url.contains("?ad_domain=")) {
+                result.add(builder.create());
+            }
+        }
+        return CollectionHelper.getSublist(result, 0, resultCount);
+    }
+
     public List<WebContent> search(Document document, int resultCount) throws SearcherException {
         List<WebContent> result = new ArrayList<>();
         if (document == null) {
@@ -3,18 +3,25 @@ package ws.palladian.retrieval;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.helper.collection.CollectionHelper;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 @SuppressWarnings("restriction")
 public class HttpRetrieverTest {
@@ -22,6 +29,11 @@ public class HttpRetrieverTest {
     /** The logger for this class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpRetrieverTest.class);
 
+    private static final byte[] CONTENT = StringUtils.repeat("palladian ", 1000).getBytes(StandardCharsets.UTF_8);
+
+    /** More than the buffer which is allocated up front for the announced length. */
+    private static final byte[] LARGE_CONTENT = StringUtils.repeat("palladian ", 300_000).getBytes(StandardCharsets.UTF_8);
+
     private HttpServer httpServer;
 
     private int port;
@@ -41,6 +53,25 @@ public class HttpRetrieverTest {
             public void handle(HttpExchange exchange) throws IOException {
             }
         });
+        httpServer.createContext("/content", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, CONTENT.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(CONTENT);
+            }
+        });
+        httpServer.createContext("/large", exchange -> {
+            exchange.sendResponseHeaders(200, LARGE_CONTENT.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(LARGE_CONTENT);
+            }
+        });
+        httpServer.createContext("/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(CONTENT);
+            }
+        });
         httpServer.setExecutor(Executors.newSingleThreadExecutor());
         httpServer.start();
     }
@@ -76,6 +107,68 @@ public class HttpRetrieverTest {
         httpRetriever.httpGet("http://localhost:" + port + "/");
     }
 
+    @Test
+    public void testGetContent() throws HttpException {
+        HttpRetriever httpRetriever = HttpRetrieverFactory.getHttpRetriever();
+        for (String path : Arrays.asList("/content", "/chunked")) {
+            HttpResult result = httpRetriever.httpGet("http://localhost:" + port + path);
+            assertEquals(200, result.getStatusCode());
+            assertArrayEquals(CONTENT, result.getContent());
+            assertFalse(result.isMaxFileSizeReached());
+        }
+        assertArrayEquals(LARGE_CONTENT, httpRetriever.httpGet("http://localhost:" + port + "/large").getContent());
+        httpRetriever.setMaxFileSize(100);
+        HttpResult result = httpRetriever.httpGet("http://localhost:" + port + "/chunked");
+        assertEquals(100, result.getContent().length);
+        assertTrue(result.isMaxFileSizeReached());
+    }
+
+    @Test
+    public void testStreaming() throws HttpException {
+        HttpRetriever httpRetriever = HttpRetrieverFactory.getHttpRetriever();
+        HttpRequest2 request = new HttpRequest2Builder(ws.palladian.retrieval.HttpMethod.GET, "http://localhost:" + port + "/chunked").create();
+        long length = httpRetriever.execute(request, (result, content) -> {
+            assertEquals(200, result.getStatusCode());
+            assertEquals(0, result.getContent().length);
+            return content.transferTo(OutputStream.nullOutputStream());
+        });
+        assertEquals(CONTENT.length, length);
+    }
+
+    @Test
+    public void testDownloadAndSave() throws IOException {
+        File file = File.createTempFile("httpRetrieverTest", ".txt");
+        try {
+            HttpRetriever httpRetriever = HttpRetrieverFactory.getHttpRetriever();
+            assertTrue(httpRetriever.downloadAndSave("http://localhost:" + port + "/content", file.getPath()));
+            assertArrayEquals(CONTENT, Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        HttpRetriever httpRetriever = HttpRetrieverFactory.getHttpRetriever();
+        HttpRequest2 request = new HttpRequest2Builder(ws.palladian.retrieval.HttpMethod.GET, "http://localhost:" + port + "/content").create();
+        HttpResult result = httpRetriever.executeAsync(request).get(5, TimeUnit.SECONDS);
+        assertEquals(200, result.getStatusCode());
+        assertArrayEquals(CONTENT, result.getContent());
+        assertEquals("text/plain", result.getHeaderString("Content-Type"));
+
+        httpRetriever.setMaxFileSize(100);
+        result = httpRetriever.executeAsync(request).get(5, TimeUnit.SECONDS);
+        assertEquals(100, result.getContent().length);
+        assertTrue(result.isMaxFileSizeReached());
+
+        // the transfer is aborted after the limit
+        request = new HttpRequest2Builder(ws.palladian.retrieval.HttpMethod.GET, "http://localhost:" + port + "/large").create();
+        result = httpRetriever.executeAsync(request).get(5, TimeUnit.SECONDS);
+        assertEquals(100, result.getContent().length);
+        assertTrue(result.isMaxFileSizeReached());
+        assertTrue(result.getTransferedBytes() < LARGE_CONTENT.length);
+    }
+
     /** See : https://bitbucket.org/palladian/palladian/issue/133/redirecting-throws-unexpected-error */
     @Test
     @Ignore
@@ -0,0 +1,181 @@
+package ws.palladian.retrieval.crawler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PersistentFrontierTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(FileHelper.getTempDir(), "persistentFrontierTest_" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        FileHelper.delete(directory.getPath(), true);
+    }
+
+    @Test
+    public void testMappedSeenUrls() throws IOException {
+        assertTrue(directory.mkdirs());
+        File file = new File(directory, "seen");
+        try (MappedSeenUrls seenUrls = new MappedSeenUrls(file, 10)) {
+            // more URLs than the initial capacity, so that the table grows
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(seenUrls.add("http://example.com/" + i));
+            }
+            assertFalse(seenUrls.add("http://example.com/42"));
+            assertEquals(5000, seenUrls.size());
+        }
+        // only the grown table is left
+        assertArrayEquals(new String[]{"seen.16384"}, directory.list());
+        // an incomplete table, as left by a crash while growing, is ignored
+        new RandomAccessFile(new File(directory, "seen.32768"), "rw").close();
+        try (MappedSeenUrls seenUrls = new MappedSeenUrls(file, 10)) {
+            assertEquals(5000, seenUrls.size());
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(seenUrls.contains("http://example.com/" + i));
+            }
+            assertFalse(seenUrls.contains("http://example.com/5000"));
+        }
+        assertArrayEquals(new String[]{"seen.16384"}, directory.list());
+    }
+
+    @Test
+    public void testWindow() throws IOException, InterruptedException {
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 10)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(frontier.add("http://host" + i % 7 + ".com/" + i));
+            }
+            assertFalse(frontier.add("http://host0.com/0"));
+            assertEquals(100, frontier.size());
+            assertEquals(100, frontier.getSeenCount());
+            assertTrue(frontier.getQueuedUrls().size() <= 10);
+
+            Set<String> taken = new HashSet<>();
+            for (String url; (url = frontier.poll(0, TimeUnit.MILLISECONDS)) != null; ) {
+                assertTrue(taken.add(url));
+            }
+            assertEquals(100, taken.size());
+            assertEquals(0, frontier.size());
+        }
+    }
+
+    @Test
+    public void testHostShare() throws IOException, InterruptedException {
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 1, TimeUnit.HOURS, 1, 10)) {
+            // with a window of ten, a host can have one URL in the window
+            for (int i = 0; i < 8; i++) {
+                frontier.add("http://slow.com/" + i);
+            }
+            frontier.add("http://other.com/0");
+            assertEquals("http://slow.com/0", frontier.poll(0, TimeUnit.MILLISECONDS));
+            // the other host is not blocked by the URLs of the waiting host
+            assertEquals("http://other.com/0", frontier.poll(0, TimeUnit.MILLISECONDS));
+            assertNull(frontier.poll(0, TimeUnit.MILLISECONDS));
+            assertEquals(7, frontier.size());
+        }
+    }
+
+    @Test
+    public void testLogBoundedForSingleHost() throws IOException, InterruptedException {
+        File logFile = new File(directory, "queue.log");
+        Set<String> taken = new HashSet<>();
+        long initialLength;
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 100)) {
+            for (int i = 0; i < 5000; i++) {
+                frontier.add("http://example.com/" + i);
+            }
+            frontier.checkpoint();
+            initialLength = logFile.length();
+            for (int i = 0; i < 3000; i++) {
+                assertTrue(taken.add(frontier.poll(0, TimeUnit.MILLISECONDS)));
+                if (i % 100 == 0) {
+                    frontier.checkpoint();
+                    assertTrue(logFile.length() <= initialLength);
+                }
+            }
+            assertEquals(2000, frontier.size());
+        }
+        // the consumed part of the log has been removed
+        assertTrue(logFile.length() < initialLength);
+        assertArrayEquals(new String[]{"checkpoint", "queue.log", "seen.2097152"}, sorted(directory.list()));
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 100)) {
+            assertEquals(2000, frontier.size());
+            for (String url; (url = frontier.poll(0, TimeUnit.MILLISECONDS)) != null; ) {
+                assertTrue(taken.add(url));
+                assertTrue(logFile.length() <= initialLength);
+            }
+            assertEquals(5000, taken.size());
+            frontier.checkpoint();
+            assertEquals(0, logFile.length());
+        }
+    }
+
+    private static String[] sorted(String[] names) {
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Test
+    public void testResume() throws IOException, InterruptedException {
+        Set<String> taken = new HashSet<>();
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 10)) {
+            for (int i = 0; i < 50; i++) {
+                frontier.add("http://example.com/" + i);
+            }
+            for (int i = 0; i < 20; i++) {
+                taken.add(frontier.poll(0, TimeUnit.MILLISECONDS));
+            }
+        }
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 10)) {
+            assertEquals(30, frontier.size());
+            assertEquals(50, frontier.getSeenCount());
+            assertFalse(frontier.add("http://example.com/0"));
+            assertTrue(frontier.add("http://example.com/50"));
+            for (String url; (url = frontier.poll(0, TimeUnit.MILLISECONDS)) != null; ) {
+                assertTrue(taken.add(url));
+            }
+            assertEquals(51, taken.size());
+        }
+    }
+
+    @Test
+    public void testResumeAfterCrash() throws IOException, InterruptedException {
+        try (PersistentFrontier frontier = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 10)) {
+            for (int i = 0; i < 30; i++) {
+                frontier.add("http://example.com/" + i);
+            }
+        }
+        // simulate a crash while writing a record
+        try (RandomAccessFile log = new RandomAccessFile(new File(directory, "queue.log"), "rw")) {
+            log.seek(log.length());
+            log.writeInt(100);
+            log.write(new byte[]{'h', 't'});
+        }
+
+        try (PersistentFrontier resumed = new PersistentFrontier(directory, 0, TimeUnit.MILLISECONDS, 1, 10)) {
+            assertEquals(30, resumed.size());
+            Set<String> taken = new HashSet<>();
+            for (String url; (url = resumed.poll(0, TimeUnit.MILLISECONDS)) != null; ) {
+                assertTrue(taken.add(url));
+            }
+            assertEquals(30, taken.size());
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package ws.palladian.retrieval.feeds;
+
+import org.junit.Test;
+import ws.palladian.retrieval.feeds.persistence.CollectionFeedSource;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SchedulerTaskTest {
+
+    private static Feed feed(int id, String url) {
+        Feed feed = new Feed(url);
+        feed.setId(id);
+        return feed;
+    }
+
+    @Test
+    public void testScheduling() throws InterruptedException {
+        List<Feed> feeds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            feeds.add(feed(i, "http://feeds.example.com/feed" + i));
+        }
+        feeds.add(feed(6, "http://other.example.org/feed"));
+        // polled recently, not due yet
+        Feed notDue = feed(7, "http://other.example.org/feed2");
+        notDue.setLastPollTime(new Date());
+        notDue.setUpdateInterval(60);
+        notDue.increaseChecks();
+        feeds.add(notDue);
+        // blocked, never scheduled
+        Feed blocked = feed(8, "http://other.example.org/feed3");
+        blocked.setBlocked(true);
+        feeds.add(blocked);
+
+        FeedReaderSettings settings = new FeedReaderSettings.Builder() //
+                .setStore(new CollectionFeedSource(feeds)) //
+                .setAction(new DefaultFeedProcessingAction()) //
+                .setNumThreads(10) //
+                .setMaxRequestsPerHost(2) //
+                .create();
+
+        Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(7);
+        SchedulerTask schedulerTask = new SchedulerTask(settings, feed -> () -> {
+            String host = feed.getFeedUrl().split("/")[2];
+            int current = running.computeIfAbsent(host, k -> new AtomicInteger()).incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            Thread.sleep(20);
+            running.get(host).decrementAndGet();
+            // mimic FeedTask, next check in one hour
+            feed.setLastPollTime(new Date());
+            feed.setUpdateInterval(60);
+            feed.increaseChecks();
+            processed.add(feed.getId());
+            latch.countDown();
+            return FeedTaskResult.SUCCESS;
+        });
+
+        // one wake up is enough, waiting feeds are started when a feed of the same host is done
+        schedulerTask.run();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4, 5, 6)), processed);
+        assertEquals(2, maxRunning.get());
+
+        // nothing is due again
+        processed.clear();
+        schedulerTask.run();
+        Thread.sleep(100);
+        assertTrue(processed.isEmpty());
+    }
+
+    @Test
+    public void testWaitingFeedsAreChecked() throws InterruptedException {
+        List<Feed> feeds = Arrays.asList(feed(0, "http://feeds.example.com/feed0"), feed(1, "http://feeds.example.com/feed1"),
+                feed(2, "http://feeds.example.com/feed2"));
+        FeedReaderSettings settings = new FeedReaderSettings.Builder() //
+                .setStore(new CollectionFeedSource(feeds)) //
+                .setAction(new DefaultFeedProcessingAction()) //
+                .setNumThreads(2) //
+                .setMaxRequestsPerHost(1) //
+                .create();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        SchedulerTask schedulerTask = new SchedulerTask(settings, feed -> () -> {
+            processed.add(feed.getId());
+            started.countDown();
+            release.await();
+            feed.setLastPollTime(new Date());
+            feed.setUpdateInterval(60);
+            feed.increaseChecks();
+            return FeedTaskResult.SUCCESS;
+        });
+
+        schedulerTask.run();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // while the first feed of the host is read, the others wait; they are blocked in the meantime
+        for (Feed feed : feeds) {
+            if (!processed.contains(feed.getId())) {
+                feed.setBlocked(true);
+            }
+        }
+        release.countDown();
+        Thread.sleep(200);
+        assertEquals(1, processed.size());
+    }
+
+    @Test
+    public void testUnblockedFeedsAreScheduledAfterRefresh() throws InterruptedException {
+        Feed feed = feed(0, "http://feeds.example.com/feed0");
+        feed.setBlocked(true);
+        FeedReaderSettings settings = new FeedReaderSettings.Builder() //
+                .setStore(new CollectionFeedSource(Collections.singletonList(feed))) //
+                .setAction(new DefaultFeedProcessingAction()) //
+                .setWakeUpInterval(1000) //
+                .setStoreRefreshInterval(0) //
+                .create();
+        assertEquals(1000, settings.getStoreRefreshInterval());
+
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(1);
+        SchedulerTask schedulerTask = new SchedulerTask(settings, f -> () -> {
+            processed.add(f.getId());
+            latch.countDown();
+            return FeedTaskResult.SUCCESS;
+        });
+
+        schedulerTask.run();
+        Thread.sleep(100);
+        assertTrue(processed.isEmpty());
+        // unblocked in the store, picked up with the next refresh
+        feed.setBlocked(false);
+        Thread.sleep(1000);
+        schedulerTask.run();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singleton(0), processed);
+    }
+
+}
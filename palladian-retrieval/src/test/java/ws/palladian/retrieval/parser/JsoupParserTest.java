@@ -0,0 +1,76 @@
+package ws.palladian.retrieval.parser;
+
+import org.junit.Test;
+import org.jsoup.nodes.Element;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import ws.palladian.helper.html.XPathHelper;
+import ws.palladian.persistence.ParserException;
+import ws.palladian.retrieval.HttpResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsoupParserTest {
+
+    private static final String HTML = "<html><head><meta content=\"text/html; charset=ISO-8859-1\" http-equiv=\"Content-Type\"><title>Test</title></head>"
+            + "<body><div id=\"content\"><p>Grüße</p><p class=\"second\">zweiter</p></div></body></html>";
+
+    @Test
+    public void testGetDocumentEncoding() {
+        assertEquals("ISO-8859-1", JsoupParser.getDocumentEncoding(HTML.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("windows-1252", JsoupParser.getDocumentEncoding("<META HTTP-EQUIV=content-type CONTENT='text/html;charset=windows-1252'>".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(JsoupParser.getDocumentEncoding("<meta name=\"description\" content=\"charset=ISO-8859-1\">".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(JsoupParser.getDocumentEncoding("<html><body></body></html>".getBytes(StandardCharsets.US_ASCII)));
+        // meta tags in comments and scripts are ignored
+        assertEquals("windows-1252", JsoupParser.getDocumentEncoding(("<!-- <meta http-equiv=\"Content-Type\" content=\"text/html; charset=ISO-8859-1\"> -->"
+                + "<script>document.write('<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-16\">');</script>"
+                + "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\">").getBytes(StandardCharsets.US_ASCII)));
+        assertNull(JsoupParser.getDocumentEncoding("<!-- <meta http-equiv=\"Content-Type\" content=\"text/html; charset=ISO-8859-1\">".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testParseWithMetaCharset() throws ParserException {
+        JsoupParser parser = ParserFactory.createJsoupParser();
+        InputSource inputSource = new InputSource(new ByteArrayInputStream(HTML.getBytes(StandardCharsets.ISO_8859_1)));
+        Document document = parser.parse(inputSource);
+        assertEquals("Grüße", XPathHelper.getXhtmlNodeTextContent(document, "//div/p[1]"));
+        assertEquals("ISO-8859-1", inputSource.getEncoding());
+    }
+
+    @Test
+    public void testParseWithBom() throws ParserException {
+        byte[] content = "<html><body><p>Grüße</p></body></html>".getBytes(StandardCharsets.UTF_8);
+        byte[] withBom = new byte[content.length + 3];
+        withBom[0] = (byte) 0xef;
+        withBom[1] = (byte) 0xbb;
+        withBom[2] = (byte) 0xbf;
+        System.arraycopy(content, 0, withBom, 3, content.length);
+        HtmlDocument document = ParserFactory.createJsoupParser().parseHtml(new InputSource(new ByteArrayInputStream(withBom)));
+        assertEquals("Grüße", document.selectFirst("p").text());
+    }
+
+    @Test
+    public void testHtmlDocument() throws ParserException {
+        Map<String, List<String>> headers = Collections.singletonMap("Content-Type", Collections.singletonList("text/html"));
+        HttpResult httpResult = new HttpResult("http://example.com", HTML.getBytes(StandardCharsets.ISO_8859_1), headers, 200, 0,
+                Collections.singletonList("http://example.com/redirected"));
+        HtmlDocument document = ParserFactory.createJsoupParser().parseHtml(httpResult);
+        assertEquals("http://example.com/redirected", document.getLocation());
+        assertEquals("zweiter", document.selectFirst("#content p.second").text());
+        assertFalse(document.isConverted());
+
+        List<Element> elements = document.selectXpath("//div[@id='content']/p");
+        assertEquals(2, elements.size());
+        assertEquals("Grüße", elements.get(0).text());
+        assertTrue(document.isConverted());
+        assertSame(document.getW3cDocument(), document.getW3cDocument());
+        assertEquals("http://example.com/redirected", document.getW3cDocument().getDocumentURI());
+    }
+
+}
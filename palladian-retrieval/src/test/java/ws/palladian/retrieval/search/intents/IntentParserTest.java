@@ -104,4 +104,31 @@ public class IntentParserTest {
         intentAction = CollectionHelper.getFirst(intentActions);
         collector.checkThat(intentAction.getRedirect(), Matchers.is("https://helpcenter.com/tickets/C8788"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMatchOrder() throws JsonException {
+        String intentJson = "[" //
+                + "{\"triggers\": [{\"type\": \"CONTAINS\", \"text\": \"bike\"}], \"action\": {\"type\": \"DEFINITION\"}}," //
+                + "{\"triggers\": [{\"type\": \"PHRASE_MATCH\", \"text\": \"shoes\"}], \"action\": {\"type\": \"DEFINITION\"}}," //
+                + "{\"triggers\": [{\"type\": \"MATCH\", \"text\": \"red\"}], \"action\": {\"type\": \"DEFINITION\"}}," //
+                + "{\"triggers\": [{\"type\": \"PHRASE_MATCH\", \"text\": \"bike\"}], \"action\": {\"type\": \"DEFINITION\"}}," //
+                + "{\"triggers\": [{\"type\": \"CONTAINS\", \"text\": \"xl\"}], \"action\": {\"type\": \"DEFINITION\"}}" //
+                + "]";
+        SearchIntentParser intentParser = new SearchIntentParser(new JsonArray(intentJson));
+
+        // phrase matches are checked before contains, and each match removes its trigger from the query
+        List<ActivatedSearchIntentAction> intentActions = intentParser.parse("red bike shoes");
+        collector.checkThat(intentActions.size(), Matchers.is(3));
+        collector.checkThat(intentActions.get(0).getIntentTrigger().getText(), Matchers.is("shoes"));
+        collector.checkThat(intentActions.get(1).getIntentTrigger().getText(), Matchers.is("bike"));
+        collector.checkThat(intentActions.get(1).getIntentTrigger().getMatchType(), Matchers.is(QueryMatchType.PHRASE_MATCH));
+        collector.checkThat(intentActions.get(2).getIntentTrigger().getMatchType(), Matchers.is(QueryMatchType.MATCH));
+
+        // no word boundaries required for contains
+        intentActions = intentParser.parse("ebikes xl");
+        collector.checkThat(intentActions.size(), Matchers.is(2));
+        collector.checkThat(intentActions.get(0).getIntentTrigger().getText(), Matchers.is("bike"));
+        collector.checkThat(intentActions.get(0).getIntentTrigger().getMatchType(), Matchers.is(QueryMatchType.CONTAINS));
+        collector.checkThat(intentActions.get(1).getIntentTrigger().getText(), Matchers.is("xl"));
+    }
+}
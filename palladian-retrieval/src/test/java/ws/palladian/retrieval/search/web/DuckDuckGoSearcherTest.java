@@ -4,9 +4,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ErrorCollector;
 // import ws.palladian.helper.collection.CollectionHelper;
+import org.xml.sax.InputSource;
 import ws.palladian.helper.constants.Language;
+import ws.palladian.retrieval.parser.HtmlDocument;
+import ws.palladian.retrieval.parser.ParserFactory;
 import ws.palladian.retrieval.resources.WebContent;
 
+import java.io.StringReader;
 import java.util.List;
 
 import static org.hamcrest.core.Is.is;
@@ -18,6 +22,22 @@ public class DuckDuckGoSearcherTest {
     @Rule
     public ErrorCollector collector = new ErrorCollector();
 
+    @Test
+    public void testParseResults() throws Exception {
+        String html = "<html><body>" //
+                + "<div class=\"result results_links\"><div class=\"links_main result__body\"><h2 class=\"result__title\"><a class=\"result__a\" href=\"https://palladian.ws\"> Palladian </a></h2>"
+                + "<a class=\"result__snippet\" href=\"https://palladian.ws\">A Java toolkit.</a></div></div>" //
+                + "<div class=\"result\"><div class=\"result__body\"><h2><a href=\"https://duckduckgo.com/y.js?ad_domain=example.com\">Ad</a></h2></div></div>" //
+                + "</body></html>";
+        HtmlDocument document = ParserFactory.createJsoupParser().parseHtml(new InputSource(new StringReader(html)));
+        List<WebContent> results = new DuckDuckGoSearcher().search(document, 10);
+        collector.checkThat(results.size(), is(1));
+        collector.checkThat(results.get(0).getUrl(), is("https://palladian.ws"));
+        collector.checkThat(results.get(0).getTitle(), is("Palladian"));
+        collector.checkThat(results.get(0).getSummary(), is("A Java toolkit."));
+        collector.checkThat(document.isConverted(), is(false));
+    }
+
     @Test
     public void testSearch() throws Exception {
         DuckDuckGoSearcher duckDuckGoSearcher = new DuckDuckGoSearcher();